@@ -0,0 +1,155 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010-2013 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+package eu.stratosphere.sopremo.base;
+
+import eu.stratosphere.nephele.configuration.Configuration;
+import eu.stratosphere.pact.common.stubs.Collector;
+import eu.stratosphere.pact.compiler.PactCompiler;
+import eu.stratosphere.pact.generic.contract.Contract;
+import eu.stratosphere.sopremo.EvaluationContext;
+import eu.stratosphere.sopremo.operator.ElementaryOperator;
+import eu.stratosphere.sopremo.operator.InputCardinality;
+import eu.stratosphere.sopremo.pact.JsonCollector;
+import eu.stratosphere.sopremo.pact.SopremoCross;
+import eu.stratosphere.sopremo.serialization.SopremoRecord;
+import eu.stratosphere.sopremo.serialization.SopremoRecordLayout;
+import eu.stratosphere.sopremo.type.IJsonNode;
+
+/**
+ * Base class of the operators that process each value of the first input with a small value, such as a dictionary or
+ * a filter, which is the single record of the second input. The first input is forwarded without repartitioning, while
+ * the second input is broadcasted to all tasks, where a {@link BroadcastStub} decodes it once.<br>
+ * Operators that cannot extend this class configure the contract with {@link #configureShipStrategies(Configuration)}.
+ *
+ * @author Arvid Heise
+ */
+@InputCardinality(2)
+public abstract class BroadcastCross<Self extends BroadcastCross<Self>> extends ElementaryOperator<Self> {
+	/**
+	 * Sets the hints that forward the first input and broadcast the second input to a nested loop, which streams the
+	 * first input.
+	 *
+	 * @param stubConfiguration
+	 *        the configuration of the cross contract
+	 */
+	public static void configureShipStrategies(final Configuration stubConfiguration) {
+		stubConfiguration.setString(PactCompiler.HINT_SHIP_STRATEGY_FIRST_INPUT,
+			PactCompiler.HINT_SHIP_STRATEGY_FORWARD);
+		stubConfiguration.setString(PactCompiler.HINT_SHIP_STRATEGY_SECOND_INPUT,
+			PactCompiler.HINT_SHIP_STRATEGY_BROADCAST);
+		stubConfiguration.setString(PactCompiler.HINT_LOCAL_STRATEGY,
+			PactCompiler.HINT_LOCAL_STRATEGY_NESTEDLOOP_STREAMED_OUTER_SECOND);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see
+	 * eu.stratosphere.sopremo.operator.ElementaryOperator#configureContract(eu.stratosphere.pact.generic.contract.Contract
+	 * , eu.stratosphere.nephele.configuration.Configuration, eu.stratosphere.sopremo.EvaluationContext,
+	 * eu.stratosphere.sopremo.serialization.SopremoRecordLayout)
+	 */
+	@Override
+	protected void configureContract(final Contract contract, final Configuration stubConfiguration,
+			final EvaluationContext context, final SopremoRecordLayout layout) {
+		super.configureContract(contract, stubConfiguration, context, layout);
+		configureShipStrategies(stubConfiguration);
+	}
+
+	/**
+	 * Base class of the stubs of broadcast crosses, which decodes the broadcasted value of the second input once per
+	 * task and then processes all values of the first input with the decoded value.
+	 *
+	 * @param <Broadcast>
+	 *        the type of the decoded value
+	 */
+	public abstract static class BroadcastStub<Broadcast> extends SopremoCross {
+		private transient Broadcast broadcast;
+
+		private transient JsonCollector<IJsonNode> collector;
+
+		/*
+		 * (non-Javadoc)
+		 * @see
+		 * eu.stratosphere.sopremo.pact.GenericSopremoCross#open(eu.stratosphere.nephele.configuration.Configuration)
+		 */
+		@Override
+		public void open(final Configuration parameters) throws Exception {
+			super.open(parameters);
+			this.broadcast = null;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * @see
+		 * eu.stratosphere.sopremo.pact.GenericSopremoCross#createCollector(eu.stratosphere.sopremo.serialization.
+		 * SopremoRecordLayout)
+		 */
+		@Override
+		protected JsonCollector<IJsonNode> createCollector(final SopremoRecordLayout layout) {
+			return this.collector = super.createCollector(layout);
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * @see eu.stratosphere.sopremo.pact.GenericSopremoCross#cross(eu.stratosphere.sopremo.serialization.
+		 * SopremoRecord, eu.stratosphere.sopremo.serialization.SopremoRecord,
+		 * eu.stratosphere.pact.common.stubs.Collector)
+		 */
+		@Override
+		public void cross(final SopremoRecord record1, final SopremoRecord record2,
+				final Collector<SopremoRecord> out) {
+			// the broadcasted value is the only record of the second input; thus, it needs to be decoded only once
+			if (this.broadcast == null)
+				this.broadcast = this.decode(record2.getNode());
+			this.collector.configure(out, this.getContext());
+			this.process(record1.getNode(), this.broadcast, this.collector);
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * @see eu.stratosphere.sopremo.pact.GenericSopremoCross#cross(eu.stratosphere.sopremo.type.IJsonNode,
+		 * eu.stratosphere.sopremo.type.IJsonNode, eu.stratosphere.sopremo.pact.JsonCollector)
+		 */
+		@Override
+		protected void cross(final IJsonNode value, final IJsonNode broadcastValue,
+				final JsonCollector<IJsonNode> out) {
+			if (this.broadcast == null)
+				this.broadcast = this.decode(broadcastValue);
+			this.process(value, this.broadcast, out);
+		}
+
+		/**
+		 * Decodes the single value of the second input. The value is reused by the runtime and must be copied if
+		 * parts of it are retained.
+		 *
+		 * @param broadcastValue
+		 *        the value of the second input
+		 * @return the decoded value
+		 */
+		protected abstract Broadcast decode(IJsonNode broadcastValue);
+
+		/**
+		 * Processes a value of the first input with the decoded value of the second input.
+		 *
+		 * @param value
+		 *        the value of the first input
+		 * @param broadcast
+		 *        the decoded value of the second input
+		 * @param out
+		 *        the collector of the results
+		 */
+		protected abstract void process(IJsonNode value, Broadcast broadcast, JsonCollector<IJsonNode> out);
+	}
+}
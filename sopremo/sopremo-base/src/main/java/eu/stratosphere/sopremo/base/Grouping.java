@@ -1,20 +1,33 @@
 package eu.stratosphere.sopremo.base;
 
+import it.unimi.dsi.fastutil.objects.Object2ObjectMap;
+import it.unimi.dsi.fastutil.objects.Object2ObjectOpenHashMap;
+
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Output;
 import com.google.common.base.Function;
 import com.google.common.base.Predicates;
 
+import eu.stratosphere.nephele.configuration.Configuration;
 import eu.stratosphere.sopremo.CoreFunctions;
 import eu.stratosphere.sopremo.EvaluationContext;
+import eu.stratosphere.sopremo.aggregation.Aggregation;
 import eu.stratosphere.sopremo.aggregation.AssociativeAggregation;
+import eu.stratosphere.sopremo.aggregation.MaterializingAggregation;
 import eu.stratosphere.sopremo.expressions.AggregationExpression;
 import eu.stratosphere.sopremo.expressions.ArrayAccess;
 import eu.stratosphere.sopremo.expressions.ArrayCreation;
 import eu.stratosphere.sopremo.expressions.BatchAggregationExpression;
 import eu.stratosphere.sopremo.expressions.ChainedSegmentExpression;
+import eu.stratosphere.sopremo.expressions.ComparativeExpression;
+import eu.stratosphere.sopremo.expressions.ComparativeExpression.BinaryOperator;
 import eu.stratosphere.sopremo.expressions.ConstantExpression;
 import eu.stratosphere.sopremo.expressions.EvaluationExpression;
 import eu.stratosphere.sopremo.expressions.ExpressionUtil;
@@ -29,6 +42,7 @@ import eu.stratosphere.sopremo.operator.Property;
 import eu.stratosphere.sopremo.operator.SopremoModule;
 import eu.stratosphere.sopremo.pact.JsonCollector;
 import eu.stratosphere.sopremo.pact.SopremoCoGroup;
+import eu.stratosphere.sopremo.pact.SopremoMap;
 import eu.stratosphere.sopremo.pact.SopremoReduce;
 import eu.stratosphere.sopremo.type.ArrayNode;
 import eu.stratosphere.sopremo.type.IArrayNode;
@@ -43,12 +57,47 @@ import eu.stratosphere.util.CollectionUtil;
 public class Grouping extends CompositeOperator<Grouping> {
 	private final static EvaluationExpression GROUP_ALL = new ConstantExpression(NullNode.getInstance());
 
+	/**
+	 * The value of {@link #getKeyCardinality()} if the number of distinct keys is not known.
+	 */
+	public static final long UNKNOWN_CARDINALITY = -1;
+
 	private EvaluationExpression resultProjection = EvaluationExpression.VALUE;
 
 	private final List<EvaluationExpression> keyExpressions = new ArrayList<EvaluationExpression>(1);
 
 	private EvaluationExpression defaultGroupingKey = GROUP_ALL;
 
+	private AggregationStrategy aggregationStrategy = AggregationStrategy.AUTO;
+
+	private long keyCardinality = UNKNOWN_CARDINALITY;
+
+	private long maxHashMemory = HashAggregation.DEFAULT_MAX_MEMORY;
+
+	private double skewThreshold = HeavyHitters.NO_SKEW_HANDLING;
+
+	/**
+	 * The strategy that is used to aggregate the groups of a single input if all aggregations of the result
+	 * projection are {@link AssociativeAggregation}s.
+	 */
+	public static enum AggregationStrategy {
+		/**
+		 * Uses {@link #HASH} if the estimated partial aggregates of all keys fit into the hash table and {@link #SORT}
+		 * otherwise.
+		 */
+		AUTO,
+		/**
+		 * Combines and reduces the sorted values.
+		 */
+		SORT,
+		/**
+		 * Aggregates the values in a hash table before the partial aggregates are reduced. The hash table is flushed
+		 * to the reducer when its memory is exhausted. Groupings with non-associative aggregations collect all values
+		 * of a group and thus fall back to {@link #SORT}, as their entries would outgrow the hash table.
+		 */
+		HASH;
+	}
+
 	@Override
 	public void addImplementation(SopremoModule module, EvaluationContext context) {
 		JsonStream output;
@@ -87,28 +136,54 @@ public class Grouping extends CompositeOperator<Grouping> {
 	private JsonStream createGrouping(SopremoModule module) {
 		EvaluationExpression resultProjection = this.resultProjection.clone().remove(new InputSelection(0));
 		final List<AggregationExpression> aggregations = resultProjection.findAll(AggregationExpression.class);
+		final List<AggregationExpression> combinableAggregations = new ArrayList<AggregationExpression>();
+		final List<AggregationExpression> collectedAggregations = new ArrayList<AggregationExpression>();
 		for (AggregationExpression aggregationExpression : aggregations)
-			// not combinable, if there is a non-associative expression
-			if (!(aggregationExpression.getAggregation() instanceof AssociativeAggregation))
-				return new GroupProjection().withResultProjection(resultProjection).
-					withKeyExpression(0, this.getGroupingKey(0).clone().remove(new InputSelection(0))).
-					withInputs(module.getInputs());
+			// equal aggregations share the same slot
+			if (combinableAggregations.contains(aggregationExpression) ||
+				collectedAggregations.contains(aggregationExpression))
+				continue;
+			else if (isCombinable(aggregationExpression.getAggregation()))
+				combinableAggregations.add(aggregationExpression);
+			else
+				collectedAggregations.add(aggregationExpression);
+
+		// not combinable, if there are only non-associative expressions
+		if (combinableAggregations.isEmpty() && !collectedAggregations.isEmpty())
+			return new GroupProjection().withResultProjection(resultProjection).
+				withKeyExpression(0, this.getGroupingKey(0).clone().remove(new InputSelection(0))).
+				withInputs(module.getInputs());
 
 		// first project all tuples to an array with a slot for each aggregation
 		// fill the array with the input expressions of the respective aggregation
+		// the inputs of non-associative aggregations are wrapped in arrays that are concatenated during combining
 		final ArrayCreation aggregatedValues = new ArrayCreation();
+		final List<Aggregation> slotAggregations = new ArrayList<Aggregation>();
 		aggregatedValues.add(this.getGroupingKey(0).clone().remove(new InputSelection(0)));
-		for (AggregationExpression aggregationExpression : aggregations)
+		for (AggregationExpression aggregationExpression : combinableAggregations) {
 			aggregatedValues.add(aggregationExpression.getInputExpression());
-		final Projection initialValues = new Projection().withResultProjection(aggregatedValues).
+			slotAggregations.add(aggregationExpression.getAggregation());
+		}
+		for (AggregationExpression aggregationExpression : collectedAggregations) {
+			aggregatedValues.add(new ArrayCreation(aggregationExpression.getInputExpression()));
+			slotAggregations.add(CoreFunctions.ARRAY_CONCAT);
+		}
+		JsonStream initialValues = new Projection().withResultProjection(aggregatedValues).
 			withInputs(module.getInputs());
+		if (collectedAggregations.isEmpty() && this.useHashAggregation(slotAggregations.size()))
+			initialValues = new HashAggregation().
+				withAggregations(slotAggregations).
+				withMaxMemory(this.maxHashMemory).
+				withInputs(initialValues);
+		if (this.skewThreshold != HeavyHitters.NO_SKEW_HANDLING)
+			initialValues = this.aggregateHeavyHittersPartially(initialValues, slotAggregations);
 
 		// now we can create a combinable aggregation, that associatively aggregates the elements in the array
 		final ArrayCreation combinableAggregation = new ArrayCreation();
 		BatchAggregationExpression bae = new BatchAggregationExpression();
 		combinableAggregation.add(bae.add(CoreFunctions.FIRST, new ArrayAccess(0)));
-		for (int index = 0, size = aggregations.size(); index < size; index++)
-			combinableAggregation.add(bae.add(aggregations.get(index).getAggregation(), new ArrayAccess(index + 1)));
+		for (int index = 0, size = slotAggregations.size(); index < size; index++)
+			combinableAggregation.add(bae.add(slotAggregations.get(index), new ArrayAccess(index + 1)));
 		final JsonStream combinableGrouping = new GroupProjection().
 			withCombinable(true).
 			withResultProjection(combinableAggregation).
@@ -116,21 +191,95 @@ public class Grouping extends CompositeOperator<Grouping> {
 			withInputs(initialValues);
 
 		// and finally, we need to perform the actual project from the array to the desired output
-		// replace the aggregation expression with the corresponding array access
+		// replace the associative aggregation expressions with the corresponding array access and apply the
+		// non-associative aggregations on the collected inputs
+		final Map<AggregationExpression, EvaluationExpression> replacements =
+			new HashMap<AggregationExpression, EvaluationExpression>();
+		int slotIndex = 1;
+		for (AggregationExpression aggregationExpression : combinableAggregations)
+			replacements.put(aggregationExpression, new ArrayAccess(slotIndex++));
+		for (AggregationExpression aggregationExpression : collectedAggregations)
+			replacements.put(aggregationExpression, new AggregationExpression(aggregationExpression.getAggregation()).
+				withInputExpression(new ArrayAccess(slotIndex++)));
 		final EvaluationExpression finalProjection =
 			resultProjection.replace(Predicates.instanceOf(AggregationExpression.class),
 				new Function<EvaluationExpression, EvaluationExpression>() {
-					int aggregationIndex = 1;
-
 					@Override
 					public EvaluationExpression apply(EvaluationExpression expression) {
-						return new ArrayAccess(this.aggregationIndex++);
+						final EvaluationExpression replacement = replacements.get(expression);
+						return replacement == null ? expression : replacement;
 					}
 				});
 		return new Projection().withResultProjection(finalProjection).
 			withInputs(combinableGrouping);
 	}
 
+	/**
+	 * Splits the groups of heavy hitters into several salted groups, which are aggregated partially. The partial
+	 * aggregates have the same form [key, value1, ..., valueN] as the given values and are merged by the subsequent
+	 * combinable grouping. All other values bypass the partial aggregation.
+	 */
+	private JsonStream aggregateHeavyHittersPartially(JsonStream values, List<Aggregation> slotAggregations) {
+		final ArrayAccess key = new ArrayAccess(0);
+		final HeavyHitters heavyHitters = new HeavyHitters().
+			withKeyExpression(key).
+			withThreshold(this.skewThreshold).
+			withInputs(values, values);
+		final HeavyHitters.SaltValues saltedValues = new HeavyHitters.SaltValues().
+			withKeyExpression(key).
+			withNumberOfSalts(HeavyHitters.getNumberOfSalts(this)).
+			withInputs(values, heavyHitters);
+		final EvaluationExpression salt = new ArrayAccess(0);
+		final JsonStream unsaltedValues = new Selection().
+			withCondition(new ComparativeExpression(salt, BinaryOperator.EQUAL,
+				new ConstantExpression(HeavyHitters.NO_SALT))).
+			withResultProjection(new ArrayAccess(1)).
+			withInputs(saltedValues);
+		final JsonStream heavyHitterValues = new Selection().
+			withCondition(new ComparativeExpression(salt, BinaryOperator.NOT_EQUAL,
+				new ConstantExpression(HeavyHitters.NO_SALT))).
+			withInputs(saltedValues);
+
+		// the aggregations are evaluated on the value of each [salt, value] pair
+		final ArrayCreation partialAggregation = new ArrayCreation();
+		BatchAggregationExpression bae = new BatchAggregationExpression();
+		partialAggregation.add(bae.add(CoreFunctions.FIRST,
+			ExpressionUtil.makePath(new ArrayAccess(1), new ArrayAccess(0))));
+		for (int index = 0, size = slotAggregations.size(); index < size; index++)
+			partialAggregation.add(bae.add(slotAggregations.get(index),
+				ExpressionUtil.makePath(new ArrayAccess(1), new ArrayAccess(index + 1))));
+		final GroupProjection partialAggregates = new GroupProjection().
+			withCombinable(true).
+			withResultProjection(partialAggregation).
+			withKeyExpression(0, HeavyHitters.getSaltedKeyExpressions(key)).
+			withInputs(heavyHitterValues);
+		return new UnionAll().withInputs(partialAggregates, unsaltedValues);
+	}
+
+	/**
+	 * Returns true if the partial aggregates of the given aggregation can be merged with the aggregation itself.
+	 * {@link MaterializingAggregation}s would nest the partial arrays and are thus not combinable.
+	 */
+	private static boolean isCombinable(Aggregation aggregation) {
+		return aggregation instanceof AssociativeAggregation && !(aggregation instanceof MaterializingAggregation);
+	}
+
+	private boolean useHashAggregation(int numAggregations) {
+		switch (this.aggregationStrategy) {
+		case HASH:
+			return true;
+		case SORT:
+			return false;
+		default:
+			long keyCardinality = this.keyCardinality;
+			// constant keys, such as GROUP_ALL, have only one group
+			if (this.getGroupingKey(0) instanceof ConstantExpression)
+				keyCardinality = 1;
+			return keyCardinality != UNKNOWN_CARDINALITY &&
+				keyCardinality * HashAggregation.estimateEntrySize(numAggregations) <= this.maxHashMemory;
+		}
+	}
+
 	@Override
 	public boolean equals(final Object obj) {
 		if (this == obj)
@@ -138,7 +287,11 @@ public class Grouping extends CompositeOperator<Grouping> {
 		if (!super.equals(obj))
 			return false;
 		final Grouping other = (Grouping) obj;
-		return this.resultProjection.equals(other.resultProjection);
+		return this.resultProjection.equals(other.resultProjection) &&
+			this.aggregationStrategy == other.aggregationStrategy &&
+			this.keyCardinality == other.keyCardinality &&
+			this.maxHashMemory == other.maxHashMemory &&
+			this.skewThreshold == other.skewThreshold;
 	}
 
 	public EvaluationExpression getResultProjection() {
@@ -150,9 +303,135 @@ public class Grouping extends CompositeOperator<Grouping> {
 		final int prime = 31;
 		int result = super.hashCode();
 		result = prime * result + this.resultProjection.hashCode();
+		result = prime * result + this.aggregationStrategy.hashCode();
+		result = prime * result + (int) (this.keyCardinality ^ this.keyCardinality >>> 32);
+		result = prime * result + (int) (this.maxHashMemory ^ this.maxHashMemory >>> 32);
+		final long temp = Double.doubleToLongBits(this.skewThreshold);
+		result = prime * result + (int) (temp ^ temp >>> 32);
 		return result;
 	}
 
+	/**
+	 * Returns the aggregationStrategy.
+	 * 
+	 * @return the aggregationStrategy
+	 */
+	public AggregationStrategy getAggregationStrategy() {
+		return this.aggregationStrategy;
+	}
+
+	/**
+	 * Sets the strategy that is used to aggregate the groups of a single input.
+	 * 
+	 * @param aggregationStrategy
+	 *        the aggregationStrategy to set
+	 */
+	@Property(expert = true)
+	@Name(preposition = "with strategy")
+	public void setAggregationStrategy(AggregationStrategy aggregationStrategy) {
+		if (aggregationStrategy == null)
+			throw new NullPointerException("aggregationStrategy must not be null");
+
+		this.aggregationStrategy = aggregationStrategy;
+	}
+
+	public Grouping withAggregationStrategy(AggregationStrategy aggregationStrategy) {
+		this.setAggregationStrategy(aggregationStrategy);
+		return this;
+	}
+
+	/**
+	 * Returns the estimated number of distinct keys or {@link #UNKNOWN_CARDINALITY}.
+	 * 
+	 * @return the keyCardinality
+	 */
+	public long getKeyCardinality() {
+		return this.keyCardinality;
+	}
+
+	/**
+	 * Sets the estimated number of distinct keys, which is used to choose the {@link AggregationStrategy}
+	 * automatically.
+	 * 
+	 * @param keyCardinality
+	 *        the keyCardinality to set or {@link #UNKNOWN_CARDINALITY}
+	 */
+	@Property(expert = true)
+	@Name(noun = "key cardinality")
+	public void setKeyCardinality(long keyCardinality) {
+		if (keyCardinality < 0 && keyCardinality != UNKNOWN_CARDINALITY)
+			throw new IllegalArgumentException("keyCardinality must not be negative");
+
+		this.keyCardinality = keyCardinality;
+	}
+
+	public Grouping withKeyCardinality(long keyCardinality) {
+		this.setKeyCardinality(keyCardinality);
+		return this;
+	}
+
+	/**
+	 * Returns the maximum number of bytes that the hash table of the {@link AggregationStrategy#HASH} strategy
+	 * occupies.
+	 * 
+	 * @return the maxHashMemory
+	 */
+	public long getMaxHashMemory() {
+		return this.maxHashMemory;
+	}
+
+	/**
+	 * Sets the maximum number of bytes that the hash table of the {@link AggregationStrategy#HASH} strategy occupies
+	 * before the partial aggregates are flushed.
+	 * 
+	 * @param maxHashMemory
+	 *        the maxHashMemory to set
+	 */
+	@Property(expert = true)
+	@Name(noun = "hash memory")
+	public void setMaxHashMemory(long maxHashMemory) {
+		if (maxHashMemory <= 0)
+			throw new IllegalArgumentException("maxHashMemory must be positive");
+
+		this.maxHashMemory = maxHashMemory;
+	}
+
+	public Grouping withMaxHashMemory(long maxHashMemory) {
+		this.setMaxHashMemory(maxHashMemory);
+		return this;
+	}
+
+	/**
+	 * Returns the fraction of the sampled keys above which a key is treated as heavy hitter or
+	 * {@link HeavyHitters#NO_SKEW_HANDLING}.
+	 * 
+	 * @return the skewThreshold
+	 */
+	public double getSkewThreshold() {
+		return this.skewThreshold;
+	}
+
+	/**
+	 * Sets the fraction of the sampled keys above which a key is treated as heavy hitter. The associative
+	 * aggregations of heavy hitters are computed partially in several tasks before the partial aggregates are merged.
+	 * 
+	 * @param skewThreshold
+	 *        the skewThreshold to set or {@link HeavyHitters#NO_SKEW_HANDLING}
+	 */
+	@Property(expert = true)
+	@Name(noun = "skew threshold")
+	public void setSkewThreshold(double skewThreshold) {
+		if (skewThreshold != HeavyHitters.NO_SKEW_HANDLING && (skewThreshold <= 0 || skewThreshold > 1))
+			throw new IllegalArgumentException("skewThreshold must be in (0, 1]");
+
+		this.skewThreshold = skewThreshold;
+	}
+
+	public Grouping withSkewThreshold(double skewThreshold) {
+		this.setSkewThreshold(skewThreshold);
+		return this;
+	}
+
 	@Property(preferred = true)
 	@Name(preposition = "into")
 	public void setResultProjection(EvaluationExpression resultProjection) {
@@ -249,6 +528,204 @@ public class Grouping extends CompositeOperator<Grouping> {
 		}
 	}
 
+	/**
+	 * Aggregates arrays of the form [key, value1, ..., valueN] with the given associative aggregations in a hash
+	 * table. The partial aggregates are emitted in the same form when the hash table is full or the input is
+	 * exhausted, such that a subsequent combinable {@link GroupProjection} can merge them.
+	 */
+	@InputCardinality(1)
+	public static class HashAggregation extends ElementaryOperator<HashAggregation> {
+		/**
+		 * The default maximum number of bytes of the hash table.
+		 */
+		public static final long DEFAULT_MAX_MEMORY = 32 << 20;
+
+		/**
+		 * Estimated number of bytes of a key and the table entry, excluding the aggregates.
+		 */
+		private static final int ENTRY_OVERHEAD = 64;
+
+		/**
+		 * Estimated number of bytes of a partial aggregate.
+		 */
+		private static final int AGGREGATE_SIZE = 32;
+
+		private final List<AssociativeAggregation<?>> aggregations = new ArrayList<AssociativeAggregation<?>>();
+
+		private long maxMemory = DEFAULT_MAX_MEMORY;
+
+		/**
+		 * Estimates the number of bytes that the partial aggregates of one key occupy.
+		 * 
+		 * @param numAggregations
+		 *        the number of aggregations
+		 * @return the estimated number of bytes
+		 */
+		public static long estimateEntrySize(int numAggregations) {
+			return ENTRY_OVERHEAD + AGGREGATE_SIZE * numAggregations;
+		}
+
+		/**
+		 * Sets the aggregations of the values, which must be associative.
+		 * 
+		 * @param aggregations
+		 *        the aggregations of the values
+		 * @return this
+		 */
+		public HashAggregation withAggregations(List<? extends Aggregation> aggregations) {
+			this.aggregations.clear();
+			for (Aggregation aggregation : aggregations)
+				this.aggregations.add((AssociativeAggregation<?>) aggregation);
+			return this;
+		}
+
+		public HashAggregation withMaxMemory(long maxMemory) {
+			if (maxMemory <= 0)
+				throw new IllegalArgumentException("maxMemory must be positive");
+
+			this.maxMemory = maxMemory;
+			return this;
+		}
+
+		public static class Implementation extends SopremoMap {
+			private List<AssociativeAggregation<IJsonNode>> aggregations;
+
+			private long maxMemory;
+
+			private transient Object2ObjectMap<BinaryKey, IJsonNode[]> partials;
+
+			private final transient BinaryKey probe = new BinaryKey();
+
+			private transient Kryo kryo;
+
+			private final transient Output keyOutput = new Output(64, -1);
+
+			private final transient ArrayNode<IJsonNode> result = new ArrayNode<IJsonNode>();
+
+			private transient JsonCollector<IJsonNode> collector;
+
+			private transient long usedMemory;
+
+			/*
+			 * (non-Javadoc)
+			 * @see eu.stratosphere.sopremo.pact.GenericSopremoMap#open(eu.stratosphere.nephele.configuration.Configuration)
+			 */
+			@Override
+			public void open(Configuration parameters) {
+				super.open(parameters);
+				this.kryo = this.getContext().getKryo();
+				this.partials = new Object2ObjectOpenHashMap<BinaryKey, IJsonNode[]>();
+				this.usedMemory = 0;
+			}
+
+			/*
+			 * (non-Javadoc)
+			 * @see eu.stratosphere.sopremo.pact.GenericSopremoMap#map(eu.stratosphere.sopremo.type.IJsonNode,
+			 * eu.stratosphere.sopremo.pact.JsonCollector)
+			 */
+			@Override
+			protected void map(IJsonNode value, JsonCollector<IJsonNode> out) {
+				this.collector = out;
+				@SuppressWarnings("unchecked")
+				final IArrayNode<IJsonNode> values = (IArrayNode<IJsonNode>) value;
+				final IJsonNode key = values.get(0);
+
+				// the table is keyed by the serialized key, which avoids to keep the key nodes consistent
+				// the key buffer is only copied for new entries
+				this.keyOutput.clear();
+				this.kryo.writeClassAndObject(this.keyOutput, key);
+				this.probe.set(this.keyOutput.getBuffer(), this.keyOutput.position());
+
+				final int numAggregations = this.aggregations.size();
+				IJsonNode[] partial = this.partials.get(this.probe);
+				if (partial == null) {
+					final long entrySize = this.probe.length + estimateEntrySize(numAggregations);
+					if (this.usedMemory + entrySize > this.maxMemory)
+						this.flush();
+					partial = new IJsonNode[numAggregations + 1];
+					partial[0] = key.clone();
+					for (int index = 0; index < numAggregations; index++)
+						partial[index + 1] = this.aggregations.get(index).createPartialAggregate();
+					this.partials.put(this.probe.copy(), partial);
+					this.usedMemory += entrySize;
+				}
+
+				for (int index = 0; index < numAggregations; index++)
+					partial[index + 1] =
+						this.aggregations.get(index).aggregatePartial(partial[index + 1], values.get(index + 1));
+			}
+
+			/*
+			 * (non-Javadoc)
+			 * @see eu.stratosphere.pact.common.stubs.Stub#close()
+			 */
+			@Override
+			public void close() throws Exception {
+				this.flush();
+				super.close();
+			}
+
+			/**
+			 * Emits all partial aggregates and clears the hash table.
+			 */
+			private void flush() {
+				for (final IJsonNode[] partial : this.partials.values()) {
+					this.result.clear();
+					for (final IJsonNode aggregate : partial)
+						this.result.add(aggregate);
+					this.collector.collect(this.result);
+				}
+				this.partials.clear();
+				this.usedMemory = 0;
+			}
+		}
+
+		/**
+		 * A serialized key that refers to the reused key buffer while probing and to a copy of the buffer once it has
+		 * been inserted.
+		 */
+		private static final class BinaryKey {
+			private byte[] bytes;
+
+			private int length, hash;
+
+			private void set(final byte[] bytes, final int length) {
+				this.bytes = bytes;
+				this.length = length;
+				int hash = 1;
+				for (int index = 0; index < length; index++)
+					hash = 31 * hash + bytes[index];
+				this.hash = hash;
+			}
+
+			private BinaryKey copy() {
+				final BinaryKey copy = new BinaryKey();
+				copy.bytes = Arrays.copyOf(this.bytes, this.length);
+				copy.length = this.length;
+				copy.hash = this.hash;
+				return copy;
+			}
+
+			@Override
+			public int hashCode() {
+				return this.hash;
+			}
+
+			@Override
+			public boolean equals(final Object obj) {
+				if (!(obj instanceof BinaryKey))
+					return false;
+				final BinaryKey other = (BinaryKey) obj;
+				if (this.hash != other.hash || this.length != other.length)
+					return false;
+				for (int index = 0; index < this.length; index++)
+					if (this.bytes[index] != other.bytes[index])
+						return false;
+				return true;
+			}
+		}
+	}
+
 	@InputCardinality(1)
 	public static class GroupProjection extends ElementaryOperator<GroupProjection> {
 		// /* (non-Javadoc)
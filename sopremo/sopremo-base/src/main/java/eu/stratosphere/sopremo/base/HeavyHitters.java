@@ -0,0 +1,417 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010-2013 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+package eu.stratosphere.sopremo.base;
+
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import com.google.common.base.Function;
+import com.google.common.base.Predicates;
+import com.google.common.collect.Iterators;
+import com.google.common.collect.PeekingIterator;
+
+import eu.stratosphere.nephele.configuration.Configuration;
+import eu.stratosphere.pact.common.contract.Order;
+import eu.stratosphere.sopremo.EvaluationContext;
+import eu.stratosphere.sopremo.base.replace.CollectDictionary;
+import eu.stratosphere.sopremo.expressions.ArrayAccess;
+import eu.stratosphere.sopremo.expressions.ConstantExpression;
+import eu.stratosphere.sopremo.expressions.EvaluationExpression;
+import eu.stratosphere.sopremo.expressions.EvaluationExpression.ValueExpression;
+import eu.stratosphere.sopremo.expressions.OrderingExpression;
+import eu.stratosphere.sopremo.expressions.PathSegmentExpression;
+import eu.stratosphere.sopremo.operator.CompositeOperator;
+import eu.stratosphere.sopremo.operator.ElementaryOperator;
+import eu.stratosphere.sopremo.operator.InputCardinality;
+import eu.stratosphere.sopremo.operator.JsonStream;
+import eu.stratosphere.sopremo.operator.Name;
+import eu.stratosphere.sopremo.operator.Operator;
+import eu.stratosphere.sopremo.operator.Property;
+import eu.stratosphere.sopremo.operator.SopremoModule;
+import eu.stratosphere.sopremo.pact.JsonCollector;
+import eu.stratosphere.sopremo.pact.SopremoCoGroup;
+import eu.stratosphere.sopremo.type.ArrayNode;
+import eu.stratosphere.sopremo.type.IArrayNode;
+import eu.stratosphere.sopremo.type.IJsonNode;
+import eu.stratosphere.sopremo.type.INumericNode;
+import eu.stratosphere.sopremo.type.IStreamNode;
+import eu.stratosphere.sopremo.type.IntNode;
+import eu.stratosphere.sopremo.type.StreamNode;
+
+/**
+ * Finds the heavy hitters of the first input, that is, the keys that occur in at least the given fraction of a
+ * sample of the keys. The keys are emitted as a single array. The second input only guarantees that the array is
+ * emitted if the first input is empty but the second input is not.<br>
+ * The heavy hitters are used to split large groups: the values of the heavy hitters are distributed to several salts
+ * with {@link SaltValues}, and the values of the other input are replicated to all salts. Thus, an operator that
+ * groups the values on the salt and the key processes each heavy hitter in several tasks. Operators that aggregate
+ * the groups associatively merge the partial aggregates of all salts in a second step.
+ * 
+ * @author Arvid Heise
+ */
+@InputCardinality(2)
+public class HeavyHitters extends CompositeOperator<HeavyHitters> {
+	/**
+	 * The default number of salts of each heavy hitter if the degree of parallelism is not set.
+	 */
+	public static final int DEFAULT_NUMBER_OF_SALTS = 16;
+
+	/**
+	 * The salt of all values that are not heavy hitters. The values of heavy hitters have the salts
+	 * 1..numberOfSalts.
+	 */
+	public static final int NO_SALT = 0;
+
+	/**
+	 * The default fraction of the sampled keys that a key needs to reach to be a heavy hitter.
+	 */
+	public static final double DEFAULT_THRESHOLD = 0.01;
+
+	/**
+	 * The threshold that disables the handling of heavy hitters in the operators that support it.
+	 */
+	public static final double NO_SKEW_HANDLING = 0;
+
+	private EvaluationExpression keyExpression = EvaluationExpression.VALUE;
+
+	private double threshold = DEFAULT_THRESHOLD;
+
+	private int sampleSize = Sort.DEFAULT_SAMPLE_SIZE;
+
+	/**
+	 * Returns the number of salts for heavy hitters of the given operator, which is its degree of parallelism if set.
+	 * 
+	 * @param operator
+	 *        the operator that processes the salted values
+	 * @return the number of salts
+	 */
+	public static int getNumberOfSalts(final Operator<?> operator) {
+		final int degreeOfParallelism = operator.getDegreeOfParallelism();
+		return degreeOfParallelism == Operator.STANDARD_DEGREE_OF_PARALLELISM ? DEFAULT_NUMBER_OF_SALTS
+			: degreeOfParallelism;
+	}
+
+	/**
+	 * Returns the key expressions of salted pairs [salt, value] for the given key expression of the values.
+	 * 
+	 * @param keyExpression
+	 *        the key expression of the values
+	 * @return the salt and the key of the value
+	 */
+	public static EvaluationExpression[] getSaltedKeyExpressions(final EvaluationExpression keyExpression) {
+		return new EvaluationExpression[] { new ArrayAccess(0),
+			keyExpression.clone().replace(Predicates.instanceOf(ValueExpression.class), new ArrayAccess(1)) };
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see eu.stratosphere.sopremo.operator.CompositeOperator#addImplementation(eu.stratosphere.sopremo.operator.
+	 * SopremoModule, eu.stratosphere.sopremo.EvaluationContext)
+	 */
+	@Override
+	public void addImplementation(final SopremoModule module, final EvaluationContext context) {
+		JsonStream keys = module.getInput(0);
+		PathSegmentExpression keyPath = EvaluationExpression.VALUE;
+		// the sample is drawn on a path; thus, other key expressions are evaluated in advance
+		if (this.keyExpression instanceof PathSegmentExpression)
+			keyPath = (PathSegmentExpression) this.keyExpression;
+		else
+			keys = new Projection().withResultProjection(this.keyExpression).withInputs(keys);
+
+		final Sort.SampleKeys sample = new Sort.SampleKeys().
+			withSortingExpression(new OrderingExpression(Order.ASCENDING, keyPath)).
+			withSampleSize(this.sampleSize).
+			withInputs(keys);
+		final CollectHeavyHitters heavyHitters = new CollectHeavyHitters().
+			withThreshold(this.threshold).
+			withInputs(sample, new CollectDictionary.InputSignal().withInputs(module.getInput(1)));
+		module.getOutput(0).setInput(0, heavyHitters);
+	}
+
+	public EvaluationExpression getKeyExpression() {
+		return this.keyExpression;
+	}
+
+	@Property
+	public void setKeyExpression(final EvaluationExpression keyExpression) {
+		if (keyExpression == null)
+			throw new NullPointerException("keyExpression must not be null");
+
+		this.keyExpression = keyExpression;
+	}
+
+	public HeavyHitters withKeyExpression(final EvaluationExpression keyExpression) {
+		this.setKeyExpression(keyExpression);
+		return this;
+	}
+
+	public double getThreshold() {
+		return this.threshold;
+	}
+
+	/**
+	 * Sets the fraction of the sampled keys that a key needs to reach to be a heavy hitter.
+	 * 
+	 * @param threshold
+	 *        the threshold to set
+	 */
+	@Property
+	public void setThreshold(final double threshold) {
+		if (threshold <= 0 || threshold > 1)
+			throw new IllegalArgumentException("threshold must be in (0, 1]");
+
+		this.threshold = threshold;
+	}
+
+	public HeavyHitters withThreshold(final double threshold) {
+		this.setThreshold(threshold);
+		return this;
+	}
+
+	public int getSampleSize() {
+		return this.sampleSize;
+	}
+
+	/**
+	 * Sets the number of keys that each task samples.
+	 * 
+	 * @param sampleSize
+	 *        the sample size to set
+	 */
+	@Property(expert = true)
+	@Name(noun = "sample size")
+	public void setSampleSize(final int sampleSize) {
+		if (sampleSize <= 0)
+			throw new IllegalArgumentException("sampleSize must be positive");
+
+		this.sampleSize = sampleSize;
+	}
+
+	public HeavyHitters withSampleSize(final int sampleSize) {
+		this.setSampleSize(sampleSize);
+		return this;
+	}
+
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = super.hashCode();
+		result = prime * result + this.keyExpression.hashCode();
+		result = prime * result + this.sampleSize;
+		final long temp = Double.doubleToLongBits(this.threshold);
+		result = prime * result + (int) (temp ^ temp >>> 32);
+		return result;
+	}
+
+	@Override
+	public boolean equals(final Object obj) {
+		if (this == obj)
+			return true;
+		if (!super.equals(obj))
+			return false;
+		if (this.getClass() != obj.getClass())
+			return false;
+		final HeavyHitters other = (HeavyHitters) obj;
+		return this.threshold == other.threshold && this.sampleSize == other.sampleSize
+			&& this.keyExpression.equals(other.keyExpression);
+	}
+
+	/**
+	 * Counts the sampled keys of the first input and emits all keys that reach the threshold as a single array. The
+	 * array is emitted as long as any input is not empty.
+	 */
+	@InputCardinality(2)
+	public static class CollectHeavyHitters extends ElementaryOperator<CollectHeavyHitters> {
+		private double threshold;
+
+		public CollectHeavyHitters() {
+			this.setKeyExpressions(0, ConstantExpression.NULL);
+			this.setKeyExpressions(1, ConstantExpression.NULL);
+		}
+
+		public CollectHeavyHitters withThreshold(final double threshold) {
+			this.threshold = threshold;
+			return this;
+		}
+
+		public static class Implementation extends SopremoCoGroup {
+			private double threshold;
+
+			private final transient Object2IntMap<IJsonNode> frequencies = new Object2IntOpenHashMap<IJsonNode>();
+
+			private final transient IArrayNode<IJsonNode> heavyHitters = new ArrayNode<IJsonNode>();
+
+			/*
+			 * (non-Javadoc)
+			 * @see eu.stratosphere.sopremo.pact.SopremoCoGroup#coGroup(eu.stratosphere.sopremo.type.IStreamNode,
+			 * eu.stratosphere.sopremo.type.IStreamNode, eu.stratosphere.sopremo.pact.JsonCollector)
+			 */
+			@Override
+			protected void coGroup(final IStreamNode<IJsonNode> keys, final IStreamNode<IJsonNode> signals,
+					final JsonCollector<IJsonNode> out) {
+				this.frequencies.clear();
+				int numberOfKeys = 0;
+				for (final IJsonNode key : keys) {
+					numberOfKeys++;
+					if (this.frequencies.containsKey(key))
+						this.frequencies.put(key, this.frequencies.getInt(key) + 1);
+					else
+						this.frequencies.put(key.clone(), 1);
+				}
+
+				this.heavyHitters.clear();
+				final double minimumFrequency = this.threshold * numberOfKeys;
+				for (final Object2IntMap.Entry<IJsonNode> entry : this.frequencies.object2IntEntrySet())
+					if (entry.getIntValue() >= minimumFrequency)
+						this.heavyHitters.add(entry.getKey());
+				out.collect(this.heavyHitters);
+			}
+		}
+	}
+
+	/**
+	 * Wraps the values of the first input in pairs [salt, value], where the salt is {@link #NO_SALT} unless the key
+	 * of the value is one of the heavy hitters, which are the single value of the second input. The values of heavy
+	 * hitters are either distributed round-robin to the salts 1..numberOfSalts or replicated to all of these salts.
+	 */
+	@InputCardinality(2)
+	public static class SaltValues extends BroadcastCross<SaltValues> {
+		private EvaluationExpression keyExpression = EvaluationExpression.VALUE;
+
+		private int numberOfSalts = DEFAULT_NUMBER_OF_SALTS;
+
+		private boolean replicate;
+
+		public SaltValues withKeyExpression(final EvaluationExpression keyExpression) {
+			this.keyExpression = keyExpression;
+			return this;
+		}
+
+		public SaltValues withNumberOfSalts(final int numberOfSalts) {
+			this.numberOfSalts = numberOfSalts;
+			return this;
+		}
+
+		public SaltValues withReplicate(final boolean replicate) {
+			this.replicate = replicate;
+			return this;
+		}
+
+		public static class Implementation extends BroadcastStub<Set<IJsonNode>> {
+			private EvaluationExpression keyExpression;
+
+			private int numberOfSalts;
+
+			private boolean replicate;
+
+			private transient int nextSalt;
+
+			private final transient IntNode salt = new IntNode();
+
+			private final transient IArrayNode<IJsonNode> saltedValue = new ArrayNode<IJsonNode>();
+
+			/*
+			 * (non-Javadoc)
+			 * @see
+			 * eu.stratosphere.sopremo.base.BroadcastCross.BroadcastStub#open(eu.stratosphere.nephele.configuration
+			 * .Configuration)
+			 */
+			@Override
+			public void open(final Configuration parameters) throws Exception {
+				super.open(parameters);
+				this.nextSalt = 0;
+			}
+
+			/*
+			 * (non-Javadoc)
+			 * @see
+			 * eu.stratosphere.sopremo.base.BroadcastCross.BroadcastStub#decode(eu.stratosphere.sopremo.type.IJsonNode)
+			 */
+			@Override
+			protected Set<IJsonNode> decode(final IJsonNode heavyHitterKeys) {
+				final Set<IJsonNode> heavyHitters = new HashSet<IJsonNode>();
+				for (final IJsonNode key : (IArrayNode<?>) heavyHitterKeys)
+					heavyHitters.add(key.clone());
+				return heavyHitters;
+			}
+
+			/*
+			 * (non-Javadoc)
+			 * @see
+			 * eu.stratosphere.sopremo.base.BroadcastCross.BroadcastStub#process(eu.stratosphere.sopremo.type.IJsonNode,
+			 * java.lang.Object, eu.stratosphere.sopremo.pact.JsonCollector)
+			 */
+			@Override
+			protected void process(final IJsonNode value, final Set<IJsonNode> heavyHitters,
+					final JsonCollector<IJsonNode> out) {
+				this.saltedValue.clear();
+				this.saltedValue.add(this.salt);
+				this.saltedValue.add(value);
+				if (!heavyHitters.contains(this.keyExpression.evaluate(value))) {
+					this.salt.setValue(NO_SALT);
+					out.collect(this.saltedValue);
+				} else if (this.replicate)
+					for (int salt = 1; salt <= this.numberOfSalts; salt++) {
+						this.salt.setValue(salt);
+						out.collect(this.saltedValue);
+					}
+				else {
+					this.salt.setValue(1 + this.nextSalt);
+					this.nextSalt = (this.nextSalt + 1) % this.numberOfSalts;
+					out.collect(this.saltedValue);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Exposes the values of a group of salted pairs [salt, value] as a stream and retains the salt of the group.
+	 */
+	public static class UnsaltedStream extends StreamNode<IJsonNode> {
+		private static final Function<IJsonNode, IJsonNode> GET_VALUE = new Function<IJsonNode, IJsonNode>() {
+			@Override
+			public IJsonNode apply(final IJsonNode saltedValue) {
+				return ((IArrayNode<?>) saltedValue).get(1);
+			}
+		};
+
+		private int salt = NO_SALT;
+
+		/**
+		 * Sets the salted pairs of the group.
+		 * 
+		 * @param saltedValues
+		 *        the pairs [salt, value]
+		 */
+		public void setSaltedValues(final IStreamNode<IJsonNode> saltedValues) {
+			final PeekingIterator<IJsonNode> iterator = Iterators.peekingIterator(saltedValues.iterator());
+			this.salt = iterator.hasNext() ?
+				((INumericNode) ((IArrayNode<?>) iterator.peek()).get(0)).getIntValue() : NO_SALT;
+			this.setNodeIterator(Iterators.transform(iterator, GET_VALUE));
+		}
+
+		/**
+		 * Returns whether the group belongs to a heavy hitter. Empty groups are not salted.
+		 * 
+		 * @return true if the values have been salted
+		 */
+		public boolean isSalted() {
+			return this.salt != NO_SALT;
+		}
+	}
+}
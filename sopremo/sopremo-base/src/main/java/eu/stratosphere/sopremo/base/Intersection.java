@@ -47,6 +47,7 @@ public class Intersection extends CompositeOperator<Intersection> {
 		 */
 		public FilterLess() {
 			setKeyExpressions(0, EvaluationExpression.VALUE);
+			setCombinable(true);
 		}
 
 		public FilterLess withThreshold(int threshold) {
@@ -73,6 +74,16 @@ public class Intersection extends CompositeOperator<Intersection> {
 			this.threshold = threshold;
 		}
 
+		/*
+		 * (non-Javadoc)
+		 * @see eu.stratosphere.sopremo.operator.ElementaryOperator#isCombinable()
+		 */
+		@Override
+		public boolean isCombinable() {
+			// the combiner would apply the result projection twice
+			return super.isCombinable() && this.getResultProjection() == EvaluationExpression.VALUE;
+		}
+
 		public static class Implementation extends SopremoReduce {
 			private int threshold;
 
@@ -85,11 +96,23 @@ public class Intersection extends CompositeOperator<Intersection> {
 			protected void reduce(IStreamNode<IJsonNode> values, JsonCollector<IJsonNode> out) {
 				final Iterator<IJsonNode> iterator = values.iterator();
 				final IJsonNode value = iterator.next();
-				int count = 1;
-				for (; iterator.hasNext(); count++)
-					iterator.next();
+				// only the first value is deserialized; the others are counted
+				if (1 + this.skipRemainingValues(iterator) == this.threshold)
+					out.collect(value);
+			}
 
-				if (count == this.threshold)
+			/*
+			 * (non-Javadoc)
+			 * @see eu.stratosphere.sopremo.pact.GenericSopremoReduce#combine(eu.stratosphere.sopremo.type.IStreamNode,
+			 * eu.stratosphere.sopremo.pact.JsonCollector)
+			 */
+			@Override
+			protected void combine(IStreamNode<IJsonNode> values, JsonCollector<IJsonNode> out) {
+				final Iterator<IJsonNode> iterator = values.iterator();
+				final IJsonNode value = iterator.next();
+				// all values of the group are equal and all counts above the threshold are rejected alike
+				final long copies = Math.min(1 + this.skipRemainingValues(iterator), this.threshold + 1);
+				for (long copy = 0; copy < copies; copy++)
 					out.collect(value);
 			}
 		}
@@ -5,20 +5,21 @@ import it.unimi.dsi.fastutil.ints.IntIterator;
 import it.unimi.dsi.fastutil.ints.IntList;
 import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
 import it.unimi.dsi.fastutil.ints.IntSet;
-import it.unimi.dsi.fastutil.objects.AbstractObject2IntMap;
 import it.unimi.dsi.fastutil.objects.Object2IntMap;
-import it.unimi.dsi.fastutil.objects.Object2IntMap.Entry;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
 
 import java.util.ArrayList;
-import java.util.BitSet;
 import java.util.Collections;
-import java.util.Comparator;
-import java.util.LinkedList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import com.google.common.base.Predicates;
 
+import eu.stratosphere.pact.common.io.statistics.BaseStatistics;
 import eu.stratosphere.sopremo.EvaluationContext;
+import eu.stratosphere.sopremo.base.join.BandJoin;
+import eu.stratosphere.sopremo.base.join.BloomFilterReduction;
 import eu.stratosphere.sopremo.base.join.ThetaJoin;
 import eu.stratosphere.sopremo.expressions.AggregationExpression;
 import eu.stratosphere.sopremo.expressions.AndExpression;
@@ -30,6 +31,7 @@ import eu.stratosphere.sopremo.expressions.ComparativeExpression;
 import eu.stratosphere.sopremo.expressions.ComparativeExpression.BinaryOperator;
 import eu.stratosphere.sopremo.expressions.ConstantExpression;
 import eu.stratosphere.sopremo.expressions.ElementInSetExpression;
+import eu.stratosphere.sopremo.expressions.ElementInSetExpression.Quantor;
 import eu.stratosphere.sopremo.expressions.EvaluationExpression;
 import eu.stratosphere.sopremo.expressions.ExpressionUtil;
 import eu.stratosphere.sopremo.expressions.InputSelection;
@@ -40,10 +42,13 @@ import eu.stratosphere.sopremo.operator.CompositeOperator;
 import eu.stratosphere.sopremo.operator.InputCardinality;
 import eu.stratosphere.sopremo.operator.JsonStream;
 import eu.stratosphere.sopremo.operator.Name;
+import eu.stratosphere.sopremo.operator.Operator;
 import eu.stratosphere.sopremo.operator.OutputCardinality;
 import eu.stratosphere.sopremo.operator.Property;
 import eu.stratosphere.sopremo.operator.SopremoModule;
 import eu.stratosphere.sopremo.rewrite.ReplaceInputSelectionWithArray;
+import eu.stratosphere.sopremo.type.IArrayNode;
+import eu.stratosphere.sopremo.type.IJsonNode;
 
 /**
  * Executes a complex N-way join over multiple data sources.<br>
@@ -53,12 +58,48 @@ import eu.stratosphere.sopremo.rewrite.ReplaceInputSelectionWithArray;
  * Originally, for each input, the input is translated to an array, e.g. [null, record, null, ... null] for the second
  * source.<br>
  * Then TwoSourceJoins are successively executed to merge the arrays and fill the null values. Finally, a projection is
- * executed on the result array.
+ * executed on the result array.<br>
+ * The order of the TwoSourceJoins is chosen by a {@link JoinOrderEnumerator} with the estimated cardinalities and
+ * key distributions of the inputs. Pairs of inequalities that form a band between two inputs are evaluated together
+ * by a {@link BandJoin} instead of a cross product.<br>
+ * If a false positive rate for Bloom filters is set, the larger input of each inner, semi, and anti join is reduced
+ * with a {@link BloomFilterReduction} over the join keys of the other input before both inputs are repartitioned.<br>
+ * If a skew threshold is set, the {@link HeavyHitters} of full outer and semi joins are distributed to several tasks.
  */
 @InputCardinality(min = 2)
 @OutputCardinality(1)
 @Name(verb = "join")
 public class Join extends CompositeOperator<Join> {
+	/**
+	 * The number of values that are sampled from each adhoc input to estimate the number of distinct join keys.
+	 */
+	public static final int STATISTICS_SAMPLE_SIZE = 1000;
+
+	/**
+	 * The sample size that disables the sampling of file inputs.
+	 */
+	public static final int NO_SAMPLING = 0;
+
+	/**
+	 * The assumed average width of records of inputs with an unknown number of records.
+	 */
+	private static final float DEFAULT_RECORD_WIDTH = 100;
+
+	/**
+	 * The assumed selectivity of all other conditions, such as inequalities.
+	 */
+	private static final double DEFAULT_SELECTIVITY = 1 / 3d;
+
+	/**
+	 * The assumed average number of elements in the sets of an {@link ElementInSetExpression}.
+	 */
+	private static final double ELEMENTS_PER_SET = 5;
+
+	/**
+	 * The false positive rate that disables the reduction of the inputs with Bloom filters.
+	 */
+	public static final double NO_BLOOM_FILTER = 0;
+
 	private BooleanExpression joinCondition = new AndExpression();
 
 	private List<BinaryBooleanExpression> binaryConditions = new ArrayList<BinaryBooleanExpression>();
@@ -67,6 +108,12 @@ public class Join extends CompositeOperator<Join> {
 
 	private final IntSet outerJoinSources = new IntOpenHashSet();
 
+	private double bloomFilterFalsePositiveRate = NO_BLOOM_FILTER;
+
+	private double skewThreshold = HeavyHitters.NO_SKEW_HANDLING;
+
+	private int sampleSize = NO_SAMPLING;
+
 	/*
 	 * (non-Javadoc)
 	 * @see eu.stratosphere.sopremo.operator.CompositeOperator#asModule(eu.stratosphere.sopremo.EvaluationContext)
@@ -84,16 +131,23 @@ public class Join extends CompositeOperator<Join> {
 			// only two way join
 			final TwoSourceJoin join = new TwoSourceJoin().
 				withOuterJoinIndices(this.outerJoinSources.toIntArray()).
-				withInputs(module.getInputs()).
 				withCondition(this.binaryConditions.get(0)).
 				withResultProjection(this.getResultProjection());
-			module.getOutput(0).setInput(0, join);
+			final JsonStream[] joinInputs = module.getInputs().toArray(new JsonStream[2]);
+			if (this.bloomFilterFalsePositiveRate != NO_BLOOM_FILTER)
+				this.reduceWithBloomFilter(join, joinInputs, this.estimateCardinalities(context));
+			if (this.skewThreshold != HeavyHitters.NO_SKEW_HANDLING)
+				this.saltHeavyHitters(join, joinInputs);
+			module.getOutput(0).setInput(0, join.withInputs(joinInputs));
 			break;
 
 		default:
-			List<BinaryBooleanExpression> minimalSpanningTree = findMinimalSpanningTree(this.binaryConditions);
+			// pairs of conditions that form a band are evaluated together by a BandJoin
+			final Map<BinaryBooleanExpression, BinaryBooleanExpression> bands = this.findBands();
+			final double[] cardinalities = this.estimateCardinalities(context);
+			List<BinaryBooleanExpression> spanningTree = this.findJoinOrder(context, bands, cardinalities);
 
-			List<TwoSourceJoin> joins = this.getInitialJoinOrder(module, minimalSpanningTree);
+			List<Operator<?>> joins = this.getInitialJoinOrder(module, spanningTree, bands);
 
 			// wrap each input in an array that contains the element at the position of the input
 			// input2 -> [null, null, input2, ...]
@@ -101,17 +155,22 @@ public class Join extends CompositeOperator<Join> {
 			final JsonStream[] inputs = new JsonStream[numInputs];
 			for (int index = 0; index < numInputs; index++)
 				inputs[index] = OperatorUtil.positionEncode(module.getInput(index), index, numInputs);
+			final JsonStream[] encodedInputs = inputs.clone();
 
 			// rewire individual joins
 			// the input of each join is either the module input or the result of a previous join
-			for (final TwoSourceJoin twoSourceJoin : joins) {
+			for (final Operator<?> twoSourceJoin : joins) {
 				List<JsonStream> operatorInputs = twoSourceJoin.getInputs();
 
 				final JsonStream[] actualInputs = new JsonStream[2];
+				final double[] actualCardinalities = new double[2];
 				List<Source> moduleInput = module.getInputs();
 				for (int index = 0; index < 2; index++) {
 					final int inputIndex = moduleInput.indexOf(operatorInputs.get(index).getSource().getOperator());
 					actualInputs[index] = inputs[inputIndex];
+					// the size of intermediate results is not known at this point
+					actualCardinalities[index] = actualInputs[index] == encodedInputs[inputIndex] ?
+						cardinalities[inputIndex] : JoinOrderEnumerator.DEFAULT_CARDINALITY;
 
 					// we keep inputs up-to-date, so that it points either to the original input or the latest join that
 					// includes the source
@@ -119,18 +178,26 @@ public class Join extends CompositeOperator<Join> {
 						if (inputs[updateIndex] == actualInputs[index])
 							inputs[updateIndex] = twoSourceJoin;
 				}
+				if (this.bloomFilterFalsePositiveRate != NO_BLOOM_FILTER && twoSourceJoin instanceof TwoSourceJoin)
+					this.reduceWithBloomFilter((TwoSourceJoin) twoSourceJoin, actualInputs, actualCardinalities);
+				if (this.skewThreshold != HeavyHitters.NO_SKEW_HANDLING && twoSourceJoin instanceof TwoSourceJoin)
+					this.saltHeavyHitters((TwoSourceJoin) twoSourceJoin, actualInputs);
 				twoSourceJoin.setInputs(actualInputs);
-				twoSourceJoin.setResultProjection(new AggregationExpression(new ArrayUnion()));
 			}
 
 			JsonStream lastOperator = inputs[0];
 
 			// check if any cycles exist in the predicates, if so create post-selection with left predicates not in the
-			// MST
-			if (minimalSpanningTree.size() != this.binaryConditions.size()) {
+			// spanning tree
+			final List<BinaryBooleanExpression> joinedConditions =
+				new ArrayList<BinaryBooleanExpression>(spanningTree);
+			for (BinaryBooleanExpression condition : spanningTree)
+				if (bands.containsKey(condition))
+					joinedConditions.add(bands.get(condition));
+			if (joinedConditions.size() != this.binaryConditions.size()) {
 				List<BinaryBooleanExpression> leftExpressions = new ArrayList<BinaryBooleanExpression>();
 				for (BinaryBooleanExpression leftExpressionCandidate : this.binaryConditions) {
-					if (!minimalSpanningTree.contains(leftExpressionCandidate)) {
+					if (!joinedConditions.contains(leftExpressionCandidate)) {
 						BinaryBooleanExpression adjustedExpression = (BinaryBooleanExpression) leftExpressionCandidate
 							.clone();
 						adjustedExpression.replace(Predicates.instanceOf(InputSelection.class),
@@ -160,77 +227,205 @@ public class Join extends CompositeOperator<Join> {
 	}
 
 	/**
-	 * Finds the minimal spanning tree over a graph of Join predicates based on the Kruskal's algorithm.
+	 * Determines the conditions that form the spanning tree of the join graph in the order in which they are evaluated.
+	 * The order minimizes the estimated sizes of the intermediate results, which are derived from the statistics of
+	 * each input that is directly read from a {@link Source} and from a sample of the input if it is cheap to read.
 	 * 
-	 * @param someBinaryConditions
-	 * @return the minimal spanning tree over the input graph of expressions
+	 * @param context
+	 *        the context in which the inputs are read
+	 * @param bands
+	 *        the pairs of conditions that are evaluated together
+	 * @param cardinalities
+	 *        the estimated number of values of each input
+	 * @return the ordered conditions of the spanning tree
 	 */
-	private List<BinaryBooleanExpression> findMinimalSpanningTree(List<BinaryBooleanExpression> someBinaryConditions) {
-
-		List<BinaryBooleanExpression> minimalSpanningTree = new ArrayList<BinaryBooleanExpression>();
+	private List<BinaryBooleanExpression> findJoinOrder(EvaluationContext context,
+			Map<BinaryBooleanExpression, BinaryBooleanExpression> bands, double[] cardinalities) {
+		final int numInputs = this.getNumInputs();
+		final JoinOrderEnumerator enumerator = new JoinOrderEnumerator(numInputs);
+		final List<List<IJsonNode>> samples = new ArrayList<List<IJsonNode>>();
+		for (int index = 0; index < numInputs; index++) {
+			final Operator<?> input = this.getInputOperators().get(index);
+			// adhoc values are already in memory, while files are only read during plan translation if requested
+			if (input instanceof Source && ((Source) input).isAdhoc())
+				samples.add(((Source) input).sample(context, STATISTICS_SAMPLE_SIZE));
+			else if (input instanceof Source && this.sampleSize != NO_SAMPLING)
+				samples.add(((Source) input).sample(context, this.sampleSize));
+			else
+				// without sample, the estimation relies on the statistics alone
+				samples.add(Collections.<IJsonNode> emptyList());
+			enumerator.setCardinality(index, cardinalities[index]);
+		}
 
-		BitSet remainingVertices = new BitSet();
-		remainingVertices.set(0, getNumInputs());
-		LinkedList<Object2IntMap.Entry<BinaryBooleanExpression>> edgesWithWeight = weightEdges(someBinaryConditions);
-		sortEdgesByWeight(edgesWithWeight);
+		for (BinaryBooleanExpression condition : this.binaryConditions) {
+			// the second condition of a band is represented by the first one
+			if (bands.containsValue(condition))
+				continue;
+			final int index1 = condition.getExpr1().findFirst(InputSelection.class).getIndex();
+			final int index2 = condition.getExpr2().findFirst(InputSelection.class).getIndex();
+			final double distinctValues = Math.max(
+				this.estimateDistinctValues(condition.getExpr1(), samples.get(index1),
+					enumerator.getCardinality(index1)),
+				this.estimateDistinctValues(condition.getExpr2(), samples.get(index2),
+					enumerator.getCardinality(index2)));
+
+			double selectivity = DEFAULT_SELECTIVITY;
+			if (condition instanceof ElementInSetExpression) {
+				if (((ElementInSetExpression) condition).getQuantor() == Quantor.EXISTS_IN)
+					selectivity = Math.min(1, ELEMENTS_PER_SET / distinctValues);
+			} else if (((ComparativeExpression) condition).getBinaryOperator() == BinaryOperator.EQUAL)
+				selectivity = 1 / distinctValues;
+			else if (bands.containsKey(condition))
+				selectivity = DEFAULT_SELECTIVITY * DEFAULT_SELECTIVITY;
+			enumerator.addCondition(condition, index1, index2, selectivity);
+		}
+		return enumerator.getJoinOrder();
+	}
 
-		while (!edgesWithWeight.isEmpty()) {
-			BinaryBooleanExpression currentEdge = edgesWithWeight.removeFirst().getKey();
-			if (!currentEdgeProducesCycleInMST(currentEdge, remainingVertices))
-				minimalSpanningTree.add(currentEdge);
+	/**
+	 * Estimates the number of values of each input. Inputs that are not directly read from a {@link Source} are
+	 * assumed to have {@link JoinOrderEnumerator#DEFAULT_CARDINALITY} values.
+	 */
+	private double[] estimateCardinalities(EvaluationContext context) {
+		final double[] cardinalities = new double[this.getNumInputs()];
+		for (int index = 0; index < cardinalities.length; index++) {
+			final Operator<?> input = this.getInputOperators().get(index);
+			cardinalities[index] = input instanceof Source ? this.estimateCardinality((Source) input, context)
+				: JoinOrderEnumerator.DEFAULT_CARDINALITY;
 		}
-		return minimalSpanningTree;
-	}
-
-	private void sortEdgesByWeight(List<Object2IntMap.Entry<BinaryBooleanExpression>> edgesWithWeight) {
-		Collections.sort(edgesWithWeight, new Comparator<Object2IntMap.Entry<BinaryBooleanExpression>>() {
-			/*
-			 * (non-Javadoc)
-			 * @see java.util.Comparator#compare(java.lang.Object, java.lang.Object)
-			 */
-			@Override
-			public int compare(Entry<BinaryBooleanExpression> o1, Entry<BinaryBooleanExpression> o2) {
-				return o1.getIntValue() - o2.getIntValue();
-			}
-		});
+		return cardinalities;
 	}
 
-	private boolean currentEdgeProducesCycleInMST(BinaryBooleanExpression currentEdge, BitSet remainingVertices) {
-		int vertex1 = currentEdge.getExpr1().findFirst(InputSelection.class).getIndex();
-		int vertex2 = currentEdge.getExpr2().findFirst(InputSelection.class).getIndex();
+	/**
+	 * Replaces the larger of the given inputs of the join with a {@link BloomFilterReduction} over the join keys of
+	 * the other input if the join is an inner, semi, or anti join on equal keys. Anti joins emit the values of the
+	 * element input without partner; thus, only the set input can be reduced.
+	 * 
+	 * @param join
+	 *        the join with a condition on the inputs 0 and 1
+	 * @param inputs
+	 *        the two inputs of the join, which are replaced in place
+	 * @param cardinalities
+	 *        the estimated number of values of the two inputs
+	 */
+	private void reduceWithBloomFilter(TwoSourceJoin join, JsonStream[] inputs, double[] cardinalities) {
+		if (join.getOuterJoinIndices().length > 0)
+			return;
+
+		final BinaryBooleanExpression condition = join.getCondition();
+		int probeInput = cardinalities[1] > cardinalities[0] ? 1 : 0;
+		if (condition instanceof ElementInSetExpression) {
+			if (((ElementInSetExpression) condition).getQuantor() == Quantor.EXISTS_NOT_IN)
+				probeInput = ((ElementInSetExpression) condition).getSetExpr().findFirst(InputSelection.class).
+					getIndex();
+		} else if (((ComparativeExpression) condition).getBinaryOperator() != BinaryOperator.EQUAL)
+			return;
+
+		final EvaluationExpression[] keyExpressions = this.getKeyExpressions(condition);
+		inputs[probeInput] = new BloomFilterReduction().
+			withProbeKeyExpression(keyExpressions[probeInput]).
+			withBuildKeyExpression(keyExpressions[1 - probeInput]).
+			withFalsePositiveRate(this.bloomFilterFalsePositiveRate).
+			withInputs(inputs[probeInput], inputs[1 - probeInput]);
+	}
 
-		// an edge does not produce a cycle if it points to at least one remaining vertex
-		if (remainingVertices.get(vertex1)) {
-			remainingVertices.clear(vertex1);
-			if (remainingVertices.get(vertex2))
-				remainingVertices.clear(vertex2);
-			return false;
-		} else if (remainingVertices.get(vertex2)) {
-			remainingVertices.clear(vertex2);
-			return false;
-		}
+	/**
+	 * Distributes the heavy hitters of the salted input of the given join to several salts and replicates the
+	 * values of the other input to all salts if the join is a full outer or semi join on equal keys.
+	 * 
+	 * @param join
+	 *        the join with a condition on the inputs 0 and 1
+	 * @param inputs
+	 *        the two inputs of the join, which are replaced in place
+	 */
+	private void saltHeavyHitters(TwoSourceJoin join, JsonStream[] inputs) {
+		final BinaryBooleanExpression condition = join.getCondition();
+		if (condition instanceof ElementInSetExpression) {
+			if (((ElementInSetExpression) condition).getQuantor() != Quantor.EXISTS_IN)
+				return;
+		} else if (((ComparativeExpression) condition).getBinaryOperator() != BinaryOperator.EQUAL
+			|| join.getOuterJoinIndices().length != 2)
+			return;
+
+		final EvaluationExpression[] keyExpressions = this.getKeyExpressions(condition);
+		join.setSalted(true);
+		final int saltedInput = join.getSaltedInput();
+		final HeavyHitters heavyHitters = new HeavyHitters().
+			withKeyExpression(keyExpressions[saltedInput]).
+			withThreshold(this.skewThreshold).
+			withInputs(inputs[saltedInput], inputs[1 - saltedInput]);
+		for (int index = 0; index < 2; index++)
+			inputs[index] = new HeavyHitters.SaltValues().
+				withKeyExpression(keyExpressions[index]).
+				withNumberOfSalts(HeavyHitters.getNumberOfSalts(this)).
+				withReplicate(index != saltedInput).
+				withInputs(inputs[index], heavyHitters);
+	}
 
-		// both nodes were already used -> cycle
-		return true;
-	}
-
-	private LinkedList<Object2IntMap.Entry<BinaryBooleanExpression>> weightEdges(
-			List<BinaryBooleanExpression> someBinaryConditions) {
-		LinkedList<Object2IntMap.Entry<BinaryBooleanExpression>> edgesWithWeight =
-			new LinkedList<Object2IntMap.Entry<BinaryBooleanExpression>>();
-		for (BinaryBooleanExpression expression : someBinaryConditions) {
-			// TODO better weighting schema required
-			int weight;
-			if (expression instanceof ElementInSetExpression)
-				weight = 5;
-			else if (((ComparativeExpression) expression).getBinaryOperator().equals(BinaryOperator.EQUAL))
-				weight = 1;
-			else
-				weight = 10;
+	/**
+	 * Returns the key expressions of the inputs 0 and 1 of the given equality or element-in-set condition.
+	 */
+	private EvaluationExpression[] getKeyExpressions(BinaryBooleanExpression condition) {
+		final EvaluationExpression[] expressions;
+		if (condition instanceof ElementInSetExpression)
+			expressions = new EvaluationExpression[] { ((ElementInSetExpression) condition).getElementExpr(),
+				((ElementInSetExpression) condition).getSetExpr() };
+		else
+			expressions = new EvaluationExpression[] { condition.getExpr1(), condition.getExpr2() };
 
-			edgesWithWeight.add(new AbstractObject2IntMap.BasicEntry<BinaryBooleanExpression>(expression, weight));
+		final EvaluationExpression[] keyExpressions = new EvaluationExpression[2];
+		for (final EvaluationExpression expression : expressions)
+			keyExpressions[expression.findFirst(InputSelection.class).getIndex()] =
+				expression.clone().remove(InputSelection.class);
+		return keyExpressions;
+	}
+
+	private double estimateCardinality(Source source, EvaluationContext context) {
+		if (source.isAdhoc()) {
+			final IJsonNode values = source.getAdhocValues();
+			return values instanceof IArrayNode<?> ? ((IArrayNode<?>) values).size() : 1;
 		}
-		return edgesWithWeight;
+
+		final BaseStatistics statistics = source.getStatistics(context);
+		if (statistics == null)
+			return JoinOrderEnumerator.DEFAULT_CARDINALITY;
+		if (statistics.getNumberOfRecords() != BaseStatistics.NUM_RECORDS_UNKNOWN)
+			return statistics.getNumberOfRecords();
+		if (statistics.getTotalInputSize() == BaseStatistics.SIZE_UNKNOWN)
+			return JoinOrderEnumerator.DEFAULT_CARDINALITY;
+		final float recordWidth = statistics.getAverageRecordWidth();
+		return statistics.getTotalInputSize()
+			/ (recordWidth == BaseStatistics.AVG_RECORD_BYTES_UNKNOWN ? DEFAULT_RECORD_WIDTH : recordWidth);
+	}
+
+	/**
+	 * Estimates the number of distinct values of the given key expression with the Guaranteed-Error Estimator, which
+	 * scales the number of values that occur only once in the sample with the square root of the sampling ratio.
+	 */
+	private double estimateDistinctValues(EvaluationExpression keyExpression, List<IJsonNode> sample,
+			double cardinality) {
+		if (sample.isEmpty())
+			return cardinality;
+
+		final EvaluationExpression key = keyExpression.clone().replace(Predicates.instanceOf(InputSelection.class),
+			EvaluationExpression.VALUE);
+		final Object2IntMap<IJsonNode> frequencies = new Object2IntOpenHashMap<IJsonNode>();
+		for (final IJsonNode value : sample)
+			try {
+				// the expression may reuse the result node
+				final IJsonNode keyValue = key.evaluate(value).clone();
+				frequencies.put(keyValue, frequencies.getInt(keyValue) + 1);
+			} catch (final RuntimeException e) {
+				// values that do not contain the key do not match any other value
+			}
+
+		int singletons = 0;
+		for (final int frequency : frequencies.values())
+			if (frequency == 1)
+				singletons++;
+		final double distinctValues = Math.sqrt(Math.max(1, cardinality / sample.size())) * singletons
+			+ frequencies.size() - singletons;
+		return Math.max(1, Math.min(cardinality, distinctValues));
 	}
 
 	@Override
@@ -244,9 +439,40 @@ public class Join extends CompositeOperator<Join> {
 		return super.equals(obj) && this.joinCondition.equals(((Join) obj).joinCondition)
 			&& this.outerJoinSources.equals(((Join) obj).outerJoinSources)
 			&& this.binaryConditions.equals(((Join) obj).binaryConditions)
+			&& this.bloomFilterFalsePositiveRate == ((Join) obj).bloomFilterFalsePositiveRate
+			&& this.skewThreshold == ((Join) obj).skewThreshold
+			&& this.sampleSize == ((Join) obj).sampleSize
 			&& this.resultProjection.equals(((Join) obj).resultProjection);
 	}
 
+	/**
+	 * Returns the false positive rate of the Bloom filters that reduce the inputs or {@link #NO_BLOOM_FILTER}.
+	 * 
+	 * @return the bloomFilterFalsePositiveRate
+	 */
+	public double getBloomFilterFalsePositiveRate() {
+		return this.bloomFilterFalsePositiveRate;
+	}
+
+	/**
+	 * Returns the fraction of the sampled keys above which a key is treated as heavy hitter or
+	 * {@link HeavyHitters#NO_SKEW_HANDLING}.
+	 * 
+	 * @return the skewThreshold
+	 */
+	public double getSkewThreshold() {
+		return this.skewThreshold;
+	}
+
+	/**
+	 * Returns the number of values that are sampled from each file input to order the joins or {@link #NO_SAMPLING}.
+	 * 
+	 * @return the sampleSize
+	 */
+	public int getSampleSize() {
+		return this.sampleSize;
+	}
+
 	public BooleanExpression getJoinCondition() {
 		return this.joinCondition;
 	}
@@ -276,10 +502,83 @@ public class Join extends CompositeOperator<Join> {
 		result = prime * result + this.joinCondition.hashCode();
 		result = prime * result + this.outerJoinSources.hashCode();
 		result = prime * result + this.binaryConditions.hashCode();
+		long temp = Double.doubleToLongBits(this.bloomFilterFalsePositiveRate);
+		result = prime * result + (int) (temp ^ temp >>> 32);
+		temp = Double.doubleToLongBits(this.skewThreshold);
+		result = prime * result + (int) (temp ^ temp >>> 32);
+		result = prime * result + this.sampleSize;
 		result = prime * result + this.resultProjection.hashCode();
 		return result;
 	}
 
+	/**
+	 * Sets the false positive rate of the Bloom filters, with which the larger input of inner, semi, and anti joins
+	 * is reduced to the values that may have a join partner before the inputs are repartitioned. The reduction pays
+	 * off if only a small fraction of the larger input has a join partner.
+	 * 
+	 * @param bloomFilterFalsePositiveRate
+	 *        the false positive rate to set or {@link #NO_BLOOM_FILTER}
+	 */
+	@Property(expert = true)
+	@Name(noun = "bloom filter")
+	public void setBloomFilterFalsePositiveRate(double bloomFilterFalsePositiveRate) {
+		if (bloomFilterFalsePositiveRate != NO_BLOOM_FILTER
+			&& (bloomFilterFalsePositiveRate <= 0 || bloomFilterFalsePositiveRate >= 1))
+			throw new IllegalArgumentException("bloomFilterFalsePositiveRate must be between 0 and 1");
+
+		this.bloomFilterFalsePositiveRate = bloomFilterFalsePositiveRate;
+	}
+
+	public Join withBloomFilterFalsePositiveRate(double bloomFilterFalsePositiveRate) {
+		this.setBloomFilterFalsePositiveRate(bloomFilterFalsePositiveRate);
+		return this;
+	}
+
+	/**
+	 * Sets the fraction of the sampled keys above which a key is treated as heavy hitter. The heavy hitters of full
+	 * outer and semi joins are distributed to several tasks, while the matching values of the other input are
+	 * replicated to these tasks.
+	 * 
+	 * @param skewThreshold
+	 *        the skewThreshold to set or {@link HeavyHitters#NO_SKEW_HANDLING}
+	 */
+	@Property(expert = true)
+	@Name(noun = "skew threshold")
+	public void setSkewThreshold(double skewThreshold) {
+		if (skewThreshold != HeavyHitters.NO_SKEW_HANDLING && (skewThreshold <= 0 || skewThreshold > 1))
+			throw new IllegalArgumentException("skewThreshold must be in (0, 1]");
+
+		this.skewThreshold = skewThreshold;
+	}
+
+	public Join withSkewThreshold(double skewThreshold) {
+		this.setSkewThreshold(skewThreshold);
+		return this;
+	}
+
+	/**
+	 * Sets the number of values that are sampled from each file input to estimate the number of distinct join keys,
+	 * which determines the order of joins with more than two inputs. The sample is read from up to
+	 * {@link Source#MAXIMUM_SAMPLED_SPLITS} splits during plan translation; without sample, the order is derived from
+	 * the statistics of the inputs alone.
+	 * 
+	 * @param sampleSize
+	 *        the sampleSize to set or {@link #NO_SAMPLING}
+	 */
+	@Property(expert = true)
+	@Name(noun = "sample size")
+	public void setSampleSize(int sampleSize) {
+		if (sampleSize < 0)
+			throw new IllegalArgumentException("sampleSize must not be negative");
+
+		this.sampleSize = sampleSize;
+	}
+
+	public Join withSampleSize(int sampleSize) {
+		this.setSampleSize(sampleSize);
+		return this;
+	}
+
 	@Property
 	@Name(preposition = "where")
 	public void setJoinCondition(BooleanExpression joinCondition) {
@@ -370,13 +669,48 @@ public class Join extends CompositeOperator<Join> {
 			throw new IllegalArgumentException("Cannot handle expression " + joinCondition);
 	}
 
-	private List<TwoSourceJoin> getInitialJoinOrder(SopremoModule module,
-			List<BinaryBooleanExpression> minimalSpanningTree) {
-		final List<TwoSourceJoin> joins = new ArrayList<TwoSourceJoin>();
-		for (final BinaryBooleanExpression expression : minimalSpanningTree) {
-			joins.add(this.getTwoSourceJoinForExpression(expression, module));
+	/**
+	 * Finds the pairs of inequalities that restrict an expression of one input to a band that is bounded by
+	 * expressions of another input. Bands with outer join sources are evaluated as independent conditions.
+	 * 
+	 * @return the pairs of conditions that form a band
+	 */
+	private Map<BinaryBooleanExpression, BinaryBooleanExpression> findBands() {
+		final Map<BinaryBooleanExpression, BinaryBooleanExpression> bands =
+			new HashMap<BinaryBooleanExpression, BinaryBooleanExpression>();
+		for (int index1 = 0; index1 < this.binaryConditions.size(); index1++) {
+			final BinaryBooleanExpression condition1 = this.binaryConditions.get(index1);
+			if (!(condition1 instanceof ComparativeExpression) || bands.containsValue(condition1))
+				continue;
+			for (int index2 = index1 + 1; index2 < this.binaryConditions.size(); index2++) {
+				final BinaryBooleanExpression condition2 = this.binaryConditions.get(index2);
+				if (!(condition2 instanceof ComparativeExpression) || bands.containsValue(condition2))
+					continue;
+				final int pointInput = BandJoin.getPointInput((ComparativeExpression) condition1,
+					(ComparativeExpression) condition2);
+				if (pointInput != -1 && !this.outerJoinSources.contains(condition1.getExpr1().
+					findFirst(InputSelection.class).getIndex()) && !this.outerJoinSources.contains(
+					condition1.getExpr2().findFirst(InputSelection.class).getIndex())) {
+					bands.put(condition1, condition2);
+					break;
+				}
+			}
+		}
+		return bands;
+	}
+
+	private List<Operator<?>> getInitialJoinOrder(SopremoModule module, List<BinaryBooleanExpression> spanningTree,
+			Map<BinaryBooleanExpression, BinaryBooleanExpression> bands) {
+		final List<Operator<?>> joins = new ArrayList<Operator<?>>();
+		for (final BinaryBooleanExpression expression : spanningTree) {
+			final BinaryBooleanExpression bandExpression = bands.get(expression);
+			if (bandExpression == null)
+				joins.add(this.getTwoSourceJoinForExpression(expression, module).
+					withResultProjection(new AggregationExpression(new ArrayUnion())));
+			else
+				joins.add(this.getBandJoinForExpressions(expression, bandExpression, module).
+					withResultProjection(new AggregationExpression(new ArrayUnion())));
 		}
-		// TODO: add some kind of optimization?
 		return joins;
 	}
 
@@ -387,10 +721,49 @@ public class Join extends CompositeOperator<Join> {
 	private TwoSourceJoin getTwoSourceJoinForExpression(final BinaryBooleanExpression binaryCondition,
 			SopremoModule module) {
 		final IntList originalIndices = new IntArrayList();
+		final BinaryBooleanExpression adjustedExpression = this.adjustToPositionEncoding(binaryCondition,
+			originalIndices);
+		if (originalIndices.size() != 2)
+			throw new IllegalArgumentException(String.format("Condition must refer to exactly two sources: %s",
+				binaryCondition));
 
+		// translate outer join flags
+		IntList outerJoinIndices = new IntArrayList();
+		final int firstIndex = originalIndices.getInt(0), secondIndex = originalIndices.getInt(1);
+		if (this.outerJoinSources.contains(firstIndex))
+			outerJoinIndices.add(0);
+		if (this.outerJoinSources.contains(secondIndex))
+			outerJoinIndices.add(1);
+
+		return new TwoSourceJoin().withOuterJoinIndices(outerJoinIndices.toIntArray()).
+			withInputs(module.getInput(firstIndex), module.getInput(secondIndex)).
+			withCondition(adjustedExpression);
+	}
+
+	/**
+	 * Create a BandJoin that performs the join on the given pair of conditions.<br>
+	 * Adjusts the expressions to the position-encoding data schema.
+	 */
+	private BandJoin getBandJoinForExpressions(final BinaryBooleanExpression condition1,
+			final BinaryBooleanExpression condition2, SopremoModule module) {
+		final IntList originalIndices = new IntArrayList();
+		final ComparativeExpression adjustedExpression1 =
+			(ComparativeExpression) this.adjustToPositionEncoding(condition1, originalIndices);
+		final ComparativeExpression adjustedExpression2 =
+			(ComparativeExpression) this.adjustToPositionEncoding(condition2, originalIndices);
+
+		return BandJoin.valueOf(adjustedExpression1, adjustedExpression2).
+			withInputs(module.getInput(originalIndices.getInt(0)), module.getInput(originalIndices.getInt(1)));
+	}
+
+	/**
+	 * Changes the indices of the given condition and emulates the old behavior with array access, e.g., in1.fk ==
+	 * in3.key -> in0[1].fk == in1[3].key. The new indices are the positions of the original indices in the given
+	 * list, to which unknown indices are added.
+	 */
+	private BinaryBooleanExpression adjustToPositionEncoding(final BinaryBooleanExpression binaryCondition,
+			final IntList originalIndices) {
 		BinaryBooleanExpression adjustedExpression = (BinaryBooleanExpression) binaryCondition.clone();
-		// change indices and emulate old behavior with array access
-		// in1.fk == in3.key -> in0[1].fk == in1[3].key
 		adjustedExpression.replace(Predicates.instanceOf(InputSelection.class),
 			new TransformFunction() {
 				@Override
@@ -405,21 +778,7 @@ public class Join extends CompositeOperator<Join> {
 					return ExpressionUtil.makePath(new InputSelection(newIndex), new ArrayAccess(originalIndex));
 				}
 			});
-		if (originalIndices.size() != 2)
-			throw new IllegalArgumentException(String.format("Condition must refer to exactly two sources: %s",
-				binaryCondition));
-
-		// translate outer join flags
-		IntList outerJoinIndices = new IntArrayList();
-		final int firstIndex = originalIndices.getInt(0), secondIndex = originalIndices.getInt(1);
-		if (this.outerJoinSources.contains(firstIndex))
-			outerJoinIndices.add(0);
-		if (this.outerJoinSources.contains(secondIndex))
-			outerJoinIndices.add(1);
-
-		return new TwoSourceJoin().withOuterJoinIndices(outerJoinIndices.toIntArray()).
-			withInputs(module.getInput(firstIndex), module.getInput(secondIndex)).
-			withCondition(adjustedExpression);
+		return adjustedExpression;
 	}
 
 }
\ No newline at end of file
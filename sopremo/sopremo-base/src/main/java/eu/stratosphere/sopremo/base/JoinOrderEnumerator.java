@@ -0,0 +1,256 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010-2013 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+package eu.stratosphere.sopremo.base;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import eu.stratosphere.sopremo.expressions.BinaryBooleanExpression;
+
+/**
+ * Determines the order in which the binary conditions of an n-ary {@link Join} are evaluated. Each input is a vertex
+ * and each condition an edge of the join graph; the enumerator chooses a spanning tree of the join graph together with
+ * a left-deep or bushy join order that minimizes the sum of the estimated sizes of all intermediate results.<br>
+ * The size of a join result is estimated with the cardinalities of the two joined sides and the selectivity of the
+ * evaluated condition. Connected subsets of up to {@link #MAXIMUM_ENUMERATED_INPUTS} inputs are enumerated
+ * exhaustively with dynamic programming; larger joins are ordered greedily by always merging the two partial results
+ * with the smallest join result.
+ * 
+ * @author Arvid Heise
+ */
+class JoinOrderEnumerator {
+	/**
+	 * The maximum number of inputs for which all join orders are enumerated.
+	 */
+	public static final int MAXIMUM_ENUMERATED_INPUTS = 10;
+
+	/**
+	 * The cardinality of inputs without statistics.
+	 */
+	public static final double DEFAULT_CARDINALITY = 1e6;
+
+	private final double[] cardinalities;
+
+	private final List<Edge> edges = new ArrayList<Edge>();
+
+	/**
+	 * Initializes a JoinOrderEnumerator for the given number of inputs. The cardinalities of all inputs are
+	 * initialized with {@link #DEFAULT_CARDINALITY}.
+	 * 
+	 * @param numInputs
+	 *        the number of inputs of the join
+	 */
+	public JoinOrderEnumerator(final int numInputs) {
+		this.cardinalities = new double[numInputs];
+		Arrays.fill(this.cardinalities, DEFAULT_CARDINALITY);
+	}
+
+	/**
+	 * Adds a condition that relates the two given inputs.
+	 * 
+	 * @param condition
+	 *        the condition
+	 * @param input1
+	 *        the index of the first input that is referenced in the condition
+	 * @param input2
+	 *        the index of the second input that is referenced in the condition
+	 * @param selectivity
+	 *        the estimated fraction of the Cartesian product of both inputs that satisfies the condition
+	 */
+	public void addCondition(final BinaryBooleanExpression condition, final int input1, final int input2,
+			final double selectivity) {
+		if (condition == null)
+			throw new NullPointerException("condition must not be null");
+		if (selectivity < 0 || selectivity > 1)
+			throw new IllegalArgumentException("selectivity must be between 0 and 1");
+		// conditions on a single input cannot be used to join
+		if (input1 != input2)
+			this.edges.add(new Edge(condition, 1 << input1 | 1 << input2, selectivity));
+	}
+
+	/**
+	 * Returns the estimated cardinality of the input with the given index.
+	 * 
+	 * @param input
+	 *        the index of the input
+	 * @return the cardinality
+	 */
+	public double getCardinality(final int input) {
+		return this.cardinalities[input];
+	}
+
+	/**
+	 * Sets the estimated cardinality of the input with the given index.
+	 * 
+	 * @param input
+	 *        the index of the input
+	 * @param cardinality
+	 *        the estimated number of records
+	 */
+	public void setCardinality(final int input, final double cardinality) {
+		if (cardinality < 0)
+			throw new IllegalArgumentException("cardinality must not be negative");
+
+		this.cardinalities[input] = Math.max(1, cardinality);
+	}
+
+	/**
+	 * Returns the conditions of the cheapest spanning tree in the order in which they should be evaluated. Each
+	 * condition joins the two partial results that contain its inputs; partial results are built before all conditions
+	 * that refer to them. Conditions that are not returned can be applied after all joins have been performed.
+	 * 
+	 * @return the ordered conditions of the spanning tree
+	 */
+	public List<BinaryBooleanExpression> getJoinOrder() {
+		List<Plan> plans = null;
+		if (this.cardinalities.length <= MAXIMUM_ENUMERATED_INPUTS)
+			plans = this.enumeratePlans();
+		// fall back to the greedy strategy for large or unconnected join graphs
+		if (plans == null)
+			plans = this.mergeGreedily();
+
+		final List<BinaryBooleanExpression> joinOrder = new ArrayList<BinaryBooleanExpression>();
+		for (final Plan plan : plans)
+			plan.addConditions(joinOrder);
+		return joinOrder;
+	}
+
+	private Plan[] createInputPlans() {
+		final Plan[] plans = new Plan[this.cardinalities.length];
+		for (int index = 0; index < plans.length; index++)
+			plans[index] = new Plan(1 << index, this.cardinalities[index]);
+		return plans;
+	}
+
+	/**
+	 * Finds the cheapest plan for each connected subset of inputs in the order of increasing subsets, such that all
+	 * subsets of a set have already been planned.
+	 */
+	private List<Plan> enumeratePlans() {
+		final int allInputs = (1 << this.cardinalities.length) - 1;
+		final Plan[] plans = new Plan[allInputs + 1];
+		for (final Plan inputPlan : this.createInputPlans())
+			plans[inputPlan.inputs] = inputPlan;
+
+		for (int inputs = 1; inputs <= allInputs; inputs++) {
+			if (Integer.bitCount(inputs) < 2)
+				continue;
+			// the left side always contains the lowest input to skip the symmetric splits
+			final int lowestInput = inputs & -inputs;
+			for (int left = inputs - 1 & inputs; left > 0; left = left - 1 & inputs) {
+				final int right = inputs ^ left;
+				if ((left & lowestInput) == 0 || plans[left] == null || plans[right] == null)
+					continue;
+				final Edge edge = this.getMostSelectiveEdge(left, right);
+				if (edge == null)
+					continue;
+				final Plan plan = new Plan(plans[left], plans[right], edge);
+				if (plans[inputs] == null || plan.cost < plans[inputs].cost)
+					plans[inputs] = plan;
+			}
+		}
+
+		if (plans[allInputs] == null)
+			return null;
+		final List<Plan> result = new ArrayList<Plan>();
+		result.add(plans[allInputs]);
+		return result;
+	}
+
+	private List<Plan> mergeGreedily() {
+		final List<Plan> plans = new ArrayList<Plan>(Arrays.asList(this.createInputPlans()));
+		while (true) {
+			Plan bestPlan = null;
+			for (int leftIndex = 0; leftIndex < plans.size(); leftIndex++)
+				for (int rightIndex = leftIndex + 1; rightIndex < plans.size(); rightIndex++) {
+					final Plan left = plans.get(leftIndex), right = plans.get(rightIndex);
+					final Edge edge = this.getMostSelectiveEdge(left.inputs, right.inputs);
+					if (edge == null)
+						continue;
+					final Plan plan = new Plan(left, right, edge);
+					if (bestPlan == null || plan.cardinality < bestPlan.cardinality)
+						bestPlan = plan;
+				}
+			if (bestPlan == null)
+				return plans;
+			plans.remove(bestPlan.left);
+			plans.remove(bestPlan.right);
+			plans.add(bestPlan);
+		}
+	}
+
+	private Edge getMostSelectiveEdge(final int leftInputs, final int rightInputs) {
+		Edge mostSelectiveEdge = null;
+		for (final Edge edge : this.edges)
+			if ((edge.inputs & leftInputs) != 0 && (edge.inputs & rightInputs) != 0
+				&& (mostSelectiveEdge == null || edge.selectivity < mostSelectiveEdge.selectivity))
+				mostSelectiveEdge = edge;
+		return mostSelectiveEdge;
+	}
+
+	private static class Edge {
+		private final BinaryBooleanExpression condition;
+
+		private final int inputs;
+
+		private final double selectivity;
+
+		public Edge(final BinaryBooleanExpression condition, final int inputs, final double selectivity) {
+			this.condition = condition;
+			this.inputs = inputs;
+			this.selectivity = selectivity;
+		}
+	}
+
+	/**
+	 * A (partial) join tree over a set of inputs.
+	 */
+	private static class Plan {
+		private final int inputs;
+
+		private final Plan left, right;
+
+		private final Edge edge;
+
+		private final double cardinality, cost;
+
+		public Plan(final int inputs, final double cardinality) {
+			this.inputs = inputs;
+			this.cardinality = cardinality;
+			this.left = this.right = null;
+			this.edge = null;
+			this.cost = 0;
+		}
+
+		public Plan(final Plan left, final Plan right, final Edge edge) {
+			this.inputs = left.inputs | right.inputs;
+			this.left = left;
+			this.right = right;
+			this.edge = edge;
+			// the other conditions between both sides are evaluated after all joins
+			this.cardinality = Math.max(1, left.cardinality * right.cardinality * edge.selectivity);
+			this.cost = left.cost + right.cost + this.cardinality;
+		}
+
+		public void addConditions(final List<BinaryBooleanExpression> conditions) {
+			if (this.edge == null)
+				return;
+			this.left.addConditions(conditions);
+			this.right.addConditions(conditions);
+			conditions.add(this.edge.condition);
+		}
+	}
+}
@@ -7,14 +7,49 @@ import eu.stratosphere.sopremo.base.replace.ReplaceBase;
 import eu.stratosphere.sopremo.base.replace.StrictAtomarReplace;
 import eu.stratosphere.sopremo.expressions.EvaluationExpression;
 import eu.stratosphere.sopremo.operator.InputCardinality;
+import eu.stratosphere.sopremo.operator.JsonStream;
 import eu.stratosphere.sopremo.operator.Name;
 import eu.stratosphere.sopremo.operator.OutputCardinality;
+import eu.stratosphere.sopremo.operator.Property;
 import eu.stratosphere.sopremo.operator.SopremoModule;
 
 @InputCardinality(min = 2, max = 2)
 @OutputCardinality(1)
 @Name(verb = "replace")
 public class Replace extends ReplaceBase<Replace> {
+	private double skewThreshold = HeavyHitters.NO_SKEW_HANDLING;
+
+	/**
+	 * Returns the fraction of the sampled keys above which a key is treated as heavy hitter or
+	 * {@link HeavyHitters#NO_SKEW_HANDLING}.
+	 * 
+	 * @return the skewThreshold
+	 */
+	public double getSkewThreshold() {
+		return this.skewThreshold;
+	}
+
+	/**
+	 * Sets the fraction of the sampled keys above which a key is treated as heavy hitter. If the records are replaced
+	 * with a default value, the records with a heavy hitter are distributed to several tasks, while the dictionary
+	 * entry is replicated to these tasks.
+	 * 
+	 * @param skewThreshold
+	 *        the skewThreshold to set or {@link HeavyHitters#NO_SKEW_HANDLING}
+	 */
+	@Property(expert = true)
+	@Name(noun = "skew threshold")
+	public void setSkewThreshold(double skewThreshold) {
+		if (skewThreshold != HeavyHitters.NO_SKEW_HANDLING && (skewThreshold <= 0 || skewThreshold > 1))
+			throw new IllegalArgumentException("skewThreshold must be in (0, 1]");
+
+		this.skewThreshold = skewThreshold;
+	}
+
+	public Replace withSkewThreshold(double skewThreshold) {
+		this.setSkewThreshold(skewThreshold);
+		return this;
+	}
 
 	/*
 	 * (non-Javadoc)
@@ -25,6 +60,16 @@ public class Replace extends ReplaceBase<Replace> {
 		EvaluationExpression defaultExpression =
 			this.getDefaultExpression() == EvaluationExpression.VALUE ? this.getReplaceExpression()
 				: this.getDefaultExpression();
+		if (this.getReplaceStrategy() == ReplaceStrategy.BROADCAST) {
+			module.getOutput(0).setInput(0, this.createBroadcastReplace(module, defaultExpression, false));
+			return;
+		}
+
+		if (defaultExpression != FILTER_RECORDS && this.skewThreshold != HeavyHitters.NO_SKEW_HANDLING) {
+			module.getOutput(0).setInput(0, this.createSaltedReplace(module, defaultExpression));
+			return;
+		}
+
 		AtomarReplaceBase<?> replaceAtom;
 		if (defaultExpression == FILTER_RECORDS)
 			replaceAtom = new StrictAtomarReplace();
@@ -40,4 +85,53 @@ public class Replace extends ReplaceBase<Replace> {
 			replaceAtom.withInputs(module.getInput(0), module.getInput(1)));
 	}
 
+	/**
+	 * Distributes the records with heavy hitters to several salts and replicates their dictionary entries to all
+	 * salts before the records are replaced.
+	 */
+	private AtomarReplaceWithDefaultValue createSaltedReplace(SopremoModule module,
+			EvaluationExpression defaultExpression) {
+		final EvaluationExpression[] keyExpressions =
+			{ this.getReplaceExpression(), this.getDictionaryKeyExtraction() };
+		final HeavyHitters heavyHitters = new HeavyHitters().
+			withKeyExpression(keyExpressions[0]).
+			withThreshold(this.skewThreshold).
+			withInputs(module.getInput(0), module.getInput(1));
+		final JsonStream[] saltedInputs = new JsonStream[2];
+		for (int index = 0; index < 2; index++)
+			saltedInputs[index] = new HeavyHitters.SaltValues().
+				withKeyExpression(keyExpressions[index]).
+				withNumberOfSalts(HeavyHitters.getNumberOfSalts(this)).
+				withReplicate(index == 1).
+				withInputs(module.getInput(index), heavyHitters);
+
+		final AtomarReplaceWithDefaultValue replaceAtom = new AtomarReplaceWithDefaultValue().
+			withDefaultExpression(defaultExpression).
+			withSalted(true).
+			withReplaceExpression(this.getReplaceExpression()).
+			withDictionaryValueExtraction(this.getDictionaryValueExtraction());
+		for (int index = 0; index < 2; index++)
+			replaceAtom.setKeyExpressions(index, HeavyHitters.getSaltedKeyExpressions(keyExpressions[index]));
+		return replaceAtom.withInputs(saltedInputs);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see eu.stratosphere.sopremo.base.replace.ReplaceBase#equals(java.lang.Object)
+	 */
+	@Override
+	public boolean equals(Object obj) {
+		return super.equals(obj) && this.skewThreshold == ((Replace) obj).skewThreshold;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see eu.stratosphere.sopremo.base.replace.ReplaceBase#hashCode()
+	 */
+	@Override
+	public int hashCode() {
+		final long temp = Double.doubleToLongBits(this.skewThreshold);
+		return 31 * super.hashCode() + (int) (temp ^ temp >>> 32);
+	}
+
 }
\ No newline at end of file
@@ -21,6 +21,12 @@ public class ReplaceAll extends ReplaceBase<ReplaceAll> {
 	 */
 	@Override
 	public void addImplementation(SopremoModule module, EvaluationContext context) {
+		if (this.getReplaceStrategy() == ReplaceStrategy.BROADCAST) {
+			// replaces the elements in place without splitting and reassembling the arrays
+			module.getOutput(0).setInput(0, this.createBroadcastReplace(module, this.getDefaultExpression(), true));
+			return;
+		}
+
 		final ArraySplit arraySplit =
 			new ArraySplit().
 				withArrayPath(this.getReplaceExpression()).
@@ -1,8 +1,10 @@
 package eu.stratosphere.sopremo.base;
 
+import eu.stratosphere.nephele.configuration.Configuration;
 import eu.stratosphere.sopremo.expressions.BooleanExpression;
 import eu.stratosphere.sopremo.expressions.ConstantExpression;
 import eu.stratosphere.sopremo.expressions.EvaluationExpression;
+import eu.stratosphere.sopremo.expressions.ExpressionCompiler;
 import eu.stratosphere.sopremo.expressions.InputSelection;
 import eu.stratosphere.sopremo.expressions.UnaryExpression;
 import eu.stratosphere.sopremo.operator.ElementaryOperator;
@@ -10,8 +12,7 @@ import eu.stratosphere.sopremo.operator.InputCardinality;
 import eu.stratosphere.sopremo.operator.Name;
 import eu.stratosphere.sopremo.operator.Property;
 import eu.stratosphere.sopremo.pact.JsonCollector;
-import eu.stratosphere.sopremo.pact.SopremoMap;
-import eu.stratosphere.sopremo.type.BooleanNode;
+import eu.stratosphere.sopremo.pact.SopremoBatchMap;
 import eu.stratosphere.sopremo.type.IJsonNode;
 
 @Name(verb = "filter")
@@ -65,13 +66,27 @@ public class Selection extends ElementaryOperator<Selection> {
 		return builder.toString();
 	}
 
-	public static class Implementation extends SopremoMap {
-		private BooleanExpression condition;
+	public static class Implementation extends SopremoBatchMap {
+		private EvaluationExpression condition;
+
+		private transient EvaluationExpression compiledCondition;
+
+		private transient int[] selection;
+
+		@Override
+		public void open(Configuration parameters) {
+			super.open(parameters);
+			this.compiledCondition = ExpressionCompiler.compile(this.condition);
+			this.selection = new int[BATCH_SIZE];
+		}
 
 		@Override
-		protected void map(final IJsonNode value, final JsonCollector<IJsonNode> out) {
-			if (this.condition.evaluate(value) == BooleanNode.TRUE)
-				out.collect(value);
+		protected void map(final IJsonNode[] values, final int size, final JsonCollector<IJsonNode> out) {
+			for (int index = 0; index < size; index++)
+				this.selection[index] = index;
+			final int selected = this.compiledCondition.select(values, this.selection, size);
+			for (int index = 0; index < selected; index++)
+				out.forward(values[this.selection[index]]);
 		}
 	}
 }
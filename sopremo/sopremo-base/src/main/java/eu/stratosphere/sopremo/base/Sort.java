@@ -16,38 +16,112 @@ package eu.stratosphere.sopremo.base;
 
 import java.util.Arrays;
 import java.util.Comparator;
+import java.util.Random;
+
+import com.google.common.base.Predicates;
 
 import eu.stratosphere.nephele.configuration.Configuration;
+import eu.stratosphere.pact.common.contract.Order;
+import eu.stratosphere.sopremo.EvaluationContext;
+import eu.stratosphere.sopremo.expressions.ArrayAccess;
+import eu.stratosphere.sopremo.expressions.ArrayCreation;
 import eu.stratosphere.sopremo.expressions.ConstantExpression;
 import eu.stratosphere.sopremo.expressions.EvaluationExpression;
+import eu.stratosphere.sopremo.expressions.EvaluationExpression.ValueExpression;
 import eu.stratosphere.sopremo.expressions.OrderingExpression;
-import eu.stratosphere.sopremo.operator.DegreeOfParallelism;
+import eu.stratosphere.sopremo.expressions.PathSegmentExpression;
+import eu.stratosphere.sopremo.operator.CompositeOperator;
 import eu.stratosphere.sopremo.operator.ElementaryOperator;
 import eu.stratosphere.sopremo.operator.InputCardinality;
+import eu.stratosphere.sopremo.operator.JsonStream;
+import eu.stratosphere.sopremo.operator.Name;
+import eu.stratosphere.sopremo.operator.Property;
+import eu.stratosphere.sopremo.operator.SopremoModule;
 import eu.stratosphere.sopremo.pact.JsonCollector;
+import eu.stratosphere.sopremo.pact.SopremoCoGroup;
+import eu.stratosphere.sopremo.pact.SopremoCross;
+import eu.stratosphere.sopremo.pact.SopremoMap;
 import eu.stratosphere.sopremo.pact.SopremoReduce;
 import eu.stratosphere.sopremo.type.ArrayNode;
+import eu.stratosphere.sopremo.type.IArrayNode;
 import eu.stratosphere.sopremo.type.IJsonNode;
+import eu.stratosphere.sopremo.type.INumericNode;
 import eu.stratosphere.sopremo.type.IStreamNode;
+import eu.stratosphere.sopremo.type.IntNode;
 
 /**
- * Sorts the tuples globally.
+ * Sorts the tuples globally.<br>
+ * The input is range-partitioned into as many ranges as the degree of parallelism. The boundaries of the ranges are
+ * computed from a sample of the sort keys. Each range is sorted with the secondary sort of a reduce, which runs with
+ * the same degree of parallelism and sends range <i>r</i> to the task <i>r</i>. Thus, the outputs of the tasks, for
+ * example the files of a subsequent {@link eu.stratosphere.sopremo.io.Sink} with the same degree of parallelism, form
+ * consecutive ranges and their concatenation is globally ordered.<br>
+ * The reduce hash-partitions its key, so the range of a task is tagged with a key that is known to be sent to this
+ * task. These keys are found with {@link LocatePartitions}, which partitions a few candidate keys in the same way.
  */
 @InputCardinality(1)
-@DegreeOfParallelism(1)
-public class Sort extends ElementaryOperator<Sort> {
-	private OrderingExpression sortingExpression = new OrderingExpression();
+public class Sort extends CompositeOperator<Sort> {
+	/**
+	 * The default number of sort keys that each task samples to compute the range boundaries.
+	 */
+	public static final int DEFAULT_SAMPLE_SIZE = 1000;
 
 	/**
-	 * Initializes Sort.
+	 * The number of candidate keys per range that are partitioned to find a key for each task.
+	 */
+	public static final int PROBES_PER_RANGE = 32;
+
+	private OrderingExpression sortingExpression = new OrderingExpression();
+
+	private int sampleSize = DEFAULT_SAMPLE_SIZE;
+
+	/*
+	 * (non-Javadoc)
+	 * @see eu.stratosphere.sopremo.operator.CompositeOperator#addImplementation(eu.stratosphere.sopremo.operator.
+	 * SopremoModule, eu.stratosphere.sopremo.EvaluationContext)
 	 */
-	public Sort() {
-		this.setKeyExpressions(0, ConstantExpression.NULL);
+	@Override
+	public void addImplementation(SopremoModule module, EvaluationContext context) {
+		final int numberOfRanges = this.getDegreeOfParallelism();
+		final JsonStream rangedValues;
+		if (numberOfRanges == 1)
+			rangedValues = new Projection().
+				withResultProjection(new ArrayCreation(new ConstantExpression(0), EvaluationExpression.VALUE)).
+				withInputs(module.getInput(0));
+		else {
+			final SampleKeys sample = new SampleKeys().
+				withSortingExpression(this.sortingExpression).
+				withSampleSize(this.sampleSize).
+				withInputs(module.getInput(0));
+			final PartitionProbes probes = new PartitionProbes().
+				withNumberOfProbes(numberOfRanges * PROBES_PER_RANGE).
+				withInputs(sample);
+			final LocatePartitions locatedProbes = new LocatePartitions().
+				withInputs(probes);
+			locatedProbes.setDegreeOfParallelism(numberOfRanges);
+			final RangeBoundaries boundaries = new RangeBoundaries().
+				withSortingExpression(this.sortingExpression).
+				withNumberOfRanges(numberOfRanges).
+				withInputs(sample, locatedProbes);
+			rangedValues = new RangePartition().
+				withSortingExpression(this.sortingExpression).
+				withInputs(module.getInput(0), boundaries);
+		}
+
+		// the sort key is evaluated on the value of each [range, value] pair
+		final PathSegmentExpression rangedPath = (PathSegmentExpression) this.sortingExpression.getPath().clone().
+			replace(Predicates.instanceOf(ValueExpression.class), new ArrayAccess(1));
+		final SortRange sortedValues = new SortRange().
+			withInnerGroupOrdering(0, new OrderingExpression(this.sortingExpression.getOrder(), rangedPath)).
+			withInputs(rangedValues);
+		// the tasks of SortRange must be partitioned like the tasks of LocatePartitions
+		sortedValues.setDegreeOfParallelism(numberOfRanges);
+		module.getOutput(0).setInput(0, sortedValues);
 	}
 
 	/**
 	 * Sets the sortingExpression to the specified value.
-	 * 
+	 *
 	 * @param sortingExpression
 	 *        the sortingExpression to set
 	 */
@@ -60,7 +134,7 @@ public class Sort extends ElementaryOperator<Sort> {
 
 	/**
 	 * Returns the sortingExpression.
-	 * 
+	 *
 	 * @return the sortingExpression
 	 */
 	public EvaluationExpression getSortingExpression() {
@@ -72,90 +146,396 @@ public class Sort extends ElementaryOperator<Sort> {
 		return this;
 	}
 
-	public static class Implementation extends SopremoReduce {
-		private OrderingExpression sortingExpression;
+	/**
+	 * Returns the number of sort keys that each task samples to compute the range boundaries.
+	 *
+	 * @return the sample size
+	 */
+	public int getSampleSize() {
+		return this.sampleSize;
+	}
+
+	/**
+	 * Sets the number of sort keys that each task samples to compute the range boundaries. Larger samples result in
+	 * more evenly sized ranges.
+	 *
+	 * @param sampleSize
+	 *        the sample size to set
+	 */
+	@Property(expert = true)
+	@Name(noun = "sample size")
+	public void setSampleSize(int sampleSize) {
+		if (sampleSize <= 0)
+			throw new IllegalArgumentException("sampleSize must be positive");
+
+		this.sampleSize = sampleSize;
+	}
+
+	public Sort withSampleSize(int sampleSize) {
+		this.setSampleSize(sampleSize);
+		return this;
+	}
+
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = super.hashCode();
+		result = prime * result + this.sampleSize;
+		result = prime * result + this.sortingExpression.getOrder().hashCode();
+		result = prime * result + this.sortingExpression.getPath().hashCode();
+		return result;
+	}
+
+	@Override
+	public boolean equals(final Object obj) {
+		if (this == obj)
+			return true;
+		if (!super.equals(obj))
+			return false;
+		final Sort other = (Sort) obj;
+		return this.sampleSize == other.sampleSize &&
+			this.sortingExpression.getOrder() == other.sortingExpression.getOrder() &&
+			this.sortingExpression.getPath().equals(other.sortingExpression.getPath());
+	}
+
+	private static Comparator<IJsonNode> createKeyComparator(final Order order) {
+		return new Comparator<IJsonNode>() {
+			@Override
+			public int compare(IJsonNode key1, IJsonNode key2) {
+				final int result = key1.compareTo(key2);
+				return order == Order.DESCENDING ? -result : result;
+			}
+		};
+	}
+
+	/**
+	 * Samples the sort keys of each task with reservoir sampling.
+	 */
+	@InputCardinality(1)
+	public static class SampleKeys extends ElementaryOperator<SampleKeys> {
+		private OrderingExpression sortingExpression = new OrderingExpression();
+
+		private int sampleSize = DEFAULT_SAMPLE_SIZE;
+
+		public SampleKeys withSortingExpression(OrderingExpression sortingExpression) {
+			this.sortingExpression = sortingExpression;
+			return this;
+		}
+
+		public SampleKeys withSampleSize(int sampleSize) {
+			this.sampleSize = sampleSize;
+			return this;
+		}
+
+		public static class Implementation extends SopremoMap {
+			private OrderingExpression sortingExpression;
+
+			private int sampleSize;
+
+			private transient IJsonNode[] sample;
+
+			private transient long numberOfValues;
+
+			private transient Random random;
+
+			private transient JsonCollector<IJsonNode> collector;
+
+			/*
+			 * (non-Javadoc)
+			 * @see eu.stratosphere.sopremo.pact.GenericSopremoMap#open(eu.stratosphere.nephele.configuration.Configuration)
+			 */
+			@Override
+			public void open(Configuration parameters) {
+				super.open(parameters);
+				this.sample = new IJsonNode[this.sampleSize];
+				this.numberOfValues = 0;
+				// a fixed seed per task makes the ranges reproducible
+				this.random = new Random(getRuntimeContext().getIndexOfThisSubtask());
+			}
+
+			/*
+			 * (non-Javadoc)
+			 * @see eu.stratosphere.sopremo.pact.GenericSopremoMap#map(eu.stratosphere.sopremo.type.IJsonNode,
+			 * eu.stratosphere.sopremo.pact.JsonCollector)
+			 */
+			@Override
+			protected void map(IJsonNode value, JsonCollector<IJsonNode> out) {
+				this.collector = out;
+				final long position = this.numberOfValues++;
+				final int index = position < this.sampleSize ? (int) position :
+					(int) (this.random.nextDouble() * (position + 1));
+				if (index < this.sampleSize) {
+					final IJsonNode key = this.sortingExpression.getPath().evaluate(value);
+					if (this.sample[index] == null || this.sample[index].getType() != key.getType())
+						this.sample[index] = key.clone();
+					else
+						this.sample[index].copyValueFrom(key);
+				}
+			}
+
+			/*
+			 * (non-Javadoc)
+			 * @see eu.stratosphere.pact.common.stubs.Stub#close()
+			 */
+			@Override
+			public void close() throws Exception {
+				for (int index = 0, size = (int) Math.min(this.numberOfValues, this.sampleSize); index < size; index++)
+					this.collector.collect(this.sample[index]);
+				super.close();
+			}
+		}
+	}
+
+	/**
+	 * Emits the candidate keys 0..numberOfProbes-1 as arrays [candidate] once the first input is not empty.
+	 */
+	@InputCardinality(1)
+	public static class PartitionProbes extends ElementaryOperator<PartitionProbes> {
+		private int numberOfProbes = 1;
+
+		public PartitionProbes() {
+			this.setKeyExpressions(0, ConstantExpression.NULL);
+		}
+
+		public PartitionProbes withNumberOfProbes(int numberOfProbes) {
+			this.numberOfProbes = numberOfProbes;
+			return this;
+		}
 
-		private final ArrayNode<IJsonNode> cached = new ArrayNode<IJsonNode>();
+		public static class Implementation extends SopremoReduce {
+			private int numberOfProbes;
 
-		private Comparator<IJsonNode> comparator;
+			private final transient IntNode candidate = new IntNode();
 
-		/*
-		 * (non-Javadoc)
-		 * @see
-		 * eu.stratosphere.sopremo.pact.GenericSopremoReduce#open(eu.stratosphere.nephele.configuration.Configuration)
-		 */
-		@Override
-		public void open(Configuration parameters) {
-			super.open(parameters);
-			this.comparator = this.sortingExpression.asComparator();
+			private final transient ArrayNode<IJsonNode> probe = new ArrayNode<IJsonNode>(this.candidate);
+
+			/*
+			 * (non-Javadoc)
+			 * @see eu.stratosphere.sopremo.pact.GenericSopremoReduce#reduce(eu.stratosphere.sopremo.type.IStreamNode,
+			 * eu.stratosphere.sopremo.pact.JsonCollector)
+			 */
+			@Override
+			protected void reduce(IStreamNode<IJsonNode> values, JsonCollector<IJsonNode> out) {
+				for (int candidate = 0; candidate < this.numberOfProbes; candidate++) {
+					this.candidate.setValue(candidate);
+					out.collect(this.probe);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Partitions the probes [candidate] like {@link SortRange} partitions the ranged values [key, value] and emits
+	 * pairs [candidate, task] with the index of the receiving task. Thus, the degree of parallelism must match the one
+	 * of {@link SortRange}.
+	 */
+	@InputCardinality(1)
+	public static class LocatePartitions extends ElementaryOperator<LocatePartitions> {
+		public LocatePartitions() {
+			this.setKeyExpressions(0, new ArrayAccess(0));
+		}
+
+		public static class Implementation extends SopremoReduce {
+			private final transient IntNode task = new IntNode();
+
+			private final transient ArrayNode<IJsonNode> location = new ArrayNode<IJsonNode>();
+
+			/*
+			 * (non-Javadoc)
+			 * @see
+			 * eu.stratosphere.sopremo.pact.GenericSopremoReduce#open(eu.stratosphere.nephele.configuration.Configuration)
+			 */
+			@Override
+			public void open(Configuration parameters) {
+				super.open(parameters);
+				this.task.setValue(getRuntimeContext().getIndexOfThisSubtask());
+			}
+
+			/*
+			 * (non-Javadoc)
+			 * @see eu.stratosphere.sopremo.pact.GenericSopremoReduce#reduce(eu.stratosphere.sopremo.type.IStreamNode,
+			 * eu.stratosphere.sopremo.pact.JsonCollector)
+			 */
+			@Override
+			protected void reduce(IStreamNode<IJsonNode> probes, JsonCollector<IJsonNode> out) {
+				this.location.clear();
+				this.location.add(((IArrayNode<?>) probes.iterator().next()).get(0));
+				this.location.add(this.task);
+				out.collect(this.location);
+			}
+		}
+	}
+
+	/**
+	 * Computes the upper boundaries of all but the last range from the sampled keys of the first input and picks the
+	 * key of each range from the located probes of the second input. Ranges are only assigned to tasks that received
+	 * a probe; the remaining tasks receive no range. The pair [boundaries, range keys] is emitted as a single array.
+	 */
+	@InputCardinality(2)
+	public static class RangeBoundaries extends ElementaryOperator<RangeBoundaries> {
+		private OrderingExpression sortingExpression = new OrderingExpression();
+
+		private int numberOfRanges = 1;
+
+		public RangeBoundaries() {
+			this.setKeyExpressions(0, ConstantExpression.NULL);
+			this.setKeyExpressions(1, ConstantExpression.NULL);
+		}
+
+		public RangeBoundaries withSortingExpression(OrderingExpression sortingExpression) {
+			this.sortingExpression = sortingExpression;
+			return this;
+		}
+
+		public RangeBoundaries withNumberOfRanges(int numberOfRanges) {
+			this.numberOfRanges = numberOfRanges;
+			return this;
+		}
+
+		public static class Implementation extends SopremoCoGroup {
+			private OrderingExpression sortingExpression;
+
+			private int numberOfRanges;
+
+			private final transient ArrayNode<IJsonNode> keys = new ArrayNode<IJsonNode>();
+
+			private final transient ArrayNode<IJsonNode> boundaries = new ArrayNode<IJsonNode>();
+
+			private final transient ArrayNode<IJsonNode> rangeKeys = new ArrayNode<IJsonNode>();
+
+			private final transient ArrayNode<IJsonNode> partitioning =
+				new ArrayNode<IJsonNode>(this.boundaries, this.rangeKeys);
+
+			private transient Comparator<IJsonNode> comparator;
+
+			/*
+			 * (non-Javadoc)
+			 * @see
+			 * eu.stratosphere.sopremo.pact.GenericSopremoCoGroup#open(eu.stratosphere.nephele.configuration.Configuration)
+			 */
+			@Override
+			public void open(Configuration parameters) throws Exception {
+				super.open(parameters);
+				this.comparator = createKeyComparator(this.sortingExpression.getOrder());
+			}
+
+			/*
+			 * (non-Javadoc)
+			 * @see eu.stratosphere.sopremo.pact.SopremoCoGroup#coGroup(eu.stratosphere.sopremo.type.IStreamNode,
+			 * eu.stratosphere.sopremo.type.IStreamNode, eu.stratosphere.sopremo.pact.JsonCollector)
+			 */
+			@Override
+			protected void coGroup(IStreamNode<IJsonNode> sampledKeys, IStreamNode<IJsonNode> locatedProbes,
+					JsonCollector<IJsonNode> out) {
+				// the smallest probe of each task becomes the key of the range of this task
+				final IJsonNode[] taskKeys = new IJsonNode[this.numberOfRanges];
+				for (IJsonNode locatedProbe : locatedProbes) {
+					final IJsonNode candidate = ((IArrayNode<?>) locatedProbe).get(0);
+					final int task = ((INumericNode) ((IArrayNode<?>) locatedProbe).get(1)).getIntValue();
+					if (taskKeys[task] == null || candidate.compareTo(taskKeys[task]) < 0)
+						taskKeys[task] = candidate.clone();
+				}
+				this.rangeKeys.clear();
+				for (IJsonNode taskKey : taskKeys)
+					if (taskKey != null)
+						this.rangeKeys.add(taskKey);
+
+				this.keys.clear();
+				for (IJsonNode key : sampledKeys)
+					this.keys.add(key.clone());
+				final int size = this.keys.size();
+				Arrays.sort(this.keys.getBackingArray(), 0, size, this.comparator);
+
+				final int numberOfRanges = this.rangeKeys.size();
+				this.boundaries.clear();
+				for (int range = 1; range < numberOfRanges; range++)
+					this.boundaries.add(this.keys.get(range * size / numberOfRanges));
+				out.collect(this.partitioning);
+			}
+		}
+	}
+
+	/**
+	 * Assigns each value to the range of its sort key and emits pairs [range key, value].
+	 */
+	@InputCardinality(2)
+	public static class RangePartition extends ElementaryOperator<RangePartition> {
+		private OrderingExpression sortingExpression = new OrderingExpression();
+
+		public RangePartition withSortingExpression(OrderingExpression sortingExpression) {
+			this.sortingExpression = sortingExpression;
+			return this;
+		}
+
+		public static class Implementation extends SopremoCross {
+			private OrderingExpression sortingExpression;
+
+			private final transient ArrayNode<IJsonNode> rangedValue = new ArrayNode<IJsonNode>();
+
+			private transient Comparator<IJsonNode> comparator;
+
+			/*
+			 * (non-Javadoc)
+			 * @see
+			 * eu.stratosphere.sopremo.pact.GenericSopremoCross#open(eu.stratosphere.nephele.configuration.Configuration)
+			 */
+			@Override
+			public void open(Configuration parameters) throws Exception {
+				super.open(parameters);
+				this.comparator = createKeyComparator(this.sortingExpression.getOrder());
+			}
+
+			/*
+			 * (non-Javadoc)
+			 * @see eu.stratosphere.sopremo.pact.GenericSopremoCross#cross(eu.stratosphere.sopremo.type.IJsonNode,
+			 * eu.stratosphere.sopremo.type.IJsonNode, eu.stratosphere.sopremo.pact.JsonCollector)
+			 */
+			@Override
+			protected void cross(IJsonNode value, IJsonNode partitioning, JsonCollector<IJsonNode> out) {
+				@SuppressWarnings("unchecked")
+				final IArrayNode<IJsonNode> boundaryArray = ((IArrayNode<IArrayNode<IJsonNode>>) partitioning).get(0);
+				final IJsonNode key = this.sortingExpression.getPath().evaluate(value);
+
+				// the range is the number of boundaries that are smaller than the key
+				int low = 0, high = boundaryArray.size();
+				while (low < high) {
+					final int mid = (low + high) >>> 1;
+					if (this.comparator.compare(boundaryArray.get(mid), key) < 0)
+						low = mid + 1;
+					else
+						high = mid;
+				}
+
+				this.rangedValue.clear();
+				this.rangedValue.add(((IArrayNode<?>) ((IArrayNode<?>) partitioning).get(1)).get(low));
+				this.rangedValue.add(value);
+				out.collect(this.rangedValue);
+			}
+		}
+	}
+
+	/**
+	 * Sorts the values of each range with the secondary sort and emits them without the range key.
+	 */
+	@InputCardinality(1)
+	public static class SortRange extends ElementaryOperator<SortRange> {
+		public SortRange() {
+			this.setKeyExpressions(0, new ArrayAccess(0));
+			this.setResultProjection(new ArrayAccess(1));
 		}
 
-		/*
-		 * (non-Javadoc)
-		 * @see eu.stratosphere.sopremo.pact.GenericSopremoReduce#reduce(eu.stratosphere.sopremo.type.IStreamNode,
-		 * eu.stratosphere.sopremo.pact.JsonCollector)
-		 */
-		@Override
-		protected void reduce(IStreamNode<IJsonNode> values, JsonCollector<IJsonNode> out) {
-			this.cached.addAll(values);
-			final int size = this.cached.size();
-			final IJsonNode[] array = this.cached.getBackingArray();
-			Arrays.sort(array, 0, size, this.comparator);
-			for (int index = 0; index < size; index++)
-				out.collect(array[index]);
-			this.cached.clear();
+		public static class Implementation extends SopremoReduce {
+			/*
+			 * (non-Javadoc)
+			 * @see eu.stratosphere.sopremo.pact.GenericSopremoReduce#reduce(eu.stratosphere.sopremo.type.IStreamNode,
+			 * eu.stratosphere.sopremo.pact.JsonCollector)
+			 */
+			@Override
+			protected void reduce(IStreamNode<IJsonNode> values, JsonCollector<IJsonNode> out) {
+				// the values have been sorted by the secondary sort
+				for (IJsonNode value : values)
+					out.collect(value);
+			}
 		}
 	}
 }
-// public class Sort extends ElementaryOperator<Sort> {
-// /**
-// * Initializes Sort.
-// */
-// public Sort() {
-// this.setInnerGroupOrder(0,
-// Collections.singletonList(new OrderingExpression(Order.ASCENDING, EvaluationExpression.VALUE)));
-// this.setKeyExpressions(0, ConstantExpression.NULL);
-// }
-//
-// /**
-// * Sets the sortingExpression to the specified value.
-// *
-// * @param sortingExpression
-// * the sortingExpression to set
-// */
-// public void setSortingExpression(OrderingExpression sortingExpression) {
-// if (sortingExpression == null)
-// throw new NullPointerException("sortingExpression must not be null");
-//
-// this.setInnerGroupOrder(0, Collections.singletonList(sortingExpression));
-// }
-//
-// /**
-// * Returns the sortingExpression.
-// *
-// * @return the sortingExpression
-// */
-// public EvaluationExpression getSortingExpression() {
-// return this.getInnerGroupOrder(0).get(0);
-// }
-//
-// public Sort withSortingExpression(OrderingExpression sortingExpression) {
-// setSortingExpression(sortingExpression);
-// return this;
-// }
-//
-// public static class Implementation extends SopremoReduce {
-//
-// /*
-// * (non-Javadoc)
-// * @see eu.stratosphere.sopremo.pact.GenericSopremoReduce#reduce(eu.stratosphere.sopremo.type.IStreamNode,
-// * eu.stratosphere.sopremo.pact.JsonCollector)
-// */
-// @Override
-// protected void reduce(IStreamNode<IJsonNode> values, JsonCollector<IJsonNode> out) {
-// // reemit all values, they have been sorted by the second order function
-// for (IJsonNode value : values)
-// out.collect(value);
-// }
-// }
-// }
@@ -76,6 +76,8 @@ public class TwoSourceJoin extends TwoSourceJoinBase<TwoSourceJoin> {
 				}));
 		else
 			this.strategy.setResultProjection(this.getResultProjection());
+		if (this.isSalted() && this.strategy instanceof EquiJoin && this.outerJoinSources.size() != 2)
+			throw new IllegalStateException("Salted inputs are only supported for full outer joins");
 		if (!this.outerJoinSources.isEmpty() && this.strategy instanceof EquiJoin)
 			((EquiJoin) this.strategy).withMode(
 				this.outerJoinSources.contains(this.inverseInputs ? 1 : 0),
@@ -210,6 +212,26 @@ public class TwoSourceJoin extends TwoSourceJoinBase<TwoSourceJoin> {
 		return this;
 	}
 
+	/*
+	 * (non-Javadoc)
+	 * @see eu.stratosphere.sopremo.base.join.TwoSourceJoinBase#setSalted(boolean)
+	 */
+	@Override
+	public void setSalted(boolean salted) {
+		super.setSalted(salted);
+		this.chooseStrategy();
+	}
+
+	/**
+	 * Returns the input whose heavy hitters are distributed to several salts if the inputs are salted. The values of
+	 * the other input are replicated to all salts.
+	 * 
+	 * @return the index of the salted input
+	 */
+	int getSaltedInput() {
+		return this.inverseInputs ? 1 : 0;
+	}
+
 	/**
 	 * Returns the strategy. For testing only.
 	 * 
@@ -254,5 +276,15 @@ public class TwoSourceJoin extends TwoSourceJoinBase<TwoSourceJoin> {
 		}
 		if (this.strategy == null)
 			throw new UnsupportedOperationException("condition " + this.condition + " not supported");
+
+		if (this.isSalted()) {
+			if (!(this.strategy instanceof EquiJoin) && !(this.strategy instanceof SemiJoin))
+				throw new UnsupportedOperationException("salted inputs not supported for condition " + this.condition);
+			// the keys include the salt of the [salt, value] pairs
+			for (int index = 0; index < 2; index++)
+				this.strategy.setKeyExpressions(index,
+					HeavyHitters.getSaltedKeyExpressions(this.strategy.getKeyExpressions(index).get(0)));
+			this.strategy.setSalted(true);
+		}
 	}
 }
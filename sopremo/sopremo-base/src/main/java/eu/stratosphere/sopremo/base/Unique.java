@@ -31,8 +31,19 @@ public class Unique extends ElementaryOperator<Unique> {
 	 */
 	public Unique() {
 		setKeyExpressions(0, EvaluationExpression.VALUE);
+		setCombinable(true);
 	}
-	
+
+	/*
+	 * (non-Javadoc)
+	 * @see eu.stratosphere.sopremo.operator.ElementaryOperator#isCombinable()
+	 */
+	@Override
+	public boolean isCombinable() {
+		// the combiner removes the duplicates before the shuffle but would apply the result projection twice
+		return super.isCombinable() && this.getResultProjection() == EvaluationExpression.VALUE;
+	}
+
 	public static class Implementation extends SopremoReduce {
 		/*
 		 * (non-Javadoc)
@@ -41,7 +52,8 @@ public class Unique extends ElementaryOperator<Unique> {
 		 */
 		@Override
 		protected void reduce(IStreamNode<IJsonNode> values, JsonCollector<IJsonNode> out) {
-			out.collect(values.iterator().next());
+			// the remaining values are never deserialized
+			out.forward(values.iterator().next());
 		}
 	}
 
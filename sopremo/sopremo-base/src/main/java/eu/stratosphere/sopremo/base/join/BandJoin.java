@@ -0,0 +1,407 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010-2013 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+package eu.stratosphere.sopremo.base.join;
+
+import java.util.List;
+
+import eu.stratosphere.pact.common.contract.Order;
+import eu.stratosphere.sopremo.EvaluationContext;
+import eu.stratosphere.sopremo.base.Projection;
+import eu.stratosphere.sopremo.base.Sort;
+import eu.stratosphere.sopremo.expressions.AndExpression;
+import eu.stratosphere.sopremo.expressions.ArrayAccess;
+import eu.stratosphere.sopremo.expressions.ArrayCreation;
+import eu.stratosphere.sopremo.expressions.BooleanExpression;
+import eu.stratosphere.sopremo.expressions.ComparativeExpression;
+import eu.stratosphere.sopremo.expressions.ComparativeExpression.BinaryOperator;
+import eu.stratosphere.sopremo.expressions.EvaluationExpression;
+import eu.stratosphere.sopremo.expressions.InputSelection;
+import eu.stratosphere.sopremo.expressions.OrderingExpression;
+import eu.stratosphere.sopremo.expressions.PathSegmentExpression;
+import eu.stratosphere.sopremo.operator.CompositeOperator;
+import eu.stratosphere.sopremo.operator.ElementaryOperator;
+import eu.stratosphere.sopremo.operator.InputCardinality;
+import eu.stratosphere.sopremo.operator.JsonStream;
+import eu.stratosphere.sopremo.operator.Name;
+import eu.stratosphere.sopremo.operator.Property;
+import eu.stratosphere.sopremo.operator.SopremoModule;
+import eu.stratosphere.sopremo.pact.JsonCollector;
+import eu.stratosphere.sopremo.pact.SopremoCross;
+import eu.stratosphere.sopremo.pact.SopremoMatch;
+import eu.stratosphere.sopremo.type.ArrayNode;
+import eu.stratosphere.sopremo.type.BooleanNode;
+import eu.stratosphere.sopremo.type.IArrayNode;
+import eu.stratosphere.sopremo.type.IJsonNode;
+
+/**
+ * Joins two inputs on a band condition that restricts an expression of one input to a range that is bounded by
+ * expressions of the other input, for example, <code>$a.ts >= $b.start and $a.ts < $b.end</code>.<br>
+ * The input with the restricted expression, the point input, is range-partitioned on the expression with the
+ * boundaries that {@link Sort} computes from a sample. Each value of the other input is replicated to all ranges that
+ * overlap its band. Both inputs are then matched on the range, such that the condition is only evaluated for pairs
+ * within the same range instead of the Cartesian product of a {@link ThetaJoin}.
+ * 
+ * @author Arvid Heise
+ */
+@InputCardinality(2)
+public class BandJoin extends CompositeOperator<BandJoin> {
+	/**
+	 * The default number of ranges into which the point input is partitioned.
+	 */
+	public static final int DEFAULT_NUMBER_OF_RANGES = 64;
+
+	private BooleanExpression condition;
+
+	private int pointInput;
+
+	private PathSegmentExpression pointExpression;
+
+	private EvaluationExpression lowerBound, upperBound;
+
+	private int numberOfRanges = DEFAULT_NUMBER_OF_RANGES;
+
+	private EvaluationExpression resultProjection = EvaluationExpression.VALUE;
+
+	/**
+	 * Initializes a BandJoin without condition. Use {@link #valueOf(ComparativeExpression, ComparativeExpression)} to
+	 * create a BandJoin from a condition.
+	 */
+	public BandJoin() {
+	}
+
+	/**
+	 * Creates a BandJoin for the two given conditions if they form a band over the inputs 0 and 1, that is, one
+	 * condition is a lower bound and the other condition an upper bound for the same expression of one input.
+	 * 
+	 * @param condition1
+	 *        the first condition
+	 * @param condition2
+	 *        the second condition
+	 * @return the BandJoin or <code>null</code> if the conditions do not form a band
+	 */
+	public static BandJoin valueOf(final ComparativeExpression condition1, final ComparativeExpression condition2) {
+		final int pointInput = getPointInput(condition1, condition2);
+		if (pointInput != 0 && pointInput != 1)
+			return null;
+
+		final BandJoin bandJoin = new BandJoin();
+		bandJoin.condition = new AndExpression(condition1, condition2);
+		bandJoin.pointInput = pointInput;
+		for (final ComparativeExpression condition : new ComparativeExpression[] { condition1, condition2 }) {
+			final boolean pointFirst = getInputIndex(condition.getExpr1()) == pointInput;
+			final EvaluationExpression bound = (pointFirst ? condition.getExpr2() : condition.getExpr1()).clone().
+				remove(InputSelection.class);
+			if (isLowerBound(condition, pointFirst))
+				bandJoin.lowerBound = bound;
+			else
+				bandJoin.upperBound = bound;
+			bandJoin.pointExpression = (PathSegmentExpression) (pointFirst ? condition.getExpr1()
+				: condition.getExpr2()).clone().remove(InputSelection.class);
+		}
+		return bandJoin;
+	}
+
+	/**
+	 * Determines whether the two given conditions form a band, that is, one condition is a lower bound and the other
+	 * condition an upper bound for the same expression of one input, and both bounds refer to a second input.
+	 * 
+	 * @param condition1
+	 *        the first condition
+	 * @param condition2
+	 *        the second condition
+	 * @return the index of the input with the bounded expression or -1 if the conditions do not form a band
+	 */
+	public static int getPointInput(final ComparativeExpression condition1, final ComparativeExpression condition2) {
+		final int input1 = getInputIndex(condition1.getExpr1()), input2 = getInputIndex(condition1.getExpr2());
+		if (input1 < 0 || input2 < 0 || input1 == input2 || !isInequality(condition1) || !isInequality(condition2))
+			return -1;
+
+		for (final int pointInput : new int[] { input1, input2 }) {
+			final int otherInput = pointInput == input1 ? input2 : input1;
+			final boolean pointFirst1 = pointInput == input1;
+			final int point2 = getInputIndex(condition2.getExpr1()), bound2 = getInputIndex(condition2.getExpr2());
+			final boolean pointFirst2;
+			if (point2 == pointInput && bound2 == otherInput)
+				pointFirst2 = true;
+			else if (point2 == otherInput && bound2 == pointInput)
+				pointFirst2 = false;
+			else
+				continue;
+
+			final EvaluationExpression pointExpression1 = pointFirst1 ? condition1.getExpr1() : condition1.getExpr2();
+			final EvaluationExpression pointExpression2 = pointFirst2 ? condition2.getExpr1() : condition2.getExpr2();
+			// the point expression is used to partition the values and thus needs to be a path
+			if (pointExpression1.equals(pointExpression2) && pointExpression1 instanceof PathSegmentExpression
+				&& isLowerBound(condition1, pointFirst1) != isLowerBound(condition2, pointFirst2))
+				return pointInput;
+		}
+		return -1;
+	}
+
+	private static int getInputIndex(final EvaluationExpression expression) {
+		final List<InputSelection> inputSelections = expression.findAll(InputSelection.class);
+		if (inputSelections.isEmpty())
+			return -1;
+		final int index = inputSelections.get(0).getIndex();
+		for (final InputSelection inputSelection : inputSelections)
+			if (inputSelection.getIndex() != index)
+				return -1;
+		return index;
+	}
+
+	private static boolean isInequality(final ComparativeExpression condition) {
+		switch (condition.getBinaryOperator()) {
+		case LESS:
+		case LESS_EQUAL:
+		case GREATER:
+		case GREATER_EQUAL:
+			return true;
+		default:
+			return false;
+		}
+	}
+
+	private static boolean isLowerBound(final ComparativeExpression condition, final boolean pointFirst) {
+		final BinaryOperator operator = condition.getBinaryOperator();
+		final boolean greater = operator == BinaryOperator.GREATER || operator == BinaryOperator.GREATER_EQUAL;
+		return greater == pointFirst;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see eu.stratosphere.sopremo.operator.CompositeOperator#addImplementation(eu.stratosphere.sopremo.operator.
+	 * SopremoModule, eu.stratosphere.sopremo.EvaluationContext)
+	 */
+	@Override
+	public void addImplementation(final SopremoModule module, final EvaluationContext context) {
+		final OrderingExpression partitioningExpression = new OrderingExpression(Order.ASCENDING,
+			this.pointExpression);
+		final JsonStream points = module.getInput(this.pointInput), bands = module.getInput(1 - this.pointInput);
+
+		final Sort.SampleKeys sample = new Sort.SampleKeys().
+			withSortingExpression(partitioningExpression).
+			withSampleSize(Sort.DEFAULT_SAMPLE_SIZE).
+			withInputs(points);
+		// unlike the ranges of a sort, the ranges of a band join do not need to be sent to specific tasks; thus, the
+		// probes [r] are not located but passed as [r, r], such that range r is keyed by r
+		final Sort.PartitionProbes probes = new Sort.PartitionProbes().
+			withNumberOfProbes(this.numberOfRanges).
+			withInputs(sample);
+		final Projection rangeKeys = new Projection().
+			withResultProjection(new ArrayCreation(new ArrayAccess(0), new ArrayAccess(0))).
+			withInputs(probes);
+		final Sort.RangeBoundaries boundaries = new Sort.RangeBoundaries().
+			withSortingExpression(partitioningExpression).
+			withNumberOfRanges(this.numberOfRanges).
+			withInputs(sample, rangeKeys);
+		final Sort.RangePartition rangedPoints = new Sort.RangePartition().
+			withSortingExpression(partitioningExpression).
+			withInputs(points, boundaries);
+		final BandPartition rangedBands = new BandPartition().
+			withBounds(this.lowerBound, this.upperBound).
+			withInputs(bands, boundaries);
+
+		final RangeMatch join = new RangeMatch().
+			withCondition(this.condition).
+			withPointInput(this.pointInput).
+			withResultProjection(this.resultProjection).
+			withInputs(rangedPoints, rangedBands);
+		module.getOutput(0).setInput(0, join);
+	}
+
+	public BooleanExpression getCondition() {
+		return this.condition;
+	}
+
+	/**
+	 * Returns the number of ranges into which the point input is partitioned.
+	 * 
+	 * @return the number of ranges
+	 */
+	public int getNumberOfRanges() {
+		return this.numberOfRanges;
+	}
+
+	/**
+	 * Sets the number of ranges into which the point input is partitioned. More ranges reduce the number of evaluated
+	 * pairs but replicate values with wide bands more often.
+	 * 
+	 * @param numberOfRanges
+	 *        the number of ranges to set
+	 */
+	@Property(expert = true)
+	@Name(noun = "ranges")
+	public void setNumberOfRanges(final int numberOfRanges) {
+		if (numberOfRanges <= 0)
+			throw new IllegalArgumentException("numberOfRanges must be positive");
+
+		this.numberOfRanges = numberOfRanges;
+	}
+
+	public BandJoin withNumberOfRanges(final int numberOfRanges) {
+		this.setNumberOfRanges(numberOfRanges);
+		return this;
+	}
+
+	public EvaluationExpression getResultProjection() {
+		return this.resultProjection;
+	}
+
+	@Property
+	@Name(preposition = "into")
+	public void setResultProjection(final EvaluationExpression resultProjection) {
+		if (resultProjection == null)
+			throw new NullPointerException("resultProjection must not be null");
+
+		this.resultProjection = resultProjection;
+	}
+
+	public BandJoin withResultProjection(final EvaluationExpression resultProjection) {
+		this.setResultProjection(resultProjection);
+		return this;
+	}
+
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = super.hashCode();
+		result = prime * result + this.condition.hashCode();
+		result = prime * result + this.numberOfRanges;
+		result = prime * result + this.resultProjection.hashCode();
+		return result;
+	}
+
+	@Override
+	public boolean equals(final Object obj) {
+		if (this == obj)
+			return true;
+		if (!super.equals(obj))
+			return false;
+		if (this.getClass() != obj.getClass())
+			return false;
+		final BandJoin other = (BandJoin) obj;
+		return this.condition.equals(other.condition) && this.numberOfRanges == other.numberOfRanges
+			&& this.resultProjection.equals(other.resultProjection);
+	}
+
+	/**
+	 * Returns the index of the range of the given key, which is the number of boundaries that are smaller than the
+	 * key.
+	 */
+	static int findRange(final IArrayNode<IJsonNode> boundaries, final IJsonNode key) {
+		int low = 0, high = boundaries.size();
+		while (low < high) {
+			final int mid = (low + high) >>> 1;
+			if (boundaries.get(mid).compareTo(key) < 0)
+				low = mid + 1;
+			else
+				high = mid;
+		}
+		return low;
+	}
+
+	/**
+	 * Replicates each value to all ranges that overlap its band and emits pairs [range key, value] with the range keys
+	 * of {@link Sort.RangeBoundaries}, which {@link Sort.RangePartition} also assigns to the points.
+	 */
+	@InputCardinality(2)
+	public static class BandPartition extends ElementaryOperator<BandPartition> {
+		private EvaluationExpression lowerBound, upperBound;
+
+		public BandPartition withBounds(final EvaluationExpression lowerBound, final EvaluationExpression upperBound) {
+			this.lowerBound = lowerBound;
+			this.upperBound = upperBound;
+			return this;
+		}
+
+		public static class Implementation extends SopremoCross {
+			private EvaluationExpression lowerBound, upperBound;
+
+			private final transient ArrayNode<IJsonNode> rangedValue = new ArrayNode<IJsonNode>();
+
+			/*
+			 * (non-Javadoc)
+			 * @see eu.stratosphere.sopremo.pact.GenericSopremoCross#cross(eu.stratosphere.sopremo.type.IJsonNode,
+			 * eu.stratosphere.sopremo.type.IJsonNode, eu.stratosphere.sopremo.pact.JsonCollector)
+			 */
+			@Override
+			protected void cross(final IJsonNode value, final IJsonNode partitioning,
+					final JsonCollector<IJsonNode> out) {
+				@SuppressWarnings("unchecked")
+				final IArrayNode<IArrayNode<IJsonNode>> partitioningArray =
+					(IArrayNode<IArrayNode<IJsonNode>>) partitioning;
+				final IArrayNode<IJsonNode> boundaries = partitioningArray.get(0), rangeKeys = partitioningArray.get(1);
+				// the bounds may share their result nodes
+				final int firstRange = findRange(boundaries, this.lowerBound.evaluate(value));
+				final int lastRange = findRange(boundaries, this.upperBound.evaluate(value));
+
+				for (int range = firstRange; range <= lastRange; range++) {
+					this.rangedValue.clear();
+					this.rangedValue.add(rangeKeys.get(range));
+					this.rangedValue.add(value);
+					out.collect(this.rangedValue);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Matches the ranged points with the ranged bands of the same range and emits all pairs that satisfy the
+	 * condition.
+	 */
+	@InputCardinality(2)
+	public static class RangeMatch extends ElementaryOperator<RangeMatch> {
+		private BooleanExpression condition;
+
+		private int pointInput;
+
+		public RangeMatch() {
+			this.setKeyExpressions(0, new ArrayAccess(0));
+			this.setKeyExpressions(1, new ArrayAccess(0));
+		}
+
+		public RangeMatch withCondition(final BooleanExpression condition) {
+			this.condition = condition;
+			return this;
+		}
+
+		public RangeMatch withPointInput(final int pointInput) {
+			this.pointInput = pointInput;
+			return this;
+		}
+
+		public static class Implementation extends SopremoMatch {
+			private BooleanExpression condition;
+
+			private int pointInput;
+
+			private final transient IArrayNode<IJsonNode> inputs = new ArrayNode<IJsonNode>();
+
+			/*
+			 * (non-Javadoc)
+			 * @see eu.stratosphere.sopremo.pact.GenericSopremoMatch#match(eu.stratosphere.sopremo.type.IJsonNode,
+			 * eu.stratosphere.sopremo.type.IJsonNode, eu.stratosphere.sopremo.pact.JsonCollector)
+			 */
+			@Override
+			protected void match(final IJsonNode rangedPoint, final IJsonNode rangedBand,
+					final JsonCollector<IJsonNode> out) {
+				this.inputs.set(this.pointInput, ((IArrayNode<?>) rangedPoint).get(1));
+				this.inputs.set(1 - this.pointInput, ((IArrayNode<?>) rangedBand).get(1));
+				if (this.condition.evaluate(this.inputs) == BooleanNode.TRUE)
+					out.collect(this.inputs);
+			}
+		}
+	}
+}
@@ -0,0 +1,149 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010-2013 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+package eu.stratosphere.sopremo.base.join;
+
+import eu.stratosphere.sopremo.type.ArrayNode;
+import eu.stratosphere.sopremo.type.IArrayNode;
+import eu.stratosphere.sopremo.type.IJsonNode;
+import eu.stratosphere.sopremo.type.INumericNode;
+import eu.stratosphere.sopremo.type.IntNode;
+import eu.stratosphere.sopremo.type.LongNode;
+
+/**
+ * A Bloom filter over the hash codes of join keys. The filter never rejects an added key but accepts keys that have not
+ * been added with the false positive rate, for which the filter has been dimensioned.<br>
+ * The bit positions are derived from the hash code with double hashing. The filter is transferred as an array
+ * [number of hash functions, [bit words...]].
+ * 
+ * @author Arvid Heise
+ */
+class BloomFilter {
+	private final long[] words;
+
+	private final int numberOfHashes;
+
+	private final long numberOfBits;
+
+	private BloomFilter(final long[] words, final int numberOfHashes) {
+		this.words = words;
+		this.numberOfHashes = numberOfHashes;
+		this.numberOfBits = 64L * words.length;
+	}
+
+	/**
+	 * Creates an empty Bloom filter that holds the given number of keys with the given false positive rate.
+	 * 
+	 * @param numberOfKeys
+	 *        the number of keys that are added
+	 * @param falsePositiveRate
+	 *        the probability that a key that has not been added is accepted
+	 * @return the empty filter
+	 */
+	public static BloomFilter create(final long numberOfKeys, final double falsePositiveRate) {
+		if (falsePositiveRate <= 0 || falsePositiveRate >= 1)
+			throw new IllegalArgumentException("falsePositiveRate must be between 0 and 1");
+
+		final long keys = Math.max(1, numberOfKeys);
+		// m = -n ln p / (ln 2)^2 and k = m / n ln 2 minimize the size for the false positive rate
+		final long numberOfBits = (long) Math.ceil(-keys * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+		final int numberOfWords = (int) Math.min(Integer.MAX_VALUE, Math.max(1, (numberOfBits + 63) / 64));
+		final int numberOfHashes = (int) Math.max(1, Math.round(64d * numberOfWords / keys * Math.log(2)));
+		return new BloomFilter(new long[numberOfWords], numberOfHashes);
+	}
+
+	/**
+	 * Decodes a Bloom filter that has been encoded with {@link #toNode()}.
+	 * 
+	 * @param node
+	 *        the encoded filter
+	 * @return the decoded filter
+	 */
+	public static BloomFilter valueOf(final IJsonNode node) {
+		final IArrayNode<?> filter = (IArrayNode<?>) node;
+		final IArrayNode<?> wordNodes = (IArrayNode<?>) filter.get(1);
+		final long[] words = new long[wordNodes.size()];
+		for (int index = 0; index < words.length; index++)
+			words[index] = ((INumericNode) wordNodes.get(index)).getLongValue();
+		return new BloomFilter(words, ((INumericNode) filter.get(0)).getIntValue());
+	}
+
+	/**
+	 * Adds the key with the given hash code.
+	 * 
+	 * @param hash
+	 *        the hash code of the key
+	 */
+	public void add(final int hash) {
+		final long secondHash = mix(hash);
+		for (int index = 1; index <= this.numberOfHashes; index++) {
+			final long bit = ((hash + index * secondHash) & Long.MAX_VALUE) % this.numberOfBits;
+			this.words[(int) (bit >>> 6)] |= 1L << bit;
+		}
+	}
+
+	/**
+	 * Returns whether the key with the given hash code may have been added.
+	 * 
+	 * @param hash
+	 *        the hash code of the key
+	 * @return false if the key has certainly not been added
+	 */
+	public boolean mightContain(final int hash) {
+		final long secondHash = mix(hash);
+		for (int index = 1; index <= this.numberOfHashes; index++) {
+			final long bit = ((hash + index * secondHash) & Long.MAX_VALUE) % this.numberOfBits;
+			if ((this.words[(int) (bit >>> 6)] & 1L << bit) == 0)
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the number of bits of this filter.
+	 * 
+	 * @return the number of bits
+	 */
+	public long getNumberOfBits() {
+		return this.numberOfBits;
+	}
+
+	/**
+	 * Encodes this filter as a node.
+	 * 
+	 * @return the encoded filter
+	 */
+	public IJsonNode toNode() {
+		final IArrayNode<IJsonNode> wordNodes = new ArrayNode<IJsonNode>();
+		for (final long word : this.words)
+			wordNodes.add(LongNode.valueOf(word));
+		final IArrayNode<IJsonNode> filter = new ArrayNode<IJsonNode>();
+		filter.add(IntNode.valueOf(this.numberOfHashes));
+		filter.add(wordNodes);
+		return filter;
+	}
+
+	/**
+	 * Derives an independent second hash code with the finalization step of MurmurHash3.
+	 */
+	private static long mix(final int hash) {
+		long mixed = hash;
+		mixed ^= mixed >>> 33;
+		mixed *= 0xff51afd7ed558ccdL;
+		mixed ^= mixed >>> 33;
+		mixed *= 0xc4ceb9fe1a85ec53L;
+		mixed ^= mixed >>> 33;
+		return mixed;
+	}
+}
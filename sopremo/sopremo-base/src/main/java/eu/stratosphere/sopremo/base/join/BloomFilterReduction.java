@@ -0,0 +1,331 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010-2013 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+package eu.stratosphere.sopremo.base.join;
+
+import it.unimi.dsi.fastutil.ints.IntIterator;
+import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
+
+import eu.stratosphere.nephele.configuration.Configuration;
+import eu.stratosphere.sopremo.EvaluationContext;
+import eu.stratosphere.sopremo.base.BroadcastCross;
+import eu.stratosphere.sopremo.expressions.ConstantExpression;
+import eu.stratosphere.sopremo.expressions.EvaluationExpression;
+import eu.stratosphere.sopremo.operator.CompositeOperator;
+import eu.stratosphere.sopremo.operator.ElementaryOperator;
+import eu.stratosphere.sopremo.operator.InputCardinality;
+import eu.stratosphere.sopremo.operator.JsonStream;
+import eu.stratosphere.sopremo.operator.Name;
+import eu.stratosphere.sopremo.operator.Property;
+import eu.stratosphere.sopremo.operator.SopremoModule;
+import eu.stratosphere.sopremo.pact.JsonCollector;
+import eu.stratosphere.sopremo.pact.SopremoMap;
+import eu.stratosphere.sopremo.pact.SopremoReduce;
+import eu.stratosphere.sopremo.type.ArrayNode;
+import eu.stratosphere.sopremo.type.IArrayNode;
+import eu.stratosphere.sopremo.type.IJsonNode;
+import eu.stratosphere.sopremo.type.INumericNode;
+import eu.stratosphere.sopremo.type.IStreamNode;
+import eu.stratosphere.sopremo.type.IntNode;
+
+/**
+ * Removes all values of the first input, the probe input, whose key cannot match a key of the second input, the build
+ * input, before both inputs are repartitioned for a join.<br>
+ * A first pass collects the distinct hash codes of the build keys and builds a {@link BloomFilter}, which is sized for
+ * the configured false positive rate. The filter is broadcasted to all tasks, while the probe input is filtered
+ * without repartitioning. Thus, the values are forwarded unchanged and only values without join partner may pass.<br>
+ * If the build input is empty, no filter is built and the output is empty.
+ * 
+ * @author Arvid Heise
+ */
+@InputCardinality(2)
+public class BloomFilterReduction extends CompositeOperator<BloomFilterReduction> {
+	/**
+	 * The default probability that a value without join partner passes the filter.
+	 */
+	public static final double DEFAULT_FALSE_POSITIVE_RATE = 0.01;
+
+	private EvaluationExpression probeKeyExpression = EvaluationExpression.VALUE,
+			buildKeyExpression = EvaluationExpression.VALUE;
+
+	private double falsePositiveRate = DEFAULT_FALSE_POSITIVE_RATE;
+
+	/*
+	 * (non-Javadoc)
+	 * @see eu.stratosphere.sopremo.operator.CompositeOperator#addImplementation(eu.stratosphere.sopremo.operator.
+	 * SopremoModule, eu.stratosphere.sopremo.EvaluationContext)
+	 */
+	@Override
+	public void addImplementation(final SopremoModule module, final EvaluationContext context) {
+		final JsonStream keyHashes = new CollectKeyHashes().
+			withKeyExpression(this.buildKeyExpression).
+			withInputs(module.getInput(1));
+		final JsonStream bloomFilter = new BuildBloomFilter().
+			withFalsePositiveRate(this.falsePositiveRate).
+			withInputs(keyHashes);
+		final BloomFilterSelection selection = new BloomFilterSelection().
+			withKeyExpression(this.probeKeyExpression).
+			withInputs(module.getInput(0), bloomFilter);
+		module.getOutput(0).setInput(0, selection);
+	}
+
+	public EvaluationExpression getProbeKeyExpression() {
+		return this.probeKeyExpression;
+	}
+
+	/**
+	 * Sets the expression that extracts the join key from the values of the first input, which are filtered.
+	 * 
+	 * @param probeKeyExpression
+	 *        the key expression to set
+	 */
+	@Property
+	public void setProbeKeyExpression(final EvaluationExpression probeKeyExpression) {
+		if (probeKeyExpression == null)
+			throw new NullPointerException("probeKeyExpression must not be null");
+
+		this.probeKeyExpression = probeKeyExpression;
+	}
+
+	public BloomFilterReduction withProbeKeyExpression(final EvaluationExpression probeKeyExpression) {
+		this.setProbeKeyExpression(probeKeyExpression);
+		return this;
+	}
+
+	public EvaluationExpression getBuildKeyExpression() {
+		return this.buildKeyExpression;
+	}
+
+	/**
+	 * Sets the expression that extracts the join key from the values of the second input, from which the filter is
+	 * built.
+	 * 
+	 * @param buildKeyExpression
+	 *        the key expression to set
+	 */
+	@Property
+	public void setBuildKeyExpression(final EvaluationExpression buildKeyExpression) {
+		if (buildKeyExpression == null)
+			throw new NullPointerException("buildKeyExpression must not be null");
+
+		this.buildKeyExpression = buildKeyExpression;
+	}
+
+	public BloomFilterReduction withBuildKeyExpression(final EvaluationExpression buildKeyExpression) {
+		this.setBuildKeyExpression(buildKeyExpression);
+		return this;
+	}
+
+	public double getFalsePositiveRate() {
+		return this.falsePositiveRate;
+	}
+
+	/**
+	 * Sets the probability that a value without join partner passes the filter. Lower rates filter more values but
+	 * increase the size of the broadcasted filter by about 1.44 log2(1 / rate) bits per distinct key.
+	 * 
+	 * @param falsePositiveRate
+	 *        the false positive rate to set
+	 */
+	@Property(expert = true)
+	@Name(noun = "false positive rate")
+	public void setFalsePositiveRate(final double falsePositiveRate) {
+		if (falsePositiveRate <= 0 || falsePositiveRate >= 1)
+			throw new IllegalArgumentException("falsePositiveRate must be between 0 and 1");
+
+		this.falsePositiveRate = falsePositiveRate;
+	}
+
+	public BloomFilterReduction withFalsePositiveRate(final double falsePositiveRate) {
+		this.setFalsePositiveRate(falsePositiveRate);
+		return this;
+	}
+
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = super.hashCode();
+		result = prime * result + this.buildKeyExpression.hashCode();
+		final long temp = Double.doubleToLongBits(this.falsePositiveRate);
+		result = prime * result + (int) (temp ^ temp >>> 32);
+		result = prime * result + this.probeKeyExpression.hashCode();
+		return result;
+	}
+
+	@Override
+	public boolean equals(final Object obj) {
+		if (this == obj)
+			return true;
+		if (!super.equals(obj))
+			return false;
+		if (this.getClass() != obj.getClass())
+			return false;
+		final BloomFilterReduction other = (BloomFilterReduction) obj;
+		return this.falsePositiveRate == other.falsePositiveRate
+			&& this.probeKeyExpression.equals(other.probeKeyExpression)
+			&& this.buildKeyExpression.equals(other.buildKeyExpression);
+	}
+
+	/**
+	 * Emits the distinct hash codes of the keys of each task in arrays of at most {@link #CHUNK_SIZE} hash codes.
+	 */
+	@InputCardinality(1)
+	public static class CollectKeyHashes extends ElementaryOperator<CollectKeyHashes> {
+		/**
+		 * The maximum number of hash codes in an emitted array.
+		 */
+		public static final int CHUNK_SIZE = 4096;
+
+		private EvaluationExpression keyExpression = EvaluationExpression.VALUE;
+
+		public CollectKeyHashes withKeyExpression(final EvaluationExpression keyExpression) {
+			this.keyExpression = keyExpression;
+			return this;
+		}
+
+		public static class Implementation extends SopremoMap {
+			private EvaluationExpression keyExpression;
+
+			private final transient IntOpenHashSet hashes = new IntOpenHashSet();
+
+			private final transient IArrayNode<IJsonNode> chunk = new ArrayNode<IJsonNode>();
+
+			private transient JsonCollector<IJsonNode> collector;
+
+			/*
+			 * (non-Javadoc)
+			 * @see eu.stratosphere.sopremo.pact.GenericSopremoMap#open(eu.stratosphere.nephele.configuration.Configuration)
+			 */
+			@Override
+			public void open(final Configuration parameters) {
+				super.open(parameters);
+				this.hashes.clear();
+				this.collector = null;
+			}
+
+			/*
+			 * (non-Javadoc)
+			 * @see eu.stratosphere.sopremo.pact.GenericSopremoMap#map(eu.stratosphere.sopremo.type.IJsonNode,
+			 * eu.stratosphere.sopremo.pact.JsonCollector)
+			 */
+			@Override
+			protected void map(final IJsonNode value, final JsonCollector<IJsonNode> out) {
+				this.hashes.add(this.keyExpression.evaluate(value).hashCode());
+				this.collector = out;
+			}
+
+			/*
+			 * (non-Javadoc)
+			 * @see eu.stratosphere.pact.common.stubs.Stub#close()
+			 */
+			@Override
+			public void close() throws Exception {
+				if (this.collector != null) {
+					final IntIterator iterator = this.hashes.iterator();
+					while (iterator.hasNext()) {
+						this.chunk.clear();
+						for (int index = 0; index < CHUNK_SIZE && iterator.hasNext(); index++)
+							this.chunk.add(IntNode.valueOf(iterator.nextInt()));
+						this.collector.collect(this.chunk);
+					}
+				}
+				super.close();
+			}
+		}
+	}
+
+	/**
+	 * Builds a single {@link BloomFilter} from all hash codes of a {@link CollectKeyHashes}. The filter is dimensioned
+	 * for the exact number of distinct hash codes.
+	 */
+	@InputCardinality(1)
+	public static class BuildBloomFilter extends ElementaryOperator<BuildBloomFilter> {
+		private double falsePositiveRate = DEFAULT_FALSE_POSITIVE_RATE;
+
+		public BuildBloomFilter() {
+			this.setKeyExpressions(0, ConstantExpression.NULL);
+		}
+
+		public BuildBloomFilter withFalsePositiveRate(final double falsePositiveRate) {
+			this.falsePositiveRate = falsePositiveRate;
+			return this;
+		}
+
+		public static class Implementation extends SopremoReduce {
+			private double falsePositiveRate;
+
+			private final transient IntOpenHashSet hashes = new IntOpenHashSet();
+
+			/*
+			 * (non-Javadoc)
+			 * @see eu.stratosphere.sopremo.pact.GenericSopremoReduce#reduce(eu.stratosphere.sopremo.type.IStreamNode,
+			 * eu.stratosphere.sopremo.pact.JsonCollector)
+			 */
+			@Override
+			protected void reduce(final IStreamNode<IJsonNode> values, final JsonCollector<IJsonNode> out) {
+				this.hashes.clear();
+				for (final IJsonNode chunk : values)
+					for (final IJsonNode hash : (IArrayNode<?>) chunk)
+						this.hashes.add(((INumericNode) hash).getIntValue());
+
+				final BloomFilter filter = BloomFilter.create(this.hashes.size(), this.falsePositiveRate);
+				final IntIterator iterator = this.hashes.iterator();
+				while (iterator.hasNext())
+					filter.add(iterator.nextInt());
+				out.collect(filter.toNode());
+			}
+		}
+	}
+
+	/**
+	 * Forwards all values of the first input whose key might be contained in the {@link BloomFilter}, which is the
+	 * single value of the second input.
+	 */
+	@InputCardinality(2)
+	public static class BloomFilterSelection extends BroadcastCross<BloomFilterSelection> {
+		private EvaluationExpression keyExpression = EvaluationExpression.VALUE;
+
+		public BloomFilterSelection withKeyExpression(final EvaluationExpression keyExpression) {
+			this.keyExpression = keyExpression;
+			return this;
+		}
+
+		public static class Implementation extends BroadcastStub<BloomFilter> {
+			private EvaluationExpression keyExpression;
+
+			/*
+			 * (non-Javadoc)
+			 * @see
+			 * eu.stratosphere.sopremo.base.BroadcastCross.BroadcastStub#decode(eu.stratosphere.sopremo.type.IJsonNode)
+			 */
+			@Override
+			protected BloomFilter decode(final IJsonNode filter) {
+				return BloomFilter.valueOf(filter);
+			}
+
+			/*
+			 * (non-Javadoc)
+			 * @see
+			 * eu.stratosphere.sopremo.base.BroadcastCross.BroadcastStub#process(eu.stratosphere.sopremo.type.IJsonNode,
+			 * java.lang.Object, eu.stratosphere.sopremo.pact.JsonCollector)
+			 */
+			@Override
+			protected void process(final IJsonNode value, final BloomFilter filter,
+					final JsonCollector<IJsonNode> out) {
+				if (filter.mightContain(this.keyExpression.evaluate(value).hashCode()))
+					out.forward(value);
+			}
+		}
+	}
+}
@@ -1,5 +1,6 @@
 package eu.stratosphere.sopremo.base.join;
 
+import eu.stratosphere.sopremo.base.HeavyHitters.UnsaltedStream;
 import eu.stratosphere.sopremo.pact.JsonCollector;
 import eu.stratosphere.sopremo.pact.SopremoCoGroup;
 import eu.stratosphere.sopremo.type.ArrayNode;
@@ -48,9 +49,30 @@ public class FullOuterJoin extends TwoSourceJoinBase<FullOuterJoin> {
 			}
 		}
 
+		private boolean salted;
+
+		private final transient UnsaltedStream unsaltedValues1 = new UnsaltedStream(),
+				unsaltedValues2 = new UnsaltedStream();
+
 		@Override
 		protected void coGroup(IStreamNode<IJsonNode> values1, IStreamNode<IJsonNode> values2,
 				JsonCollector<IJsonNode> out) {
+			if (!this.salted) {
+				this.fullOuterJoin(values1, values2, out);
+				return;
+			}
+
+			this.unsaltedValues1.setSaltedValues(values1);
+			this.unsaltedValues2.setSaltedValues(values2);
+			// heavy hitters are sampled from the first input; thus, the replicated values of the second input have a
+			// partner, even if no value of the first input has been distributed to this salt
+			if (this.unsaltedValues1.isEmpty() && this.unsaltedValues2.isSalted())
+				return;
+			this.fullOuterJoin(this.unsaltedValues1, this.unsaltedValues2, out);
+		}
+
+		private void fullOuterJoin(IStreamNode<IJsonNode> values1, IStreamNode<IJsonNode> values2,
+				JsonCollector<IJsonNode> out) {
 			if (values1.isEmpty()) {
 				// special case: no items from first source
 				// emit all values of the second source
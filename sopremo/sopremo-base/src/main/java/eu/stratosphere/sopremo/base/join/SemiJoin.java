@@ -1,5 +1,6 @@
 package eu.stratosphere.sopremo.base.join;
 
+import eu.stratosphere.sopremo.base.HeavyHitters.UnsaltedStream;
 import eu.stratosphere.sopremo.pact.JsonCollector;
 import eu.stratosphere.sopremo.pact.SopremoCoGroup;
 import eu.stratosphere.sopremo.type.ArrayNode;
@@ -18,12 +19,22 @@ public class SemiJoin extends TwoSourceJoinBase<SemiJoin> {
 	}
 
 	public static class Implementation extends SopremoCoGroup {
+		private boolean salted;
+
 		private IArrayNode<IJsonNode> result = new ArrayNode<IJsonNode>(NullNode.getInstance());
 
+		private final transient UnsaltedStream unsaltedValues = new UnsaltedStream();
+
 		@Override
 		protected void coGroup(IStreamNode<IJsonNode> values1, IStreamNode<IJsonNode> values2, JsonCollector<IJsonNode> out) {
+			IStreamNode<IJsonNode> values = values1;
+			if (this.salted) {
+				// the replicated second input only needs to be non-empty
+				this.unsaltedValues.setSaltedValues(values1);
+				values = this.unsaltedValues;
+			}
 			if (!values2.isEmpty())
-				for (final IJsonNode value : values1) {
+				for (final IJsonNode value : values) {
 					this.result.set(0, value);
 					out.collect(this.result);
 				}
@@ -2,6 +2,7 @@ package eu.stratosphere.sopremo.base.join;
 
 import eu.stratosphere.sopremo.expressions.BooleanExpression;
 import eu.stratosphere.sopremo.expressions.ComparativeExpression;
+import eu.stratosphere.sopremo.expressions.EvaluationExpression;
 import eu.stratosphere.sopremo.expressions.InputSelection;
 import eu.stratosphere.sopremo.operator.InputCardinality;
 import eu.stratosphere.sopremo.pact.JsonCollector;
@@ -35,7 +36,7 @@ public class ThetaJoin extends TwoSourceJoinBase<ThetaJoin> {
 	public static class Implementation extends SopremoCross {
 		private transient final IArrayNode<IJsonNode> inputs = new ArrayNode<IJsonNode>();
 
-		private BooleanExpression condition;
+		private EvaluationExpression condition;
 
 		@Override
 		protected void cross(IJsonNode value1, IJsonNode value2, JsonCollector<IJsonNode> out) {
@@ -1,11 +1,14 @@
 package eu.stratosphere.sopremo.base.join;
 
+import eu.stratosphere.sopremo.base.HeavyHitters;
 import eu.stratosphere.sopremo.expressions.ObjectCreation;
 import eu.stratosphere.sopremo.operator.ElementaryOperator;
 import eu.stratosphere.sopremo.operator.InputCardinality;
 
 @InputCardinality(2)
 public abstract class TwoSourceJoinBase<Self extends TwoSourceJoinBase<Self>> extends ElementaryOperator<Self> {
+	private boolean salted = false;
+
 	public TwoSourceJoinBase() {
 		super();
 		this.setResultProjection(ObjectCreation.CONCATENATION);
@@ -20,4 +23,47 @@ public abstract class TwoSourceJoinBase<Self extends TwoSourceJoinBase<Self>> ex
 		super(inputs);
 		this.setResultProjection(ObjectCreation.CONCATENATION);
 	}
+
+	/**
+	 * Returns whether the inputs consist of salted pairs [salt, value].
+	 * 
+	 * @return true if the inputs are salted
+	 */
+	public boolean isSalted() {
+		return this.salted;
+	}
+
+	/**
+	 * Sets whether the inputs consist of pairs [salt, value] of {@link HeavyHitters.SaltValues}, where the heavy
+	 * hitters of the first input are distributed and the second input is replicated. The key expressions must then
+	 * include the salt. Only the {@link FullOuterJoin} and the {@link SemiJoin} support salted inputs.
+	 * 
+	 * @param salted
+	 *        true if the inputs are salted
+	 */
+	public void setSalted(boolean salted) {
+		this.salted = salted;
+	}
+
+	public Self withSalted(boolean salted) {
+		this.setSalted(salted);
+		return this.self();
+	}
+
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = super.hashCode();
+		result = prime * result + (this.salted ? 1231 : 1237);
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (!super.equals(obj))
+			return false;
+		return this.salted == ((TwoSourceJoinBase<?>) obj).salted;
+	}
 }
@@ -16,6 +16,8 @@ package eu.stratosphere.sopremo.base.replace;
 
 import java.util.Iterator;
 
+import eu.stratosphere.sopremo.base.HeavyHitters;
+import eu.stratosphere.sopremo.base.HeavyHitters.UnsaltedStream;
 import eu.stratosphere.sopremo.expressions.EvaluationExpression;
 import eu.stratosphere.sopremo.expressions.PathSegmentExpression;
 import eu.stratosphere.sopremo.operator.InputCardinality;
@@ -29,6 +31,8 @@ import eu.stratosphere.sopremo.type.IStreamNode;
 public class AtomarReplaceWithDefaultValue extends AtomarReplaceBase<AtomarReplaceWithDefaultValue> {
 	private EvaluationExpression defaultExpression = EvaluationExpression.VALUE;
 
+	private boolean salted = false;
+
 	@Property
 	public void setDefaultExpression(EvaluationExpression defaultExpression) {
 		if (defaultExpression == null)
@@ -46,11 +50,36 @@ public class AtomarReplaceWithDefaultValue extends AtomarReplaceBase<AtomarRepla
 		return this.defaultExpression;
 	}
 
+	/**
+	 * Sets whether both inputs consist of pairs [salt, value] that have been created with
+	 * {@link HeavyHitters.SaltValues}.
+	 * 
+	 * @param salted
+	 *        true if the inputs are salted
+	 */
+	public void setSalted(boolean salted) {
+		this.salted = salted;
+	}
+
+	public AtomarReplaceWithDefaultValue withSalted(boolean salted) {
+		this.setSalted(salted);
+		return this;
+	}
+
+	public boolean isSalted() {
+		return this.salted;
+	}
+
 	public static class Implementation extends SopremoCoGroup {
 		private PathSegmentExpression replaceExpression;
 
 		private EvaluationExpression dictionaryValueExtraction, defaultExpression;
 
+		private boolean salted;
+
+		private final transient UnsaltedStream unsaltedValues1 = new UnsaltedStream(),
+				unsaltedValues2 = new UnsaltedStream();
+
 		/*
 		 * (non-Javadoc)
 		 * @see eu.stratosphere.sopremo.pact.SopremoCoGroup#coGroup(eu.stratosphere.sopremo.type.IArrayNode,
@@ -58,6 +87,13 @@ public class AtomarReplaceWithDefaultValue extends AtomarReplaceBase<AtomarRepla
 		 */
 		@Override
 		protected void coGroup(IStreamNode<IJsonNode> values1, IStreamNode<IJsonNode> values2, JsonCollector<IJsonNode> out) {
+			if (this.salted) {
+				this.unsaltedValues1.setSaltedValues(values1);
+				this.unsaltedValues2.setSaltedValues(values2);
+				values1 = this.unsaltedValues1;
+				values2 = this.unsaltedValues2;
+			}
+
 			final Iterator<IJsonNode> valueIterator = values1.iterator();
 			if(!valueIterator.hasNext())
 				return;
@@ -0,0 +1,222 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010-2013 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+package eu.stratosphere.sopremo.base.replace;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import eu.stratosphere.nephele.configuration.Configuration;
+import eu.stratosphere.pact.generic.contract.Contract;
+import eu.stratosphere.sopremo.EvaluationContext;
+import eu.stratosphere.sopremo.base.BroadcastCross;
+import eu.stratosphere.sopremo.expressions.EvaluationExpression;
+import eu.stratosphere.sopremo.expressions.PathSegmentExpression;
+import eu.stratosphere.sopremo.operator.InputCardinality;
+import eu.stratosphere.sopremo.operator.Property;
+import eu.stratosphere.sopremo.pact.JsonCollector;
+import eu.stratosphere.sopremo.pact.SopremoUtil;
+import eu.stratosphere.sopremo.serialization.SopremoRecordLayout;
+import eu.stratosphere.sopremo.type.IArrayNode;
+import eu.stratosphere.sopremo.type.IJsonNode;
+
+/**
+ * Replaces values in the first input by looking them up in an in-memory hash map of the dictionary, which is given as
+ * the single array of [key, value] pairs of a {@link CollectDictionary} in the second input.<br>
+ * The dictionary is broadcasted to all tasks, while the first input is forwarded without repartitioning. Thus, the
+ * values can be replaced in one pass, which pays off for small dictionaries and large inputs.<br>
+ * Values without entry in the dictionary are replaced by the default expression, which is evaluated on the value or,
+ * if array elements are replaced, on the element. If records are filtered, such values are dropped instead.
+ * 
+ * @author Arvid Heise
+ */
+@InputCardinality(2)
+public class BroadcastReplace extends AtomarReplaceBase<BroadcastReplace> {
+	private EvaluationExpression defaultExpression = EvaluationExpression.VALUE;
+
+	private boolean replaceArrayElements = false, filterRecords = false;
+
+	@Property
+	public void setDefaultExpression(EvaluationExpression defaultExpression) {
+		if (defaultExpression == null)
+			throw new NullPointerException("defaultExpression must not be null");
+
+		this.defaultExpression = defaultExpression;
+	}
+
+	public BroadcastReplace withDefaultExpression(EvaluationExpression prop) {
+		this.setDefaultExpression(prop);
+		return this;
+	}
+
+	public EvaluationExpression getDefaultExpression() {
+		return this.defaultExpression;
+	}
+
+	/**
+	 * Sets whether the elements of the array at the replace expression are replaced instead of the value itself.
+	 * 
+	 * @param replaceArrayElements
+	 *        true if the array elements should be replaced
+	 */
+	@Property
+	public void setReplaceArrayElements(boolean replaceArrayElements) {
+		this.replaceArrayElements = replaceArrayElements;
+	}
+
+	public BroadcastReplace withReplaceArrayElements(boolean replaceArrayElements) {
+		this.setReplaceArrayElements(replaceArrayElements);
+		return this;
+	}
+
+	public boolean isReplaceArrayElements() {
+		return this.replaceArrayElements;
+	}
+
+	/**
+	 * Sets whether records with values that are not in the dictionary are dropped instead of using the default
+	 * expression.
+	 * 
+	 * @param filterRecords
+	 *        true if the records should be dropped
+	 */
+	@Property
+	public void setFilterRecords(boolean filterRecords) {
+		this.filterRecords = filterRecords;
+	}
+
+	public BroadcastReplace withFilterRecords(boolean filterRecords) {
+		this.setFilterRecords(filterRecords);
+		return this;
+	}
+
+	public boolean isFilterRecords() {
+		return this.filterRecords;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see
+	 * eu.stratosphere.sopremo.operator.ElementaryOperator#configureContract(eu.stratosphere.pact.generic.contract.Contract
+	 * , eu.stratosphere.nephele.configuration.Configuration, eu.stratosphere.sopremo.EvaluationContext,
+	 * eu.stratosphere.sopremo.serialization.SopremoRecordLayout)
+	 */
+	@Override
+	protected void configureContract(Contract contract, Configuration stubConfiguration, EvaluationContext context,
+			SopremoRecordLayout layout) {
+		super.configureContract(contract, stubConfiguration, context, layout);
+		// keep the large input in place and send the dictionary to all tasks
+		BroadcastCross.configureShipStrategies(stubConfiguration);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see eu.stratosphere.sopremo.operator.ElementaryOperator#equals(java.lang.Object)
+	 */
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (!super.equals(obj))
+			return false;
+		BroadcastReplace other = (BroadcastReplace) obj;
+		return this.replaceArrayElements == other.replaceArrayElements && this.filterRecords == other.filterRecords &&
+			this.defaultExpression.equals(other.defaultExpression);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see eu.stratosphere.sopremo.operator.ElementaryOperator#hashCode()
+	 */
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = super.hashCode();
+		result = prime * result + this.defaultExpression.hashCode();
+		result = prime * result + (this.filterRecords ? 1231 : 1237);
+		result = prime * result + (this.replaceArrayElements ? 1231 : 1237);
+		return result;
+	}
+
+	public static class Implementation extends BroadcastCross.BroadcastStub<Map<IJsonNode, IJsonNode>> {
+		private PathSegmentExpression replaceExpression;
+
+		private EvaluationExpression defaultExpression;
+
+		private boolean replaceArrayElements, filterRecords;
+
+		/*
+		 * (non-Javadoc)
+		 * @see
+		 * eu.stratosphere.sopremo.base.BroadcastCross.BroadcastStub#decode(eu.stratosphere.sopremo.type.IJsonNode)
+		 */
+		@SuppressWarnings("unchecked")
+		@Override
+		protected Map<IJsonNode, IJsonNode> decode(IJsonNode dictionaryEntries) {
+			final IArrayNode<IArrayNode<IJsonNode>> entries = (IArrayNode<IArrayNode<IJsonNode>>) dictionaryEntries;
+			final Map<IJsonNode, IJsonNode> dictionary = new HashMap<IJsonNode, IJsonNode>(2 * entries.size());
+			for (IArrayNode<IJsonNode> entry : entries) {
+				// the first value of a key wins as in the repartitioning replace
+				final IJsonNode key = entry.get(0);
+				if (!dictionary.containsKey(key))
+					dictionary.put(key.clone(), entry.get(1).clone());
+			}
+			return dictionary;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * @see
+		 * eu.stratosphere.sopremo.base.BroadcastCross.BroadcastStub#process(eu.stratosphere.sopremo.type.IJsonNode,
+		 * java.lang.Object, eu.stratosphere.sopremo.pact.JsonCollector)
+		 */
+		@Override
+		protected void process(IJsonNode value, Map<IJsonNode, IJsonNode> dictionary, JsonCollector<IJsonNode> out) {
+			final IJsonNode replaced = this.replaceExpression.evaluate(value);
+			if (!this.replaceArrayElements) {
+				final IJsonNode replacement = this.lookup(dictionary, replaced, value);
+				if (replacement == null)
+					return;
+				// copies the replacement, such that the dictionary is not modified by the reuse of the value
+				if (replacement != replaced)
+					this.replaceExpression.set(value, SopremoUtil.copyInto(replacement, replaced));
+			} else if (replaced instanceof IArrayNode) {
+				@SuppressWarnings("unchecked")
+				final IArrayNode<IJsonNode> array = (IArrayNode<IJsonNode>) replaced;
+				for (int index = 0, size = array.size(); index < size; index++) {
+					final IJsonNode element = array.get(index);
+					final IJsonNode replacement = this.lookup(dictionary, element, element);
+					if (replacement == null)
+						return;
+					if (replacement != element)
+						SopremoUtil.replaceWithCopy(array, index, replacement);
+				}
+			}
+			out.collect(value);
+		}
+
+		/**
+		 * Returns the replacement of the given key or null if the key is not in the dictionary and records without
+		 * replacement are filtered.
+		 */
+		private IJsonNode lookup(Map<IJsonNode, IJsonNode> dictionary, IJsonNode key, IJsonNode defaultContext) {
+			final IJsonNode replacement = dictionary.get(key);
+			if (replacement != null)
+				return replacement;
+			if (this.filterRecords)
+				return null;
+			return this.defaultExpression.evaluate(defaultContext);
+		}
+	}
+}
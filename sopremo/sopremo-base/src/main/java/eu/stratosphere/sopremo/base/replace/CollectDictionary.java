@@ -0,0 +1,153 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010-2013 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+package eu.stratosphere.sopremo.base.replace;
+
+import eu.stratosphere.nephele.configuration.Configuration;
+import eu.stratosphere.sopremo.expressions.ArrayAccess;
+import eu.stratosphere.sopremo.expressions.ConstantExpression;
+import eu.stratosphere.sopremo.expressions.EvaluationExpression;
+import eu.stratosphere.sopremo.operator.ElementaryOperator;
+import eu.stratosphere.sopremo.operator.InputCardinality;
+import eu.stratosphere.sopremo.operator.Property;
+import eu.stratosphere.sopremo.pact.JsonCollector;
+import eu.stratosphere.sopremo.pact.SopremoCoGroup;
+import eu.stratosphere.sopremo.pact.SopremoMap;
+import eu.stratosphere.sopremo.type.ArrayNode;
+import eu.stratosphere.sopremo.type.IArrayNode;
+import eu.stratosphere.sopremo.type.IJsonNode;
+import eu.stratosphere.sopremo.type.IStreamNode;
+import eu.stratosphere.sopremo.type.JsonUtil;
+import eu.stratosphere.sopremo.type.NullNode;
+
+/**
+ * Collects all entries of the dictionary given in the first input into a single array of [key, value] pairs, which
+ * can be broadcasted to all tasks of a {@link BroadcastReplace}.<br>
+ * The second input receives the {@link InputSignal} of the replaced input, such that an empty array is emitted for an
+ * empty dictionary as long as there are values to replace.
+ * 
+ * @author Arvid Heise
+ */
+@InputCardinality(2)
+public class CollectDictionary extends ElementaryOperator<CollectDictionary> {
+	private EvaluationExpression dictionaryKeyExtraction = new ArrayAccess(0);
+
+	private EvaluationExpression dictionaryValueExtraction = new ArrayAccess(1);
+
+	/**
+	 * Initializes CollectDictionary.
+	 */
+	public CollectDictionary() {
+		this.setKeyExpressions(0, ConstantExpression.NULL);
+		this.setKeyExpressions(1, ConstantExpression.NULL);
+	}
+
+	@Property
+	public void setDictionaryKeyExtraction(EvaluationExpression dictionaryKeyExtraction) {
+		if (dictionaryKeyExtraction == null)
+			throw new NullPointerException("dictionaryKeyExtraction must not be null");
+
+		this.dictionaryKeyExtraction = dictionaryKeyExtraction;
+	}
+
+	public EvaluationExpression getDictionaryKeyExtraction() {
+		return this.dictionaryKeyExtraction;
+	}
+
+	public CollectDictionary withDictionaryKeyExtraction(EvaluationExpression dictionaryKeyExtraction) {
+		this.setDictionaryKeyExtraction(dictionaryKeyExtraction);
+		return this;
+	}
+
+	@Property
+	public void setDictionaryValueExtraction(EvaluationExpression dictionaryValueExtraction) {
+		if (dictionaryValueExtraction == null)
+			throw new NullPointerException("dictionaryValueExtraction must not be null");
+
+		this.dictionaryValueExtraction = dictionaryValueExtraction;
+	}
+
+	public EvaluationExpression getDictionaryValueExtraction() {
+		return this.dictionaryValueExtraction;
+	}
+
+	public CollectDictionary withDictionaryValueExtraction(EvaluationExpression dictionaryValueExtraction) {
+		this.setDictionaryValueExtraction(dictionaryValueExtraction);
+		return this;
+	}
+
+	public static class Implementation extends SopremoCoGroup {
+		private EvaluationExpression dictionaryKeyExtraction, dictionaryValueExtraction;
+
+		private final transient IArrayNode<IJsonNode> entries = new ArrayNode<IJsonNode>();
+
+		/*
+		 * (non-Javadoc)
+		 * @see eu.stratosphere.sopremo.pact.SopremoCoGroup#coGroup(eu.stratosphere.sopremo.type.IStreamNode,
+		 * eu.stratosphere.sopremo.type.IStreamNode, eu.stratosphere.sopremo.pact.JsonCollector)
+		 */
+		@Override
+		protected void coGroup(IStreamNode<IJsonNode> values1, IStreamNode<IJsonNode> values2,
+				JsonCollector<IJsonNode> out) {
+			this.entries.clear();
+			for (IJsonNode entry : values1)
+				this.entries.add(JsonUtil.asArray(this.dictionaryKeyExtraction.evaluate(entry).clone(),
+					this.dictionaryValueExtraction.evaluate(entry).clone()));
+			out.collect(this.entries);
+		}
+	}
+
+	/**
+	 * Emits a single null node for each task that received at least one value.
+	 * 
+	 * @author Arvid Heise
+	 */
+	@InputCardinality(1)
+	public static class InputSignal extends ElementaryOperator<InputSignal> {
+		public static class Implementation extends SopremoMap {
+			private transient JsonCollector<IJsonNode> collector;
+
+			/*
+			 * (non-Javadoc)
+			 * @see eu.stratosphere.sopremo.pact.GenericSopremoMap#open(eu.stratosphere.nephele.configuration.Configuration)
+			 */
+			@Override
+			public void open(Configuration parameters) {
+				super.open(parameters);
+				this.collector = null;
+			}
+
+			/*
+			 * (non-Javadoc)
+			 * @see eu.stratosphere.sopremo.pact.GenericSopremoMap#map(eu.stratosphere.sopremo.type.IJsonNode,
+			 * eu.stratosphere.sopremo.pact.JsonCollector)
+			 */
+			@Override
+			protected void map(IJsonNode value, JsonCollector<IJsonNode> out) {
+				this.collector = out;
+			}
+
+			/*
+			 * (non-Javadoc)
+			 * @see eu.stratosphere.pact.common.stubs.Stub#close()
+			 */
+			@Override
+			public void close() throws Exception {
+				if (this.collector != null)
+					this.collector.collect(NullNode.getInstance());
+				super.close();
+			}
+		}
+	}
+}
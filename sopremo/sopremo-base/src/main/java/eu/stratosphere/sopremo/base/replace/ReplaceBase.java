@@ -22,8 +22,10 @@ import eu.stratosphere.sopremo.expressions.JsonStreamExpression;
 import eu.stratosphere.sopremo.expressions.PathSegmentExpression;
 import eu.stratosphere.sopremo.expressions.UnevaluableExpression;
 import eu.stratosphere.sopremo.operator.CompositeOperator;
+import eu.stratosphere.sopremo.operator.JsonStream;
 import eu.stratosphere.sopremo.operator.Name;
 import eu.stratosphere.sopremo.operator.Property;
+import eu.stratosphere.sopremo.operator.SopremoModule;
 
 /**
  * @author arv
@@ -40,6 +42,50 @@ public abstract class ReplaceBase<Op extends ReplaceBase<Op>> extends CompositeO
 
 	private EvaluationExpression defaultExpression = EvaluationExpression.VALUE;
 
+	private ReplaceStrategy replaceStrategy = ReplaceStrategy.REPARTITION;
+
+	/**
+	 * The strategies to look up the values in the dictionary.
+	 */
+	public static enum ReplaceStrategy {
+		/**
+		 * Partitions the input and the dictionary on the lookup key. Suited for large dictionaries.
+		 */
+		REPARTITION,
+		/**
+		 * Sends the dictionary to all tasks and looks up the values in an in-memory hash map without repartitioning
+		 * the input. Suited for dictionaries that fit into the memory of each task.
+		 */
+		BROADCAST;
+	}
+
+	/**
+	 * Adds a {@link BroadcastReplace} of the first input of the given module with the dictionary of the second input.
+	 * 
+	 * @param module
+	 *        the module of this operator
+	 * @param defaultExpression
+	 *        the expression that computes the replacement of values that are not in the dictionary or
+	 *        {@link #FILTER_RECORDS}
+	 * @param replaceArrayElements
+	 *        true if the elements of the array at the replace expression should be replaced
+	 * @return the replaced values
+	 */
+	protected JsonStream createBroadcastReplace(SopremoModule module, EvaluationExpression defaultExpression,
+			boolean replaceArrayElements) {
+		final CollectDictionary dictionary = new CollectDictionary().
+			withDictionaryKeyExtraction(this.getDictionaryKeyExtraction()).
+			withDictionaryValueExtraction(this.getDictionaryValueExtraction()).
+			withInputs(module.getInput(1), new CollectDictionary.InputSignal().withInputs(module.getInput(0)));
+		final boolean filterRecords = FILTER_RECORDS.equals(defaultExpression);
+		return new BroadcastReplace().
+			withReplaceExpression(this.getReplaceExpression()).
+			withDefaultExpression(filterRecords ? EvaluationExpression.VALUE : defaultExpression).
+			withFilterRecords(filterRecords).
+			withReplaceArrayElements(replaceArrayElements).
+			withInputs(module.getInput(0), dictionary);
+	}
+
 	@Override
 	public void appendAsString(Appendable appendable) throws IOException {
 		appendable.append(this.getName());
@@ -64,7 +110,8 @@ public abstract class ReplaceBase<Op extends ReplaceBase<Op>> extends CompositeO
 		return this.defaultExpression.equals(other.defaultExpression) &&
 			this.dictionaryKeyExtraction.equals(other.dictionaryKeyExtraction) &&
 			this.dictionaryValueExtraction.equals(other.dictionaryValueExtraction) &&
-			this.replaceExpression.equals(other.replaceExpression);
+			this.replaceExpression.equals(other.replaceExpression) &&
+			this.replaceStrategy == other.replaceStrategy;
 	}
 
 	public EvaluationExpression getDefaultExpression() {
@@ -87,6 +134,15 @@ public abstract class ReplaceBase<Op extends ReplaceBase<Op>> extends CompositeO
 		return this.replaceExpression;
 	}
 
+	/**
+	 * Returns the replaceStrategy.
+	 * 
+	 * @return the replaceStrategy
+	 */
+	public ReplaceStrategy getReplaceStrategy() {
+		return this.replaceStrategy;
+	}
+
 	@Override
 	public int hashCode() {
 		final int prime = 31;
@@ -95,6 +151,7 @@ public abstract class ReplaceBase<Op extends ReplaceBase<Op>> extends CompositeO
 		result = prime * result + this.dictionaryKeyExtraction.hashCode();
 		result = prime * result + this.dictionaryValueExtraction.hashCode();
 		result = prime * result + this.replaceExpression.hashCode();
+		result = prime * result + this.replaceStrategy.hashCode();
 		return result;
 	}
 
@@ -141,6 +198,26 @@ public abstract class ReplaceBase<Op extends ReplaceBase<Op>> extends CompositeO
 		this.replaceExpression = inputKeyExtract;
 	}
 
+	/**
+	 * Sets the strategy to look up the values in the dictionary.
+	 * 
+	 * @param replaceStrategy
+	 *        the replaceStrategy to set
+	 */
+	@Property(expert = true)
+	@Name(preposition = "with strategy")
+	public void setReplaceStrategy(ReplaceStrategy replaceStrategy) {
+		if (replaceStrategy == null)
+			throw new NullPointerException("replaceStrategy must not be null");
+
+		this.replaceStrategy = replaceStrategy;
+	}
+
+	public Op withReplaceStrategy(ReplaceStrategy replaceStrategy) {
+		this.setReplaceStrategy(replaceStrategy);
+		return this.self();
+	}
+
 	public Op withDefaultExpression(EvaluationExpression defaultExpression) {
 		this.setDefaultExpression(defaultExpression);
 		return this.self();
@@ -3,10 +3,16 @@ package eu.stratosphere.sopremo.base;
 import static eu.stratosphere.sopremo.expressions.ExpressionUtil.makePath;
 import static eu.stratosphere.sopremo.type.JsonUtil.createPath;
 
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Assert;
 import org.junit.Test;
 
 import eu.stratosphere.sopremo.CoreFunctions;
 import eu.stratosphere.sopremo.EvaluationContext;
+import eu.stratosphere.sopremo.aggregation.MaterializingAggregation;
+import eu.stratosphere.sopremo.expressions.AggregationExpression;
 import eu.stratosphere.sopremo.expressions.ArrayAccess;
 import eu.stratosphere.sopremo.expressions.ArrayProjection;
 import eu.stratosphere.sopremo.expressions.ConstantExpression;
@@ -15,8 +21,12 @@ import eu.stratosphere.sopremo.expressions.FunctionCall;
 import eu.stratosphere.sopremo.expressions.InputSelection;
 import eu.stratosphere.sopremo.expressions.ObjectAccess;
 import eu.stratosphere.sopremo.expressions.ObjectCreation;
+import eu.stratosphere.sopremo.operator.Operator;
 import eu.stratosphere.sopremo.testing.SopremoOperatorTestBase;
 import eu.stratosphere.sopremo.testing.SopremoTestPlan;
+import eu.stratosphere.sopremo.type.CachingArrayNode;
+import eu.stratosphere.sopremo.type.IJsonNode;
+import eu.stratosphere.sopremo.type.IntNode;
 
 public class GroupingTest extends SopremoOperatorTestBase<Grouping> {
 	@Override
@@ -234,6 +244,253 @@ public class GroupingTest extends SopremoOperatorTestBase<Grouping> {
 		sopremoPlan.run();
 	}
 
+	@Test
+	public void shouldGroupWithHashAggregation() {
+		final SopremoTestPlan sopremoPlan = new SopremoTestPlan(1, 1);
+		final EvaluationContext context = sopremoPlan.getEvaluationContext();
+		context.getFunctionRegistry().put(CoreFunctions.class);
+
+		final ObjectCreation transformation = new ObjectCreation();
+		transformation.addMapping("d", makePath(new InputSelection(0), new ArrayAccess(0), new ObjectAccess("dept")));
+		transformation.addMapping("total", new FunctionCall("sum", context,
+			makePath(new InputSelection(0), new ArrayProjection(new ObjectAccess("income")))));
+		transformation.addMapping("count", CoreFunctions.COUNT.inline(new InputSelection(0)));
+
+		final Grouping aggregation = new Grouping().withResultProjection(transformation).
+			withAggregationStrategy(Grouping.AggregationStrategy.HASH);
+		aggregation.setInputs(sopremoPlan.getInputOperator(0));
+		aggregation.setGroupingKey(0, createPath("dept"));
+
+		sopremoPlan.getOutputOperator(0).setInputs(aggregation);
+		sopremoPlan.getInput(0).
+			addObject("id", 1, "dept", 1, "income", 12000).
+			addObject("id", 2, "dept", 1, "income", 13000).
+			addObject("id", 3, "dept", 2, "income", 15000).
+			addObject("id", 4, "dept", 1, "income", 10000).
+			addObject("id", 5, "dept", 3, "income", 8000).
+			addObject("id", 6, "dept", 2, "income", 5000).
+			addObject("id", 7, "dept", 1, "income", 24000);
+		sopremoPlan.getExpectedOutput(0).
+			addObject("d", 1, "total", 59000, "count", 4).
+			addObject("d", 2, "total", 20000, "count", 2).
+			addObject("d", 3, "total", 8000, "count", 1);
+
+		sopremoPlan.run();
+	}
+
+	@Test
+	public void shouldSplitHeavyHittersOfAssociativeGrouping() {
+		final SopremoTestPlan sopremoPlan = new SopremoTestPlan(1, 1);
+		final EvaluationContext context = sopremoPlan.getEvaluationContext();
+		context.getFunctionRegistry().put(CoreFunctions.class);
+
+		final ObjectCreation transformation = new ObjectCreation();
+		transformation.addMapping("d", makePath(new InputSelection(0), new ArrayAccess(0), new ObjectAccess("dept")));
+		transformation.addMapping("total", new FunctionCall("sum", context,
+			makePath(new InputSelection(0), new ArrayProjection(new ObjectAccess("income")))));
+		transformation.addMapping("count", CoreFunctions.COUNT.inline(new InputSelection(0)));
+
+		final Grouping aggregation = new Grouping().withResultProjection(transformation).withSkewThreshold(0.5);
+		aggregation.setInputs(sopremoPlan.getInputOperator(0));
+		aggregation.setGroupingKey(0, createPath("dept"));
+
+		sopremoPlan.getOutputOperator(0).setInputs(aggregation);
+		// dept 1 is a heavy hitter
+		sopremoPlan.getInput(0).
+			addObject("id", 1, "dept", 1, "income", 12000).
+			addObject("id", 2, "dept", 1, "income", 13000).
+			addObject("id", 3, "dept", 2, "income", 15000).
+			addObject("id", 4, "dept", 1, "income", 10000).
+			addObject("id", 5, "dept", 3, "income", 8000).
+			addObject("id", 6, "dept", 1, "income", 5000).
+			addObject("id", 7, "dept", 1, "income", 24000);
+		sopremoPlan.getExpectedOutput(0).
+			addObject("d", 1, "total", 64000, "count", 5).
+			addObject("d", 2, "total", 15000, "count", 1).
+			addObject("d", 3, "total", 8000, "count", 1);
+
+		sopremoPlan.run();
+	}
+
+	@Test
+	public void shouldFlushHashAggregationWhenMemoryIsExhausted() {
+		final SopremoTestPlan sopremoPlan = new SopremoTestPlan(1, 1);
+		final EvaluationContext context = sopremoPlan.getEvaluationContext();
+		context.getFunctionRegistry().put(CoreFunctions.class);
+
+		final ObjectCreation transformation = new ObjectCreation();
+		transformation.addMapping("d", makePath(new InputSelection(0), new ArrayAccess(0), new ObjectAccess("dept")));
+		transformation.addMapping("total", new FunctionCall("sum", context,
+			makePath(new InputSelection(0), new ArrayProjection(new ObjectAccess("income")))));
+
+		// the hash table holds only one key at a time
+		final Grouping aggregation = new Grouping().withResultProjection(transformation).
+			withAggregationStrategy(Grouping.AggregationStrategy.HASH).
+			withMaxHashMemory(Grouping.HashAggregation.estimateEntrySize(1) + 10);
+		aggregation.setInputs(sopremoPlan.getInputOperator(0));
+		aggregation.setGroupingKey(0, createPath("dept"));
+
+		sopremoPlan.getOutputOperator(0).setInputs(aggregation);
+		sopremoPlan.getInput(0).
+			addObject("id", 1, "dept", 1, "income", 12000).
+			addObject("id", 2, "dept", 2, "income", 13000).
+			addObject("id", 3, "dept", 1, "income", 15000).
+			addObject("id", 4, "dept", 1, "income", 10000).
+			addObject("id", 5, "dept", 2, "income", 8000);
+		sopremoPlan.getExpectedOutput(0).
+			addObject("d", 1, "total", 37000).
+			addObject("d", 2, "total", 21000);
+
+		sopremoPlan.run();
+	}
+
+	@Test
+	public void shouldNotHashAggregateCollectedValues() {
+		final SopremoTestPlan sopremoPlan = new SopremoTestPlan(1, 1);
+		final EvaluationContext context = sopremoPlan.getEvaluationContext();
+		context.getFunctionRegistry().put(CoreFunctions.class);
+
+		final ObjectCreation transformation = new ObjectCreation();
+		transformation.addMapping("d", makePath(new InputSelection(0), new ArrayAccess(0), new ObjectAccess("dept")));
+		transformation.addMapping("total", new FunctionCall("sum", context,
+			makePath(new InputSelection(0), new ArrayProjection(new ObjectAccess("income")))));
+		transformation.addMapping("titles", new AggregationExpression(new DistinctCount()).withInputExpression(
+			makePath(new InputSelection(0), new ArrayProjection(new ObjectAccess("title")))));
+
+		// the collected titles of a group grow with each value and cannot be bounded by the hash table
+		final Grouping aggregation = new Grouping().withResultProjection(transformation).
+			withAggregationStrategy(Grouping.AggregationStrategy.HASH);
+		aggregation.setInputs(sopremoPlan.getInputOperator(0));
+		aggregation.setGroupingKey(0, createPath("dept"));
+		for (Operator<?> operator : aggregation.asElementaryOperators(context).getReachableNodes())
+			Assert.assertFalse(operator instanceof Grouping.HashAggregation);
+
+		sopremoPlan.getOutputOperator(0).setInputs(aggregation);
+		sopremoPlan.getInput(0).
+			addObject("id", 1, "dept", 1, "income", 12000, "title", "dev").
+			addObject("id", 2, "dept", 1, "income", 13000, "title", "dev").
+			addObject("id", 3, "dept", 2, "income", 15000, "title", "lead").
+			addObject("id", 4, "dept", 1, "income", 10000, "title", "intern");
+		sopremoPlan.getExpectedOutput(0).
+			addObject("d", 1, "total", 35000, "titles", 2).
+			addObject("d", 2, "total", 15000, "titles", 1);
+
+		sopremoPlan.run();
+	}
+
+	@Test
+	public void shouldCombineAssociativePartOfMixedGrouping() {
+		final SopremoTestPlan sopremoPlan = new SopremoTestPlan(1, 1);
+		final EvaluationContext context = sopremoPlan.getEvaluationContext();
+		context.getFunctionRegistry().put(CoreFunctions.class);
+
+		final ObjectCreation transformation = new ObjectCreation();
+		transformation.addMapping("d", makePath(new InputSelection(0), new ArrayAccess(0), new ObjectAccess("dept")));
+		transformation.addMapping("total", new FunctionCall("sum", context,
+			makePath(new InputSelection(0), new ArrayProjection(new ObjectAccess("income")))));
+		transformation.addMapping("titles", new AggregationExpression(new DistinctCount()).withInputExpression(
+			makePath(new InputSelection(0), new ArrayProjection(new ObjectAccess("title")))));
+
+		final Grouping aggregation = new Grouping().withResultProjection(transformation);
+		aggregation.setInputs(sopremoPlan.getInputOperator(0));
+		aggregation.setGroupingKey(0, createPath("dept"));
+
+		sopremoPlan.getOutputOperator(0).setInputs(aggregation);
+		sopremoPlan.getInput(0).
+			addObject("id", 1, "dept", 1, "income", 12000, "title", "dev").
+			addObject("id", 2, "dept", 1, "income", 13000, "title", "dev").
+			addObject("id", 3, "dept", 2, "income", 15000, "title", "lead").
+			addObject("id", 4, "dept", 1, "income", 10000, "title", "intern").
+			addObject("id", 5, "dept", 3, "income", 8000, "title", "intern").
+			addObject("id", 6, "dept", 2, "income", 5000, "title", "intern").
+			addObject("id", 7, "dept", 1, "income", 24000, "title", "lead");
+		sopremoPlan.getExpectedOutput(0).
+			addObject("d", 1, "total", 59000, "titles", 3).
+			addObject("d", 2, "total", 20000, "titles", 2).
+			addObject("d", 3, "total", 8000, "titles", 1);
+
+		sopremoPlan.run();
+	}
+
+	@Test
+	public void shouldCollectSortOfMixedGrouping() {
+		final SopremoTestPlan sopremoPlan = new SopremoTestPlan(1, 1);
+		final EvaluationContext context = sopremoPlan.getEvaluationContext();
+		context.getFunctionRegistry().put(CoreFunctions.class);
+
+		final ObjectCreation transformation = new ObjectCreation();
+		transformation.addMapping("d", makePath(new InputSelection(0), new ArrayAccess(0), new ObjectAccess("dept")));
+		transformation.addMapping("total", new FunctionCall("sum", context,
+			makePath(new InputSelection(0), new ArrayProjection(new ObjectAccess("income")))));
+		transformation.addMapping("emps", CoreFunctions.SORT.inline(
+			makePath(new InputSelection(0), new ArrayProjection(new ObjectAccess("id")))));
+
+		final Grouping aggregation = new Grouping().withResultProjection(transformation);
+		aggregation.setInputs(sopremoPlan.getInputOperator(0));
+		aggregation.setGroupingKey(0, createPath("dept"));
+
+		sopremoPlan.getOutputOperator(0).setInputs(aggregation);
+		sopremoPlan.getInput(0).
+			addObject("id", 4, "dept", 1, "income", 10000).
+			addObject("id", 1, "dept", 1, "income", 12000).
+			addObject("id", 6, "dept", 2, "income", 5000).
+			addObject("id", 5, "dept", 3, "income", 8000).
+			addObject("id", 2, "dept", 1, "income", 13000).
+			addObject("id", 3, "dept", 2, "income", 15000).
+			addObject("id", 7, "dept", 1, "income", 24000);
+		sopremoPlan.getExpectedOutput(0).
+			addObject("d", 1, "total", 59000, "emps", new int[] { 1, 2, 4, 7 }).
+			addObject("d", 2, "total", 20000, "emps", new int[] { 3, 6 }).
+			addObject("d", 3, "total", 8000, "emps", new int[] { 5 });
+
+		sopremoPlan.run();
+	}
+
+	@Test
+	public void shouldComputeAlgebraicAggregation() {
+		final SopremoTestPlan sopremoPlan = new SopremoTestPlan(1, 1);
+		sopremoPlan.getEvaluationContext().getFunctionRegistry().put(CoreFunctions.class);
+
+		final ObjectCreation transformation = new ObjectCreation();
+		transformation.addMapping("d", makePath(new InputSelection(0), new ArrayAccess(0), new ObjectAccess("dept")));
+		transformation.addMapping("stddev", CoreFunctions.STDDEV.inline(
+			makePath(new InputSelection(0), new ArrayProjection(new ObjectAccess("hours")))));
+
+		final Grouping aggregation = new Grouping().withResultProjection(transformation);
+		aggregation.setInputs(sopremoPlan.getInputOperator(0));
+		aggregation.setGroupingKey(0, createPath("dept"));
+
+		sopremoPlan.getOutputOperator(0).setInputs(aggregation);
+		final int[] hours = { 2, 4, 4, 4, 5, 5, 7, 9 };
+		for (int index = 0; index < hours.length; index++)
+			sopremoPlan.getInput(0).addObject("id", index, "dept", 1, "hours", hours[index]);
+		sopremoPlan.getInput(0).
+			addObject("id", 8, "dept", 2, "hours", 6).
+			addObject("id", 9, "dept", 2, "hours", 6);
+		sopremoPlan.getExpectedOutput(0).
+			addObject("d", 1, "stddev", 2.0).
+			addObject("d", 2, "stddev", 0.0);
+
+		sopremoPlan.run();
+	}
+
+	/**
+	 * Counts the distinct elements, which requires all elements of a group.
+	 */
+	public static class DistinctCount extends MaterializingAggregation {
+		public DistinctCount() {
+			super("distinct count");
+		}
+
+		@Override
+		protected IJsonNode processNodes(final CachingArrayNode<IJsonNode> nodeArray) {
+			final Set<IJsonNode> distinctNodes = new HashSet<IJsonNode>();
+			for (final IJsonNode node : nodeArray)
+				distinctNodes.add(node);
+			return IntNode.valueOf(distinctNodes.size());
+		}
+	}
+
 	@Test
 	public void shouldPerformSimpleGroupBy() {
 		final SopremoTestPlan sopremoPlan = new SopremoTestPlan(1, 1);
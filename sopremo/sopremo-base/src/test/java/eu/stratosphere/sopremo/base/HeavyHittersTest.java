@@ -0,0 +1,109 @@
+package eu.stratosphere.sopremo.base;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import eu.stratosphere.sopremo.testing.SopremoOperatorTestBase;
+import eu.stratosphere.sopremo.testing.SopremoTestPlan;
+import eu.stratosphere.sopremo.type.IArrayNode;
+import eu.stratosphere.sopremo.type.IJsonNode;
+import eu.stratosphere.sopremo.type.INumericNode;
+import eu.stratosphere.sopremo.type.IntNode;
+
+public class HeavyHittersTest extends SopremoOperatorTestBase<HeavyHitters> {
+	/*
+	 * (non-Javadoc)
+	 * @see eu.stratosphere.sopremo.EqualVerifyTest#createDefaultInstance(int)
+	 */
+	@Override
+	protected HeavyHitters createDefaultInstance(final int index) {
+		return new HeavyHitters().withThreshold(1.0 / (index + 2));
+	}
+
+	@Test
+	public void shouldCollectKeysThatReachThreshold() {
+		final SopremoTestPlan sopremoPlan = new SopremoTestPlan(2, 1);
+
+		final HeavyHitters.CollectHeavyHitters heavyHitters = new HeavyHitters.CollectHeavyHitters().
+			withThreshold(0.4);
+		heavyHitters.setInputs(sopremoPlan.getInputOperators(0, 2));
+		sopremoPlan.getOutputOperator(0).setInputs(heavyHitters);
+
+		// only 1 occurs in at least 40% of the sampled keys
+		sopremoPlan.getInput(0).
+			addValue(1).
+			addValue(2).
+			addValue(1).
+			addValue(3).
+			addValue(1).
+			addValue(2).
+			addValue(4);
+		sopremoPlan.getInput(1).
+			addValue(0);
+		sopremoPlan.getExpectedOutput(0).
+			addArray(1);
+
+		sopremoPlan.run();
+	}
+
+	@Test
+	public void shouldDistributeHeavyHitterToSeveralSalts() {
+		final SopremoTestPlan sopremoPlan = new SopremoTestPlan(2, 1);
+
+		final HeavyHitters.SaltValues saltedValues = new HeavyHitters.SaltValues().
+			withNumberOfSalts(3);
+		saltedValues.setInputs(sopremoPlan.getInputOperators(0, 2));
+		sopremoPlan.getOutputOperator(0).setInputs(saltedValues);
+
+		sopremoPlan.getInput(0).
+			addValue(1).
+			addValue(2).
+			addValue(1).
+			addValue(1).
+			addValue(1);
+		sopremoPlan.getInput(1).
+			addArray(1);
+		sopremoPlan.getExpectedOutput(0).
+			addArray(1, 1).
+			addArray(2, 1).
+			addArray(3, 1).
+			addArray(1, 1).
+			addArray(HeavyHitters.NO_SALT, 2);
+
+		sopremoPlan.run();
+
+		final Set<Integer> salts = new HashSet<Integer>();
+		for (final IJsonNode saltedValue : sopremoPlan.getActualOutput(0).unsortedIterator())
+			if (((IArrayNode<?>) saltedValue).get(1).equals(IntNode.valueOf(1)))
+				salts.add(((INumericNode) ((IArrayNode<?>) saltedValue).get(0)).getIntValue());
+		Assert.assertTrue(salts.size() > 1);
+		Assert.assertFalse(salts.contains(HeavyHitters.NO_SALT));
+	}
+
+	@Test
+	public void shouldReplicateHeavyHitterToAllSalts() {
+		final SopremoTestPlan sopremoPlan = new SopremoTestPlan(2, 1);
+
+		final HeavyHitters.SaltValues saltedValues = new HeavyHitters.SaltValues().
+			withNumberOfSalts(3).
+			withReplicate(true);
+		saltedValues.setInputs(sopremoPlan.getInputOperators(0, 2));
+		sopremoPlan.getOutputOperator(0).setInputs(saltedValues);
+
+		sopremoPlan.getInput(0).
+			addValue(1).
+			addValue(2);
+		sopremoPlan.getInput(1).
+			addArray(1);
+		sopremoPlan.getExpectedOutput(0).
+			addArray(1, 1).
+			addArray(2, 1).
+			addArray(3, 1).
+			addArray(HeavyHitters.NO_SALT, 2);
+
+		sopremoPlan.run();
+	}
+}
@@ -1,8 +1,10 @@
 package eu.stratosphere.sopremo.base;
 
+import org.junit.Assert;
 import org.junit.Test;
 
 import eu.stratosphere.sopremo.CoreFunctions;
+import eu.stratosphere.sopremo.expressions.ArrayAccess;
 import eu.stratosphere.sopremo.testing.SopremoOperatorTestBase;
 import eu.stratosphere.sopremo.testing.SopremoTestPlan;
 
@@ -84,6 +86,32 @@ public class IntersectionTest extends SopremoOperatorTestBase<Intersection> {
 		sopremoPlan.run();
 	}
 
+	/**
+	 * Checks whether the combiner keeps rejecting values that occur more often than there are sources.
+	 */
+	@Test
+	public void shouldRejectFrequentDuplicates() {
+		final SopremoTestPlan sopremoPlan = new SopremoTestPlan(2, 1);
+
+		final Intersection intersection = new Intersection();
+		intersection.setInputs(sopremoPlan.getInputOperators(0, 2));
+		sopremoPlan.getOutputOperator(0).setInputs(intersection);
+
+		sopremoPlan.getInput(0).
+			addValue(1).
+			addValue(1).
+			addValue(1).
+			addValue(2);
+		sopremoPlan.getInput(1).
+			addValue(1).
+			addValue(2).
+			addValue(3);
+		sopremoPlan.getExpectedOutput(0).
+			addValue(2);
+
+		sopremoPlan.run();
+	}
+
 	/**
 	 * Checks whether intersection of one source produces the source again.
 	 */
@@ -135,4 +163,14 @@ public class IntersectionTest extends SopremoOperatorTestBase<Intersection> {
 
 		sopremoPlan.run();
 	}
+
+	@Test
+	public void shouldOnlyCombineIfEnabledAndWithoutResultProjection() {
+		Assert.assertTrue(new Intersection.FilterLess().isCombinable());
+		Assert.assertFalse(new Intersection.FilterLess().withCombinable(false).isCombinable());
+		Assert.assertFalse(new Intersection.FilterLess().withResultProjection(new ArrayAccess(0)).isCombinable());
+		Assert.assertTrue(new Unique().isCombinable());
+		Assert.assertFalse(new Unique().withCombinable(false).isCombinable());
+		Assert.assertFalse(new Unique().withResultProjection(new ArrayAccess(0)).isCombinable());
+	}
 }
@@ -0,0 +1,93 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010-2013 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+package eu.stratosphere.sopremo.base;
+
+import static eu.stratosphere.sopremo.type.JsonUtil.createPath;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import eu.stratosphere.sopremo.expressions.BinaryBooleanExpression;
+import eu.stratosphere.sopremo.expressions.ComparativeExpression;
+import eu.stratosphere.sopremo.expressions.ComparativeExpression.BinaryOperator;
+
+/**
+ * Tests the {@link JoinOrderEnumerator}.
+ * 
+ * @author Arvid Heise
+ */
+public class JoinOrderEnumeratorTest {
+	@Test
+	public void shouldJoinSelectiveConditionsFirst() {
+		// a chain 0 - 1 - 2 - 3 where the small inputs 1 and 2 are joined on a key
+		final JoinOrderEnumerator enumerator = new JoinOrderEnumerator(4);
+		enumerator.setCardinality(0, 1e8);
+		enumerator.setCardinality(1, 1e3);
+		enumerator.setCardinality(2, 1e3);
+		enumerator.setCardinality(3, 1e7);
+		final BinaryBooleanExpression join01 = this.addCondition(enumerator, 0, 1, 1e-3);
+		final BinaryBooleanExpression join12 = this.addCondition(enumerator, 1, 2, 1e-3);
+		final BinaryBooleanExpression join23 = this.addCondition(enumerator, 2, 3, 1e-3);
+
+		Assert.assertEquals(Arrays.asList(join12, join23, join01), enumerator.getJoinOrder());
+	}
+
+	@Test
+	public void shouldPreferBushyPlans() {
+		// two selective pairs that are only connected by a non-equality
+		final JoinOrderEnumerator enumerator = new JoinOrderEnumerator(4);
+		for (int index = 0; index < 4; index++)
+			enumerator.setCardinality(index, 1e6);
+		final BinaryBooleanExpression join01 = this.addCondition(enumerator, 0, 1, 1e-6);
+		final BinaryBooleanExpression join23 = this.addCondition(enumerator, 2, 3, 1e-6);
+		final BinaryBooleanExpression join12 = this.addCondition(enumerator, 1, 2, 1 / 3d);
+
+		final List<BinaryBooleanExpression> joinOrder = enumerator.getJoinOrder();
+		Assert.assertEquals(3, joinOrder.size());
+		Assert.assertEquals(join12, joinOrder.get(2));
+		Assert.assertTrue(joinOrder.containsAll(Arrays.asList(join01, join23)));
+	}
+
+	@Test
+	public void shouldOmitLessSelectiveConditionsOfCycles() {
+		final JoinOrderEnumerator enumerator = new JoinOrderEnumerator(3);
+		final BinaryBooleanExpression join01 = this.addCondition(enumerator, 0, 1, 1e-6);
+		final BinaryBooleanExpression join12 = this.addCondition(enumerator, 1, 2, 1e-6);
+		this.addCondition(enumerator, 2, 0, 1 / 3d);
+
+		Assert.assertEquals(Arrays.asList(join01, join12), enumerator.getJoinOrder());
+	}
+
+	@Test
+	public void shouldOrderLargeJoinsGreedily() {
+		final int numInputs = JoinOrderEnumerator.MAXIMUM_ENUMERATED_INPUTS + 2;
+		final JoinOrderEnumerator enumerator = new JoinOrderEnumerator(numInputs);
+		for (int index = 1; index < numInputs; index++)
+			this.addCondition(enumerator, index - 1, index, 1e-6);
+
+		Assert.assertEquals(numInputs - 1, enumerator.getJoinOrder().size());
+	}
+
+	private BinaryBooleanExpression addCondition(final JoinOrderEnumerator enumerator, final int input1,
+			final int input2, final double selectivity) {
+		final BinaryBooleanExpression condition = new ComparativeExpression(createPath(String.valueOf(input1), "key"),
+			BinaryOperator.EQUAL, createPath(String.valueOf(input2), "key"));
+		enumerator.addCondition(condition, input1, input2, selectivity);
+		return condition;
+	}
+}
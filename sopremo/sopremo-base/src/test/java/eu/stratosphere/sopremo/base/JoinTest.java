@@ -52,6 +52,29 @@ public class JoinTest extends SopremoOperatorTestBase<Join> {
 		sopremoPlan.run();
 	}
 
+	@Test
+	public void shouldPerformAntiJoinWithBloomFilter() {
+		final SopremoTestPlan sopremoPlan = new SopremoTestPlan(2, 1);
+
+		final AndExpression condition =
+			new AndExpression(new ElementInSetExpression(createPath("0", "DeptName"), Quantor.EXISTS_NOT_IN,
+				createPath("1", "Name")));
+		final Join join = new Join().withJoinCondition(condition).withBloomFilterFalsePositiveRate(0.01);
+		join.setInputs(sopremoPlan.getInputOperators(0, 2));
+		sopremoPlan.getOutputOperator(0).setInputs(join);
+		sopremoPlan.getInput(0).addObject("Name", "Harry", "EmpId", 3415, "DeptName", "Finance").
+			addObject("Name", "Sally", "EmpId", 2241, "DeptName", "Sales").
+			addObject("Name", "Harriet", "EmpId", 2202, "DeptName", "Production");
+		sopremoPlan.getInput(1).addObject("Name", "Sales", "Manager", "Harriet").
+			addObject("Name", "Marketing", "Manager", "Charles").
+			addObject("Name", "Research", "Manager", "Carol");
+		sopremoPlan.getExpectedOutput(0).
+			addArray(JsonUtil.createObjectNode("Name", "Harry", "EmpId", 3415, "DeptName", "Finance")).
+			addArray(JsonUtil.createObjectNode("Name", "Harriet", "EmpId", 2202, "DeptName", "Production"));
+
+		sopremoPlan.run();
+	}
+
 	@Test
 	public void shouldPerformEquiJoin() {
 		final SopremoTestPlan sopremoPlan = new SopremoTestPlan(2, 1);
@@ -81,6 +104,31 @@ public class JoinTest extends SopremoOperatorTestBase<Join> {
 		sopremoPlan.run();
 	}
 
+	@Test
+	public void shouldPerformEquiJoinWithBloomFilter() {
+		final SopremoTestPlan sopremoPlan = new SopremoTestPlan(2, 1);
+
+		final AndExpression condition =
+			new AndExpression(new ComparativeExpression(createPath("0", "id"), BinaryOperator.EQUAL, createPath("1",
+				"userid")));
+		final Join join = new Join().withJoinCondition(condition).withBloomFilterFalsePositiveRate(0.01);
+		join.setInputs(sopremoPlan.getInputOperators(0, 2));
+		sopremoPlan.getOutputOperator(0).setInputs(join);
+		sopremoPlan.getInput(0).
+			addObject("name", "Jon Doe", "password", "asdf1234", "id", 1).
+			addObject("name", "Jane Doe", "password", "qwertyui", "id", 2).
+			addObject("name", "Max Mustermann", "password", "q1w2e3r4", "id", 3);
+		sopremoPlan.getInput(1).addObject("userid", 1, "url", "code.google.com/p/jaql/").
+			addObject("userid", 1, "url", "java.sun.com/javase/6/docs/api/");
+		sopremoPlan.getExpectedOutput(0).
+			addArray(JsonUtil.createObjectNode("name", "Jon Doe", "password", "asdf1234", "id", 1),
+				JsonUtil.createObjectNode("userid", 1, "url", "code.google.com/p/jaql/")).
+			addArray(JsonUtil.createObjectNode("name", "Jon Doe", "password", "asdf1234", "id", 1),
+				JsonUtil.createObjectNode("userid", 1, "url", "java.sun.com/javase/6/docs/api/"));
+
+		sopremoPlan.run();
+	}
+
 	@Test
 	public void shouldPerformEquiJoinOnThreeInputs() {
 		final SopremoTestPlan sopremoPlan = new SopremoTestPlan(3, 1);
@@ -115,6 +163,47 @@ public class JoinTest extends SopremoOperatorTestBase<Join> {
 		sopremoPlan.run();
 	}
 
+	@Test
+	public void shouldPerformEquiJoinOnThreeInputsWithBloomFilter() {
+		final SopremoTestPlan sopremoPlan = new SopremoTestPlan(3, 1);
+
+		final AndExpression condition =
+			new AndExpression(new ComparativeExpression(createPath("0", "id"), BinaryOperator.EQUAL, createPath("1",
+				"userid")), new ComparativeExpression(createPath("1", "url"), BinaryOperator.EQUAL, createPath("2",
+				"page")));
+		final ObjectCreation transformation = new ObjectCreation();
+		transformation.addMapping("name", createPath("0", "name"));
+		transformation.addMapping("url", createPath("1", "url"));
+		transformation.addMapping("company", createPath("2", "company"));
+		final Join join = new Join().withJoinCondition(condition).withResultProjection(transformation).
+			withBloomFilterFalsePositiveRate(0.01);
+		join.setInputs(sopremoPlan.getInputOperators(0, 3));
+		sopremoPlan.getOutputOperator(0).setInputs(join);
+		// user 4 and the page of sap have no join partners
+		sopremoPlan.getInput(0).
+			addObject("name", "Jon Doe", "password", "asdf1234", "id", 1).
+			addObject("name", "Jane Doe", "password", "qwertyui", "id", 2).
+			addObject("name", "Max Mustermann", "password", "q1w2e3r4", "id", 3).
+			addObject("name", "Erika Mustermann", "password", "1q2w3e4r", "id", 4);
+		sopremoPlan.getInput(1).
+			addObject("userid", 1, "url", "code.google.com/p/jaql/").
+			addObject("userid", 2, "url", "www.oracle.com").
+			addObject("userid", 1, "url", "java.sun.com/javase/6/docs/api/").
+			addObject("userid", 3, "url", "www.oracle.com");
+		sopremoPlan.getInput(2).
+			addObject("page", "code.google.com/p/jaql/", "company", "ibm").
+			addObject("page", "www.oracle.com", "company", "oracle").
+			addObject("page", "java.sun.com/javase/6/docs/api/", "company", "oracle").
+			addObject("page", "www.sap.com", "company", "sap");
+		sopremoPlan.getExpectedOutput(0).
+			addObject("name", "Jon Doe", "url", "code.google.com/p/jaql/", "company", "ibm").
+			addObject("name", "Jon Doe", "url", "java.sun.com/javase/6/docs/api/", "company", "oracle").
+			addObject("name", "Jane Doe", "url", "www.oracle.com", "company", "oracle").
+			addObject("name", "Max Mustermann", "url", "www.oracle.com", "company", "oracle");
+
+		sopremoPlan.run();
+	}
+
 	@Test
 	public void shouldPerformCircularEquiJoinOnThreeInputs1() {
 		final SopremoTestPlan sopremoPlan = new SopremoTestPlan(3, 1);
@@ -312,6 +401,47 @@ public class JoinTest extends SopremoOperatorTestBase<Join> {
 		sopremoPlan.run();
 	}
 
+	@Test
+	public void shouldPerformFullOuterJoinWithSkewHandling() {
+		final SopremoTestPlan sopremoPlan = new SopremoTestPlan(2, 1);
+
+		final AndExpression condition =
+			new AndExpression(new ComparativeExpression(createPath("0", "id"), BinaryOperator.EQUAL, createPath("1",
+				"userid")));
+		final Join join =
+			new Join().withJoinCondition(condition).withSkewThreshold(0.5).withOuterJoinSources(
+				new ArrayCreation(new InputSelection(0), new InputSelection(1)));
+		join.setInputs(sopremoPlan.getInputOperators(0, 2));
+		sopremoPlan.getOutputOperator(0).setInputs(join);
+		// id 1 is a heavy hitter
+		sopremoPlan.getInput(0).
+			addObject("session", 1, "id", 1).
+			addObject("session", 2, "id", 1).
+			addObject("session", 3, "id", 2).
+			addObject("session", 4, "id", 1).
+			addObject("session", 5, "id", 3).
+			addObject("session", 6, "id", 1);
+		sopremoPlan.getInput(1).
+			addObject("userid", 1, "url", "www.cnn.com").
+			addObject("userid", 2, "url", "www.nbc.com").
+			addObject("userid", 4, "url", "www.bbc.com");
+		sopremoPlan.getExpectedOutput(0).
+			addArray(JsonUtil.createObjectNode("session", 1, "id", 1),
+				JsonUtil.createObjectNode("userid", 1, "url", "www.cnn.com")).
+			addArray(JsonUtil.createObjectNode("session", 2, "id", 1),
+				JsonUtil.createObjectNode("userid", 1, "url", "www.cnn.com")).
+			addArray(JsonUtil.createObjectNode("session", 4, "id", 1),
+				JsonUtil.createObjectNode("userid", 1, "url", "www.cnn.com")).
+			addArray(JsonUtil.createObjectNode("session", 6, "id", 1),
+				JsonUtil.createObjectNode("userid", 1, "url", "www.cnn.com")).
+			addArray(JsonUtil.createObjectNode("session", 3, "id", 2),
+				JsonUtil.createObjectNode("userid", 2, "url", "www.nbc.com")).
+			addArray(JsonUtil.createObjectNode("session", 5, "id", 3), new MissingNode()).
+			addArray(new MissingNode(), JsonUtil.createObjectNode("userid", 4, "url", "www.bbc.com"));
+
+		sopremoPlan.run();
+	}
+
 	@Test
 	public void shouldPerformLeftOuterJoin() {
 		final SopremoTestPlan sopremoPlan = new SopremoTestPlan(2, 1);
@@ -426,6 +556,56 @@ public class JoinTest extends SopremoOperatorTestBase<Join> {
 		sopremoPlan.run();
 	}
 
+	@Test
+	public void shouldPerformSemiJoinWithBloomFilter() {
+		final SopremoTestPlan sopremoPlan = new SopremoTestPlan(2, 1);
+
+		final AndExpression condition =
+			new AndExpression(new ElementInSetExpression(createPath("0", "DeptName"), Quantor.EXISTS_IN, createPath(
+				"1", "Name")));
+		final Join join = new Join().withJoinCondition(condition).withBloomFilterFalsePositiveRate(0.01);
+		join.setInputs(sopremoPlan.getInputOperators(0, 2));
+		sopremoPlan.getOutputOperator(0).setInputs(join);
+		sopremoPlan.getInput(0).addObject("Name", "Harry", "EmpId", 3415, "DeptName", "Finance").
+			addObject("Name", "Sally", "EmpId", 2241, "DeptName", "Sales").
+			addObject("Name", "George", "EmpId", 3401, "DeptName", "Finance").
+			addObject("Name", "Harriet", "EmpId", 2202, "DeptName", "Production");
+		sopremoPlan.getInput(1).addObject("Name", "Sales", "Manager", "Harriet");
+		sopremoPlan.getExpectedOutput(0).
+			addArray(JsonUtil.createObjectNode("Name", "Sally", "EmpId", 2241, "DeptName", "Sales"));
+
+		sopremoPlan.run();
+	}
+
+	@Test
+	public void shouldPerformSemiJoinWithSkewHandling() {
+		final SopremoTestPlan sopremoPlan = new SopremoTestPlan(2, 1);
+
+		final AndExpression condition =
+			new AndExpression(new ElementInSetExpression(createPath("0", "DeptName"), Quantor.EXISTS_IN, createPath(
+				"1", "Name")));
+		final Join join = new Join().withJoinCondition(condition).withSkewThreshold(0.5);
+		join.setInputs(sopremoPlan.getInputOperators(0, 2));
+		sopremoPlan.getOutputOperator(0).setInputs(join);
+		// Sales is a heavy hitter
+		sopremoPlan.getInput(0).addObject("Name", "Harry", "EmpId", 3415, "DeptName", "Finance").
+			addObject("Name", "Sally", "EmpId", 2241, "DeptName", "Sales").
+			addObject("Name", "George", "EmpId", 3401, "DeptName", "Sales").
+			addObject("Name", "Harriet", "EmpId", 2202, "DeptName", "Production").
+			addObject("Name", "Sam", "EmpId", 2210, "DeptName", "Sales").
+			addObject("Name", "Sue", "EmpId", 2244, "DeptName", "Sales");
+		sopremoPlan.getInput(1).addObject("Name", "Sales", "Manager", "Harriet").
+			addObject("Name", "Production", "Manager", "Charles");
+		sopremoPlan.getExpectedOutput(0).
+			addArray(JsonUtil.createObjectNode("Name", "Sally", "EmpId", 2241, "DeptName", "Sales")).
+			addArray(JsonUtil.createObjectNode("Name", "George", "EmpId", 3401, "DeptName", "Sales")).
+			addArray(JsonUtil.createObjectNode("Name", "Harriet", "EmpId", 2202, "DeptName", "Production")).
+			addArray(JsonUtil.createObjectNode("Name", "Sam", "EmpId", 2210, "DeptName", "Sales")).
+			addArray(JsonUtil.createObjectNode("Name", "Sue", "EmpId", 2244, "DeptName", "Sales"));
+
+		sopremoPlan.run();
+	}
+
 	@Test
 	public void shouldPerformThetaJoin() {
 		final SopremoTestPlan sopremoPlan = new SopremoTestPlan(2, 1);
@@ -456,4 +636,58 @@ public class JoinTest extends SopremoOperatorTestBase<Join> {
 
 		sopremoPlan.run();
 	}
+
+	@Test
+	public void shouldPerformBandJoin() {
+		final SopremoTestPlan sopremoPlan = new SopremoTestPlan(2, 1);
+
+		final AndExpression condition = new AndExpression(
+			new ComparativeExpression(createPath("0", "ts"), BinaryOperator.GREATER_EQUAL, createPath("1", "start")),
+			new ComparativeExpression(createPath("0", "ts"), BinaryOperator.LESS, createPath("1", "end")));
+		final Join join = new Join().withJoinCondition(condition);
+		join.setInputs(sopremoPlan.getInputOperators(0, 2));
+		sopremoPlan.getOutputOperator(0).setInputs(join);
+		sopremoPlan.getInput(0).addObject("event", "a", "ts", 1).addObject("event", "b", "ts", 5).
+			addObject("event", "c", "ts", 10).addObject("event", "d", "ts", 12);
+		sopremoPlan.getInput(1).addObject("window", 1, "start", 0, "end", 10).
+			addObject("window", 2, "start", 5, "end", 15).
+			addObject("window", 3, "start", 20, "end", 30);
+		sopremoPlan.getExpectedOutput(0).
+			addArray(JsonUtil.createObjectNode("event", "a", "ts", 1),
+				JsonUtil.createObjectNode("window", 1, "start", 0, "end", 10)).
+			addArray(JsonUtil.createObjectNode("event", "b", "ts", 5),
+				JsonUtil.createObjectNode("window", 1, "start", 0, "end", 10)).
+			addArray(JsonUtil.createObjectNode("event", "b", "ts", 5),
+				JsonUtil.createObjectNode("window", 2, "start", 5, "end", 15)).
+			addArray(JsonUtil.createObjectNode("event", "c", "ts", 10),
+				JsonUtil.createObjectNode("window", 2, "start", 5, "end", 15)).
+			addArray(JsonUtil.createObjectNode("event", "d", "ts", 12),
+				JsonUtil.createObjectNode("window", 2, "start", 5, "end", 15));
+
+		sopremoPlan.run();
+	}
+
+	@Test
+	public void shouldPerformBandJoinOnSecondInput() {
+		final SopremoTestPlan sopremoPlan = new SopremoTestPlan(2, 1);
+
+		// the band is given relative to the second input
+		final AndExpression condition = new AndExpression(
+			new ComparativeExpression(createPath("0", "start"), BinaryOperator.LESS_EQUAL, createPath("1", "ts")),
+			new ComparativeExpression(createPath("1", "ts"), BinaryOperator.LESS_EQUAL, createPath("0", "end")));
+		final Join join = new Join().withJoinCondition(condition);
+		join.setInputs(sopremoPlan.getInputOperators(0, 2));
+		sopremoPlan.getOutputOperator(0).setInputs(join);
+		sopremoPlan.getInput(0).addObject("window", 1, "start", 0, "end", 10).
+			addObject("window", 2, "start", 20, "end", 30);
+		sopremoPlan.getInput(1).addObject("event", "a", "ts", 10).addObject("event", "b", "ts", 15).
+			addObject("event", "c", "ts", 20);
+		sopremoPlan.getExpectedOutput(0).
+			addArray(JsonUtil.createObjectNode("window", 1, "start", 0, "end", 10),
+				JsonUtil.createObjectNode("event", "a", "ts", 10)).
+			addArray(JsonUtil.createObjectNode("window", 2, "start", 20, "end", 30),
+				JsonUtil.createObjectNode("event", "c", "ts", 20));
+
+		sopremoPlan.run();
+	}
 }
@@ -88,6 +88,38 @@ public class ReplaceTest extends SopremoOperatorTestBase<Replace> {
 		sopremoPlan.run();
 	}
 
+	@Test
+	public void shouldSplitHeavyHittersWhenKeepingValuesNotInDictionary() {
+		final Replace replace = new Replace().
+			withReplaceExpression(new ObjectAccess("fieldToReplace")).
+			withDictionaryKeyExtraction(new ArrayAccess(0)).
+			withDictionaryValueExtraction(new ArrayAccess(1)).
+			withSkewThreshold(0.5);
+		final SopremoTestPlan sopremoPlan = new SopremoTestPlan(replace);
+		// key1 is a heavy hitter
+		sopremoPlan.getInput(0).
+			addObject("field1", 1, "fieldToReplace", "key1", "field2", 2).
+			addObject("field1", 2, "fieldToReplace", "notInList", "field2", 2).
+			addObject("field1", 3, "fieldToReplace", "key1", "field2", 2).
+			addObject("field1", 4, "fieldToReplace", "key1", "field2", 2).
+			addObject("field1", 5, "fieldToReplace", "key2", "field2", 2).
+			addObject("field1", 6, "fieldToReplace", "key1", "field2", 2);
+
+		sopremoPlan.getInput(1).
+			addArray("key1", "value1").
+			addArray("key2", "value2").
+			addArray("key3", "value3");
+		sopremoPlan.getExpectedOutput(0).
+			addObject("field1", 1, "fieldToReplace", "value1", "field2", 2).
+			addObject("field1", 2, "fieldToReplace", "notInList", "field2", 2).
+			addObject("field1", 3, "fieldToReplace", "value1", "field2", 2).
+			addObject("field1", 4, "fieldToReplace", "value1", "field2", 2).
+			addObject("field1", 5, "fieldToReplace", "value2", "field2", 2).
+			addObject("field1", 6, "fieldToReplace", "value1", "field2", 2);
+
+		sopremoPlan.run();
+	}
+
 	@Test
 	public void shouldLookupValuesWithDefaultValue() {
 		final Replace replace = new Replace();
@@ -204,4 +236,62 @@ public class ReplaceTest extends SopremoOperatorTestBase<Replace> {
 
 		sopremoPlan.run();
 	}
+
+	@Test
+	public void shouldBroadcastDictionaryWithDefaultValue() {
+		final Replace replace = new Replace().withReplaceStrategy(ReplaceBase.ReplaceStrategy.BROADCAST);
+		final SopremoTestPlan sopremoPlan = new SopremoTestPlan(replace);
+		final EvaluationContext context = sopremoPlan.getEvaluationContext();
+		context.getFunctionRegistry().put(CoreFunctions.class);
+		replace.withReplaceExpression(new ObjectAccess("fieldToReplace")).
+			withDefaultExpression(new FunctionCall("format", context,
+				new ConstantExpression("default %s"), new ObjectAccess("fieldToReplace"))).
+			withDictionaryKeyExtraction(new ArrayAccess(0)).
+			withDictionaryValueExtraction(new ArrayAccess(1));
+		sopremoPlan.getInput(0).
+			addObject("field1", 1, "fieldToReplace", "key1", "field2", 2).
+			addObject("field1", 2, "fieldToReplace", "notInList", "field2", 2).
+			addObject("field1", 3, "fieldToReplace", "key2", "field2", 2).
+			addObject("field1", 4, "fieldToReplace", "key1", "field2", 2);
+
+		sopremoPlan.getInput(1).
+			addArray("key1", "value1").
+			addArray("key2", "value2").
+			addArray("key3", "value3");
+		sopremoPlan.getExpectedOutput(0).
+			addObject("field1", 1, "fieldToReplace", "value1", "field2", 2).
+			addObject("field1", 2, "fieldToReplace", "default notInList", "field2", 2).
+			addObject("field1", 3, "fieldToReplace", "value2", "field2", 2).
+			addObject("field1", 4, "fieldToReplace", "value1", "field2", 2);
+
+		sopremoPlan.run();
+	}
+
+	@Test
+	public void shouldBroadcastDictionaryForArrayValues() {
+		final ReplaceAll replace = new ReplaceAll().
+			withReplaceExpression(new ObjectAccess("fieldToReplace")).
+			withDefaultExpression(ReplaceBase.FILTER_RECORDS).
+			withDictionaryKeyExtraction(new ArrayAccess(0)).
+			withDictionaryValueExtraction(new ArrayAccess(1)).
+			withReplaceStrategy(ReplaceBase.ReplaceStrategy.BROADCAST);
+		final SopremoTestPlan sopremoPlan = new SopremoTestPlan(replace);
+
+		sopremoPlan.getInput(0).
+			addObject("field1", 1, "fieldToReplace", new int[] { 1, 2, 3 }, "field2", 2).
+			addObject("field1", 2, "fieldToReplace", new Object[] { 1, "notInList" }, "field2", 2).
+			addObject("field1", 3, "fieldToReplace", new int[] { 2, 3 }, "field2", 2).
+			addObject("field1", 4, "fieldToReplace", new int[] {}, "field2", 2);
+
+		sopremoPlan.getInput(1).
+			addArray(1, 11).
+			addArray(2, 22).
+			addArray(3, 33);
+		sopremoPlan.getExpectedOutput(0).
+			addObject("field1", 1, "fieldToReplace", new int[] { 11, 22, 33 }, "field2", 2).
+			addObject("field1", 3, "fieldToReplace", new int[] { 22, 33 }, "field2", 2).
+			addObject("field1", 4, "fieldToReplace", new int[] {}, "field2", 2);
+
+		sopremoPlan.run();
+	}
 }
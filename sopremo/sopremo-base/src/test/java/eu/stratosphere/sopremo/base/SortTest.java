@@ -14,26 +14,36 @@
  **********************************************************************************************************************/
 package eu.stratosphere.sopremo.base;
 
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
+import java.util.Random;
 
 import org.junit.Assert;
 import org.junit.Test;
 
 import com.google.common.collect.Lists;
 
+import eu.stratosphere.nephele.configuration.Configuration;
 import eu.stratosphere.pact.common.contract.Order;
 import eu.stratosphere.sopremo.expressions.ArrayAccess;
 import eu.stratosphere.sopremo.expressions.ArrayCreation;
 import eu.stratosphere.sopremo.expressions.ConstantExpression;
 import eu.stratosphere.sopremo.expressions.EvaluationExpression;
 import eu.stratosphere.sopremo.expressions.OrderingExpression;
+import eu.stratosphere.sopremo.operator.ElementaryOperator;
+import eu.stratosphere.sopremo.operator.ElementarySopremoModule;
+import eu.stratosphere.sopremo.operator.InputCardinality;
 import eu.stratosphere.sopremo.operator.Operator;
+import eu.stratosphere.sopremo.pact.JsonCollector;
+import eu.stratosphere.sopremo.pact.SopremoMap;
 import eu.stratosphere.sopremo.testing.SopremoOperatorTestBase;
 import eu.stratosphere.sopremo.testing.SopremoTestPlan;
 import eu.stratosphere.sopremo.type.IArrayNode;
 import eu.stratosphere.sopremo.type.IJsonNode;
+import eu.stratosphere.sopremo.type.IntNode;
+import eu.stratosphere.sopremo.type.JsonUtil;
 
 /**
  * @author arv
@@ -104,6 +114,105 @@ public class SortTest extends SopremoOperatorTestBase<Sort> {
 		Assert.assertEquals(expected, actual);
 	}
 
+	@Test
+	public void shouldSortRangePartitionedValues() {
+		final Sort sort = new Sort().withSampleSize(10);
+		sort.setDegreeOfParallelism(3);
+		final SopremoTestPlan sopremoPlan = new SopremoTestPlan(sort);
+		sort.setSortingExpression(new OrderingExpression(Order.ASCENDING, new ArrayAccess(1)));
+
+		final List<Integer> numbers = Lists.newArrayList();
+		for (int index = 0; index < 100; index++)
+			numbers.add(index % 40);
+		Collections.shuffle(numbers, new Random(42));
+		for (int index = 0; index < numbers.size(); index++) {
+			sopremoPlan.getInput(0).addArray(index, numbers.get(index));
+			sopremoPlan.getExpectedOutput(0).addArray(index, numbers.get(index));
+		}
+
+		sopremoPlan.run();
+
+		final ElementarySopremoModule module = sort.asElementaryOperators(sopremoPlan.getEvaluationContext());
+		boolean rangePartitioned = false;
+		for (Operator<?> operator : module.getReachableNodes())
+			rangePartitioned |= operator instanceof Sort.RangePartition;
+		Assert.assertTrue(rangePartitioned);
+	}
+
+	@Test
+	public void shouldSendConsecutiveRangesToConsecutiveTasks() {
+		final Sort sort = new Sort().withSampleSize(20).
+			withSortingExpression(new OrderingExpression(Order.ASCENDING, new ArrayAccess(1)));
+		sort.setDegreeOfParallelism(3);
+		// a sink with the same degree of parallelism would write the output of task i into file i
+		final TagTask tagTask = new TagTask().withInputs(sort);
+		tagTask.setDegreeOfParallelism(3);
+		final SopremoTestPlan sopremoPlan = new SopremoTestPlan(tagTask);
+
+		final List<Integer> numbers = Lists.newArrayList();
+		for (int index = 0; index < 100; index++)
+			numbers.add(index % 40);
+		Collections.shuffle(numbers, new Random(42));
+		for (int index = 0; index < numbers.size(); index++)
+			sopremoPlan.getInput(0).addArray(index, numbers.get(index));
+
+		sopremoPlan.run();
+
+		final int[] minKeys = new int[3], maxKeys = new int[3];
+		Arrays.fill(minKeys, Integer.MAX_VALUE);
+		Arrays.fill(maxKeys, Integer.MIN_VALUE);
+		int numberOfValues = 0;
+		for (IJsonNode taggedValue : sopremoPlan.getActualOutput(0).unsortedIterator()) {
+			final int task = ((IntNode) ((IArrayNode<?>) taggedValue).get(0)).getIntValue();
+			final IArrayNode<?> value = (IArrayNode<?>) ((IArrayNode<?>) taggedValue).get(1);
+			final int key = ((IntNode) value.get(1)).getIntValue();
+			minKeys[task] = Math.min(minKeys[task], key);
+			maxKeys[task] = Math.max(maxKeys[task], key);
+			numberOfValues++;
+		}
+		Assert.assertEquals(numbers.size(), numberOfValues);
+
+		int numberOfNonEmptyTasks = 0, lastMaxKey = Integer.MIN_VALUE;
+		for (int task = 0; task < 3; task++)
+			if (minKeys[task] != Integer.MAX_VALUE) {
+				Assert.assertTrue(String.format("task %d starts before its predecessor ends", task),
+					lastMaxKey < minKeys[task]);
+				lastMaxKey = maxKeys[task];
+				numberOfNonEmptyTasks++;
+			}
+		Assert.assertTrue(numberOfNonEmptyTasks > 1);
+	}
+
+	/**
+	 * Wraps each value in a pair [task, value] with the index of the task that processes the value.
+	 */
+	@InputCardinality(1)
+	public static class TagTask extends ElementaryOperator<TagTask> {
+		public static class Implementation extends SopremoMap {
+			private final transient IntNode task = new IntNode();
+
+			/*
+			 * (non-Javadoc)
+			 * @see eu.stratosphere.sopremo.pact.GenericSopremoMap#open(eu.stratosphere.nephele.configuration.Configuration)
+			 */
+			@Override
+			public void open(Configuration parameters) {
+				super.open(parameters);
+				this.task.setValue(getRuntimeContext().getIndexOfThisSubtask());
+			}
+
+			/*
+			 * (non-Javadoc)
+			 * @see eu.stratosphere.sopremo.pact.GenericSopremoMap#map(eu.stratosphere.sopremo.type.IJsonNode,
+			 * eu.stratosphere.sopremo.pact.JsonCollector)
+			 */
+			@Override
+			protected void map(IJsonNode value, JsonCollector<IJsonNode> out) {
+				out.collect(JsonUtil.asArray(this.task, value));
+			}
+		}
+	}
+
 	/**
 	 * @param sort
 	 * @return
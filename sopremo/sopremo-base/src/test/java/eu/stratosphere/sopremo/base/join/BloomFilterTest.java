@@ -0,0 +1,60 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010-2013 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+package eu.stratosphere.sopremo.base.join;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests the {@link BloomFilter}.
+ * 
+ * @author Arvid Heise
+ */
+public class BloomFilterTest {
+	@Test
+	public void shouldContainAllAddedKeys() {
+		final BloomFilter filter = BloomFilter.create(1000, 0.01);
+		for (int key = 0; key < 1000; key++)
+			filter.add(Integer.valueOf(key * 31).hashCode());
+		for (int key = 0; key < 1000; key++)
+			Assert.assertTrue(filter.mightContain(Integer.valueOf(key * 31).hashCode()));
+	}
+
+	@Test
+	public void shouldApproximateFalsePositiveRate() {
+		final BloomFilter filter = BloomFilter.create(10000, 0.01);
+		for (int key = 0; key < 10000; key++)
+			filter.add(key);
+
+		int falsePositives = 0;
+		for (int key = 10000; key < 110000; key++)
+			if (filter.mightContain(key))
+				falsePositives++;
+		// allow some deviation from the expected 1000 false positives
+		Assert.assertTrue(falsePositives < 2000);
+	}
+
+	@Test
+	public void shouldEncodeAndDecodeFilter() {
+		final BloomFilter filter = BloomFilter.create(100, 0.05);
+		for (int key = 0; key < 100; key++)
+			filter.add(key * key);
+
+		final BloomFilter decodedFilter = BloomFilter.valueOf(filter.toNode());
+		Assert.assertEquals(filter.getNumberOfBits(), decodedFilter.getNumberOfBits());
+		for (int key = -1000; key < 1000; key++)
+			Assert.assertEquals(filter.mightContain(key), decodedFilter.mightContain(key));
+	}
+}
@@ -32,6 +32,7 @@ import eu.stratosphere.nephele.execution.librarycache.LibraryCacheUpdate;
 import eu.stratosphere.nephele.fs.Path;
 import eu.stratosphere.nephele.jobgraph.JobID;
 import eu.stratosphere.nephele.rpc.RPCService;
+import eu.stratosphere.nephele.rpc.RPCService.Transport;
 import eu.stratosphere.nephele.util.StringUtils;
 import eu.stratosphere.sopremo.execution.ExecutionRequest;
 import eu.stratosphere.sopremo.execution.ExecutionRequest.ExecutionMode;
@@ -183,7 +184,8 @@ public class DefaultClient implements Closeable {
 
 		if (progressListener == null)
 			progressListener = new DummyListener();
-		this.initConnection(progressListener);
+		if (!this.initConnection(progressListener))
+			return null;
 		if (!this.transferLibraries(plan, progressListener)) {
 			dealWithError(progressListener, null, "Could not transfer libraries - aborting");
 			return null;
@@ -274,7 +276,7 @@ public class DefaultClient implements Closeable {
 			StringUtils.stringifyException(e)));
 	}
 
-	private void initConnection(ProgressListener progressListener) {
+	private boolean initConnection(ProgressListener progressListener) {
 		InetSocketAddress serverAddress = this.serverAddress;
 
 		if (serverAddress == null) {
@@ -284,11 +286,23 @@ public class DefaultClient implements Closeable {
 			serverAddress = new InetSocketAddress(address, port);
 		}
 
+		final Transport transport;
+		try {
+			transport = Transport.fromName(this.configuration.getString(SopremoConstants.SOPREMO_SERVER_TRANSPORT_KEY,
+				SopremoConstants.DEFAULT_SOPREMO_SERVER_TRANSPORT));
+		} catch (IllegalArgumentException e) {
+			this.dealWithError(progressListener, e,
+				"Invalid value of " + SopremoConstants.SOPREMO_SERVER_TRANSPORT_KEY);
+			return false;
+		}
+
 		try {
-			this.rpcService = new RPCService();
+			this.rpcService = new RPCService(transport);
 			this.executor = this.rpcService.getProxy(serverAddress, SopremoExecutionProtocol.class);
+			return true;
 		} catch (IOException e) {
 			this.dealWithError(progressListener, e, "Error while connecting to the server");
+			return false;
 		}
 	}
 
@@ -311,15 +325,13 @@ public class DefaultClient implements Closeable {
 		try {
 			progressListener.progressUpdate(ExecutionState.ENQUEUED, lastResponse.getDetails());
 			while (lastResponse.getState() == ExecutionState.ENQUEUED) {
-				lastResponse = this.executor.getState(submittedJobId);
-				sleepSafely(this.updateTime);
+				lastResponse = this.waitForStateChange(lastResponse);
 				progressListener.progressUpdate(ExecutionState.ENQUEUED, lastResponse.getDetails());
 			}
 
 			progressListener.progressUpdate(ExecutionState.RUNNING, lastResponse.getDetails());
 			while (lastResponse.getState() == ExecutionState.RUNNING) {
-				lastResponse = this.executor.getState(submittedJobId);
-				sleepSafely(this.updateTime);
+				lastResponse = this.waitForStateChange(lastResponse);
 				progressListener.progressUpdate(ExecutionState.RUNNING, lastResponse.getDetails());
 			}
 
@@ -336,6 +348,22 @@ public class DefaultClient implements Closeable {
 		}
 	}
 
+	/**
+	 * Waits until the server pushes the next state change of the job or until the update time elapses.
+	 */
+	private ExecutionResponse waitForStateChange(ExecutionResponse lastResponse) throws IOException,
+			InterruptedException {
+		final long start = System.currentTimeMillis();
+		final ExecutionResponse response = this.executor.waitForStateChange(lastResponse.getJobId(),
+			lastResponse.getState(), lastResponse.getDetails(), this.updateTime);
+		// a busy server answers subscriptions immediately; then, the client polls with the update time
+		final long remaining = this.updateTime - (System.currentTimeMillis() - start);
+		if (remaining > 0 && response.getState() == lastResponse.getState() &&
+			response.getDetails().equals(lastResponse.getDetails()))
+			this.sleepSafely((int) remaining);
+		return response;
+	}
+
 	public Object getMetaData(SopremoID id, String key) throws IOException, InterruptedException {
 		Object result = this.executor.getMetaData(id, key);
 		return result;
@@ -22,6 +22,7 @@ import java.lang.reflect.Method;
 import java.net.DatagramPacket;
 import java.net.InetSocketAddress;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
@@ -44,7 +45,8 @@ import com.esotericsoftware.minlog.Log;
 import eu.stratosphere.nephele.util.StringUtils;
 
 /**
- * This class implements a lightweight, UDP-based RPC service.
+ * This class implements a lightweight RPC service. By default, messages are transmitted as UDP datagrams; alternatively,
+ * the service can use persistent TCP connections, see {@link Transport}.
  * <p>
  * This class is thread-safe.
  * 
@@ -52,6 +54,39 @@ import eu.stratosphere.nephele.util.StringUtils;
  */
 public final class RPCService {
 
+	/**
+	 * The transports that can be used to transmit RPC messages. Both ends of a call must use the same transport.
+	 *
+	 * @author Arvid Heise
+	 */
+	public static enum Transport {
+		/**
+		 * Each message is split into datagram packets, which are acknowledged and retransmitted if necessary.
+		 */
+		UDP,
+		/**
+		 * The messages are multiplexed over persistent TCP connections as length-prefixed frames.
+		 */
+		TCP;
+
+		/**
+		 * Returns the transport with the given name, ignoring the case.
+		 * 
+		 * @param name
+		 *        the name of the transport
+		 * @return the transport
+		 * @throws IllegalArgumentException
+		 *         if no transport has the given name
+		 */
+		public static Transport fromName(final String name) {
+			for (final Transport transport : values())
+				if (transport.name().equalsIgnoreCase(name))
+					return transport;
+			throw new IllegalArgumentException(String.format("Unknown transport %s; allowed values are %s", name,
+				Arrays.toString(values()).toLowerCase()));
+		}
+	}
+
 	/**
 	 * The default number of threads handling RPC requests.
 	 */
@@ -73,15 +108,22 @@ public final class RPCService {
 	private final ExecutorService rpcHandlers;
 
 	/**
-	 * The UDP port this service is bound to.
+	 * The port this service is bound to.
 	 */
 	private final int rpcPort;
 
 	/**
-	 * Network thread to wait for incoming data and dispatch it among the available RPC handler threads.
+	 * Network thread to wait for incoming datagrams and dispatch them among the available RPC handler threads or
+	 * <code>null</code> if the service uses TCP.
 	 */
 	private final NetworkThread networkThread;
 
+	/**
+	 * Network thread to serve the TCP connections and dispatch incoming messages among the available RPC handler
+	 * threads or <code>null</code> if the service uses UDP.
+	 */
+	private final TCPNetworkThread tcpNetworkThread;
+
 	/**
 	 * Stores whether the RPC service was requested to shut down.
 	 */
@@ -149,7 +191,13 @@ public final class RPCService {
 
 	private static final class RPCRequestMonitor {
 
+		private final InetSocketAddress remoteSocketAddress;
+
 		private RPCResponse rpcResponse = null;
+
+		private RPCRequestMonitor(final InetSocketAddress remoteSocketAddress) {
+			this.remoteSocketAddress = remoteSocketAddress;
+		}
 	}
 
 	private final class RPCInvocationHandler implements InvocationHandler {
@@ -198,12 +246,32 @@ public final class RPCService {
 					it.remove();
 			}
 
-			RPCService.this.networkThread.cleanUpStaleState();
+			if (RPCService.this.networkThread != null)
+				RPCService.this.networkThread.cleanUpStaleState();
 		}
 	}
 
 	public RPCService(final int rpcPort, final int numRPCHandlers, final List<Class<?>> typesToRegister)
 			throws IOException {
+		this(rpcPort, numRPCHandlers, typesToRegister, Transport.UDP);
+	}
+
+	/**
+	 * Constructs a new RPC service that is bound to the given port.
+	 * 
+	 * @param rpcPort
+	 *        the port to bind to, <code>-1</code> for an arbitrary port
+	 * @param numRPCHandlers
+	 *        the number of threads handling RPC requests
+	 * @param typesToRegister
+	 *        the types to register with kryo or <code>null</code> to use kryo without registration
+	 * @param transport
+	 *        the transport for the RPC messages
+	 * @throws IOException
+	 *         thrown if the service cannot be bound to the port
+	 */
+	public RPCService(final int rpcPort, final int numRPCHandlers, final List<Class<?>> typesToRegister,
+			final Transport transport) throws IOException {
 
 		this.rpcHandlers = Executors.newFixedThreadPool(numRPCHandlers);
 
@@ -217,8 +285,15 @@ public final class RPCService {
 		}
 
 		this.rpcPort = rpcPort;
-		this.networkThread = new NetworkThread(this, rpcPort);
-		this.networkThread.start();
+		if (transport == Transport.TCP) {
+			this.networkThread = null;
+			this.tcpNetworkThread = new TCPNetworkThread(this, rpcPort);
+			this.tcpNetworkThread.start();
+		} else {
+			this.networkThread = new NetworkThread(this, rpcPort);
+			this.tcpNetworkThread = null;
+			this.networkThread.start();
+		}
 
 		this.cleanupTimer.schedule(new CleanupTask(), CLEANUP_INTERVAL, CLEANUP_INTERVAL);
 	}
@@ -281,23 +356,11 @@ public final class RPCService {
 	}
 
 	public RPCService(final int numRPCHandlers, final List<Class<?>> typesToRegister) throws IOException {
+		this(-1, numRPCHandlers, typesToRegister, Transport.UDP);
+	}
 
-		this.rpcHandlers = Executors.newFixedThreadPool(numRPCHandlers);
-
-		if (typesToRegister == null)
-			this.kryoTypesToRegister = null;
-		else {
-			ArrayList<Class<?>> kryoTypesToRegister = new ArrayList<Class<?>>();
-			addBasicRPCTypes(kryoTypesToRegister);
-			kryoTypesToRegister.addAll(typesToRegister);
-			this.kryoTypesToRegister = Collections.unmodifiableList(kryoTypesToRegister);
-		}
-
-		this.rpcPort = -1;
-		this.networkThread = new NetworkThread(this, -1);
-		this.networkThread.start();
-
-		this.cleanupTimer.schedule(new CleanupTask(), CLEANUP_INTERVAL, CLEANUP_INTERVAL);
+	public RPCService(final Transport transport) throws IOException {
+		this(-1, DEFAULT_NUM_RPC_HANDLERS, null, transport);
 	}
 
 	public void setProtocolCallbackHandler(final Class<? extends RPCProtocol> protocol,
@@ -375,18 +438,23 @@ public final class RPCService {
 			throw new IOException("Shutdown of RPC service has already been requested");
 
 		final long start = System.currentTimeMillis();
-		DatagramPacket[] packets = this.messageToPackets(remoteSocketAddress, request);
 		final Integer messageID = Integer.valueOf(request.getMessageID());
 
-		final RPCRequestMonitor requestMonitor = new RPCRequestMonitor();
+		final RPCRequestMonitor requestMonitor = new RPCRequestMonitor(remoteSocketAddress);
 
 		this.pendingRequests.put(messageID, requestMonitor);
 
 		RPCResponse rpcResponse = null;
-		int numberOfRetries;
+		int numberOfPackets = 1, numberOfRetries = 0;
 		try {
 
-			numberOfRetries = this.networkThread.send(packets);
+			if (this.tcpNetworkThread != null)
+				this.tcpNetworkThread.send(remoteSocketAddress, this.messageToBytes(request));
+			else {
+				final DatagramPacket[] packets = this.messageToPackets(remoteSocketAddress, request);
+				numberOfPackets = packets.length;
+				numberOfRetries = this.networkThread.send(packets);
+			}
 
 			// Wait for the response
 			synchronized (requestMonitor) {
@@ -417,7 +485,7 @@ public final class RPCService {
 
 		// Report the successful call to the statistics module
 		final String methodName = request.getMethodName();
-		this.statistics.reportSuccessfulTransmission(methodName, packets.length, numberOfRetries);
+		this.statistics.reportSuccessfulTransmission(methodName, numberOfPackets, numberOfRetries);
 		this.statistics.reportRTT(methodName, (int) (System.currentTimeMillis() - start));
 
 		// TODO: Send clean up message
@@ -434,7 +502,10 @@ public final class RPCService {
 
 		// Request shutdown of network thread
 		try {
-			this.networkThread.shutdown();
+			if (this.tcpNetworkThread != null)
+				this.tcpNetworkThread.shutdown();
+			else
+				this.networkThread.shutdown();
 		} catch (InterruptedException ie) {
 			Log.debug("Caught exception while waiting for network thread to shut down: ", ie);
 		}
@@ -530,6 +601,14 @@ public final class RPCService {
 
 				rpcResponse = new RPCThrowable(rpcRequest.getMessageID(), targetException);
 			}
+
+			// A TCP connection neither loses nor duplicates requests, so that the response does not need to be cached
+			if (this.tcpNetworkThread != null) {
+				this.tcpNetworkThread.send(remoteSocketAddress, this.messageToBytes(rpcResponse));
+				this.statistics.reportSuccessfulTransmission(rpcRequest.getMethodName() + " (Response)", 1, 0);
+				return;
+			}
+
 			final DatagramPacket[] packets = this.messageToPackets(remoteSocketAddress, rpcResponse);
 			this.cachedResponses.put(messageID, new CachedResponse(System.currentTimeMillis(), packets));
 
@@ -600,6 +679,23 @@ public final class RPCService {
 		return mpos.createPackets(remoteSocketAddress);
 	}
 
+	/**
+	 * Serializes the given message into a single frame for the TCP transport.
+	 * 
+	 * @param rpcMessage
+	 *        the message to serialize
+	 * @return the serialized message
+	 */
+	private byte[] messageToBytes(final RPCMessage rpcMessage) {
+
+		final Kryo kryo = this.kryo.get();
+		kryo.reset();
+
+		final Output output = new Output(RPCMessage.MAXIMUM_MSG_SIZE, -1);
+		kryo.writeObject(output, new RPCEnvelope(rpcMessage));
+		return output.toBytes();
+	}
+
 	/**
 	 * Processes an incoming RPC response.
 	 * 
@@ -622,6 +718,33 @@ public final class RPCService {
 		}
 	}
 
+	/**
+	 * Fails all pending requests to the given remote address, so that their callers do not wait for the RPC timeout
+	 * after the connection to this address has been lost.
+	 * 
+	 * @param remoteSocketAddress
+	 *        the address of the remote peer
+	 * @param cause
+	 *        the exception that is thrown to the callers
+	 */
+	void failPendingRequests(final InetSocketAddress remoteSocketAddress, final IOException cause) {
+
+		for (final Map.Entry<Integer, RPCRequestMonitor> entry : this.pendingRequests.entrySet()) {
+
+			final RPCRequestMonitor requestMonitor = entry.getValue();
+			if (!requestMonitor.remoteSocketAddress.equals(remoteSocketAddress))
+				continue;
+
+			synchronized (requestMonitor) {
+				// A response that has been received before the connection has been closed takes precedence
+				if (requestMonitor.rpcResponse == null) {
+					requestMonitor.rpcResponse = new RPCThrowable(entry.getKey().intValue(), cause);
+					requestMonitor.notify();
+				}
+			}
+		}
+	}
+
 	void processIncomingRPCCleanup(final InetSocketAddress remoteSocketAddress, final RPCCleanup rpcCleanup) {
 
 		this.cachedResponses.remove(Integer.valueOf(rpcCleanup.getMessageID()));
@@ -0,0 +1,383 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010-2013 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+
+package eu.stratosphere.nephele.rpc;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.minlog.Log;
+
+/**
+ * The TCP network thread transmits RPC messages over persistent TCP connections. Each message is sent as a frame that
+ * consists of the length of the message and the serialized message itself. Requests and responses of concurrent calls
+ * share the same connection and are matched by their message IDs; responses are sent back over the connection on
+ * which the request has been received.
+ * <p>
+ * All connections are served by a single selector. Other threads only enqueue frames and wake up the selector, so that
+ * a large message does not block the calls of other threads.
+ * <p>
+ * This class is thread-safe.
+ *
+ * @author Arvid Heise
+ */
+final class TCPNetworkThread extends Thread {
+
+	/**
+	 * The size of the length field that precedes each message.
+	 */
+	private static final int FRAME_HEADER_SIZE = 4;
+
+	/**
+	 * The largest message that is accepted from a remote peer.
+	 */
+	private static final int MAXIMUM_FRAME_SIZE = 256 * 1024 * 1024;
+
+	/**
+	 * The initial size of the read buffer of each connection, which grows for larger messages.
+	 */
+	private static final int INITIAL_READ_BUFFER_SIZE = 8192;
+
+	/**
+	 * Auxiliary class to store the state of a single connection.
+	 * <p>
+	 * The write queue is thread-safe; all other fields are only accessed by the network thread.
+	 *
+	 * @author Arvid Heise
+	 */
+	private static final class Connection {
+
+		private final SocketChannel channel;
+
+		private final InetSocketAddress remoteSocketAddress;
+
+		private final Queue<ByteBuffer> writeQueue = new ConcurrentLinkedQueue<ByteBuffer>();
+
+		private ByteBuffer readBuffer = ByteBuffer.allocate(INITIAL_READ_BUFFER_SIZE);
+
+		private SelectionKey key;
+
+		private Connection(final SocketChannel channel, final InetSocketAddress remoteSocketAddress) {
+			this.channel = channel;
+			this.remoteSocketAddress = remoteSocketAddress;
+		}
+	}
+
+	/**
+	 * Reference to the RPC service.
+	 */
+	private final RPCService rpcService;
+
+	/**
+	 * The selector that serves all connections.
+	 */
+	private final Selector selector;
+
+	/**
+	 * The channel that accepts incoming connections or <code>null</code> if the service does not accept connections.
+	 */
+	private final ServerSocketChannel serverChannel;
+
+	/**
+	 * All open connections by the address of the remote peer.
+	 */
+	private final ConcurrentHashMap<InetSocketAddress, Connection> connections =
+		new ConcurrentHashMap<InetSocketAddress, Connection>();
+
+	/**
+	 * Connections that have to be registered with the selector or that have new frames to write.
+	 */
+	private final Queue<Connection> pendingConnections = new ConcurrentLinkedQueue<Connection>();
+
+	/**
+	 * Stores whether the thread has been requested to stop and shut down.
+	 */
+	private volatile boolean shutdownRequested = false;
+
+	/**
+	 * Initializes a new TCP network thread.
+	 *
+	 * @param rpcService
+	 *        reference to the RPC service
+	 * @param rpcPort
+	 *        the port on which connections are accepted, <code>-1</code> to only open outgoing connections
+	 * @throws IOException
+	 *         thrown if the server socket cannot be created
+	 */
+	TCPNetworkThread(final RPCService rpcService, final int rpcPort) throws IOException {
+		super("RPC TCP Network Thread");
+
+		this.rpcService = rpcService;
+		this.selector = Selector.open();
+		if (rpcPort == -1)
+			this.serverChannel = null;
+		else {
+			this.serverChannel = ServerSocketChannel.open();
+			this.serverChannel.socket().setReuseAddress(true);
+			this.serverChannel.socket().bind(new InetSocketAddress(rpcPort));
+			this.serverChannel.configureBlocking(false);
+			this.serverChannel.register(this.selector, SelectionKey.OP_ACCEPT);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void run() {
+
+		try {
+			while (!this.shutdownRequested) {
+
+				this.selector.select();
+				this.registerPendingConnections();
+
+				final Iterator<SelectionKey> it = this.selector.selectedKeys().iterator();
+				while (it.hasNext()) {
+
+					final SelectionKey key = it.next();
+					it.remove();
+
+					if (!key.isValid())
+						continue;
+
+					if (key.isAcceptable()) {
+						this.accept();
+						continue;
+					}
+
+					final Connection connection = (Connection) key.attachment();
+					try {
+						if (key.isReadable())
+							this.read(connection);
+						if (key.isValid() && key.isWritable())
+							this.write(connection);
+					} catch (IOException ioe) {
+						if (Log.DEBUG)
+							Log.debug("Closing connection to " + connection.remoteSocketAddress + ": ", ioe);
+						this.close(connection, ioe);
+					}
+				}
+			}
+		} catch (IOException ioe) {
+			if (!this.shutdownRequested)
+				Log.error("Shutting down TCP network thread due to error: ", ioe);
+		} finally {
+			for (final Connection connection : this.connections.values())
+				this.close(connection, null);
+			try {
+				if (this.serverChannel != null)
+					this.serverChannel.close();
+				this.selector.close();
+			} catch (IOException ioe) {
+				Log.debug("Caught exception while closing the selector: ", ioe);
+			}
+		}
+	}
+
+	/**
+	 * Registers new connections with the selector and enables the write interest of connections with pending frames.
+	 */
+	private void registerPendingConnections() {
+
+		Connection connection;
+		while ((connection = this.pendingConnections.poll()) != null) {
+
+			try {
+				if (connection.key == null)
+					connection.key = connection.channel.register(this.selector, SelectionKey.OP_READ, connection);
+				if (connection.key.isValid() && !connection.writeQueue.isEmpty())
+					connection.key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+			} catch (IOException ioe) {
+				Log.error("Cannot register connection to " + connection.remoteSocketAddress + ": ", ioe);
+				this.close(connection, ioe);
+			}
+		}
+	}
+
+	private void accept() throws IOException {
+
+		final SocketChannel channel = this.serverChannel.accept();
+		if (channel == null)
+			return;
+
+		channel.socket().setTcpNoDelay(true);
+		channel.configureBlocking(false);
+		final Connection connection =
+			new Connection(channel, (InetSocketAddress) channel.socket().getRemoteSocketAddress());
+		this.connections.put(connection.remoteSocketAddress, connection);
+		connection.key = channel.register(this.selector, SelectionKey.OP_READ, connection);
+	}
+
+	/**
+	 * Reads the available data of the given connection and dispatches all complete messages.
+	 *
+	 * @param connection
+	 *        the connection to read from
+	 * @throws IOException
+	 *         thrown if the connection has been closed or a frame is corrupt
+	 */
+	private void read(final Connection connection) throws IOException {
+
+		if (connection.channel.read(connection.readBuffer) == -1)
+			throw new EOFException("Connection closed by remote peer");
+
+		final ByteBuffer buffer = connection.readBuffer;
+		buffer.flip();
+		int requiredCapacity = 0;
+		while (buffer.remaining() >= FRAME_HEADER_SIZE) {
+
+			final int length = buffer.getInt(buffer.position());
+			if (length < 0 || length > MAXIMUM_FRAME_SIZE)
+				throw new IOException("Received frame of invalid length " + length);
+			if (buffer.remaining() < FRAME_HEADER_SIZE + length) {
+				requiredCapacity = FRAME_HEADER_SIZE + length;
+				break;
+			}
+
+			// Copy the message, so that the buffer can be reused while the message is processed
+			final byte[] message = new byte[length];
+			buffer.position(buffer.position() + FRAME_HEADER_SIZE);
+			buffer.get(message);
+			this.rpcService.processIncomingRPCMessage(connection.remoteSocketAddress, new Input(message));
+		}
+		buffer.compact();
+
+		if (requiredCapacity > buffer.capacity()) {
+			final ByteBuffer largerBuffer = ByteBuffer.allocate(requiredCapacity);
+			buffer.flip();
+			largerBuffer.put(buffer);
+			connection.readBuffer = largerBuffer;
+		}
+	}
+
+	/**
+	 * Writes the pending frames of the given connection until the socket buffer is full.
+	 *
+	 * @param connection
+	 *        the connection to write to
+	 * @throws IOException
+	 *         thrown if the frames cannot be written
+	 */
+	private void write(final Connection connection) throws IOException {
+
+		ByteBuffer frame;
+		while ((frame = connection.writeQueue.peek()) != null) {
+			connection.channel.write(frame);
+			if (frame.hasRemaining())
+				// Wait until the socket can accept more data
+				return;
+			connection.writeQueue.poll();
+		}
+
+		// Frames that are enqueued from now on are registered again by the sending thread
+		connection.key.interestOps(SelectionKey.OP_READ);
+	}
+
+	/**
+	 * Closes the given connection and fails all calls that still wait for a response over this connection.
+	 *
+	 * @param connection
+	 *        the connection to close
+	 * @param cause
+	 *        the error that caused the connection to be closed or <code>null</code> if the thread shuts down
+	 */
+	private void close(final Connection connection, final IOException cause) {
+
+		this.connections.remove(connection.remoteSocketAddress, connection);
+		if (connection.key != null)
+			connection.key.cancel();
+		try {
+			connection.channel.close();
+		} catch (IOException ioe) {
+			Log.debug("Caught exception while closing connection: ", ioe);
+		}
+
+		// The responses of these calls can no longer arrive
+		this.rpcService.failPendingRequests(connection.remoteSocketAddress,
+			new IOException("Connection to " + connection.remoteSocketAddress + " has been closed", cause));
+	}
+
+	/**
+	 * Shuts down the network thread and closes all connections.
+	 *
+	 * @throws InterruptedException
+	 *         thrown if the calling thread is interrupted while waiting for the network thread to shut down
+	 */
+	void shutdown() throws InterruptedException {
+		this.shutdownRequested = true;
+		this.selector.wakeup();
+		this.join();
+	}
+
+	/**
+	 * Sends the given serialized message to the given remote address. The message is sent over an existing connection
+	 * to this address if possible; otherwise, a new connection is opened.
+	 *
+	 * @param remoteSocketAddress
+	 *        the address to send the message to
+	 * @param message
+	 *        the serialized message
+	 * @throws IOException
+	 *         thrown if no connection to the remote address can be established
+	 */
+	void send(final InetSocketAddress remoteSocketAddress, final byte[] message) throws IOException {
+
+		if (this.shutdownRequested)
+			throw new IOException("TCP network thread has already been shut down");
+
+		Connection connection = this.connections.get(remoteSocketAddress);
+		if (connection == null)
+			connection = this.connect(remoteSocketAddress);
+
+		final ByteBuffer frame = ByteBuffer.allocate(FRAME_HEADER_SIZE + message.length);
+		frame.putInt(message.length);
+		frame.put(message);
+		frame.flip();
+		connection.writeQueue.add(frame);
+
+		this.pendingConnections.add(connection);
+		this.selector.wakeup();
+	}
+
+	private Connection connect(final InetSocketAddress remoteSocketAddress) throws IOException {
+
+		synchronized (this.connections) {
+
+			// Another thread may have connected in the meantime
+			Connection connection = this.connections.get(remoteSocketAddress);
+			if (connection != null)
+				return connection;
+
+			final SocketChannel channel = SocketChannel.open(remoteSocketAddress);
+			channel.socket().setTcpNoDelay(true);
+			channel.configureBlocking(false);
+			connection = new Connection(channel, remoteSocketAddress);
+			this.connections.put(remoteSocketAddress, connection);
+			return connection;
+		}
+	}
+}
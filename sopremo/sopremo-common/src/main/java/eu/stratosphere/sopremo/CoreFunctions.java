@@ -5,7 +5,6 @@ import java.io.IOException;
 import java.text.DateFormat;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
-import java.util.Arrays;
 import java.util.Date;
 import java.util.HashSet;
 import java.util.IdentityHashMap;
@@ -14,22 +13,26 @@ import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import eu.stratosphere.nephele.fs.Path;
+import eu.stratosphere.sopremo.aggregation.AlgebraicAggregation;
 import eu.stratosphere.sopremo.aggregation.AssociativeAggregation;
 import eu.stratosphere.sopremo.aggregation.FixedTypeAssociativeAggregation;
+import eu.stratosphere.sopremo.aggregation.MaterializingAggregation;
 import eu.stratosphere.sopremo.cache.ArrayCache;
 import eu.stratosphere.sopremo.cache.NodeCache;
 import eu.stratosphere.sopremo.cache.PatternCache;
 import eu.stratosphere.sopremo.expressions.AggregationExpression;
 import eu.stratosphere.sopremo.expressions.ArithmeticExpression;
 import eu.stratosphere.sopremo.expressions.ArithmeticExpression.ArithmeticOperator;
+import eu.stratosphere.sopremo.expressions.ArrayAccess;
 import eu.stratosphere.sopremo.expressions.ArrayCreation;
 import eu.stratosphere.sopremo.expressions.ArrayProjection;
-import eu.stratosphere.sopremo.expressions.ChainedSegmentExpression;
 import eu.stratosphere.sopremo.expressions.ComparativeExpression;
 import eu.stratosphere.sopremo.expressions.ConstantExpression;
 import eu.stratosphere.sopremo.expressions.EvaluationExpression;
+import eu.stratosphere.sopremo.expressions.FunctionCall;
 import eu.stratosphere.sopremo.expressions.InputSelection;
 import eu.stratosphere.sopremo.expressions.TernaryExpression;
+import eu.stratosphere.sopremo.function.Deterministic;
 import eu.stratosphere.sopremo.function.ExpressionFunction;
 import eu.stratosphere.sopremo.function.SopremoFunction;
 import eu.stratosphere.sopremo.function.SopremoFunction1;
@@ -38,6 +41,7 @@ import eu.stratosphere.sopremo.function.SopremoFunction3;
 import eu.stratosphere.sopremo.function.SopremoVarargFunction;
 import eu.stratosphere.sopremo.function.SopremoVarargFunction1;
 import eu.stratosphere.sopremo.operator.Name;
+import eu.stratosphere.sopremo.pact.ExternalNodeSorter;
 import eu.stratosphere.sopremo.packages.BuiltinProvider;
 import eu.stratosphere.sopremo.tokenizer.RegexTokenizer;
 import eu.stratosphere.sopremo.type.ArrayNode;
@@ -156,22 +160,71 @@ public class CoreFunctions implements BuiltinProvider {
 			new ArrayProjection(new ArrayCreation(EvaluationExpression.VALUE)).withInputExpression(new InputSelection(0)))
 		);
 
+	// sorts with a bounded run buffer and spills large inputs to disk instead of materializing them with all
+	// the sort needs all elements of a group and is thus collected instead of combined during grouping
 	@Name(verb = "sort")
 	public static final ExpressionFunction SORT = new ExpressionFunction(1,
-		new ChainedSegmentExpression(ALL.getDefinition(), new EvaluationExpression() {
-			@Override
-			public void appendAsString(Appendable appendable) throws IOException {
-				appendable.append("sort");
-			}
+		new AggregationExpression(new SortAggregation()).withInputExpression(new InputSelection(0)));
 
-			@Override
-			public IJsonNode evaluate(IJsonNode node) {
-				final ArrayNode<?> arrayNode = (ArrayNode<?>) node;
-				Object[] elements = arrayNode.getBackingArray();
-				Arrays.sort(elements, 0, arrayNode.size());
-				return node;
+	static class SortAggregation extends MaterializingAggregation {
+		private transient ExternalNodeSorter sorter;
+
+		SortAggregation() {
+			super("sort");
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * @see eu.stratosphere.sopremo.aggregation.MaterializingAggregation#initialize()
+		 */
+		@Override
+		public void initialize() {
+			super.initialize();
+			if (this.sorter == null)
+				this.sorter = new ExternalNodeSorter();
+			else
+				// releases the runs of an aborted aggregation
+				this.sorter.clear();
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * @see
+		 * eu.stratosphere.sopremo.aggregation.MaterializingAggregation#aggregate(eu.stratosphere.sopremo.type.IJsonNode)
+		 */
+		@Override
+		public void aggregate(IJsonNode element) {
+			this.sorter.add(element);
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * @see eu.stratosphere.sopremo.aggregation.MaterializingAggregation#aggregate(eu.stratosphere.sopremo.type.
+		 * CachingArrayNode, eu.stratosphere.sopremo.type.IJsonNode)
+		 */
+		@Override
+		protected CachingArrayNode<IJsonNode> aggregate(CachingArrayNode<IJsonNode> aggregator, IJsonNode element) {
+			this.sorter.add(element);
+			return aggregator;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * @see eu.stratosphere.sopremo.aggregation.MaterializingAggregation#processNodes(eu.stratosphere.sopremo.type.
+		 * CachingArrayNode)
+		 */
+		@Override
+		protected IJsonNode processNodes(CachingArrayNode<IJsonNode> nodeArray) {
+			try {
+				for (final IJsonNode element : this.sorter)
+					nodeArray.addClone(element);
+			} finally {
+				// closes the readers of the spilled runs and deletes them
+				this.sorter.clear();
 			}
-		}));
+			return nodeArray;
+		}
+	}
 
 	@Name(noun = "mean")
 	public static final ExpressionFunction MEAN = new ExpressionFunction(1, new TernaryExpression(
@@ -180,6 +233,41 @@ public class CoreFunctions implements BuiltinProvider {
 			CoreFunctions.COUNT.inline(EvaluationExpression.VALUE)),
 		ConstantExpression.MISSING));
 
+	// algebraic: variance = fn(array) { (sum(x * x) - sum(x) * sum(x) / count(array)) / count(array) }
+	@Name(noun = "variance")
+	public static final ExpressionFunction VARIANCE = AlgebraicAggregation.create(ifNotEmpty(
+		covariance(EvaluationExpression.VALUE, EvaluationExpression.VALUE)));
+
+	@Name(noun = "stddev")
+	public static final ExpressionFunction STDDEV = AlgebraicAggregation.create(ifNotEmpty(
+		new FunctionCall("sqrt", new MathFunctions.SQRT(),
+			covariance(EvaluationExpression.VALUE, EvaluationExpression.VALUE))));
+
+	// the elements are pairs [x, y]
+	@Name(noun = "covariance")
+	public static final ExpressionFunction COVARIANCE = AlgebraicAggregation.create(ifNotEmpty(
+		covariance(new ArrayAccess(0), new ArrayAccess(1))));
+
+	/**
+	 * Computes the population covariance of the two values of each element from the associative states sum(x * y),
+	 * sum(x), sum(y), and count.
+	 */
+	private static EvaluationExpression covariance(final EvaluationExpression x, final EvaluationExpression y) {
+		final EvaluationExpression count = AlgebraicAggregation.state(SUM, new ConstantExpression(1));
+		final EvaluationExpression sumOfProducts = AlgebraicAggregation.state(SUM,
+			new ArithmeticExpression(x, ArithmeticOperator.MULTIPLICATION, y));
+		final EvaluationExpression productOfSums = new ArithmeticExpression(AlgebraicAggregation.state(SUM, x),
+			ArithmeticOperator.MULTIPLICATION, AlgebraicAggregation.state(SUM, y));
+		return new ArithmeticExpression(new ArithmeticExpression(sumOfProducts, ArithmeticOperator.SUBTRACTION,
+			new ArithmeticExpression(productOfSums, ArithmeticOperator.DIVISION, count)),
+			ArithmeticOperator.DIVISION, count.clone());
+	}
+
+	private static EvaluationExpression ifNotEmpty(final EvaluationExpression result) {
+		return new TernaryExpression(AlgebraicAggregation.state(SUM, new ConstantExpression(1)), result,
+			ConstantExpression.MISSING);
+	}
+
 	public static final MIN MIN = new MIN();
 
 	@Name(noun = "min")
@@ -324,6 +412,7 @@ public class CoreFunctions implements BuiltinProvider {
 		.withDefaultParameters(NullNode.getInstance());
 
 	@Name(verb = "extract")
+	@Deterministic
 	public static class EXTRACT extends
 			SopremoFunction3<TextNode, TextNode, IJsonNode> {
 		EXTRACT() {
@@ -378,6 +467,7 @@ public class CoreFunctions implements BuiltinProvider {
 	public static final FORMAT FORMAT = new FORMAT();
 
 	@Name(noun = "format", verb = "format")
+	@Deterministic
 	public static class FORMAT extends SopremoVarargFunction1<TextNode> {
 		FORMAT() {
 			super("format");
@@ -445,6 +535,7 @@ public class CoreFunctions implements BuiltinProvider {
 	public static SopremoFunction LIKE = new LIKE().withDefaultParameters(TextNode.valueOf(""));
 
 	@Name(noun = "like")
+	@Deterministic
 	public static class LIKE extends SopremoFunction2<TextNode, TextNode> {
 
 		private static final transient String PLACEHOLDER = "%%";
@@ -468,6 +559,7 @@ public class CoreFunctions implements BuiltinProvider {
 	public static final LENGTH LENGTH = new LENGTH();
 
 	@Name(noun = "length")
+	@Deterministic
 	public static class LENGTH extends SopremoFunction1<TextNode> {
 		LENGTH() {
 			super("length");
@@ -486,6 +578,7 @@ public class CoreFunctions implements BuiltinProvider {
 		.withDefaultParameters(TextNode.EMPTY_STRING);
 
 	@Name(verb = "replace")
+	@Deterministic
 	public static class REPLACE extends
 			SopremoFunction3<TextNode, TextNode, TextNode> {
 		REPLACE() {
@@ -522,6 +615,7 @@ public class CoreFunctions implements BuiltinProvider {
 		.withDefaultParameters(WHITESPACES);
 
 	@Name(verb = "split")
+	@Deterministic
 	public static class SPLIT extends SopremoFunction2<TextNode, TextNode> {
 		SPLIT() {
 			super("split");
@@ -559,6 +653,7 @@ public class CoreFunctions implements BuiltinProvider {
 		.withDefaultParameters(new IntNode(-1));;
 
 	@Name(noun = "substring")
+	@Deterministic
 	public static class SUBSTRING extends SopremoFunction3<TextNode, IntNode, IntNode> {
 		SUBSTRING() {
 			super("substring");
@@ -587,6 +682,7 @@ public class CoreFunctions implements BuiltinProvider {
 	public static final TRIM TRIM = new TRIM();
 
 	@Name(verb = "trim")
+	@Deterministic
 	public static class TRIM extends SopremoFunction1<TextNode> {
 		TRIM() {
 			super("trim");
@@ -683,6 +779,7 @@ public class CoreFunctions implements BuiltinProvider {
 	public static final WEEK_OF_YEAR WEEK_OF_YEAR = new WEEK_OF_YEAR();
 
 	@Name(noun = "weekOfYear")
+	@Deterministic
 	public static class WEEK_OF_YEAR extends SopremoFunction2<TextNode, TextNode> {
 		WEEK_OF_YEAR() {
 			super("weekOfYear");
@@ -729,6 +826,7 @@ public class CoreFunctions implements BuiltinProvider {
 	public static final GET_YEAR GET_YEAR = new GET_YEAR();
 
 	@Name(noun = "getYear")
+	@Deterministic
 	public static class GET_YEAR extends SopremoFunction2<TextNode, TextNode> {
 		GET_YEAR() {
 			super("getYear");
@@ -765,6 +863,7 @@ public class CoreFunctions implements BuiltinProvider {
 	public static final FORMAT_DATE FORMAT_DATE = new FORMAT_DATE();
 
 	@Name(noun = "formatDate")
+	@Deterministic
 	public static class FORMAT_DATE extends SopremoFunction3<TextNode, TextNode, TextNode> {
 		FORMAT_DATE() {
 			super("formatDate");
@@ -792,6 +891,7 @@ public class CoreFunctions implements BuiltinProvider {
 	public static final SopremoFunction STRPOS = new STRPOS();
 
 	@Name(noun = { "indexOf", "strpos" })
+	@Deterministic
 	public static class STRPOS extends SopremoFunction2<TextNode, TextNode> {
 		STRPOS() {
 			super("strpos");
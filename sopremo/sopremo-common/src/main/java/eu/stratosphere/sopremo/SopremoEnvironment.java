@@ -16,6 +16,7 @@ package eu.stratosphere.sopremo;
 
 import eu.stratosphere.nephele.configuration.Configuration;
 import eu.stratosphere.pact.common.stubs.RuntimeContext;
+import eu.stratosphere.sopremo.expressions.ExpressionCompiler;
 import eu.stratosphere.sopremo.pact.SopremoUtil;
 import eu.stratosphere.sopremo.serialization.SopremoRecordLayout;
 
@@ -131,6 +132,9 @@ public class SopremoEnvironment {
 		this.configuration = configuration;
 		this.classLoader = configuration.getClassLoader();
 		this.evaluationContext = SopremoUtil.getEvaluationContext(configuration);
+		// the result projection is evaluated for every emitted record
+		this.evaluationContext.setResultProjection(
+			ExpressionCompiler.compile(this.evaluationContext.getResultProjection()));
 		this.layout = SopremoUtil.getLayout(configuration);
 	}
 
@@ -138,4 +142,30 @@ public class SopremoEnvironment {
 		setConfiguration(parameters);
 		setRuntimeContext(runtimeContext);
 	}
+
+	/**
+	 * Returns a copy of the current state of this environment, which can be reinstated with
+	 * {@link #restore(SopremoEnvironment)} after a temporary change of the configuration.
+	 * 
+	 * @return the copy
+	 */
+	public SopremoEnvironment save() {
+		final SopremoEnvironment copy = new SopremoEnvironment();
+		copy.restore(this);
+		return copy;
+	}
+
+	/**
+	 * Reinstates the state of the given copy, including the evaluation context and the layout.
+	 * 
+	 * @param savedEnvironment
+	 *        a copy that has been created with {@link #save()}
+	 */
+	public void restore(SopremoEnvironment savedEnvironment) {
+		this.evaluationContext = savedEnvironment.evaluationContext;
+		this.classLoader = savedEnvironment.classLoader;
+		this.configuration = savedEnvironment.configuration;
+		this.runtimeContext = savedEnvironment.runtimeContext;
+		this.layout = savedEnvironment.layout;
+	}
 }
@@ -0,0 +1,60 @@
+package eu.stratosphere.sopremo.aggregation;
+
+import eu.stratosphere.sopremo.expressions.AggregationExpression;
+import eu.stratosphere.sopremo.expressions.ArrayProjection;
+import eu.stratosphere.sopremo.expressions.EvaluationExpression;
+import eu.stratosphere.sopremo.expressions.EvaluationExpression.ValueExpression;
+import eu.stratosphere.sopremo.expressions.InputSelection;
+import eu.stratosphere.sopremo.function.ExpressionFunction;
+
+/**
+ * Declares algebraic aggregations, which are not associative themselves but can be computed from a fixed number of
+ * associative partial states. For example, the variance is derived from the count, the sum, and the sum of squares.<br>
+ * <br>
+ * An algebraic aggregation is a unary {@link ExpressionFunction} whose definition is a finalizer over
+ * {@link #state(AssociativeAggregation, EvaluationExpression) states}. When used in a grouping, each state becomes a
+ * separate partial aggregate that is pre-aggregated in the combiner, and only the finalizer is evaluated after the
+ * shuffle.
+ */
+public class AlgebraicAggregation {
+	/**
+	 * Creates a partial state that aggregates the given expression of each element of the aggregated array.
+	 *
+	 * @param aggregation
+	 *        the associative aggregation that combines the partial states
+	 * @param elementExpression
+	 *        the expression that is evaluated on each element, {@link EvaluationExpression#VALUE} to aggregate the
+	 *        elements directly
+	 * @return the expression of the partial state
+	 */
+	public static AggregationExpression state(final AssociativeAggregation<?> aggregation,
+			final EvaluationExpression elementExpression) {
+		checkCombinable(aggregation);
+		final EvaluationExpression input = elementExpression instanceof ValueExpression ?
+			new InputSelection(0) : new ArrayProjection(elementExpression).withInputExpression(new InputSelection(0));
+		return new AggregationExpression(aggregation).withInputExpression(input);
+	}
+
+	/**
+	 * Creates a unary aggregation function that evaluates the given finalizer on the partial states. All
+	 * {@link AggregationExpression}s within the finalizer must be partial states.
+	 *
+	 * @param finalizer
+	 *        the expression that computes the result from the partial states
+	 * @return the algebraic aggregation
+	 */
+	public static ExpressionFunction create(final EvaluationExpression finalizer) {
+		for (final AggregationExpression state : finalizer.findAll(AggregationExpression.class)) {
+			if (!(state.getAggregation() instanceof AssociativeAggregation))
+				throw new IllegalArgumentException("Partial state is not associative: " + state);
+			checkCombinable(state.getAggregation());
+		}
+		return new ExpressionFunction(1, finalizer);
+	}
+
+	private static void checkCombinable(final Aggregation aggregation) {
+		// materializing aggregations keep all elements and thus are no fixed-size states
+		if (aggregation instanceof MaterializingAggregation)
+			throw new IllegalArgumentException("Partial state must have a fixed size: " + aggregation);
+	}
+}
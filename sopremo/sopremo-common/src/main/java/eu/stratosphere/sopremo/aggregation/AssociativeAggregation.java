@@ -55,4 +55,38 @@ public abstract class AssociativeAggregation<ElementType extends IJsonNode> exte
 	}
 
 	protected abstract ElementType aggregate(ElementType aggregator, IJsonNode element);
+
+	/**
+	 * Creates a new partial aggregate that can be used with {@link #aggregatePartial(IJsonNode, IJsonNode)}.
+	 * 
+	 * @return a new initial aggregate
+	 */
+	@SuppressWarnings("unchecked")
+	public ElementType createPartialAggregate() {
+		return (ElementType) this.initialAggregate.clone();
+	}
+
+	/**
+	 * Aggregates the element into the given partial aggregate without modifying the state of this aggregation. Thus,
+	 * several partial aggregates can be maintained at the same time, e.g., one for each group in a hash table.<br>
+	 * The partial aggregate is owned by the caller; the result never refers to the given element.
+	 * 
+	 * @param partial
+	 *        the partial aggregate created with {@link #createPartialAggregate()}
+	 * @param element
+	 *        the element to aggregate
+	 * @return the new partial aggregate, which may be the given partial aggregate
+	 */
+	@SuppressWarnings("unchecked")
+	public ElementType aggregatePartial(final IJsonNode partial, final IJsonNode element) {
+		final ElementType result = this.aggregate((ElementType) partial, element);
+		if (result == partial)
+			return result;
+		// the result may be the element or a transient node of this aggregation
+		if (result.getType() == partial.getType()) {
+			partial.copyValueFrom(result);
+			return (ElementType) partial;
+		}
+		return (ElementType) result.clone();
+	}
 }
@@ -41,6 +41,18 @@ public abstract class FixedTypeAssociativeAggregation<ElementType extends IJsonN
 
 	protected abstract void aggregateInto(ElementType aggregator, IJsonNode element);
 
+	/*
+	 * (non-Javadoc)
+	 * @see eu.stratosphere.sopremo.aggregation.AssociativeAggregation#aggregatePartial(eu.stratosphere.sopremo.type.
+	 * IJsonNode, eu.stratosphere.sopremo.type.IJsonNode)
+	 */
+	@SuppressWarnings("unchecked")
+	@Override
+	public ElementType aggregatePartial(IJsonNode partial, IJsonNode element) {
+		this.aggregateInto((ElementType) partial, element);
+		return (ElementType) partial;
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * @see eu.stratosphere.sopremo.aggregation.AssociativeAggregation#aggregate(eu.stratosphere.sopremo.type.IJsonNode,
@@ -36,5 +36,25 @@ public class SopremoConstants {
 	 */
 	public static final int DEFAULT_SOPREMO_SERVER_IPC_PORT = 6201;
 
+	/**
+	 * The key for the config parameter defining the number of RPC handlers of the sopremo server. One handler is
+	 * always reserved for requests that do not wait for a state change of a job.
+	 */
 	public static final String SOPREMO_SERVER_HANDLER_COUNT_KEY = "sopremo.rpc.numhandler";
+
+	/**
+	 * The default number of RPC handlers of the sopremo server.
+	 */
+	public static final int DEFAULT_SOPREMO_SERVER_HANDLER_COUNT = 8;
+
+	/**
+	 * The key for the config parameter defining the transport for the communication with the sopremo server, either
+	 * <code>udp</code> or <code>tcp</code>. Client and server must use the same transport.
+	 */
+	public static final String SOPREMO_SERVER_TRANSPORT_KEY = "sopremo.rpc.transport";
+
+	/**
+	 * The default transport for the communication with the sopremo server.
+	 */
+	public static final String DEFAULT_SOPREMO_SERVER_TRANSPORT = "udp";
 }
@@ -17,6 +17,7 @@ package eu.stratosphere.sopremo.execution;
 import java.io.IOException;
 
 import eu.stratosphere.nephele.rpc.RPCProtocol;
+import eu.stratosphere.sopremo.execution.ExecutionResponse.ExecutionState;
 
 /**
  * A general purpose interface for everything that executes meteor scripts synchronically and asynchronically.
@@ -42,6 +43,23 @@ public interface SopremoExecutionProtocol extends LibraryTransferProtocol, RPCPr
 	 * @return the {@link ExecutionResponse} with the state
 	 */
 	ExecutionResponse getState(SopremoID jobId) throws IOException, InterruptedException;
+
+	/**
+	 * Subscribes to the next state change of the given job. The call returns as soon as the state or the detail of
+	 * the job differ from the given known values, or with the current state when the timeout expires.
+	 * 
+	 * @param jobId
+	 *        the job id
+	 * @param knownState
+	 *        the state that is already known to the caller
+	 * @param knownDetail
+	 *        the detail that is already known to the caller
+	 * @param timeout
+	 *        the maximum time in milliseconds to wait for a change
+	 * @return the {@link ExecutionResponse} with the state
+	 */
+	ExecutionResponse waitForStateChange(SopremoID jobId, ExecutionState knownState, String knownDetail, long timeout)
+			throws IOException, InterruptedException;
 	
 	Object getMetaData (SopremoID jobId, String key) throws IOException, InterruptedException;
 }
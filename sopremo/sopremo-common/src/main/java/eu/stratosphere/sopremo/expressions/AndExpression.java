@@ -74,13 +74,28 @@ public class AndExpression extends BooleanExpression {
 	@Override
 	public BooleanNode evaluate(final IJsonNode node) {
 		// we can ignore 'target' because no new Object is created
+		// only TRUE satisfies a condition, which is also the semantic of select
 		for (final EvaluationExpression booleanExpression : this.expressions)
-			if (booleanExpression.evaluate(node) == BooleanNode.FALSE)
+			if (booleanExpression.evaluate(node) != BooleanNode.TRUE)
 				return BooleanNode.FALSE;
 
 		return BooleanNode.TRUE;
 	}
 
+	/*
+	 * (non-Javadoc)
+	 * @see eu.stratosphere.sopremo.expressions.EvaluationExpression#select(eu.stratosphere.sopremo.type.IJsonNode[],
+	 * int[], int)
+	 */
+	@Override
+	public int select(final IJsonNode[] nodes, final int[] selection, final int size) {
+		// each condition only evaluates the nodes that satisfied all previous conditions
+		int selected = size;
+		for (int index = 0, count = this.expressions.size(); index < count && selected > 0; index++)
+			selected = this.expressions.get(index).select(nodes, selection, selected);
+		return selected;
+	}
+
 	/**
 	 * Returns the expressions.
 	 * 
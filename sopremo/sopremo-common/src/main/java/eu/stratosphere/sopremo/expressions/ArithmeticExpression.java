@@ -26,6 +26,7 @@ import eu.stratosphere.sopremo.expressions.tree.ChildIterator;
 import eu.stratosphere.sopremo.expressions.tree.NamedChildIterator;
 import eu.stratosphere.sopremo.type.BigIntegerNode;
 import eu.stratosphere.sopremo.type.DecimalNode;
+import eu.stratosphere.sopremo.type.DefaultNodeFactory;
 import eu.stratosphere.sopremo.type.DoubleNode;
 import eu.stratosphere.sopremo.type.IJsonNode;
 import eu.stratosphere.sopremo.type.INumericNode;
@@ -46,6 +47,8 @@ public class ArithmeticExpression extends EvaluationExpression {
 
 	private final transient NodeCache cache = new NodeCache();
 
+	private transient IJsonNode[] firstOperands, secondOperands;
+
 	/**
 	 * Initializes Arithmetic with two {@link EvaluationExpression}s and an {@link ArithmeticOperator} in infix
 	 * notation.
@@ -98,6 +101,30 @@ public class ArithmeticExpression extends EvaluationExpression {
 			(INumericNode) this.secondOperand.evaluate(node), this.cache);
 	}
 
+	/*
+	 * (non-Javadoc)
+	 * @see eu.stratosphere.sopremo.expressions.EvaluationExpression#evaluate(eu.stratosphere.sopremo.type.IJsonNode[],
+	 * int[], int, eu.stratosphere.sopremo.type.IJsonNode[])
+	 */
+	@Override
+	public void evaluate(final IJsonNode[] nodes, final int[] selection, final int size, final IJsonNode[] results) {
+		if (this.firstOperands == null || this.firstOperands.length < nodes.length) {
+			this.firstOperands = new IJsonNode[nodes.length];
+			this.secondOperands = new IJsonNode[nodes.length];
+		}
+		this.firstOperand.evaluate(nodes, selection, size, this.firstOperands);
+		this.secondOperand.evaluate(nodes, selection, size, this.secondOperands);
+
+		// each position has its own result node, which is reused for the next batch
+		final IJsonNode[] targets = this.getBatchTargets(nodes.length);
+		for (int index = 0; index < size; index++) {
+			final int position = selection[index];
+			results[position] = targets[position] = this.operator.evaluate(
+				(INumericNode) this.firstOperands[position], (INumericNode) this.secondOperands[position],
+				targets[position]);
+		}
+	}
+
 	/**
 	 * Returns the first operand.
 	 * 
@@ -290,15 +317,41 @@ public class ArithmeticExpression extends EvaluationExpression {
 		 * @return the result of the operation
 		 */
 		public INumericNode evaluate(final INumericNode left, final INumericNode right, final NodeCache cache) {
-			final Class<? extends INumericNode> widerType =
-				(left.getGeneralilty() > right.getGeneralilty() ? left : right).getClass();
-			final NumberEvaluator<INumericNode> evaluator = this.typeEvaluators.get(widerType);
+			final NumberEvaluator<INumericNode> evaluator = this.getEvaluator(left, right);
+			final INumericNode numericTarget = cache.getNode(evaluator.getReturnType());
+			evaluator.evaluate(left, right, numericTarget);
+			return numericTarget;
+		}
+
+		/**
+		 * Performs the binary operation on the two operands after coercing both values to a common number type and
+		 * stores the result in the given target if it has the type of the result.
+		 * 
+		 * @param left
+		 *        the left operand
+		 * @param right
+		 *        the right operand
+		 * @param possibleTarget
+		 *        the node that should be reused or null
+		 * @return the result of the operation
+		 */
+		public INumericNode evaluate(final INumericNode left, final INumericNode right,
+				final IJsonNode possibleTarget) {
+			final NumberEvaluator<INumericNode> evaluator = this.getEvaluator(left, right);
 			final Class<? extends INumericNode> implementationType = evaluator.getReturnType();
-			final INumericNode numericTarget = cache.getNode(implementationType);
+			final INumericNode numericTarget =
+				possibleTarget != null && possibleTarget.getClass() == implementationType ? (INumericNode) possibleTarget
+					: DefaultNodeFactory.getInstance().instantiate(implementationType);
 			evaluator.evaluate(left, right, numericTarget);
 			return numericTarget;
 		}
 
+		private NumberEvaluator<INumericNode> getEvaluator(final INumericNode left, final INumericNode right) {
+			final Class<? extends INumericNode> widerType =
+				(left.getGeneralilty() > right.getGeneralilty() ? left : right).getClass();
+			return this.typeEvaluators.get(widerType);
+		}
+
 		@Override
 		public String toString() {
 			return this.sign;
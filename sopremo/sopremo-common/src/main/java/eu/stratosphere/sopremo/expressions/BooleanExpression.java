@@ -26,6 +26,8 @@ import eu.stratosphere.sopremo.type.IJsonNode;
  */
 public abstract class BooleanExpression extends EvaluationExpression implements ISopremoType {
 
+	private transient int[] selectedPositions;
+
 	/*
 	 * (non-Javadoc)
 	 * @see eu.stratosphere.sopremo.expressions.EvaluationExpression#evaluate(eu.stratosphere.sopremo.type.IJsonNode)
@@ -33,6 +35,22 @@ public abstract class BooleanExpression extends EvaluationExpression implements
 	@Override
 	public abstract BooleanNode evaluate(IJsonNode node);
 
+	/**
+	 * Evaluates the batch with {@link #select(IJsonNode[], int[], int)}. The results are the shared instances of
+	 * {@link BooleanNode} and do not need to be copied.
+	 */
+	@Override
+	public void evaluate(final IJsonNode[] nodes, final int[] selection, final int size, final IJsonNode[] results) {
+		if (this.selectedPositions == null || this.selectedPositions.length < nodes.length)
+			this.selectedPositions = new int[nodes.length];
+		System.arraycopy(selection, 0, this.selectedPositions, 0, size);
+		final int selected = this.select(nodes, this.selectedPositions, size);
+		for (int index = 0; index < size; index++)
+			results[selection[index]] = BooleanNode.FALSE;
+		for (int index = 0; index < selected; index++)
+			results[this.selectedPositions[index]] = BooleanNode.TRUE;
+	}
+
 	/**
 	 * Wraps the given {@link EvaluationExpression} as a {@link BooleanExpression}.
 	 * 
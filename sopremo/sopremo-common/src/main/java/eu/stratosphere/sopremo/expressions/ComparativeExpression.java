@@ -33,6 +33,8 @@ public class ComparativeExpression extends BinaryBooleanExpression {
 
 	private final BinaryOperator binaryOperator;
 
+	private transient IJsonNode[] values1, values2;
+
 	/**
 	 * Initializes a ComparativeExpression with the given binaryOperator and both expressions.
 	 * 
@@ -79,6 +81,29 @@ public class ComparativeExpression extends BinaryBooleanExpression {
 			this.expr2.evaluate(node)));
 	}
 
+	/*
+	 * (non-Javadoc)
+	 * @see eu.stratosphere.sopremo.expressions.EvaluationExpression#select(eu.stratosphere.sopremo.type.IJsonNode[],
+	 * int[], int)
+	 */
+	@Override
+	public int select(final IJsonNode[] nodes, final int[] selection, final int size) {
+		if (this.values1 == null || this.values1.length < nodes.length) {
+			this.values1 = new IJsonNode[nodes.length];
+			this.values2 = new IJsonNode[nodes.length];
+		}
+		this.expr1.evaluate(nodes, selection, size, this.values1);
+		this.expr2.evaluate(nodes, selection, size, this.values2);
+
+		int selected = 0;
+		for (int index = 0; index < size; index++) {
+			final int position = selection[index];
+			if (this.binaryOperator.evaluate(this.values1[position], this.values2[position]))
+				selection[selected++] = position;
+		}
+		return selected;
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * @see eu.stratosphere.sopremo.expressions.ExpressionParent#iterator()
@@ -0,0 +1,190 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010-2013 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+package eu.stratosphere.sopremo.expressions;
+
+import java.io.IOException;
+
+import eu.stratosphere.sopremo.EvaluationException;
+import eu.stratosphere.sopremo.cache.NodeCache;
+import eu.stratosphere.sopremo.type.BooleanNode;
+import eu.stratosphere.sopremo.type.IArrayNode;
+import eu.stratosphere.sopremo.type.IJsonNode;
+import eu.stratosphere.sopremo.type.IObjectNode;
+import eu.stratosphere.sopremo.type.MissingNode;
+import eu.stratosphere.sopremo.type.NullNode;
+import eu.stratosphere.sopremo.type.TypeCoercer;
+
+/**
+ * Base class of the expressions that are generated by the {@link ExpressionCompiler}. A compiled expression evaluates
+ * the same tree as the original expression in one generated method. Sub-expressions that cannot be compiled are
+ * evaluated by the original sub-expression objects, which are passed to the generated class as sites. The generated
+ * class also selects batches with its own loop over the generated method.<br>
+ * The static methods are invoked by the generated code and mirror the semantics of the respective expressions.
+ *
+ * @author Arvid Heise
+ */
+public abstract class CompiledExpression extends EvaluationExpression {
+	private final EvaluationExpression original;
+
+	/**
+	 * The sub-expressions that are evaluated by the interpreter.
+	 */
+	protected final EvaluationExpression[] sites;
+
+	/**
+	 * The values of all constant expressions.
+	 */
+	protected final IJsonNode[] constants;
+
+	/**
+	 * The reused result nodes of all array and object creations.
+	 */
+	protected final IJsonNode[] results;
+
+	/**
+	 * The result caches of all arithmetic expressions.
+	 */
+	protected final NodeCache[] nodeCaches;
+
+	/**
+	 * The cache for the boolean coercions.
+	 */
+	protected final NodeCache coercionCache = new NodeCache();
+
+	/**
+	 * Initializes CompiledExpression.
+	 *
+	 * @param original
+	 *        the expression that has been compiled
+	 * @param sites
+	 *        the sub-expressions that are evaluated by the interpreter
+	 * @param constants
+	 *        the values of all constant expressions
+	 * @param results
+	 *        the reused result nodes of all array and object creations
+	 * @param numberOfNodeCaches
+	 *        the number of arithmetic expressions
+	 */
+	protected CompiledExpression(final EvaluationExpression original, final EvaluationExpression[] sites,
+			final IJsonNode[] constants, final IJsonNode[] results, final int numberOfNodeCaches) {
+		this.original = original;
+		this.sites = sites;
+		this.constants = constants;
+		this.results = results;
+		this.nodeCaches = new NodeCache[numberOfNodeCaches];
+		for (int index = 0; index < numberOfNodeCaches; index++)
+			this.nodeCaches[index] = new NodeCache();
+	}
+
+	/**
+	 * Returns the expression that has been compiled.
+	 *
+	 * @return the original expression
+	 */
+	public EvaluationExpression getOriginal() {
+		return this.original;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see eu.stratosphere.sopremo.expressions.EvaluationExpression#clone()
+	 */
+	@Override
+	public EvaluationExpression clone() {
+		// the generated class cannot be copied field-wise
+		return ExpressionCompiler.compile(this.original.clone());
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see eu.stratosphere.sopremo.expressions.EvaluationExpression#equals(java.lang.Object)
+	 */
+	@Override
+	public boolean equals(final Object obj) {
+		if (this == obj)
+			return true;
+		if (!(obj instanceof CompiledExpression))
+			return false;
+		return this.original.equals(((CompiledExpression) obj).original);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see eu.stratosphere.sopremo.expressions.EvaluationExpression#hashCode()
+	 */
+	@Override
+	public int hashCode() {
+		return this.original.hashCode();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see eu.stratosphere.sopremo.ISopremoType#appendAsString(java.lang.Appendable)
+	 */
+	@Override
+	public void appendAsString(final Appendable appendable) throws IOException {
+		this.original.appendAsString(appendable);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see eu.stratosphere.sopremo.expressions.EvaluationExpression#evaluate(eu.stratosphere.sopremo.type.IJsonNode[],
+	 * int[], int, eu.stratosphere.sopremo.type.IJsonNode[])
+	 */
+	@Override
+	public void evaluate(final IJsonNode[] nodes, final int[] selection, final int size, final IJsonNode[] results) {
+		// the batch evaluation of the original tree already evaluates each sub-expression for the whole batch
+		this.original.evaluate(nodes, selection, size, results);
+	}
+
+	/**
+	 * Evaluates an {@link ObjectAccess}.
+	 */
+	public static IJsonNode getField(final IJsonNode node, final String field) {
+		if (!(node instanceof IObjectNode))
+			return MissingNode.getInstance();
+		final IJsonNode value = ((IObjectNode) node).get(field);
+		return value == null ? NullNode.getInstance() : value;
+	}
+
+	/**
+	 * Evaluates an {@link ArrayAccess} of a single element.
+	 */
+	public static IJsonNode getElement(final IJsonNode node, final int index) {
+		if (!(node instanceof IArrayNode<?>))
+			return MissingNode.getInstance();
+		final IArrayNode<?> arrayNode = (IArrayNode<?>) node;
+		final IJsonNode value = arrayNode.get(index < 0 ? arrayNode.size() + index : index);
+		return value == null ? NullNode.getInstance() : value;
+	}
+
+	/**
+	 * Evaluates an {@link InputSelection}.
+	 */
+	public static IJsonNode getInput(final IJsonNode node, final int index) {
+		if (!(node instanceof IArrayNode<?>))
+			throw new EvaluationException("Cannot select input " + node.getClass().getSimpleName());
+		return ((IArrayNode<?>) node).get(index);
+	}
+
+	/**
+	 * Coerces the value of a condition to a {@link BooleanNode}.
+	 */
+	public static BooleanNode asBoolean(final IJsonNode node, final NodeCache nodeCache) {
+		if (node instanceof BooleanNode)
+			return (BooleanNode) node;
+		return TypeCoercer.INSTANCE.coerce(node, nodeCache, BooleanNode.class);
+	}
+}
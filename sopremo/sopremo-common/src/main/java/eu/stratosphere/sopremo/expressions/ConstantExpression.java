@@ -16,6 +16,7 @@ package eu.stratosphere.sopremo.expressions;
 
 import java.io.IOException;
 
+import eu.stratosphere.sopremo.type.BooleanNode;
 import eu.stratosphere.sopremo.type.IJsonNode;
 import eu.stratosphere.sopremo.type.JsonUtil;
 import eu.stratosphere.sopremo.type.MissingNode;
@@ -83,6 +84,27 @@ public class ConstantExpression extends EvaluationExpression {
 		return this.constant;
 	}
 
+	/*
+	 * (non-Javadoc)
+	 * @see eu.stratosphere.sopremo.expressions.EvaluationExpression#evaluate(eu.stratosphere.sopremo.type.IJsonNode[],
+	 * int[], int, eu.stratosphere.sopremo.type.IJsonNode[])
+	 */
+	@Override
+	public void evaluate(final IJsonNode[] nodes, final int[] selection, final int size, final IJsonNode[] results) {
+		for (int index = 0; index < size; index++)
+			results[selection[index]] = this.constant;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see eu.stratosphere.sopremo.expressions.EvaluationExpression#select(eu.stratosphere.sopremo.type.IJsonNode[],
+	 * int[], int)
+	 */
+	@Override
+	public int select(final IJsonNode[] nodes, final int[] selection, final int size) {
+		return this.constant == BooleanNode.TRUE ? size : 0;
+	}
+
 	@Override
 	public int hashCode() {
 		return 41 * super.hashCode() + this.constant.hashCode();
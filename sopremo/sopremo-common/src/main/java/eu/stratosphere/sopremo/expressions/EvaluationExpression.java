@@ -29,6 +29,8 @@ import eu.stratosphere.sopremo.ISopremoType;
 import eu.stratosphere.sopremo.SingletonSerializer;
 import eu.stratosphere.sopremo.expressions.tree.ChildIterator;
 import eu.stratosphere.sopremo.expressions.tree.ListChildIterator;
+import eu.stratosphere.sopremo.pact.SopremoUtil;
+import eu.stratosphere.sopremo.type.BooleanNode;
 import eu.stratosphere.sopremo.type.IJsonNode;
 import eu.stratosphere.util.Immutable;
 
@@ -39,6 +41,8 @@ import eu.stratosphere.util.Immutable;
 public abstract class EvaluationExpression extends AbstractSopremoType implements ISopremoType,
 		Iterable<EvaluationExpression> {
 
+	private transient IJsonNode[] batchTargets;
+
 	@DefaultSerializer(ValueSerializer.class)
 	@Immutable
 	public static final class ValueExpression extends PathSegmentExpression {
@@ -55,6 +59,17 @@ public abstract class EvaluationExpression extends AbstractSopremoType implement
 			return node;
 		}
 
+		/*
+		 * (non-Javadoc)
+		 * @see eu.stratosphere.sopremo.expressions.EvaluationExpression#evaluate(eu.stratosphere.sopremo.type.IJsonNode[],
+		 * int[], int, eu.stratosphere.sopremo.type.IJsonNode[])
+		 */
+		@Override
+		public void evaluate(final IJsonNode[] nodes, final int[] selection, final int size, final IJsonNode[] results) {
+			for (int index = 0; index < size; index++)
+				results[selection[index]] = nodes[selection[index]];
+		}
+
 		/*
 		 * (non-Javadoc)
 		 * @see eu.stratosphere.sopremo.expressions.PathSegmentExpression#iterator()
@@ -395,6 +410,70 @@ public abstract class EvaluationExpression extends AbstractSopremoType implement
 	 */
 	public abstract IJsonNode evaluate(IJsonNode node);
 
+	/**
+	 * Evaluates the expression for a batch of nodes. The result for the node at the position <code>selection[i]</code>
+	 * is stored at the same position of the result vector; all other positions of the result vector remain unchanged.
+	 * In contrast to {@link #evaluate(IJsonNode)}, the results remain valid until the expression evaluates the next
+	 * batch, even if the expression reuses its result node for single evaluations.<br>
+	 * <br>
+	 * The default implementation evaluates the nodes one by one and copies the results into nodes that are owned by
+	 * this expression. Subclasses that do not reuse result nodes or that can share work across the batch should
+	 * override this method.
+	 * 
+	 * @param nodes
+	 *        the input nodes
+	 * @param selection
+	 *        the ascending positions of the nodes that should be evaluated
+	 * @param size
+	 *        the number of valid positions in the selection
+	 * @param results
+	 *        the result vector, which is at least as long as the input vector
+	 */
+	public void evaluate(final IJsonNode[] nodes, final int[] selection, final int size, final IJsonNode[] results) {
+		final IJsonNode[] targets = this.getBatchTargets(nodes.length);
+		for (int index = 0; index < size; index++) {
+			final int position = selection[index];
+			results[position] = targets[position] = SopremoUtil.copyInto(this.evaluate(nodes[position]),
+				targets[position]);
+		}
+	}
+
+	/**
+	 * Evaluates the expression as a condition for a batch of nodes and removes all positions from the selection for
+	 * which the expression does not evaluate to {@link BooleanNode#TRUE}. The remaining positions are moved to the
+	 * beginning of the selection in their original order.
+	 * 
+	 * @param nodes
+	 *        the input nodes
+	 * @param selection
+	 *        the ascending positions of the nodes that should be evaluated
+	 * @param size
+	 *        the number of valid positions in the selection
+	 * @return the number of positions that remain in the selection
+	 */
+	public int select(final IJsonNode[] nodes, final int[] selection, final int size) {
+		int selected = 0;
+		for (int index = 0; index < size; index++) {
+			final int position = selection[index];
+			if (this.evaluate(nodes[position]) == BooleanNode.TRUE)
+				selection[selected++] = position;
+		}
+		return selected;
+	}
+
+	/**
+	 * Returns a vector of result nodes that are owned by this expression for the batch evaluation.
+	 * 
+	 * @param length
+	 *        the minimum length of the vector
+	 * @return the vector
+	 */
+	protected IJsonNode[] getBatchTargets(final int length) {
+		if (this.batchTargets == null || this.batchTargets.length < length)
+			this.batchTargets = new IJsonNode[length];
+		return this.batchTargets;
+	}
+
 	@Override
 	public int hashCode() {
 		return 37;
@@ -0,0 +1,579 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010-2013 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+package eu.stratosphere.sopremo.expressions;
+
+import java.lang.ref.SoftReference;
+import java.lang.reflect.Constructor;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+import eu.stratosphere.sopremo.SopremoEnvironment;
+import eu.stratosphere.sopremo.cache.NodeCache;
+import eu.stratosphere.sopremo.expressions.ArithmeticExpression.ArithmeticOperator;
+import eu.stratosphere.sopremo.expressions.ComparativeExpression.BinaryOperator;
+import eu.stratosphere.sopremo.expressions.EvaluationExpression.ValueExpression;
+import eu.stratosphere.sopremo.expressions.ObjectCreation.FieldAssignment;
+import eu.stratosphere.sopremo.expressions.ObjectCreation.Mapping;
+import eu.stratosphere.sopremo.type.ArrayNode;
+import eu.stratosphere.sopremo.type.BooleanNode;
+import eu.stratosphere.sopremo.type.IArrayNode;
+import eu.stratosphere.sopremo.type.IJsonNode;
+import eu.stratosphere.sopremo.type.INumericNode;
+import eu.stratosphere.sopremo.type.IObjectNode;
+import eu.stratosphere.sopremo.type.ObjectNode;
+
+/**
+ * Compiles an {@link EvaluationExpression} tree into a single generated class. Path accesses, arithmetic and
+ * comparative expressions, boolean connectives, conditionals, and array and object creations are inlined into one
+ * method, so that the evaluation needs no virtual call per node. All other expressions are evaluated by the
+ * interpreter as before.<br>
+ * Expressions of equal structure share the same generated class within a job. The generated classes are cached per
+ * class loader of the job and are released together with it.
+ *
+ * @author Arvid Heise
+ */
+public class ExpressionCompiler implements Opcodes {
+	private static final Set<Class<? extends EvaluationExpression>> COMPILABLE_EXPRESSIONS =
+		new HashSet<Class<? extends EvaluationExpression>>(Arrays.<Class<? extends EvaluationExpression>> asList(
+			ObjectAccess.class, ArrayAccess.class, InputSelection.class, ArithmeticExpression.class,
+			ComparativeExpression.class, AndExpression.class, OrExpression.class, UnaryExpression.class,
+			TernaryExpression.class, ArrayCreation.class, ObjectCreation.class));
+
+	/**
+	 * The maximum number of generated classes that are cached per class loader of a job.
+	 */
+	static final int MAX_COMPILED_CLASSES = 256;
+
+	/**
+	 * The cached classes by the class loader of the job. The caches are softly referenced, because the cached
+	 * expressions may reference classes of the job and would otherwise keep its class loader alive.
+	 */
+	private static final Map<ClassLoader, SoftReference<CompiledClassCache>> COMPILED_CLASSES =
+		new WeakHashMap<ClassLoader, SoftReference<CompiledClassCache>>();
+
+	private static final AtomicInteger NUMBER_OF_CLASSES = new AtomicInteger();
+
+	private static final String BASE_CLASS = Type.getInternalName(CompiledExpression.class);
+
+	private static final String NODE = Type.getDescriptor(IJsonNode.class);
+
+	private static final String NODE_CACHE = Type.getDescriptor(NodeCache.class);
+
+	private static final String BOOLEAN_NODE = Type.getDescriptor(BooleanNode.class);
+
+	private static final String CONSTRUCTOR_DESCRIPTOR = "(" + Type.getDescriptor(EvaluationExpression.class) +
+		Type.getDescriptor(EvaluationExpression[].class) + Type.getDescriptor(IJsonNode[].class) +
+		Type.getDescriptor(IJsonNode[].class) + "I)V";
+
+	private final List<EvaluationExpression> sites = new ArrayList<EvaluationExpression>();
+
+	private final List<IJsonNode> constants = new ArrayList<IJsonNode>();
+
+	private final List<IJsonNode> results = new ArrayList<IJsonNode>();
+
+	private int numberOfNodeCaches;
+
+	private MethodVisitor method;
+
+	private ExpressionCompiler() {
+	}
+
+	/**
+	 * Compiles the given expression for the job of the current {@link SopremoEnvironment}. If the expression does not
+	 * benefit from compilation, it is returned unchanged.
+	 *
+	 * @param expression
+	 *        the expression to compile
+	 * @return the compiled expression or the given expression
+	 */
+	public static EvaluationExpression compile(final EvaluationExpression expression) {
+		return compile(expression, SopremoEnvironment.getInstance().getClassLoader());
+	}
+
+	/**
+	 * Compiles the given expression for the job with the given class loader. If the expression does not benefit from
+	 * compilation, it is returned unchanged.
+	 *
+	 * @param expression
+	 *        the expression to compile
+	 * @param jobClassLoader
+	 *        the class loader of the job, which determines the cache of the generated classes
+	 * @return the compiled expression or the given expression
+	 */
+	public static EvaluationExpression compile(final EvaluationExpression expression,
+			final ClassLoader jobClassLoader) {
+		if (expression.getClass() == TemporaryScope.class) {
+			// the temporaries are referenced from the body and thus remain interpreted
+			final TemporaryScope scope = (TemporaryScope) expression;
+			final EvaluationExpression body = compile(scope.getBody(), jobClassLoader);
+			return body == scope.getBody() ? scope : new TemporaryScope(scope.getTemporaries(), body);
+		}
+		if (!isCompilable(expression))
+			return expression;
+
+		final ExpressionCompiler compiler = new ExpressionCompiler();
+		final CompiledClassCache compiledClasses = getCompiledClasses(jobClassLoader);
+		Constructor<? extends CompiledExpression> constructor;
+		synchronized (compiledClasses) {
+			constructor = compiledClasses.get(expression);
+			if (constructor == null) {
+				constructor = compiler.generateClass(expression);
+				compiledClasses.put(expression.clone(), constructor);
+			} else
+				// the generated code of equal expressions accesses the same sites
+				compiler.collectSites(expression);
+		}
+
+		try {
+			return constructor.newInstance(expression,
+				compiler.sites.toArray(new EvaluationExpression[compiler.sites.size()]),
+				compiler.constants.toArray(new IJsonNode[compiler.constants.size()]),
+				compiler.results.toArray(new IJsonNode[compiler.results.size()]), compiler.numberOfNodeCaches);
+		} catch (final Exception e) {
+			throw new IllegalStateException("Cannot instantiate compiled expression " + expression, e);
+		}
+	}
+
+	private static CompiledClassCache getCompiledClasses(final ClassLoader jobClassLoader) {
+		final ClassLoader key = jobClassLoader == null ? CompiledExpression.class.getClassLoader() : jobClassLoader;
+		synchronized (COMPILED_CLASSES) {
+			final SoftReference<CompiledClassCache> reference = COMPILED_CLASSES.get(key);
+			CompiledClassCache compiledClasses = reference == null ? null : reference.get();
+			if (compiledClasses == null) {
+				compiledClasses = new CompiledClassCache();
+				COMPILED_CLASSES.put(key, new SoftReference<CompiledClassCache>(compiledClasses));
+			}
+			return compiledClasses;
+		}
+	}
+
+	/**
+	 * Returns true if the given expression is compiled by {@link #compile(EvaluationExpression)}.
+	 *
+	 * @param expression
+	 *        the expression to check
+	 * @return true if the expression is compiled
+	 */
+	public static boolean isCompilable(final EvaluationExpression expression) {
+		return isInlined(expression) && !(expression instanceof CompiledExpression);
+	}
+
+	private static boolean isInlined(final EvaluationExpression expression) {
+		if (!COMPILABLE_EXPRESSIONS.contains(expression.getClass()))
+			return false;
+		if (expression instanceof ArrayAccess)
+			return !((ArrayAccess) expression).isSelectingAll() && !((ArrayAccess) expression).isSelectingRange();
+		if (expression instanceof ObjectCreation)
+			for (final Mapping<?> mapping : ((ObjectCreation) expression).getMappings())
+				if (mapping.getClass() != FieldAssignment.class)
+					return false;
+		return true;
+	}
+
+	@SuppressWarnings("unchecked")
+	private Constructor<? extends CompiledExpression> generateClass(final EvaluationExpression expression) {
+		final String className =
+			String.format("%s$%d", CompiledExpression.class.getName(), NUMBER_OF_CLASSES.getAndIncrement());
+		final ClassWriter classWriter = new ClassWriter(ClassWriter.COMPUTE_FRAMES | ClassWriter.COMPUTE_MAXS) {
+			@Override
+			protected String getCommonSuperClass(final String type1, final String type2) {
+				try {
+					return super.getCommonSuperClass(type1, type2);
+				} catch (final RuntimeException e) {
+					// the types are not visible to the class loader of ASM
+					return Type.getInternalName(Object.class);
+				}
+			}
+		};
+		final String internalName = className.replace('.', '/');
+		classWriter.visit(V1_6, ACC_PUBLIC + ACC_SUPER + ACC_FINAL, internalName, null, BASE_CLASS, null);
+
+		MethodVisitor constructor = classWriter.visitMethod(ACC_PUBLIC, "<init>", CONSTRUCTOR_DESCRIPTOR, null, null);
+		constructor.visitCode();
+		constructor.visitVarInsn(ALOAD, 0);
+		for (int index = 1; index <= 4; index++)
+			constructor.visitVarInsn(ALOAD, index);
+		constructor.visitVarInsn(ILOAD, 5);
+		constructor.visitMethodInsn(INVOKESPECIAL, BASE_CLASS, "<init>", CONSTRUCTOR_DESCRIPTOR);
+		constructor.visitInsn(RETURN);
+		constructor.visitMaxs(0, 0);
+		constructor.visitEnd();
+
+		this.method = classWriter.visitMethod(ACC_PUBLIC, "evaluate", "(" + NODE + ")" + NODE, null, null);
+		this.method.visitCode();
+		this.generate(expression);
+		this.method.visitInsn(ARETURN);
+		this.method.visitMaxs(0, 0);
+		this.method.visitEnd();
+		this.generateSelect(classWriter, internalName);
+		classWriter.visitEnd();
+
+		try {
+			final Class<? extends CompiledExpression> compiledClass =
+				(Class<? extends CompiledExpression>) new CompiledClassLoader().define(className,
+					classWriter.toByteArray());
+			return compiledClass.getConstructor(EvaluationExpression.class, EvaluationExpression[].class,
+				IJsonNode[].class, IJsonNode[].class, int.class);
+		} catch (final Exception e) {
+			throw new IllegalStateException("Cannot compile expression " + expression, e);
+		}
+	}
+
+	/**
+	 * Generates the batch selection, which invokes the generated evaluate method for each selected node. In contrast
+	 * to the inherited selection, the invocation is monomorphic and can thus be inlined by the JIT.
+	 */
+	private void generateSelect(final ClassWriter classWriter, final String internalName) {
+		// locals: 1 nodes, 2 selection, 3 size, 4 selected, 5 index, 6 position
+		final MethodVisitor select = classWriter.visitMethod(ACC_PUBLIC, "select",
+			"(" + Type.getDescriptor(IJsonNode[].class) + "[II)I", null, null);
+		select.visitCode();
+		select.visitInsn(ICONST_0);
+		select.visitVarInsn(ISTORE, 4);
+		select.visitInsn(ICONST_0);
+		select.visitVarInsn(ISTORE, 5);
+		final Label loopLabel = new Label(), nextLabel = new Label(), endLabel = new Label();
+		select.visitLabel(loopLabel);
+		select.visitVarInsn(ILOAD, 5);
+		select.visitVarInsn(ILOAD, 3);
+		select.visitJumpInsn(IF_ICMPGE, endLabel);
+		select.visitVarInsn(ALOAD, 2);
+		select.visitVarInsn(ILOAD, 5);
+		select.visitInsn(IALOAD);
+		select.visitVarInsn(ISTORE, 6);
+
+		select.visitVarInsn(ALOAD, 0);
+		select.visitVarInsn(ALOAD, 1);
+		select.visitVarInsn(ILOAD, 6);
+		select.visitInsn(AALOAD);
+		select.visitMethodInsn(INVOKEVIRTUAL, internalName, "evaluate", "(" + NODE + ")" + NODE);
+		select.visitFieldInsn(GETSTATIC, Type.getInternalName(BooleanNode.class), "TRUE", BOOLEAN_NODE);
+		select.visitJumpInsn(IF_ACMPNE, nextLabel);
+		select.visitVarInsn(ALOAD, 2);
+		select.visitVarInsn(ILOAD, 4);
+		select.visitVarInsn(ILOAD, 6);
+		select.visitInsn(IASTORE);
+		select.visitIincInsn(4, 1);
+
+		select.visitLabel(nextLabel);
+		select.visitIincInsn(5, 1);
+		select.visitJumpInsn(GOTO, loopLabel);
+		select.visitLabel(endLabel);
+		select.visitVarInsn(ILOAD, 4);
+		select.visitInsn(IRETURN);
+		select.visitMaxs(0, 0);
+		select.visitEnd();
+	}
+
+	/**
+	 * Traverses the expression in the same order as {@link #generate(EvaluationExpression)} without generating code.
+	 */
+	private void collectSites(final EvaluationExpression expression) {
+		this.generate(expression);
+	}
+
+	/**
+	 * Generates the code that leaves the value of the given expression on the operand stack. Without a method, only
+	 * the sites, constants, and results are collected.
+	 */
+	private void generate(final EvaluationExpression expression) {
+		if (expression instanceof ValueExpression) {
+			if (this.method != null)
+				this.method.visitVarInsn(ALOAD, 1);
+		} else if (expression.getClass() == ConstantExpression.class) {
+			this.constants.add(((ConstantExpression) expression).getConstant());
+			this.loadArrayElement("constants", IJsonNode[].class, this.constants.size() - 1);
+		} else if (!isInlined(expression)) {
+			this.sites.add(expression);
+			this.loadArrayElement("sites", EvaluationExpression[].class, this.sites.size() - 1);
+			if (this.method != null) {
+				this.method.visitVarInsn(ALOAD, 1);
+				this.invoke(INVOKEVIRTUAL, EvaluationExpression.class, "evaluate", IJsonNode.class, IJsonNode.class);
+			}
+		} else if (expression instanceof ObjectAccess) {
+			this.generate(((ObjectAccess) expression).getInputExpression());
+			if (this.method != null) {
+				this.method.visitLdcInsn(((ObjectAccess) expression).getField());
+				this.invoke(INVOKESTATIC, CompiledExpression.class, "getField", IJsonNode.class, IJsonNode.class,
+					String.class);
+			}
+		} else if (expression instanceof ArrayAccess) {
+			this.generate(((ArrayAccess) expression).getInputExpression());
+			if (this.method != null) {
+				this.pushInt(((ArrayAccess) expression).getStartIndex());
+				this.invoke(INVOKESTATIC, CompiledExpression.class, "getElement", IJsonNode.class, IJsonNode.class,
+					int.class);
+			}
+		} else if (expression instanceof InputSelection) {
+			this.generate(((InputSelection) expression).getInputExpression());
+			if (this.method != null) {
+				this.pushInt(((InputSelection) expression).getIndex());
+				this.invoke(INVOKESTATIC, CompiledExpression.class, "getInput", IJsonNode.class, IJsonNode.class,
+					int.class);
+			}
+		} else if (expression instanceof ArithmeticExpression)
+			this.generateArithmetic((ArithmeticExpression) expression);
+		else if (expression instanceof ComparativeExpression)
+			this.generateComparison((ComparativeExpression) expression);
+		else if (expression instanceof AndExpression)
+			this.generateConnective(((AndExpression) expression).getExpressions(), BooleanNode.FALSE);
+		else if (expression instanceof OrExpression)
+			this.generateConnective(((OrExpression) expression).getExpressions(), BooleanNode.TRUE);
+		else if (expression instanceof UnaryExpression)
+			this.generateUnary((UnaryExpression) expression);
+		else if (expression instanceof TernaryExpression)
+			this.generateTernary((TernaryExpression) expression);
+		else if (expression instanceof ArrayCreation)
+			this.generateArrayCreation((ArrayCreation) expression);
+		else
+			this.generateObjectCreation((ObjectCreation) expression);
+	}
+
+	private void generateArithmetic(final ArithmeticExpression expression) {
+		final ArithmeticOperator operator = expression.getOperator();
+		if (this.method != null)
+			this.method.visitFieldInsn(GETSTATIC, Type.getInternalName(ArithmeticOperator.class), operator.name(),
+				Type.getDescriptor(ArithmeticOperator.class));
+		this.generate(expression.getFirstOperand());
+		this.checkCast(INumericNode.class);
+		this.generate(expression.getSecondOperand());
+		this.checkCast(INumericNode.class);
+		this.loadArrayElement("nodeCaches", NodeCache[].class, this.numberOfNodeCaches++);
+		this.invoke(INVOKEVIRTUAL, ArithmeticOperator.class, "evaluate", INumericNode.class, INumericNode.class,
+			INumericNode.class, NodeCache.class);
+	}
+
+	private void generateComparison(final ComparativeExpression expression) {
+		final BinaryOperator operator = expression.getBinaryOperator();
+		if (this.method != null)
+			this.method.visitFieldInsn(GETSTATIC, Type.getInternalName(BinaryOperator.class), operator.name(),
+				Type.getDescriptor(BinaryOperator.class));
+		this.generate(expression.getExpr1());
+		this.generate(expression.getExpr2());
+		if (this.method != null) {
+			this.invoke(INVOKEVIRTUAL, BinaryOperator.class, "evaluate", boolean.class, IJsonNode.class,
+				IJsonNode.class);
+			final Label falseLabel = new Label(), endLabel = new Label();
+			this.method.visitJumpInsn(IFEQ, falseLabel);
+			this.loadBoolean(BooleanNode.TRUE);
+			this.method.visitJumpInsn(GOTO, endLabel);
+			this.method.visitLabel(falseLabel);
+			this.loadBoolean(BooleanNode.FALSE);
+			this.method.visitLabel(endLabel);
+		}
+	}
+
+	/**
+	 * Generates a short-circuit evaluation that returns the given result as soon as one expression evaluates to it.
+	 */
+	private void generateConnective(final List<? extends EvaluationExpression> expressions,
+			final BooleanNode shortCircuitResult) {
+		final BooleanNode otherResult = shortCircuitResult == BooleanNode.TRUE ? BooleanNode.FALSE : BooleanNode.TRUE;
+		final Label shortCircuitLabel = new Label(), endLabel = new Label();
+		for (final EvaluationExpression expression : expressions) {
+			this.generate(expression);
+			if (this.method != null) {
+				this.loadBoolean(shortCircuitResult);
+				this.method.visitJumpInsn(IF_ACMPEQ, shortCircuitLabel);
+			}
+		}
+		if (this.method != null) {
+			this.loadBoolean(otherResult);
+			this.method.visitJumpInsn(GOTO, endLabel);
+			this.method.visitLabel(shortCircuitLabel);
+			this.loadBoolean(shortCircuitResult);
+			this.method.visitLabel(endLabel);
+		}
+	}
+
+	private void generateUnary(final UnaryExpression expression) {
+		this.generateCondition(expression.getExpr());
+		if (this.method != null && expression.isNegate()) {
+			final Label trueLabel = new Label(), endLabel = new Label();
+			this.loadBoolean(BooleanNode.TRUE);
+			this.method.visitJumpInsn(IF_ACMPEQ, trueLabel);
+			this.loadBoolean(BooleanNode.TRUE);
+			this.method.visitJumpInsn(GOTO, endLabel);
+			this.method.visitLabel(trueLabel);
+			this.loadBoolean(BooleanNode.FALSE);
+			this.method.visitLabel(endLabel);
+		}
+	}
+
+	private void generateTernary(final TernaryExpression expression) {
+		final Label elseLabel = new Label(), endLabel = new Label();
+		this.generateCondition(expression.getIfClause());
+		if (this.method != null) {
+			this.loadBoolean(BooleanNode.TRUE);
+			this.method.visitJumpInsn(IF_ACMPNE, elseLabel);
+		}
+		this.generate(expression.getIfExpression());
+		// both branches need the same type on the stack
+		this.checkCast(IJsonNode.class);
+		if (this.method != null) {
+			this.method.visitJumpInsn(GOTO, endLabel);
+			this.method.visitLabel(elseLabel);
+		}
+		this.generate(expression.getThenExpression());
+		this.checkCast(IJsonNode.class);
+		if (this.method != null)
+			this.method.visitLabel(endLabel);
+	}
+
+	/**
+	 * Generates the code that coerces the value of the given expression to a {@link BooleanNode}.
+	 */
+	private void generateCondition(final EvaluationExpression expression) {
+		this.generate(expression);
+		if (this.method != null) {
+			this.method.visitVarInsn(ALOAD, 0);
+			this.method.visitFieldInsn(GETFIELD, BASE_CLASS, "coercionCache", NODE_CACHE);
+			this.invoke(INVOKESTATIC, CompiledExpression.class, "asBoolean", BooleanNode.class, IJsonNode.class,
+				NodeCache.class);
+		}
+	}
+
+	private void generateArrayCreation(final ArrayCreation expression) {
+		this.results.add(new ArrayNode<IJsonNode>());
+		this.loadArrayElement("results", IJsonNode[].class, this.results.size() - 1);
+		this.checkCast(IArrayNode.class);
+		if (this.method != null) {
+			this.method.visitInsn(DUP);
+			this.invoke(INVOKEINTERFACE, IArrayNode.class, "clear", void.class);
+		}
+		for (final EvaluationExpression element : expression.getElements()) {
+			if (this.method != null)
+				this.method.visitInsn(DUP);
+			this.generate(element);
+			if (this.method != null) {
+				this.invoke(INVOKEINTERFACE, IArrayNode.class, "add", IArrayNode.class, IJsonNode.class);
+				this.method.visitInsn(POP);
+			}
+		}
+	}
+
+	private void generateObjectCreation(final ObjectCreation expression) {
+		this.results.add(new ObjectNode());
+		this.loadArrayElement("results", IJsonNode[].class, this.results.size() - 1);
+		this.checkCast(IObjectNode.class);
+		if (this.method != null) {
+			this.method.visitInsn(DUP);
+			this.invoke(INVOKEINTERFACE, IObjectNode.class, "clear", void.class);
+		}
+		for (final Mapping<?> mapping : expression.getMappings()) {
+			if (this.method != null) {
+				this.method.visitInsn(DUP);
+				this.method.visitLdcInsn(((FieldAssignment) mapping).getTarget());
+			}
+			this.generate(mapping.getExpression());
+			if (this.method != null) {
+				this.invoke(INVOKEINTERFACE, IObjectNode.class, "put", IObjectNode.class, String.class,
+					IJsonNode.class);
+				this.method.visitInsn(POP);
+			}
+		}
+	}
+
+	private void loadArrayElement(final String field, final Class<?> arrayType, final int index) {
+		if (this.method == null)
+			return;
+		this.method.visitVarInsn(ALOAD, 0);
+		this.method.visitFieldInsn(GETFIELD, BASE_CLASS, field, Type.getDescriptor(arrayType));
+		this.pushInt(index);
+		this.method.visitInsn(AALOAD);
+	}
+
+	private void loadBoolean(final BooleanNode value) {
+		this.method.visitFieldInsn(GETSTATIC, Type.getInternalName(BooleanNode.class),
+			value == BooleanNode.TRUE ? "TRUE" : "FALSE", BOOLEAN_NODE);
+	}
+
+	private void checkCast(final Class<?> type) {
+		if (this.method != null)
+			this.method.visitTypeInsn(CHECKCAST, Type.getInternalName(type));
+	}
+
+	private void pushInt(final int value) {
+		if (value >= -1 && value <= 5)
+			this.method.visitInsn(ICONST_0 + value);
+		else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE)
+			this.method.visitIntInsn(BIPUSH, value);
+		else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE)
+			this.method.visitIntInsn(SIPUSH, value);
+		else
+			this.method.visitLdcInsn(value);
+	}
+
+	private void invoke(final int opcode, final Class<?> owner, final String name, final Class<?> returnType,
+			final Class<?>... parameterTypes) {
+		if (this.method == null)
+			return;
+		final Type[] argumentTypes = new Type[parameterTypes.length];
+		for (int index = 0; index < parameterTypes.length; index++)
+			argumentTypes[index] = Type.getType(parameterTypes[index]);
+		this.method.visitMethodInsn(opcode, Type.getInternalName(owner), name,
+			Type.getMethodDescriptor(Type.getType(returnType), argumentTypes));
+	}
+
+	/**
+	 * Defines a single generated class, which can thus be unloaded as soon as it is evicted from the cache and no
+	 * longer instantiated.
+	 */
+	private static class CompiledClassLoader extends ClassLoader {
+		private CompiledClassLoader() {
+			super(CompiledExpression.class.getClassLoader());
+		}
+
+		private Class<?> define(final String className, final byte[] byteCode) {
+			return this.defineClass(className, byteCode, 0, byteCode.length);
+		}
+	}
+
+	/**
+	 * The generated classes of a job, which evicts the least recently used class if it grows beyond
+	 * {@link ExpressionCompiler#MAX_COMPILED_CLASSES}.
+	 */
+	private static class CompiledClassCache extends
+			LinkedHashMap<EvaluationExpression, Constructor<? extends CompiledExpression>> {
+		private static final long serialVersionUID = 1L;
+
+		private CompiledClassCache() {
+			super(16, 0.75f, true);
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * @see java.util.LinkedHashMap#removeEldestEntry(java.util.Map.Entry)
+		 */
+		@Override
+		protected boolean removeEldestEntry(
+				final Map.Entry<EvaluationExpression, Constructor<? extends CompiledExpression>> eldest) {
+			return this.size() > MAX_COMPILED_CLASSES;
+		}
+	}
+}
@@ -0,0 +1,226 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010-2013 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+package eu.stratosphere.sopremo.expressions;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import com.google.common.base.Function;
+
+import eu.stratosphere.sopremo.expressions.ObjectCreation.FieldAssignment;
+import eu.stratosphere.sopremo.expressions.ObjectCreation.Mapping;
+import eu.stratosphere.sopremo.expressions.tree.ChildIterator;
+import eu.stratosphere.sopremo.type.IJsonNode;
+import eu.stratosphere.sopremo.type.MissingNode;
+
+/**
+ * Optimizes expressions before they are shipped to the stubs.
+ * <ul>
+ * <li>Subexpressions that do not depend on the input are evaluated once and replaced by {@link ConstantExpression}s.
+ * Function calls are only folded if the function is {@link eu.stratosphere.sopremo.function.Deterministic}.
+ * <li>Paths that are accessed several times, such as <code>$r.a.b</code> in <code>$r.a.b.c + $r.a.b.d</code>, are
+ * evaluated once per node and shared through a {@link TemporaryScope}.
+ * </ul>
+ * 
+ * @author Arvid Heise
+ */
+public class ExpressionOptimizer {
+	/**
+	 * Expressions that can be folded if all of their children are constant.
+	 */
+	private static final Set<Class<? extends EvaluationExpression>> FOLDABLE_EXPRESSIONS =
+		new HashSet<Class<? extends EvaluationExpression>>(Arrays.<Class<? extends EvaluationExpression>> asList(
+			ObjectAccess.class, ArrayAccess.class, ArithmeticExpression.class, ComparativeExpression.class,
+			AndExpression.class, OrExpression.class, UnaryExpression.class, TernaryExpression.class,
+			ArrayCreation.class, ObjectCreation.class, CoerceExpression.class));
+
+	/**
+	 * Expressions that evaluate all of their children with their own input node.
+	 */
+	private static final Set<Class<? extends EvaluationExpression>> SAME_INPUT_EXPRESSIONS =
+		new HashSet<Class<? extends EvaluationExpression>>(Arrays.<Class<? extends EvaluationExpression>> asList(
+			ArithmeticExpression.class, ComparativeExpression.class, AndExpression.class, OrExpression.class,
+			UnaryExpression.class, TernaryExpression.class, ArrayCreation.class, ObjectCreation.class,
+			FunctionCall.class));
+
+	/**
+	 * Paths are only shared if they consist of at least that many segments.
+	 */
+	private static final int MINIMUM_SHARED_PATH_LENGTH = 2;
+
+	/**
+	 * Returns an optimized copy of the given expression.
+	 * 
+	 * @param expression
+	 *        the expression to optimize
+	 * @return the optimized expression or the given expression if it cannot be optimized
+	 */
+	public static EvaluationExpression optimize(final EvaluationExpression expression) {
+		if (expression instanceof ConstantExpression || expression == EvaluationExpression.VALUE)
+			return expression;
+		return shareCommonPaths(foldConstants(expression.clone()));
+	}
+
+	/**
+	 * Replaces all subexpressions that do not depend on the input with their value. The given expression may be
+	 * modified in-place.
+	 * 
+	 * @param expression
+	 *        the expression to fold
+	 * @return the folded expression
+	 */
+	public static EvaluationExpression foldConstants(final EvaluationExpression expression) {
+		return expression.transformRecursively(new Function<EvaluationExpression, EvaluationExpression>() {
+			@Override
+			public EvaluationExpression apply(final EvaluationExpression expression) {
+				if (!isFoldable(expression))
+					return expression;
+				try {
+					final IJsonNode value = expression.evaluate(MissingNode.getInstance());
+					return value == null ? expression : new ConstantExpression(value.clone());
+				} catch (final RuntimeException e) {
+					// keep the expression to report the error during the evaluation of the actual input
+					return expression;
+				}
+			}
+		});
+	}
+
+	private static boolean isFoldable(final EvaluationExpression expression) {
+		if (expression instanceof FunctionCall) {
+			if (!((FunctionCall) expression).getFunction().isDeterministic())
+				return false;
+		} else if (!FOLDABLE_EXPRESSIONS.contains(expression.getClass()))
+			return false;
+
+		for (final EvaluationExpression child : expression)
+			if (!(child instanceof ConstantExpression))
+				return false;
+		return true;
+	}
+
+	/**
+	 * Evaluates paths that occur several times in the same input context only once. The given expression may be
+	 * modified in-place.
+	 * 
+	 * @param expression
+	 *        the expression in which common paths are shared
+	 * @return the given expression or a {@link TemporaryScope} enclosing the expression
+	 */
+	public static EvaluationExpression shareCommonPaths(final EvaluationExpression expression) {
+		final List<EvaluationExpression> temporaries = new ArrayList<EvaluationExpression>();
+		EvaluationExpression body = expression;
+		while (true) {
+			final Map<EvaluationExpression, Integer> occurrences = new LinkedHashMap<EvaluationExpression, Integer>();
+			countPaths(body, occurrences);
+			for (final EvaluationExpression temporary : temporaries)
+				countPaths(temporary, occurrences);
+
+			// share the longest path first, so that its prefixes are evaluated only in its definition
+			EvaluationExpression commonPath = null;
+			int commonPathLength = MINIMUM_SHARED_PATH_LENGTH - 1;
+			for (final Entry<EvaluationExpression, Integer> occurrence : occurrences.entrySet())
+				if (occurrence.getValue() > 1 && getPathLength(occurrence.getKey()) > commonPathLength) {
+					commonPath = occurrence.getKey();
+					commonPathLength = getPathLength(commonPath);
+				}
+			if (commonPath == null)
+				break;
+
+			final int temporaryIndex = temporaries.size();
+			temporaries.add(commonPath.clone());
+			body = replacePath(body, commonPath, temporaryIndex);
+			for (int index = 0; index < temporaryIndex; index++)
+				temporaries.set(index, replacePath(temporaries.get(index), commonPath, temporaryIndex));
+		}
+
+		if (temporaries.isEmpty())
+			return expression;
+		return new TemporaryScope(temporaries, body);
+	}
+
+	/**
+	 * Returns the number of segments of the given path or 0 if the expression is not a path that can be shared.
+	 */
+	private static int getPathLength(final EvaluationExpression expression) {
+		int length = 0;
+		EvaluationExpression segment = expression;
+		for (; segment != EvaluationExpression.VALUE; length++) {
+			if (!isSharableSegment(segment))
+				return 0;
+			segment = ((PathSegmentExpression) segment).getInputExpression();
+		}
+		return length;
+	}
+
+	private static boolean isSharableSegment(final EvaluationExpression expression) {
+		if (expression.getClass() == ArrayAccess.class)
+			return !((ArrayAccess) expression).isSelectingAll() && !((ArrayAccess) expression).isSelectingRange();
+		return expression.getClass() == ObjectAccess.class || expression.getClass() == InputSelection.class;
+	}
+
+	private static boolean isSameInputExpression(final EvaluationExpression expression) {
+		if (!SAME_INPUT_EXPRESSIONS.contains(expression.getClass()))
+			return false;
+		if (expression instanceof ObjectCreation)
+			for (final Mapping<?> mapping : ((ObjectCreation) expression).getMappings())
+				if (mapping.getClass() != FieldAssignment.class)
+					return false;
+		return true;
+	}
+
+	/**
+	 * Counts all paths and their prefixes that are evaluated with the same input as the given expression.
+	 */
+	private static void countPaths(final EvaluationExpression expression,
+			final Map<EvaluationExpression, Integer> occurrences) {
+		if (expression instanceof PathSegmentExpression) {
+			if (getPathLength(expression) >= MINIMUM_SHARED_PATH_LENGTH) {
+				final Integer count = occurrences.get(expression);
+				occurrences.put(expression, count == null ? 1 : count + 1);
+			}
+			if (isSharableSegment(expression))
+				countPaths(((PathSegmentExpression) expression).getInputExpression(), occurrences);
+		} else if (isSameInputExpression(expression))
+			for (final EvaluationExpression child : expression)
+				countPaths(child, occurrences);
+	}
+
+	/**
+	 * Replaces all occurrences of the path that are evaluated with the same input as the given expression.
+	 */
+	private static EvaluationExpression replacePath(final EvaluationExpression expression,
+			final EvaluationExpression path, final int temporaryIndex) {
+		if (expression.equals(path))
+			return new TemporaryExpression(temporaryIndex);
+		if (expression instanceof PathSegmentExpression) {
+			if (isSharableSegment(expression)) {
+				final PathSegmentExpression segment = (PathSegmentExpression) expression;
+				segment.setInputExpression(replacePath(segment.getInputExpression(), path, temporaryIndex));
+			}
+		} else if (isSameInputExpression(expression)) {
+			final ChildIterator iterator = expression.iterator();
+			while (iterator.hasNext())
+				iterator.set(replacePath(iterator.next(), path, temporaryIndex));
+		}
+		return expression;
+	}
+}
@@ -30,6 +30,7 @@ import eu.stratosphere.sopremo.aggregation.Aggregation;
 import eu.stratosphere.sopremo.aggregation.AggregationFunction;
 import eu.stratosphere.sopremo.aggregation.ArrayAccessAsAggregation;
 import eu.stratosphere.sopremo.cache.NodeCache;
+import eu.stratosphere.sopremo.expressions.EvaluationExpression.ValueExpression;
 import eu.stratosphere.sopremo.type.IJsonNode;
 import eu.stratosphere.sopremo.type.MissingNode;
 import eu.stratosphere.sopremo.type.TypeCoercer;
@@ -185,7 +186,17 @@ public class ExpressionUtil {
 				public EvaluationExpression apply(EvaluationExpression argument) {
 					final ArrayProjection arrayProjection = (ArrayProjection) argument;
 					final EvaluationExpression projection = arrayProjection.getProjection();
-					return projection;
+					final EvaluationExpression input = arrayProjection.getInputExpression();
+					if (input instanceof ValueExpression)
+						return projection;
+					// nested projection: the elements are the results of the already replaced inner projection
+					return projection.clone().replace(Predicates.instanceOf(ValueExpression.class),
+						new TransformFunction() {
+							@Override
+							public EvaluationExpression apply(EvaluationExpression value) {
+								return input.clone();
+							}
+						});
 				}
 			}).simplify();
 	}
@@ -92,6 +92,21 @@ public class ObjectAccess extends PathSegmentExpression {
 		return value == null ? NullNode.getInstance() : value;
 	}
 
+	/*
+	 * (non-Javadoc)
+	 * @see eu.stratosphere.sopremo.expressions.EvaluationExpression#evaluate(eu.stratosphere.sopremo.type.IJsonNode[],
+	 * int[], int, eu.stratosphere.sopremo.type.IJsonNode[])
+	 */
+	@Override
+	public void evaluate(final IJsonNode[] nodes, final int[] selection, final int size, final IJsonNode[] results) {
+		// the field values are part of the input and thus remain valid for the batch
+		this.getInputExpression().evaluate(nodes, selection, size, results);
+		for (int index = 0; index < size; index++) {
+			final int position = selection[index];
+			results[position] = this.evaluateSegment(results[position]);
+		}
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * @see eu.stratosphere.sopremo.expressions.PathSegmentExpression#setSegment(eu.stratosphere.sopremo.type.IJsonNode,
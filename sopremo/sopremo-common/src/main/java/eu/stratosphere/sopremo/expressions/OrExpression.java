@@ -31,6 +31,10 @@ import eu.stratosphere.sopremo.type.IJsonNode;
 public class OrExpression extends BooleanExpression {
 	private final List<BooleanExpression> expressions;
 
+	private transient boolean[] matched;
+
+	private transient int[] pendingPositions, candidatePositions;
+
 	/**
 	 * Initializes an OrExpression with the given {@link EvaluationExpression}s.
 	 * 
@@ -75,6 +79,47 @@ public class OrExpression extends BooleanExpression {
 		return BooleanNode.FALSE;
 	}
 
+	/*
+	 * (non-Javadoc)
+	 * @see eu.stratosphere.sopremo.expressions.EvaluationExpression#select(eu.stratosphere.sopremo.type.IJsonNode[],
+	 * int[], int)
+	 */
+	@Override
+	public int select(final IJsonNode[] nodes, final int[] selection, final int size) {
+		if (this.matched == null || this.matched.length < nodes.length) {
+			this.matched = new boolean[nodes.length];
+			this.pendingPositions = new int[nodes.length];
+			this.candidatePositions = new int[nodes.length];
+		}
+
+		// each condition only evaluates the nodes that did not satisfy any previous condition
+		System.arraycopy(selection, 0, this.pendingPositions, 0, size);
+		int pending = size;
+		for (int index = 0, count = this.expressions.size(); index < count && pending > 0; index++) {
+			System.arraycopy(this.pendingPositions, 0, this.candidatePositions, 0, pending);
+			final int selected = this.expressions.get(index).select(nodes, this.candidatePositions, pending);
+			if (selected == 0)
+				continue;
+			for (int candidate = 0; candidate < selected; candidate++)
+				this.matched[this.candidatePositions[candidate]] = true;
+			int remaining = 0;
+			for (int candidate = 0; candidate < pending; candidate++)
+				if (!this.matched[this.pendingPositions[candidate]])
+					this.pendingPositions[remaining++] = this.pendingPositions[candidate];
+			pending = remaining;
+		}
+
+		int selected = 0;
+		for (int index = 0; index < size; index++) {
+			final int position = selection[index];
+			if (this.matched[position]) {
+				this.matched[position] = false;
+				selection[selected++] = position;
+			}
+		}
+		return selected;
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * @see eu.stratosphere.sopremo.expressions.ExpressionParent#iterator()
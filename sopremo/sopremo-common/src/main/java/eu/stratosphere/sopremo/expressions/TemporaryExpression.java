@@ -0,0 +1,89 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010-2013 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+package eu.stratosphere.sopremo.expressions;
+
+import java.io.IOException;
+
+import eu.stratosphere.sopremo.type.IJsonNode;
+
+/**
+ * References a temporary of the enclosing {@link TemporaryScope}. The temporary is evaluated at most once per
+ * evaluation of the scope, regardless how often it is referenced.
+ * 
+ * @author Arvid Heise
+ */
+public class TemporaryExpression extends EvaluationExpression {
+	private final int index;
+
+	private transient TemporaryScope scope;
+
+	/**
+	 * Initializes TemporaryExpression.
+	 * 
+	 * @param index
+	 *        the index of the temporary in the enclosing scope
+	 */
+	public TemporaryExpression(final int index) {
+		this.index = index;
+	}
+
+	/**
+	 * Initializes TemporaryExpression.
+	 */
+	TemporaryExpression() {
+		this.index = 0;
+	}
+
+	/**
+	 * Returns the index of the temporary in the enclosing scope.
+	 * 
+	 * @return the index
+	 */
+	public int getIndex() {
+		return this.index;
+	}
+
+	void setScope(final TemporaryScope scope) {
+		this.scope = scope;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see eu.stratosphere.sopremo.expressions.EvaluationExpression#evaluate(eu.stratosphere.sopremo.type.IJsonNode)
+	 */
+	@Override
+	public IJsonNode evaluate(final IJsonNode node) {
+		if (this.scope == null)
+			throw new IllegalStateException("Temporary is not enclosed in a scope: " + this);
+		return this.scope.getTemporary(this.index, node);
+	}
+
+	@Override
+	public boolean equals(final Object obj) {
+		if (!super.equals(obj))
+			return false;
+		return this.index == ((TemporaryExpression) obj).index;
+	}
+
+	@Override
+	public int hashCode() {
+		return 41 * super.hashCode() + this.index;
+	}
+
+	@Override
+	public void appendAsString(final Appendable appendable) throws IOException {
+		appendable.append("$tmp").append(String.valueOf(this.index));
+	}
+}
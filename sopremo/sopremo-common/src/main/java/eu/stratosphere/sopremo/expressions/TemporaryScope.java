@@ -0,0 +1,173 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010-2013 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+package eu.stratosphere.sopremo.expressions;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import eu.stratosphere.sopremo.expressions.tree.ChildIterator;
+import eu.stratosphere.sopremo.expressions.tree.ConcatenatingChildIterator;
+import eu.stratosphere.sopremo.expressions.tree.ListChildIterator;
+import eu.stratosphere.sopremo.expressions.tree.NamedChildIterator;
+import eu.stratosphere.sopremo.type.IJsonNode;
+
+/**
+ * Evaluates a body expression, in which common subexpressions have been replaced by {@link TemporaryExpression}s.
+ * The temporaries are evaluated lazily on their first reference and their values are reused until the scope is
+ * evaluated for the next node. Consequently, a temporary must only be referenced where the body is evaluated with the
+ * same node as the scope itself.
+ * 
+ * @author Arvid Heise
+ */
+public class TemporaryScope extends EvaluationExpression {
+	private final List<EvaluationExpression> temporaries;
+
+	private EvaluationExpression body;
+
+	private transient IJsonNode[] values;
+
+	private transient boolean[] evaluated;
+
+	/**
+	 * Initializes TemporaryScope.
+	 * 
+	 * @param temporaries
+	 *        the expressions that compute the temporaries
+	 * @param body
+	 *        the expression that references the temporaries
+	 */
+	public TemporaryScope(final List<EvaluationExpression> temporaries, final EvaluationExpression body) {
+		this.temporaries = new ArrayList<EvaluationExpression>(temporaries);
+		this.body = body;
+	}
+
+	/**
+	 * Initializes TemporaryScope.
+	 */
+	TemporaryScope() {
+		this.temporaries = new ArrayList<EvaluationExpression>();
+		this.body = EvaluationExpression.VALUE;
+	}
+
+	/**
+	 * Returns the expressions that compute the temporaries.
+	 * 
+	 * @return the temporaries
+	 */
+	public List<EvaluationExpression> getTemporaries() {
+		return this.temporaries;
+	}
+
+	/**
+	 * Returns the body.
+	 * 
+	 * @return the body
+	 */
+	public EvaluationExpression getBody() {
+		return this.body;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see eu.stratosphere.sopremo.expressions.EvaluationExpression#evaluate(eu.stratosphere.sopremo.type.IJsonNode)
+	 */
+	@Override
+	public IJsonNode evaluate(final IJsonNode node) {
+		if (this.evaluated == null)
+			this.bindTemporaries();
+		else
+			Arrays.fill(this.evaluated, false);
+		return this.body.evaluate(node);
+	}
+
+	IJsonNode getTemporary(final int index, final IJsonNode node) {
+		if (!this.evaluated[index]) {
+			this.values[index] = this.temporaries.get(index).evaluate(node);
+			this.evaluated[index] = true;
+		}
+		return this.values[index];
+	}
+
+	/**
+	 * Binds all references to this scope. References are not serialized, so the binding is performed lazily after
+	 * deserialization or copying.
+	 */
+	private void bindTemporaries() {
+		this.values = new IJsonNode[this.temporaries.size()];
+		this.evaluated = new boolean[this.temporaries.size()];
+		for (final EvaluationExpression temporary : this.temporaries)
+			this.bindReferences(temporary);
+		this.bindReferences(this.body);
+	}
+
+	private void bindReferences(final EvaluationExpression expression) {
+		if (expression instanceof TemporaryExpression)
+			((TemporaryExpression) expression).setScope(this);
+		else if (expression instanceof CompiledExpression)
+			// the generated code invokes the references of the original expression
+			this.bindReferences(((CompiledExpression) expression).getOriginal());
+		else if (!(expression instanceof TemporaryScope))
+			for (final EvaluationExpression child : expression)
+				this.bindReferences(child);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see eu.stratosphere.sopremo.expressions.ExpressionParent#iterator()
+	 */
+	@Override
+	public ChildIterator iterator() {
+		return new ConcatenatingChildIterator(new ListChildIterator(this.temporaries.listIterator()),
+			new NamedChildIterator("body") {
+				@Override
+				protected void set(final int index, final EvaluationExpression childExpression) {
+					TemporaryScope.this.body = childExpression;
+				}
+
+				@Override
+				protected EvaluationExpression get(final int index) {
+					return TemporaryScope.this.body;
+				}
+			});
+	}
+
+	@Override
+	public boolean equals(final Object obj) {
+		if (!super.equals(obj))
+			return false;
+		final TemporaryScope other = (TemporaryScope) obj;
+		return this.temporaries.equals(other.temporaries) && this.body.equals(other.body);
+	}
+
+	@Override
+	public int hashCode() {
+		return (41 * super.hashCode() + this.temporaries.hashCode()) * 41 + this.body.hashCode();
+	}
+
+	@Override
+	public void appendAsString(final Appendable appendable) throws IOException {
+		appendable.append("with ");
+		for (int index = 0; index < this.temporaries.size(); index++) {
+			if (index > 0)
+				appendable.append(", ");
+			appendable.append("$tmp").append(String.valueOf(index)).append(" = ");
+			this.temporaries.get(index).appendAsString(appendable);
+		}
+		appendable.append(": ");
+		this.body.appendAsString(appendable);
+	}
+}
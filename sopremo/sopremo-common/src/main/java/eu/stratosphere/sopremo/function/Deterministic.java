@@ -0,0 +1,17 @@
+package eu.stratosphere.sopremo.function;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Declares that a function always returns the same result for the same parameters and has no side effects. Calls of
+ * such functions with constant parameters are evaluated once during the plan creation.<br>
+ * The annotation can be placed on {@link SopremoFunction} classes and on static Java methods that are registered as
+ * functions.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ ElementType.TYPE, ElementType.METHOD })
+public @interface Deterministic {
+}
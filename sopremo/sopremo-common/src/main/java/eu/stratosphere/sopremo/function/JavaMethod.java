@@ -14,7 +14,9 @@
  **********************************************************************************************************************/
 package eu.stratosphere.sopremo.function;
 
+import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.util.Arrays;
 import java.util.Collection;
 
 import eu.stratosphere.sopremo.EvaluationException;
@@ -33,6 +35,15 @@ public class JavaMethod extends SopremoFunction {
 
 	private final transient ArrayCache<IJsonNode> arrayCache = new ArrayCache<IJsonNode>(IJsonNode.class);
 
+	/**
+	 * The parameter types of the last invocation and the signature and method that have been resolved for them.
+	 */
+	private transient Class<?>[] cachedParameterTypes;
+
+	private transient Signature cachedSignature;
+
+	private transient Method cachedMethod;
+
 	/**
 	 * Initializes JavaMethod.
 	 */
@@ -50,6 +61,7 @@ public class JavaMethod extends SopremoFunction {
 
 	public void addSignature(final Method method) {
 		this.method.addSignature(method);
+		this.cachedSignature = null;
 	}
 
 	/*
@@ -58,13 +70,49 @@ public class JavaMethod extends SopremoFunction {
 	 */
 	@Override
 	public IJsonNode call(IArrayNode<IJsonNode> params) throws EvaluationException {
+		final IJsonNode[] parameters = params.toArray(this.arrayCache);
+		if (this.cachedSignature == null || !this.hasCachedParameterTypes(parameters))
+			this.resolveSignature(parameters);
 		try {
-			return this.method.invoke(null, (Object[]) params.toArray(this.arrayCache));
+			return (IJsonNode) this.cachedMethod.invoke(null, this.cachedSignature.adjustParameters(parameters));
+		} catch (InvocationTargetException e) {
+			throw new EvaluationException(e.getCause());
 		} catch (Throwable e) {
 			throw new EvaluationException(e);
 		}
 	}
 
+	/**
+	 * Checks whether the runtime types of the parameters are the types of the last invocation.
+	 */
+	private boolean hasCachedParameterTypes(final IJsonNode[] parameters) {
+		final Class<?>[] parameterTypes = this.cachedParameterTypes;
+		if (parameterTypes.length != parameters.length)
+			return false;
+		for (int index = 0; index < parameters.length; index++)
+			if (parameterTypes[index] != (parameters[index] == null ? null : parameters[index].getClass()))
+				return false;
+		return true;
+	}
+
+	/**
+	 * Resolves the signature for the runtime types of the parameters and caches it for the following invocations.
+	 */
+	private void resolveSignature(final IJsonNode[] parameters) {
+		final Signature signature = this.method.findSignature((Object[]) parameters);
+		final Class<?>[] parameterTypes = new Class<?>[parameters.length];
+		for (int index = 0; index < parameters.length; index++)
+			parameterTypes[index] = parameters[index] == null ? null : parameters[index].getClass();
+		if (signature == null)
+			throw new EvaluationException(String.format("No method %s found for parameter types %s",
+				this.method.getName(), Arrays.toString(parameterTypes)));
+
+		this.cachedMethod = this.method.getMethod(signature);
+		this.cachedMethod.setAccessible(true);
+		this.cachedSignature = signature;
+		this.cachedParameterTypes = parameterTypes;
+	}
+
 	@Override
 	public boolean equals(Object obj) {
 		if (this == obj)
@@ -77,6 +125,17 @@ public class JavaMethod extends SopremoFunction {
 		return this.method.equals(other.method);
 	}
 
+	/**
+	 * Returns true if all registered Java methods are annotated with {@link Deterministic}.
+	 */
+	@Override
+	public boolean isDeterministic() {
+		for (final Signature signature : this.method.getSignatures())
+			if (!this.method.getMethod(signature).isAnnotationPresent(Deterministic.class))
+				return false;
+		return true;
+	}
+
 	public Collection<Signature> getSignatures() {
 		return this.method.getSignatures();
 	}
@@ -32,6 +32,14 @@ public abstract class SopremoFunction extends Callable<IJsonNode, IArrayNode<IJs
 		this("", 0, 0);
 	}
 
+	/**
+	 * Returns true if the function always returns the same result for the same parameters and has no side effects.
+	 * The default implementation checks for the {@link Deterministic} annotation.
+	 */
+	public boolean isDeterministic() {
+		return this.getClass().isAnnotationPresent(Deterministic.class);
+	}
+
 	/**
 	 * Returns true if the function can be called with the given number of parameters.
 	 */
@@ -69,6 +69,15 @@ public class SopremoFunctionWithDefaultParameters extends SopremoFunction {
 		return this.originalFunction.call(params);
 	}
 
+	/*
+	 * (non-Javadoc)
+	 * @see eu.stratosphere.sopremo.function.SopremoFunction#isDeterministic()
+	 */
+	@Override
+	public boolean isDeterministic() {
+		return this.originalFunction.isDeterministic();
+	}
+
 	public IJsonNode getDefaultParameter(int index) {
 		return this.defaultParameters.get(index);
 	}
@@ -30,7 +30,6 @@ import eu.stratosphere.nephele.fs.FSDataOutputStream;
 import eu.stratosphere.nephele.fs.FileInputSplit;
 import eu.stratosphere.nephele.fs.FileStatus;
 import eu.stratosphere.nephele.fs.FileSystem;
-import eu.stratosphere.nephele.fs.LineReader;
 import eu.stratosphere.nephele.fs.Path;
 import eu.stratosphere.sopremo.operator.Name;
 import eu.stratosphere.sopremo.operator.Property;
@@ -401,6 +400,8 @@ public class CsvFormat extends SopremoFormat {
 
 		private String[] keyNames;
 
+		private boolean[] projectedFields;
+
 		private int numLineSamples;
 
 		private Deque<State> state = new LinkedList<State>();
@@ -429,6 +430,11 @@ public class CsvFormat extends SopremoFormat {
 				this.keyNames = this.extractKeyNames();
 			}
 
+			final ProjectionPaths paths = this.getProjectionPaths();
+			this.projectedFields = new boolean[this.keyNames.length];
+			for (int index = 0; index < this.keyNames.length; index++)
+				this.projectedFields[index] = paths.getField(this.keyNames[index]) != null;
+
 			// skip to beginning of the first record
 			if (this.splitStart > 0)
 				if (this.usesQuotation) {
@@ -458,7 +464,7 @@ public class CsvFormat extends SopremoFormat {
 			List<String> keyNames = new ArrayList<String>();
 			int lastCharacter;
 			do {
-				lastCharacter = this.fillBuilderWithNextField();
+				lastCharacter = this.fillBuilderWithNextField(false);
 				keyNames.add(this.builder.toString());
 				this.builder.setLength(0);
 			} while (lastCharacter != -1 && lastCharacter != '\n');
@@ -474,7 +480,10 @@ public class CsvFormat extends SopremoFormat {
 
 		private long pos = 0;
 
-		private int fillBuilderWithNextField() throws IOException {
+		/**
+		 * Reads the next field into the builder. If the field is skipped, the field is only read until its end.
+		 */
+		private int fillBuilderWithNextField(final boolean skip) throws IOException {
 			int character = 0;
 			readLoop: for (; (character = this.reader.read()) != -1; this.pos++) {
 				final char ch = (char) character;
@@ -485,19 +494,20 @@ public class CsvFormat extends SopremoFormat {
 						break readLoop;
 					} else if (ch == '\n') {
 						final int lastCharPos = this.builder.length() - 1;
-						if (this.builder.charAt(lastCharPos) == '\r')
+						if (lastCharPos >= 0 && this.builder.charAt(lastCharPos) == '\r')
 							this.builder.setLength(lastCharPos);
 						break readLoop;
 					} else if (this.usesQuotation && ch == '"')
 						this.setState(State.QUOTED);
-					else
+					else if (!skip)
 						this.builder.append(ch);
 					break;
 				case ESCAPED:
 					if (ch == 'u')
 						this.setState(State.UNICODE);
 					else {
-						this.builder.append(ch);
+						if (!skip)
+							this.builder.append(ch);
 						this.revertToPreviousState();
 					}
 					break;
@@ -510,7 +520,8 @@ public class CsvFormat extends SopremoFormat {
 						this.setState(State.ESCAPED);
 						break;
 					default:
-						this.builder.append(ch);
+						if (!skip)
+							this.builder.append(ch);
 					}
 					break;
 				case UNICODE:
@@ -521,7 +532,8 @@ public class CsvFormat extends SopremoFormat {
 						throw new IOException("Cannot parse unicode character at position: " + this.pos +
 							" split start: " + this.splitStart);
 					if (++this.unicodeCount >= 4) {
-						this.builder.append(this.unicodeChar);
+						if (!skip)
+							this.builder.append(this.unicodeChar);
 						this.unicodeChar = 0;
 						this.unicodeCount = 0;
 						revertToPreviousState();
@@ -542,18 +554,24 @@ public class CsvFormat extends SopremoFormat {
 			int lastCharacter, fieldIndex = 0;
 			this.objectNode.clear();
 			do {
-				lastCharacter = this.fillBuilderWithNextField();
+				// fields that are not used by the projection are not materialized
+				final boolean projected = fieldIndex < this.projectedFields.length && this.projectedFields[fieldIndex];
+				final long fieldStart = this.pos;
+				lastCharacter = this.fillBuilderWithNextField(!projected);
 				// ignore empty line
-				if (lastCharacter <= 0 && fieldIndex == 0 && this.builder.length() == 0)
-					break;
-				this.addToObject(fieldIndex++, this.builder.toString());
+				if (lastCharacter <= 0 && fieldIndex == 0 && this.pos == fieldStart) {
+					if (lastCharacter == -1)
+						this.endReached();
+					return null;
+				}
+				if (projected)
+					this.addToObject(fieldIndex, this.builder.toString());
+				fieldIndex++;
 				this.builder.setLength(0);
 			} while (lastCharacter != -1 && lastCharacter != '\n');
 
 			if (lastCharacter == -1)
 				this.endReached();
-			if (this.objectNode.size() == 0)
-				return null;
 			return this.objectNode;
 		}
 
@@ -603,52 +621,7 @@ public class CsvFormat extends SopremoFormat {
 		@Override
 		protected float getAverageRecordBytes(FileSystem fs, ArrayList<FileStatus> files, long fileSize)
 				throws IOException {
-			// make the samples small for very small files
-			int numSamples = Math.min(this.numLineSamples, (int) (fileSize / 1024));
-			if (numSamples < 2)
-				numSamples = 2;
-
-			long offset = 0;
-			long bytes = 0; // one byte for the line-break
-			long stepSize = fileSize / numSamples;
-
-			int fileNum = 0;
-			int samplesTaken = 0;
-
-			// take the samples
-			for (int sampleNum = 0; sampleNum < numSamples && fileNum < files.size(); sampleNum++) {
-				FileStatus currentFile = files.get(fileNum);
-				FSDataInputStream inStream = null;
-
-				try {
-					inStream = fs.open(currentFile.getPath());
-					LineReader lineReader = new LineReader(inStream, offset, currentFile.getLen() - offset, 1024);
-					byte[] line = lineReader.readLine();
-					lineReader.close();
-
-					if (line != null && line.length > 0) {
-						samplesTaken++;
-						bytes += line.length + 1; // one for the linebreak
-					}
-				} finally {
-					// make a best effort to close
-					if (inStream != null)
-						try {
-							inStream.close();
-						} catch (Throwable t) {
-						}
-				}
-
-				offset += stepSize;
-
-				// skip to the next file, if necessary
-				while (fileNum < files.size() && offset >= (currentFile = files.get(fileNum)).getLen()) {
-					offset -= currentFile.getLen();
-					fileNum++;
-				}
-			}
-
-			return bytes / (float) samplesTaken;
+			return this.getAverageLineBytes(fs, files, fileSize, this.numLineSamples);
 		}
 
 	}
@@ -14,11 +14,17 @@
  **********************************************************************************************************************/
 package eu.stratosphere.sopremo.io;
 
+import it.unimi.dsi.fastutil.bytes.ByteArrayList;
+
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStreamWriter;
 import java.io.UnsupportedEncodingException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
 
+import eu.stratosphere.nephele.configuration.Configuration;
 import eu.stratosphere.nephele.fs.BlockLocation;
 import eu.stratosphere.nephele.fs.FSDataInputStream;
 import eu.stratosphere.nephele.fs.FSDataOutputStream;
@@ -28,24 +34,161 @@ import eu.stratosphere.nephele.fs.FileSystem;
 import eu.stratosphere.nephele.fs.Path;
 import eu.stratosphere.pact.common.io.statistics.BaseStatistics;
 import eu.stratosphere.sopremo.operator.Name;
+import eu.stratosphere.sopremo.operator.Property;
+import eu.stratosphere.sopremo.pact.SopremoUtil;
 import eu.stratosphere.sopremo.type.IJsonNode;
+import eu.stratosphere.util.Equaler;
 
 /**
  * Format for reading and writing json files. The structure of the file naturally translates into the Sopremo data model
  * as it is based on json.<br />
- * Splits are assumed to be an array of json values. Each value is successively returned by the input iterator.
+ * Splits are assumed to be an array of json values. Each value is successively returned by the input iterator.<br />
+ * Alternatively, files may contain one json value per line (json lines). Such files are split at block boundaries and
+ * each split resynchronizes on the next line break. The line-delimited mode is automatically chosen for files with
+ * the extensions jsonl and ldjson if not explicitly configured.
  */
 @Name(noun = "json")
 public class JsonFormat extends SopremoFormat {
+	/**
+	 * The default number of sample values to consider when calculating the record width.
+	 */
+	public static final int DEFAULT_NUM_SAMPLES = 10;
+
+	private Boolean lineDelimited;
+
+	private int numSamples = DEFAULT_NUM_SAMPLES;
+
+	/**
+	 * Sets whether the file contains exactly one json value per line.
+	 * 
+	 * @param lineDelimited
+	 *        true for newline-delimited json values, false for an array of values, or null to infer from the file
+	 *        extension
+	 */
+	@Property
+	@Name(adjective = "lines")
+	public void setLineDelimited(Boolean lineDelimited) {
+		this.lineDelimited = lineDelimited;
+	}
+
+	/**
+	 * Sets whether the file contains exactly one json value per line.
+	 * 
+	 * @param lineDelimited
+	 *        true for newline-delimited json values, false for an array of values, or null to infer from the file
+	 *        extension
+	 */
+	public JsonFormat withLineDelimited(Boolean lineDelimited) {
+		this.setLineDelimited(lineDelimited);
+		return this;
+	}
+
+	/**
+	 * Returns whether the file contains exactly one json value per line or null if it is inferred from the file
+	 * extension.
+	 * 
+	 * @return the lineDelimited
+	 */
+	public Boolean getLineDelimited() {
+		return this.lineDelimited;
+	}
+
+	/**
+	 * Sets the number of values that are sampled to estimate the average record width.
+	 * 
+	 * @param numSamples
+	 *        the numSamples to set
+	 */
+	public void setNumSamples(int numSamples) {
+		if (numSamples <= 0)
+			throw new IllegalArgumentException("numSamples must be positive");
+
+		this.numSamples = numSamples;
+	}
+
+	/**
+	 * Returns the number of values that are sampled to estimate the average record width.
+	 * 
+	 * @return the numSamples
+	 */
+	public int getNumSamples() {
+		return this.numSamples;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see
+	 * eu.stratosphere.sopremo.io.SopremoFormat#configureForInput(eu.stratosphere.nephele.configuration.Configuration,
+	 * java.lang.String)
+	 */
+	@Override
+	public void configureForInput(Configuration configuration, String inputPath) {
+		super.configureForInput(configuration, inputPath);
+		this.configureLineDelimited(configuration, inputPath);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see
+	 * eu.stratosphere.sopremo.io.SopremoFormat#configureForOutput(eu.stratosphere.nephele.configuration.Configuration,
+	 * java.lang.String)
+	 */
+	@Override
+	public void configureForOutput(Configuration configuration, String outputPath) {
+		super.configureForOutput(configuration, outputPath);
+		this.configureLineDelimited(configuration, outputPath);
+	}
+
+	/**
+	 * Infers the line-delimited mode from the extension of the path if it has not been set explicitly. The inferred
+	 * mode is only passed to the format of the given path, such that this format can still be used for other paths.
+	 */
+	private void configureLineDelimited(Configuration configuration, String path) {
+		if (this.lineDelimited == null && path != null) {
+			final String lowerCasePath = path.toLowerCase();
+			final boolean inferredLineDelimited = lowerCasePath.endsWith(".jsonl") || lowerCasePath.endsWith(".ldjson");
+			SopremoUtil.setObject(configuration, "lineDelimited", inferredLineDelimited);
+		}
+	}
+
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = super.hashCode();
+		result = prime * result + (this.lineDelimited == null ? 0 : this.lineDelimited.hashCode());
+		result = prime * result + this.numSamples;
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (!super.equals(obj))
+			return false;
+		if (this.getClass() != obj.getClass())
+			return false;
+		JsonFormat other = (JsonFormat) obj;
+		return this.numSamples == other.numSamples && Equaler.SafeEquals.equal(this.lineDelimited, other.lineDelimited);
+	}
 
 	public static class JsonInputFormat extends SopremoFileInputFormat {
 
+		private Boolean lineDelimited;
+
+		private int numSamples;
+
 		private JsonParser parser;
 
+		private LineSplitReader lineReader;
+
+		private IJsonNode lastValue;
+
 		@Override
 		public void close() throws IOException {
 			super.close();
-			this.parser.close();
+			if (this.parser != null)
+				this.parser.close();
 		}
 
 		/*
@@ -55,16 +198,37 @@ public class JsonFormat extends SopremoFormat {
 		 * , eu.stratosphere.nephele.fs.FileInputSplit)
 		 */
 		@Override
-		protected void open(FSDataInputStream stream, FileInputSplit split) {
-			try {
-				this.parser = new JsonParser(new InputStreamReader(stream, this.getEncoding()));
-				this.parser.setWrappingArraySkipping(true);
-
-				if (this.parser.checkEnd())
+		protected void open(FSDataInputStream stream, FileInputSplit split) throws IOException {
+			if (this.isLineDelimited()) {
+				this.parser = null;
+				this.lineReader = new LineSplitReader(stream, split.getStart(), split.getLength());
+				if (!this.lineReader.nextNonEmptyLine())
 					this.endReached();
-			} catch (UnsupportedEncodingException e) {
-				// cannot happen as encoding is validated in SopremoFormat
+				return;
 			}
+
+			this.parser = this.createParser(stream);
+			this.parser.setWrappingArraySkipping(true);
+			if (this.parser.checkEnd())
+				this.endReached();
+		}
+
+		private boolean isLineDelimited() {
+			return this.lineDelimited == Boolean.TRUE;
+		}
+
+		/**
+		 * Creates a parser that reads the bytes of the stream directly if the encoding is compatible to UTF-8.
+		 */
+		private JsonParser createParser(InputStream stream) throws UnsupportedEncodingException {
+			if (this.isUtf8Compatible())
+				return new JsonParser(stream);
+			return new JsonParser(new InputStreamReader(stream, this.getEncoding()));
+		}
+
+		private boolean isUtf8Compatible() {
+			final String charset = Charset.forName(this.getEncoding()).name();
+			return charset.equals("UTF-8") || charset.equals("US-ASCII");
 		}
 
 		/*
@@ -73,10 +237,23 @@ public class JsonFormat extends SopremoFormat {
 		 */
 		@Override
 		public IJsonNode nextValue() throws IOException {
-			final IJsonNode value = this.parser.readValueAsTree();
+			if (this.isLineDelimited()) {
+				if (!this.isUtf8Compatible())
+					this.parser = new JsonParser(this.lineReader.getLineAsString(this.getEncoding()));
+				else if (this.parser == null)
+					this.parser = new JsonParser(this.lineReader.getLine(), 0, this.lineReader.getLineLength());
+				else
+					this.parser.setInput(this.lineReader.getLine(), 0, this.lineReader.getLineLength());
+				this.lastValue = this.parser.readValueAsTree(this.lastValue, this.getProjectionPaths());
+				if (!this.lineReader.nextNonEmptyLine())
+					this.endReached();
+				return this.lastValue;
+			}
+
+			this.lastValue = this.parser.readValueAsTree(this.lastValue, this.getProjectionPaths());
 			if (this.parser.checkEnd())
 				this.endReached();
-			return value;
+			return this.lastValue;
 		}
 
 		/*
@@ -85,6 +262,10 @@ public class JsonFormat extends SopremoFormat {
 		 */
 		@Override
 		public FileInputSplit[] createInputSplits(int minNumSplits) throws IOException {
+			// line-delimited files can be split at arbitrary positions
+			if (this.isLineDelimited())
+				return super.createInputSplits(minNumSplits);
+
 			final Path path = this.filePath;
 			final FileSystem fs = path.getFileSystem();
 			final FileStatus pathFile = fs.getFileStatus(path);
@@ -115,11 +296,129 @@ public class JsonFormat extends SopremoFormat {
 
 		/*
 		 * (non-Javadoc)
-		 * @see eu.stratosphere.pact.common.io.InputFormat#getStatistics()
+		 * @see
+		 * eu.stratosphere.sopremo.io.SopremoFormat.SopremoFileInputFormat#getAverageRecordBytes(eu.stratosphere.nephele
+		 * .fs.FileSystem, java.util.ArrayList, long)
 		 */
 		@Override
-		public FileBaseStatistics getStatistics(final BaseStatistics cachedStatistics) {
-			return null;
+		protected float getAverageRecordBytes(FileSystem fs, ArrayList<FileStatus> files, long fileSize)
+				throws IOException {
+			if (this.isLineDelimited())
+				return this.getAverageLineBytes(fs, files, fileSize, this.numSamples);
+
+			// parse the first values of the first file; characters approximate bytes
+			FSDataInputStream inStream = null;
+			try {
+				inStream = fs.open(files.get(0).getPath());
+				final JsonParser sampleParser = this.createParser(inStream);
+				sampleParser.setWrappingArraySkipping(true);
+				int samplesTaken = 0;
+				for (; samplesTaken < this.numSamples && !sampleParser.checkEnd(); samplesTaken++)
+					sampleParser.readValueAsTree();
+				if (samplesTaken == 0)
+					return BaseStatistics.AVG_RECORD_BYTES_UNKNOWN;
+				return sampleParser.getNumberOfParsedChars() / (float) samplesTaken;
+			} catch (JsonParseException e) {
+				return BaseStatistics.AVG_RECORD_BYTES_UNKNOWN;
+			} finally {
+				// make a best effort to close
+				if (inStream != null)
+					try {
+						inStream.close();
+					} catch (Throwable t) {
+					}
+			}
+		}
+	}
+
+	/**
+	 * Reads the newline-delimited records of a file split. A split that does not start at the beginning of the file
+	 * skips the partial record at its start, while the last record that starts within the split is read completely,
+	 * even if it exceeds the split.
+	 * 
+	 * @author Arvid Heise
+	 */
+	static class LineSplitReader {
+		private static final int BUFFER_SIZE = 64 * 1024;
+
+		private final FSDataInputStream stream;
+
+		private final byte[] buffer = new byte[BUFFER_SIZE];
+
+		private final ByteArrayList line = new ByteArrayList();
+
+		private int bufferPos = 0, bufferLimit = 0;
+
+		private long pos;
+
+		private final long end;
+
+		public LineSplitReader(FSDataInputStream stream, long start, long length) throws IOException {
+			this.stream = stream;
+			this.end = start + length;
+			if (start > 0) {
+				// the record starting at the split start belongs to this split iff the previous byte is a line break
+				this.stream.seek(this.pos = start - 1);
+				int ch;
+				while ((ch = this.read()) != -1 && ch != '\n')
+					;
+			} else
+				this.stream.seek(this.pos = start);
+		}
+
+		/**
+		 * Advances to the next line that contains at least one non-whitespace character and starts within the split.
+		 * 
+		 * @return true if such a line has been found
+		 */
+		public boolean nextNonEmptyLine() throws IOException {
+			while (this.pos < this.end) {
+				this.line.clear();
+				int ch;
+				boolean empty = true;
+				while ((ch = this.read()) != -1 && ch != '\n') {
+					this.line.add((byte) ch);
+					empty &= Character.isWhitespace(ch);
+				}
+				if (!empty)
+					return true;
+				if (ch == -1)
+					return false;
+			}
+			return false;
+		}
+
+		/**
+		 * Returns the bytes of the current line. Only the first {@link #getLineLength()} bytes are valid.
+		 */
+		public byte[] getLine() {
+			return this.line.elements();
+		}
+
+		/**
+		 * Returns the number of bytes of the current line.
+		 */
+		public int getLineLength() {
+			return this.line.size();
+		}
+
+		/**
+		 * Decodes the current line.
+		 */
+		public String getLineAsString(String encoding) throws UnsupportedEncodingException {
+			return new String(this.line.elements(), 0, this.line.size(), encoding);
+		}
+
+		private int read() throws IOException {
+			if (this.bufferPos == this.bufferLimit) {
+				final int read = this.stream.read(this.buffer, 0, this.buffer.length);
+				if (read <= 0)
+					return -1;
+				this.bufferPos = 0;
+				this.bufferLimit = read;
+			}
+			this.pos++;
+			return this.buffer[this.bufferPos++] & 0xFF;
 		}
 	}
 
@@ -130,11 +429,16 @@ public class JsonFormat extends SopremoFormat {
 	 */
 	public static class JsonOutputFormat extends SopremoFileOutputFormat {
 
+		private Boolean lineDelimited;
+
 		private JsonGenerator generator;
 
 		@Override
 		public void close() throws IOException {
-			this.generator.writeEndArray();
+			if (this.lineDelimited == Boolean.TRUE)
+				this.generator.writeEndLine();
+			else
+				this.generator.writeEndArray();
 			this.generator.close();
 			super.close();
 		}
@@ -147,7 +451,10 @@ public class JsonFormat extends SopremoFormat {
 		@Override
 		protected void open(FSDataOutputStream stream, int taskNumber) throws IOException {
 			this.generator = new JsonGenerator(new OutputStreamWriter(stream, this.getEncoding()));
-			this.generator.writeStartArray();
+			if (this.lineDelimited == Boolean.TRUE)
+				this.generator.setElementSeparator("\n");
+			else
+				this.generator.writeStartArray();
 		}
 
 		/*
@@ -168,6 +475,6 @@ public class JsonFormat extends SopremoFormat {
 	 */
 	@Override
 	protected String[] getPreferredFilenameExtensions() {
-		return new String[] { "json" };
+		return new String[] { "json", "jsonl", "ldjson" };
 	}
 }
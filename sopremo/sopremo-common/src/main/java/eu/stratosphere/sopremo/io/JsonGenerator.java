@@ -26,6 +26,8 @@ public class JsonGenerator {
 
 	boolean isFirst = true;
 
+	private String elementSeparator = ",\n";
+
 	/**
 	 * Initializes a JsonGenerator which uses the given {@link OutputStream} as
 	 * a sink.
@@ -79,7 +81,7 @@ public class JsonGenerator {
 	public void writeTree(final IJsonNode iJsonNode) throws IOException {
 		if (iJsonNode != null) {
 			if (!this.isFirst) {
-				this.writer.write(",\n");
+				this.writer.write(this.elementSeparator);
 			}
 			JsonTypeWriter<IJsonNode> typeWriter = JsonTypeWriterPool.getJsonTypeWriterFor(iJsonNode);
 			typeWriter.write(iJsonNode, this.writer);
@@ -87,6 +89,20 @@ public class JsonGenerator {
 		}
 	}
 
+	/**
+	 * Sets the separator that is written between two consecutive trees. The default separator is a comma followed by
+	 * a line break.
+	 * 
+	 * @param elementSeparator
+	 *        the separator to set
+	 */
+	public void setElementSeparator(final String elementSeparator) {
+		if (elementSeparator == null)
+			throw new NullPointerException("elementSeparator must not be null");
+
+		this.elementSeparator = elementSeparator;
+	}
+
 	/**
 	 * Delegetes the flush operation to the underlying writer
 	 * 
@@ -108,6 +124,17 @@ public class JsonGenerator {
 
 	}
 
+	/**
+	 * Terminates the last written tree with a line break, e.g., to end json lines.
+	 * 
+	 * @throws IOException
+	 */
+	public void writeEndLine() throws IOException {
+		if (!this.isFirst)
+			this.writer.write('\n');
+		this.writer.flush();
+	}
+
 	/**
 	 * Writes the start-array-token to the specified sink. The token is
 	 * specified in {@link JsonToken#START_ARRAY}.
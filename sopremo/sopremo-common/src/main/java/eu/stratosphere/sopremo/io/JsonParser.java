@@ -1,23 +1,16 @@
 package eu.stratosphere.sopremo.io;
 
-import it.unimi.dsi.fastutil.chars.Char2ObjectMap;
-import it.unimi.dsi.fastutil.chars.Char2ObjectOpenHashMap;
-import it.unimi.dsi.fastutil.chars.CharArrayList;
-import it.unimi.dsi.fastutil.chars.CharList;
-
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
-import java.io.StringReader;
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.net.URL;
 import java.nio.charset.Charset;
-import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.List;
+import java.util.HashMap;
+import java.util.Map;
 
 import eu.stratosphere.nephele.fs.FSDataInputStream;
 import eu.stratosphere.sopremo.type.ArrayNode;
@@ -32,428 +25,69 @@ import eu.stratosphere.sopremo.type.NullNode;
 import eu.stratosphere.sopremo.type.ObjectNode;
 import eu.stratosphere.sopremo.type.TextNode;
 
+/**
+ * Parses json values directly from UTF-8 encoded bytes. The input is consumed in blocks from an {@link InputStream} or
+ * from a given byte array without intermediate charset decoding; only strings with non-ASCII characters are decoded
+ * explicitly.<br />
+ * Values may be parsed into the nodes of a previously parsed value with {@link #readValueAsTree(IJsonNode)} to avoid
+ * allocating a fresh node tree for each value.
+ */
 public class JsonParser {
+	private static final int BUFFER_SIZE = 64 * 1024;
 
-	private enum STATE {
-		OBJECT {
-			private final char charToFinishObject = '}';
-
-			private final char keyValueSeparator = ':';
-
-			private final char elementSeparator = ',';
-
-			@Override
-			public IJsonNode createJsonNode(final char startChar, final JsonParser parser) throws JsonParseException {
-
-				boolean currentInputIsAKey = true;
-				final ObjectNode result = new ObjectNode();
-				final StringBuffer currentKey = new StringBuffer();
-				int nextChar;
-
-				while ((nextChar = parser.readIgnoreWhitespace()) != this.charToFinishObject) {
-					if (this.handleSpecialChar(nextChar, currentInputIsAKey, parser))
-						continue;
-					currentInputIsAKey = this.handleElement(nextChar, currentKey, parser, currentInputIsAKey,
-						result);
-				}
-				if (!currentInputIsAKey)
-					throw parser.getParseException(this.getName(), "json value expected",
-						String.valueOf(this.charToFinishObject));
-				return result;
-			}
-
-			@Override
-			protected String getName() {
-				return "json object";
-			}
-
-			@Override
-			protected void initialize() {
-				this.transitions.put('{', STATE.OBJECT);
-				this.transitions.put('[', STATE.ARRAY);
-				this.transitions.put('t', STATE.BOOLEAN);
-				this.transitions.put('f', STATE.BOOLEAN);
-				this.transitions.put('n', STATE.NULL);
-				this.transitions.put('-', STATE.NUMBER);
-				this.transitions.put('0', STATE.NUMBER);
-				this.transitions.put('1', STATE.NUMBER);
-				this.transitions.put('2', STATE.NUMBER);
-				this.transitions.put('3', STATE.NUMBER);
-				this.transitions.put('4', STATE.NUMBER);
-				this.transitions.put('5', STATE.NUMBER);
-				this.transitions.put('6', STATE.NUMBER);
-				this.transitions.put('7', STATE.NUMBER);
-				this.transitions.put('8', STATE.NUMBER);
-				this.transitions.put('9', STATE.NUMBER);
-				this.transitions.put('"', STATE.STRING);
-			}
-
-			private boolean handleElement(final int nextChar, final StringBuffer currentKey, final JsonParser parser,
-					final boolean currentInputIsAKey,
-					final ObjectNode result) throws JsonParseException {
-				final STATE state = this.nextState((char) nextChar);
-				if (state == null)
-					throw parser.getParseException(this.getName(),
-						"one of ['{', '[', 't', 'f', 'n', '-' , 0-9, '\"']", String.valueOf((char) nextChar));
-				final IJsonNode element = state.createJsonNode((char) nextChar,
-					parser);
-				if (currentInputIsAKey) {
-					if (!(element instanceof TextNode))
-						throw parser.getParseException(this.getName(), "key must be a string", element
-							.getType().toString());
-					currentKey.append((TextNode) element);
-					return false;
-				}
-				result.put(currentKey.toString(), element);
-				currentKey.delete(0, currentKey.length());
-				return true;
-			}
-
-			private boolean handleSpecialChar(final int character, final boolean keyNext, final JsonParser parser)
-					throws JsonParseException {
-				if (character == -1)
-					throw parser.getParseException(this.getName(),
-						String.valueOf(this.charToFinishObject),
-						"eof");
-				if ((char) character == this.elementSeparator)
-					return true;
-				if ((char) character == this.keyValueSeparator) {
-					if (keyNext)
-						throw parser.getParseException(this.getName(), "key expected",
-							String.valueOf(this.keyValueSeparator));
-					return true;
-				}
-				return false;
-			}
-		},
-		ARRAY {
-			private final char charToFinishArray = ']';
-
-			private final char arrayElementSeparator = ',';
-
-			@Override
-			public IJsonNode createJsonNode(final char startChar, final JsonParser parser) throws JsonParseException {
-
-				final List<IJsonNode> result = new ArrayList<IJsonNode>();
-				boolean valueExpected = false;
-				int nextChar;
-
-				while ((nextChar = parser.readIgnoreWhitespace()) != this.charToFinishArray) {
-					if (this.handleSpecialChar(nextChar, parser, valueExpected, result.size())) {
-						valueExpected = true;
-						continue;
-					}
-					this.handleElement(nextChar, result, parser);
-					valueExpected = false;
-				}
-				if (valueExpected)
-					throw parser.getParseException(this.getName(), "json value",
-						String.valueOf(this.charToFinishArray));
-				return ArrayNode.valueOf(result.iterator());
-			}
-
-			@Override
-			protected String getName() {
-				return "json array";
-			}
-
-			@Override
-			protected void initialize() {
-				this.transitions.put('{', STATE.OBJECT);
-				this.transitions.put('[', STATE.ARRAY);
-				this.transitions.put('t', STATE.BOOLEAN);
-				this.transitions.put('f', STATE.BOOLEAN);
-				this.transitions.put('n', STATE.NULL);
-				this.transitions.put('-', STATE.NUMBER);
-				this.transitions.put('0', STATE.NUMBER);
-				this.transitions.put('1', STATE.NUMBER);
-				this.transitions.put('2', STATE.NUMBER);
-				this.transitions.put('3', STATE.NUMBER);
-				this.transitions.put('4', STATE.NUMBER);
-				this.transitions.put('5', STATE.NUMBER);
-				this.transitions.put('6', STATE.NUMBER);
-				this.transitions.put('7', STATE.NUMBER);
-				this.transitions.put('8', STATE.NUMBER);
-				this.transitions.put('9', STATE.NUMBER);
-				this.transitions.put('"', STATE.STRING);
-			}
-
-			private void handleElement(final int nextChar, final List<IJsonNode> result, final JsonParser parser)
-					throws JsonParseException {
-				final STATE state = this.nextState((char) nextChar);
-				if (state == null)
-					throw parser.getParseException(this.getName(),
-						"one of ['{', '[', 't', 'f', 'n', '-' , 0-9, '\"']", String.valueOf((char) nextChar));
-				final IJsonNode element = state.createJsonNode((char) nextChar,
-					parser);
-				result.add(element);
-			}
-
-			private boolean handleSpecialChar(final int nextChar, final JsonParser parser, final boolean valueExpected,
-					final int currentResultSize) throws JsonParseException {
-				if (nextChar == -1)
-					throw parser.getParseException(this.getName(),
-						String.valueOf(this.charToFinishArray),
-						"eof");
-				if ((char) nextChar == this.arrayElementSeparator) {
-					if (currentResultSize == 0 || valueExpected)
-						throw parser.getParseException(this.getName(), "json value",
-							String.valueOf(this.arrayElementSeparator));
-					return true;
-				}
-				return false;
-			}
-		},
-		STRING {
-			private final char charToFinishString = '"';
-
-			@Override
-			public IJsonNode createJsonNode(final char startChar, final JsonParser parser) throws JsonParseException {
-				final StringBuffer buffer = new StringBuffer();
-
-				for (char nextChar = (char) parser.read(); nextChar != this.charToFinishString; nextChar =
-					(char) parser.read()) {
-					if (nextChar == '\\') {
-						buffer.append(unescape(parser));
-					} else
-						buffer.append(nextChar);
-				}
-				return TextNode.valueOf(buffer.toString());
-			}
-
-			private char unescape(JsonParser parser) throws JsonParseException {
-				final char escapeChar = (char) parser.read();
-				switch (escapeChar) {
-				case '"':
-				case '\\':
-				case '/':
-					return escapeChar;
-
-				case 'b':
-					return '\b';
-				case 'f':
-					return '\f';
-				case 'n':
-					return '\n';
-				case 'r':
-					return '\r';
-				case 't':
-					return '\t';
-
-				case 'u':
-					char[] hexCode =
-					{ (char) parser.read(), (char) parser.read(), (char) parser.read(), (char) parser.read(), };
-					return (char) Integer.parseInt(String.valueOf(hexCode), ARRAY_START);
-
-				default:
-					throw parser.getParseException(getName(),
-						"a valid escape sequence \\(\" | \\ | / | b | f | n | r | t | uXXXX)",
-						String.valueOf("\\" + escapeChar));
-				}
-			}
+	/**
+	 * The maximum number of distinct field names that are cached to avoid the creation of key strings.
+	 */
+	private static final int MAX_CACHED_KEYS = 1024;
 
-			@Override
-			protected String getName() {
-				return "string value";
-			}
-		},
-		BOOLEAN {
-			private final char expectedCharTrue = 't';
+	private static final String OBJECT = "json object", ARRAY = "json array", STRING = "string value",
+			BOOLEAN = "boolean value", NUMBER = "numerical value", NULL = "null value", ROOT = "root element";
 
-			private final char[] trueChars = new char[] { 'r', 'u', 'e' };
+	private static final String VALUE_START = "one of ['{', '[', 't', 'f', 'n', '-' , 0-9, '\"']";
 
-			private final char expectedCharFalse = 'f';
+	private static final boolean[] NUMBER_CHARS = new boolean[128];
 
-			private final char[] falseChars = new char[] { 'a', 'l', 's', 'e' };
+	static {
+		for (final char ch : "-0123456789.eE+".toCharArray())
+			NUMBER_CHARS[ch] = true;
+	}
 
-			@Override
-			public IJsonNode createJsonNode(final char startChar, final JsonParser parser) throws JsonParseException {
-				final char[] expectedContentWithoutFirstChar;
-				IJsonNode result;
-				if (startChar == this.expectedCharTrue) {
-					expectedContentWithoutFirstChar = this.trueChars;
-					result = BooleanNode.TRUE;
-				} else if (startChar == this.expectedCharFalse) {
-					expectedContentWithoutFirstChar = this.falseChars;
-					result = BooleanNode.FALSE;
-				} else 
-					throw parser.getParseException(this.getName(), "one of [" + this.expectedCharTrue + ", "
-						+ this.expectedCharFalse + "]", String.valueOf(startChar));
+	private final InputStream stream;
 
-				STATE.compareWithReaderContent(expectedContentWithoutFirstChar, parser, this);
-				return result;
+	private final Reader reader;
 
-			}
+	private byte[] buffer;
 
-			@Override
-			protected String getName() {
-				return "boolean value";
-			}
-		},
-		NUMBER {
-			private final CharList allowedCharactersInNumbers = new CharArrayList(Arrays.asList('-', '0', '1', '2',
-				'3', '4', '5', '6', '7', '8', '9', '.', 'e', 'E', '+'));
-
-			private final String numberRegex = "^[-]?[0-9]*\\.?[0-9]+([eE][-+]?[0-9]+)?$";
-
-			@Override
-			public IJsonNode createJsonNode(final char startChar, final JsonParser parser) throws JsonParseException {
-				final StringBuffer buffer = new StringBuffer().append(startChar);
-				char nextChar;
-				parser.markReader();
-
-				while (this.allowedCharactersInNumbers.contains(nextChar = (char) parser.read())) {
-					parser.markReader();
-					buffer.append(nextChar);
-				}
-				parser.resetReader();
-
-				final IJsonNode number = this.parseNumber(buffer.toString());
-				if (number == null)
-					throw parser.getParseException(this.getName(), "a numerical value", buffer.toString());
-				return number;
-			}
+	private int position, limit, startOffset;
 
-			@Override
-			protected String getName() {
-				return "numerical value";
-			}
+	private long bufferOffset;
 
-			private IJsonNode parseNumber(final String value) {
-				if (value.matches(this.numberRegex)) {
-					final BigDecimal bigDec = new BigDecimal(value);
-					if (bigDec.scale() == 0) {
-						final BigInteger bigInt = bigDec.unscaledValue();
-						if (bigInt.bitLength() <= 31)
-							return IntNode.valueOf(bigInt.intValue());
-						if (bigInt.bitLength() <= 63)
-							return LongNode.valueOf(bigInt.longValue());
-						return BigIntegerNode.valueOf(bigInt);
-					}
-					return DecimalNode.valueOf(bigDec);
-				}
-				return null;
-			}
-		},
-		NULL {
-			private final char expectedStartChar = 'n';
-
-			private final char[] nullWithoutFirstChar = { 'u', 'l', 'l' };
-
-			@Override
-			public IJsonNode createJsonNode(final char startChar, final JsonParser parser) throws JsonParseException {
-				if (startChar != this.expectedStartChar)
-					throw parser.getParseException(this.getName(), String.valueOf(this.expectedStartChar),
-						String.valueOf(startChar));
-				STATE.compareWithReaderContent(this.nullWithoutFirstChar, parser, this);
-				return NullNode.getInstance();
-			}
-
-			@Override
-			protected String getName() {
-				return "null value";
-			}
-		},
-		ROOT {
-			@Override
-			public IJsonNode createJsonNode(final char startChar,
-					final JsonParser parser)
-					throws JsonParseException {
-				return MissingNode.getInstance();
-			}
-
-			@Override
-			protected String getName() {
-				return "root element";
-			}
-
-			@Override
-			protected void initialize() {
-				this.transitions.put('{', STATE.OBJECT);
-				this.transitions.put('[', STATE.ARRAY);
-				this.transitions.put('t', STATE.BOOLEAN);
-				this.transitions.put('f', STATE.BOOLEAN);
-				this.transitions.put('n', STATE.NULL);
-				this.transitions.put('-', STATE.NUMBER);
-				this.transitions.put('0', STATE.NUMBER);
-				this.transitions.put('1', STATE.NUMBER);
-				this.transitions.put('2', STATE.NUMBER);
-				this.transitions.put('3', STATE.NUMBER);
-				this.transitions.put('4', STATE.NUMBER);
-				this.transitions.put('5', STATE.NUMBER);
-				this.transitions.put('6', STATE.NUMBER);
-				this.transitions.put('7', STATE.NUMBER);
-				this.transitions.put('8', STATE.NUMBER);
-				this.transitions.put('9', STATE.NUMBER);
-				this.transitions.put('"', STATE.STRING);
-			}
-		};
+	/**
+	 * The number of bytes that did not start a new character, used to report the number of parsed characters.
+	 */
+	private long continuationBytes;
 
-		protected Char2ObjectMap<STATE> transitions;
+	private int eofReads;
 
-		private STATE() {
-			this.transitions = new Char2ObjectOpenHashMap<STATE>();
-		}
+	private char[] chars = new char[64];
 
-		/**
-		 * Initializes the transitions between the different states.
-		 */
-		public static void initializeTransitions() {
-			for (final STATE state : STATE.values())
-				state.initialize();
-		}
+	private char[] readerChars;
 
-		/**
-		 * Determines the transition that is associated with the given character and returns the resulting state or
-		 * 'null' if no such transition exists.
-		 * 
-		 * @param character
-		 *        the character that should be used to determine the transition
-		 * @return the resulting state
-		 */
-		public STATE nextState(final char character) {
-			if (this.transitions.containsKey(character))
-				return this.transitions.get(character);
-			return null;
-		}
+	private final TextNode keyBuffer = new TextNode();
 
-		private static boolean compareWithReaderContent(final char[] expected,
-				final JsonParser parser, final STATE currentState) throws JsonParseException {
-			for (final char c : expected) {
-				final char currentChar = (char) parser.read();
-				if (c != currentChar)
-					throw parser.getParseException(currentState.getName(), String.valueOf(c),
-						String.valueOf(currentChar));
-			}
-			return true;
-		}
+	private final Map<TextNode, String> keyCache = new HashMap<TextNode, String>();
 
-		/**
-		 * Creates an {@link IJsonNode} that corresponds with this state.
-		 * 
-		 * @param startChar
-		 *        the character that is responsible for entering this state.
-		 * @param parser
-		 *        the {@link JsonParser} that holds the input data
-		 * @return the created {@link IJsonNode}
-		 * @throws JsonParseException
-		 *         Should something went wrong during the parsing process, this exception will be thrown. To find out
-		 *         the reason of failure consult {@link JsonParseException#getErrorMessage()}.
-		 */
-		public abstract IJsonNode createJsonNode(char startChar,
-				JsonParser parser) throws JsonParseException;
-
-		protected abstract String getName();
-
-		protected void initialize() {
-		}
-	}
+	/**
+	 * The field names of reused objects that have not been parsed again and are removed after the respective object.
+	 * The field names of nested objects are stacked on top of the field names of the enclosing objects.
+	 */
+	private String[] staleKeys = new String[16];
 
-	private final BufferedReader reader;
+	private int numStaleKeys;
 
 	private boolean reachedEnd;
 
-	private int currentCounter;
+	private boolean firstCall = true;
 
 	private boolean skipWrappingArray;
 
@@ -461,8 +95,6 @@ public class JsonParser {
 
 	private static char ARRAY_START = '[';
 
-	private static int STEP_SIZE = 1;
-
 	private static String JSON_URL = "www.json.org";
 
 	private static String ERROR_BASE = "Couldn't parse the given input: \n";
@@ -471,62 +103,147 @@ public class JsonParser {
 		"Invalid json format at position %s (visit " + JSON_URL
 		+ " for a detailed specification).\nCurrent Token: %s.\nExpected \"%s\", but was \"%s\".";
 
-	private static String ERROR_IO = ERROR_BASE + "Couldn't access input or mark the input for reset at position %s";
+	private static String ERROR_IO = ERROR_BASE + "Couldn't access input at position %s";
 
 	/*
 	 * Constructors
 	 */
-	public JsonParser(final Reader inputStreamReader) {
-		this.reader = new BufferedReader(inputStreamReader);
-		this.initialize();
+	public JsonParser(final Reader reader) {
+		this.stream = null;
+		this.reader = reader;
+		this.buffer = new byte[BUFFER_SIZE];
+		this.readerChars = new char[BUFFER_SIZE / 3];
 	}
 
 	public JsonParser(final FSDataInputStream stream) {
-		this(new InputStreamReader(stream, Charset.forName("utf-8")));
+		this((InputStream) stream);
 	}
 
 	public JsonParser(final InputStream stream) {
-		this(new InputStreamReader(stream, Charset.forName("utf-8")));
+		this.stream = stream;
+		this.reader = null;
+		this.buffer = new byte[BUFFER_SIZE];
 	}
 
 	public JsonParser(final URL url) throws IOException {
-		this(new BufferedReader(new InputStreamReader(url.openStream())));
+		this(new InputStreamReader(url.openStream()));
 	}
 
 	public JsonParser(final String value) {
-		this(new BufferedReader(new StringReader(value)));
+		this(value.getBytes(Charset.forName("utf-8")));
+	}
+
+	public JsonParser(final byte[] bytes) {
+		this(bytes, 0, bytes.length);
+	}
+
+	/**
+	 * Initializes a JsonParser that parses the given UTF-8 encoded bytes without copying them.
+	 *
+	 * @param bytes
+	 *        the array containing the input
+	 * @param offset
+	 *        the position of the first byte
+	 * @param length
+	 *        the number of bytes to parse
+	 */
+	public JsonParser(final byte[] bytes, final int offset, final int length) {
+		this.stream = null;
+		this.reader = null;
+		this.setInput(bytes, offset, length);
 	}
 
 	/*
 	 * Provided functionality
 	 */
+	/**
+	 * Replaces the input of a parser that has been created for a byte array with the given UTF-8 encoded bytes and
+	 * resets the parsing state. The bytes are not copied.
+	 *
+	 * @param bytes
+	 *        the array containing the input
+	 * @param offset
+	 *        the position of the first byte
+	 * @param length
+	 *        the number of bytes to parse
+	 */
+	public void setInput(final byte[] bytes, final int offset, final int length) {
+		if (this.stream != null || this.reader != null)
+			throw new IllegalStateException("Parser reads from a stream");
+		this.buffer = bytes;
+		this.position = this.startOffset = offset;
+		this.limit = offset + length;
+		this.bufferOffset = this.continuationBytes = this.eofReads = 0;
+		this.reachedEnd = false;
+		this.firstCall = true;
+	}
+
 	/**
 	 * Parses the next possible element contained in the input and creates a corresponding {@link IJsonNode}. To specify
 	 * multiple elements in one input they must be separated with ','. After reaching the end of the input, each
 	 * subsequent call to this method will return a {@link MissingNode}.
-	 * 
+	 *
 	 * @return the parsed element as an {@link IJsonNode}
 	 * @throws JsonParseException
 	 *         Should something went wrong during the parsing process, this exception will be thrown. To find out the
 	 *         reason of failure consult {@link JsonParseException#getErrorMessage()}.
 	 */
 	public IJsonNode readValueAsTree() throws JsonParseException {
-		final boolean firstCall = this.currentCounter == 0;
+		return this.readValueAsTree(null);
+	}
+
+	/**
+	 * Parses the next possible element like {@link #readValueAsTree()} but reuses the given node and its children
+	 * wherever the parsed value has the same structure. Nodes that are not of the exact type of the parsed value are
+	 * replaced.
+	 *
+	 * @param reuse
+	 *        the node to reuse or null
+	 * @return the parsed element, which may be the given node
+	 * @throws JsonParseException
+	 *         Should something went wrong during the parsing process, this exception will be thrown.
+	 */
+	public IJsonNode readValueAsTree(final IJsonNode reuse) throws JsonParseException {
+		return this.readValueAsTree(reuse, ProjectionPaths.ALL);
+	}
+
+	/**
+	 * Parses the next possible element like {@link #readValueAsTree(IJsonNode)} but only creates the nodes at the
+	 * given paths. All other values are skipped without creating nodes: object fields are omitted and array elements
+	 * are replaced by {@link MissingNode}s.
+	 *
+	 * @param reuse
+	 *        the node to reuse or null
+	 * @param paths
+	 *        the paths that are needed
+	 * @return the parsed element, which may be the given node
+	 * @throws JsonParseException
+	 *         Should something went wrong during the parsing process, this exception will be thrown.
+	 */
+	public IJsonNode readValueAsTree(final IJsonNode reuse, final ProjectionPaths paths) throws JsonParseException {
+		final boolean firstCall = this.firstCall;
+		this.firstCall = false;
 		if (this.checkEnd() && !this.skipWrappingArray)
 			return MissingNode.getInstance();
 		int currentChar = this.readIgnoreWhitespace();
 		if (this.checkForEOF(currentChar))
-			return this.getRoot().createJsonNode((char) currentChar, this);
-		if (firstCall && this.skipWrappingArray && (char) currentChar == ARRAY_START)
+			return MissingNode.getInstance();
+		if (firstCall && this.skipWrappingArray && currentChar == ARRAY_START) {
 			currentChar = this.readIgnoreWhitespace();
-		final IJsonNode result = this.parseElement(currentChar);
+			if (currentChar == ']' || this.checkForEOF(currentChar)) {
+				this.reachedEnd = true;
+				return MissingNode.getInstance();
+			}
+		}
+		this.numStaleKeys = 0;
+		final IJsonNode result = this.parseValue(currentChar, reuse, ROOT, paths.isComplete() ? null : paths);
 		this.finishCurrentParsingStep();
 		return result;
 	}
 
 	/**
 	 * Checks if the whole input is already parsed.
-	 * 
+	 *
 	 * @return either the whole input is already parsed or not
 	 */
 	public boolean checkEnd() {
@@ -535,55 +252,492 @@ public class JsonParser {
 
 	/**
 	 * Returns the number of characters already parsed.
-	 * 
+	 *
 	 * @return the number of characters
 	 */
 	public int getNumberOfParsedChars() {
-		return this.currentCounter - 1;
+		return (int) (this.bufferOffset + this.position - this.startOffset - this.continuationBytes) +
+			this.eofReads - 1;
 	}
 
 	/**
 	 * Closes the stream to the input of this parser.
-	 * 
+	 *
 	 * @throws IOException
 	 */
 	public void close() throws IOException {
-		this.reader.close();
+		if (this.stream != null)
+			this.stream.close();
+		if (this.reader != null)
+			this.reader.close();
+	}
+
+	public void setWrappingArraySkipping(final boolean skipWrappingArray) {
+		this.skipWrappingArray = skipWrappingArray;
 	}
 
 	/*
 	 * private
 	 */
-	private void markReader() throws JsonParseException {
-		try {
-			this.reader.mark(JsonParser.STEP_SIZE);
-		} catch (final IOException e) {
-			throw this.getIOException();
+	/**
+	 * Parses the value starting with the given character. Only the given paths are parsed or the complete value if
+	 * paths is null.
+	 */
+	private IJsonNode parseValue(final int currentChar, final IJsonNode reuse, final String token,
+			final ProjectionPaths paths) throws JsonParseException {
+		switch (currentChar) {
+		case '{':
+			return this.parseObject(reuse, paths != null && paths.hasFields() ? paths : null);
+		case '[':
+			if (paths != null && paths.hasElements())
+				return this.parseArrayElements(paths);
+			return this.parseArray(reuse);
+		case '"':
+			return this.parseString(reuse);
+		case 't':
+			this.expect("rue", BOOLEAN);
+			return BooleanNode.TRUE;
+		case 'f':
+			this.expect("alse", BOOLEAN);
+			return BooleanNode.FALSE;
+		case 'n':
+			this.expect("ull", NULL);
+			return NullNode.getInstance();
+		case '-':
+		case '0':
+		case '1':
+		case '2':
+		case '3':
+		case '4':
+		case '5':
+		case '6':
+		case '7':
+		case '8':
+		case '9':
+			return this.parseNumber(currentChar, reuse);
+		default:
+			throw this.getParseException(token, VALUE_START, currentChar);
 		}
 	}
 
-	private void resetReader() throws JsonParseException {
-		try {
-			this.reader.reset();
-		} catch (final IOException e) {
-			throw this.getIOException();
+	private IJsonNode parseObject(final IJsonNode reuse, final ProjectionPaths paths) throws JsonParseException {
+		final ObjectNode object;
+		if (reuse != null && reuse.getClass() == ObjectNode.class)
+			object = (ObjectNode) reuse;
+		else
+			object = new ObjectNode();
+
+		int nextChar = this.readIgnoreWhitespace();
+		if (nextChar == '}') {
+			object.clear();
+			return object;
 		}
-		this.currentCounter = this.currentCounter - JsonParser.STEP_SIZE;
+
+		// collect the existing fields first as the nested values stack their fields on top of them
+		final int staleKeysStart = this.numStaleKeys;
+		this.pushStaleKeys(object);
+		final int staleKeysEnd = this.numStaleKeys;
+		while (true) {
+			if (nextChar != '"')
+				throw this.getParseException(OBJECT, "key must be a string", nextChar);
+			final String key = this.parseKey();
+			this.removeStaleKey(staleKeysStart, staleKeysEnd, key);
+
+			if ((nextChar = this.readIgnoreWhitespace()) != ':')
+				throw this.getParseException(OBJECT, ":", nextChar);
+			nextChar = this.readIgnoreWhitespace();
+			if (nextChar == -1 || nextChar == '}' || nextChar == ',')
+				throw this.getParseException(OBJECT, "json value expected", nextChar);
+
+			final ProjectionPaths fieldPaths = paths == null ? ProjectionPaths.ALL : paths.getField(key);
+			if (fieldPaths == null) {
+				// field is not projected
+				this.skipValue(nextChar, OBJECT);
+				object.remove(key);
+			} else {
+				final IJsonNode oldValue = object.get(key);
+				final IJsonNode value = this.parseValue(nextChar, oldValue, OBJECT,
+					fieldPaths.isComplete() ? null : fieldPaths);
+				if (value != oldValue)
+					object.put(key, value);
+			}
+
+			nextChar = this.readIgnoreWhitespace();
+			if (nextChar == '}')
+				break;
+			if (nextChar != ELEMENT_SEPARATOR)
+				throw this.getParseException(OBJECT, ", or }", nextChar);
+			nextChar = this.readIgnoreWhitespace();
+		}
+
+		for (int index = staleKeysStart; index < staleKeysEnd; index++)
+			if (this.staleKeys[index] != null) {
+				object.remove(this.staleKeys[index]);
+				this.staleKeys[index] = null;
+			}
+		this.numStaleKeys = staleKeysStart;
+		return object;
 	}
 
-	private void initialize() {
-		STATE.initializeTransitions();
-		this.currentCounter = 0;
-		this.reachedEnd = false;
+	private void pushStaleKeys(final ObjectNode object) {
+		final int size = object.size();
+		if (size == 0)
+			return;
+		final int requiredLength = this.numStaleKeys + size;
+		if (requiredLength > this.staleKeys.length)
+			this.staleKeys = Arrays.copyOf(this.staleKeys, Math.max(2 * this.staleKeys.length, requiredLength));
+		for (final String key : object.getFieldNames())
+			this.staleKeys[this.numStaleKeys++] = key;
+	}
+
+	private void removeStaleKey(final int start, final int end, final String key) {
+		for (int index = start; index < end; index++)
+			if (key.equals(this.staleKeys[index])) {
+				this.staleKeys[index] = null;
+				return;
+			}
+	}
+
+	@SuppressWarnings("unchecked")
+	private IJsonNode parseArray(final IJsonNode reuse) throws JsonParseException {
+		final ArrayNode<IJsonNode> array;
+		if (reuse != null && reuse.getClass() == ArrayNode.class)
+			array = (ArrayNode<IJsonNode>) reuse;
+		else
+			array = new ArrayNode<IJsonNode>();
+
+		int size = 0;
+		int nextChar = this.readIgnoreWhitespace();
+		if (nextChar != ']')
+			while (true) {
+				if (nextChar == -1 || nextChar == ',' || nextChar == ']')
+					throw this.getParseException(ARRAY, "json value", nextChar);
+
+				final int oldSize = array.size();
+				final IJsonNode oldValue = size < oldSize ? array.get(size) : null;
+				final IJsonNode value = this.parseValue(nextChar, oldValue, ARRAY, null);
+				if (size >= oldSize)
+					array.add(value);
+				else if (value != oldValue)
+					array.set(size, value);
+				size++;
+
+				nextChar = this.readIgnoreWhitespace();
+				if (nextChar == ']')
+					break;
+				if (nextChar != ELEMENT_SEPARATOR)
+					throw this.getParseException(ARRAY, ", or ]", nextChar);
+				nextChar = this.readIgnoreWhitespace();
+			}
+
+		for (int index = array.size() - 1; index >= size; index--)
+			array.remove(index);
+		return array;
+	}
+
+	/**
+	 * Parses only the needed elements of an array into a new array. The positions of the remaining elements are
+	 * filled with {@link MissingNode}s.
+	 */
+	private IJsonNode parseArrayElements(final ProjectionPaths paths) throws JsonParseException {
+		final ArrayNode<IJsonNode> array = new ArrayNode<IJsonNode>();
+		int nextChar = this.readIgnoreWhitespace();
+		if (nextChar != ']')
+			for (int index = 0;; index++) {
+				if (nextChar == -1 || nextChar == ',' || nextChar == ']')
+					throw this.getParseException(ARRAY, "json value", nextChar);
+
+				ProjectionPaths elementPaths = paths.getElement(index);
+				if (elementPaths == null)
+					this.skipValue(nextChar, ARRAY);
+				else
+					array.set(index, this.parseValue(nextChar, null, ARRAY,
+						elementPaths.isComplete() ? null : elementPaths));
+
+				nextChar = this.readIgnoreWhitespace();
+				if (nextChar == ']')
+					break;
+				if (nextChar != ELEMENT_SEPARATOR)
+					throw this.getParseException(ARRAY, ", or ]", nextChar);
+				nextChar = this.readIgnoreWhitespace();
+			}
+		return array;
+	}
+
+	/**
+	 * Skips the value starting with the given character without creating nodes. Nested values are only checked for
+	 * balanced brackets.
+	 */
+	private void skipValue(final int firstChar, final String token) throws JsonParseException {
+		if (firstChar == '"') {
+			this.skipString();
+			return;
+		}
+		if (firstChar != '{' && firstChar != '[') {
+			// scalars are cheap to parse
+			this.parseValue(firstChar, null, token, null);
+			return;
+		}
+
+		for (int depth = 1; depth > 0;) {
+			final int nextChar = this.read();
+			switch (nextChar) {
+			case -1:
+				throw this.getParseException(firstChar == '{' ? OBJECT : ARRAY, firstChar == '{' ? "}" : "]",
+					nextChar);
+			case '"':
+				this.skipString();
+				break;
+			case '{':
+			case '[':
+				depth++;
+				break;
+			case '}':
+			case ']':
+				depth--;
+				break;
+			}
+		}
 	}
 
-	private IJsonNode parseElement(final int currentChar) throws JsonParseException {
-		final STATE nextState = this.getRoot().nextState(
-			(char) currentChar);
-		if (nextState == null)
-			throw getParseException(this.getRoot().getName(), "one of ['{', '[', 't', 'f', 'n', 0-9, '\"', '-']",
-				String.valueOf((char) currentChar));
-		return nextState.createJsonNode((char) currentChar, this);
+	private void skipString() throws JsonParseException {
+		while (true) {
+			final byte[] buffer = this.buffer;
+			int pos = this.position;
+			final int limit = this.limit;
+			byte b = 0;
+			while (pos < limit && (b = buffer[pos]) != '"' && b != '\\') {
+				// keep track of the number of characters; four-byte sequences are decoded to two chars
+				if ((b & 0xC0) == 0x80)
+					this.continuationBytes++;
+				else if ((b & 0xF8) == 0xF0)
+					this.continuationBytes--;
+				pos++;
+			}
+			this.position = pos;
+
+			if (pos == limit) {
+				if (!this.fill())
+					throw this.getParseException(STRING, "\"", -1);
+				continue;
+			}
+
+			this.position++;
+			if (b == '"')
+				return;
+			// skip the escaped character; the digits of unicode escapes are skipped as regular characters
+			if (this.read() == -1)
+				throw this.getParseException(STRING, "\"", -1);
+		}
+	}
+
+	private IJsonNode parseString(final IJsonNode reuse) throws JsonParseException {
+		final TextNode text;
+		if (reuse != null && reuse.getClass() == TextNode.class && reuse != TextNode.EMPTY_STRING)
+			text = (TextNode) reuse;
+		else
+			text = new TextNode();
+		final int length = this.decodeString();
+		text.setValue(this.chars, 0, length);
+		return text;
+	}
+
+	private String parseKey() throws JsonParseException {
+		final int length = this.decodeString();
+		this.keyBuffer.setValue(this.chars, 0, length);
+		String key = this.keyCache.get(this.keyBuffer);
+		if (key == null) {
+			key = new String(this.chars, 0, length);
+			if (this.keyCache.size() < MAX_CACHED_KEYS)
+				this.keyCache.put(new TextNode(key), key);
+		}
+		return key;
+	}
+
+	/**
+	 * Decodes the string at the current position into {@link #chars} and returns its length. The opening quote has
+	 * already been consumed.
+	 */
+	private int decodeString() throws JsonParseException {
+		int length = 0;
+		while (true) {
+			// fast path: copy ASCII runs directly from the buffer
+			final byte[] buffer = this.buffer;
+			int pos = this.position;
+			final int limit = this.limit;
+			if (limit - pos > this.chars.length - length)
+				this.ensureCharCapacity(length + limit - pos);
+			final char[] chars = this.chars;
+			byte b = 0;
+			while (pos < limit && (b = buffer[pos]) >= 0x20 && b != '"' && b != '\\') {
+				chars[length++] = (char) b;
+				pos++;
+			}
+			this.position = pos;
+
+			if (pos == limit) {
+				if (!this.fill())
+					throw this.getParseException(STRING, "\"", -1);
+				continue;
+			}
+
+			this.position++;
+			if (b == '"')
+				return length;
+
+			this.ensureCharCapacity(length + 2);
+			if (b == '\\')
+				this.chars[length++] = this.unescape();
+			else if (b >= 0)
+				// control characters are not allowed by the specification but have been accepted before
+				this.chars[length++] = (char) b;
+			else
+				length = this.decodeMultiByteChar(b & 0xFF, length);
+		}
+	}
+
+	private int decodeMultiByteChar(final int firstByte, int length) throws JsonParseException {
+		final int additionalBytes;
+		int codePoint;
+		if (firstByte >= 0xF0) {
+			additionalBytes = 3;
+			codePoint = firstByte & 0x07;
+		} else if (firstByte >= 0xE0) {
+			additionalBytes = 2;
+			codePoint = firstByte & 0x0F;
+		} else if (firstByte >= 0xC0) {
+			additionalBytes = 1;
+			codePoint = firstByte & 0x1F;
+		} else
+			throw this.getParseException(STRING, "a valid utf-8 sequence", firstByte);
+
+		for (int index = 0; index < additionalBytes; index++) {
+			final int nextByte = this.read();
+			if ((nextByte & 0xC0) != 0x80)
+				throw this.getParseException(STRING, "a valid utf-8 sequence", nextByte);
+			codePoint = codePoint << 6 | nextByte & 0x3F;
+		}
+
+		if (codePoint >= Character.MIN_SUPPLEMENTARY_CODE_POINT) {
+			length += Character.toChars(codePoint, this.chars, length);
+			this.continuationBytes += additionalBytes - 1;
+		} else {
+			this.chars[length++] = (char) codePoint;
+			this.continuationBytes += additionalBytes;
+		}
+		return length;
+	}
+
+	private char unescape() throws JsonParseException {
+		final int escapeChar = this.read();
+		switch (escapeChar) {
+		case '"':
+		case '\\':
+		case '/':
+			return (char) escapeChar;
+
+		case 'b':
+			return '\b';
+		case 'f':
+			return '\f';
+		case 'n':
+			return '\n';
+		case 'r':
+			return '\r';
+		case 't':
+			return '\t';
+
+		case 'u':
+			int value = 0;
+			for (int index = 0; index < 4; index++) {
+				final int digit = Character.digit(this.read(), 16);
+				if (digit == -1)
+					throw this.getParseException(STRING, "a hexadecimal digit", escapeChar);
+				value = value << 4 | digit;
+			}
+			return (char) value;
+
+		default:
+			throw this.getParseException(STRING,
+				"a valid escape sequence \\(\" | \\ | / | b | f | n | r | t | uXXXX)",
+				"\\" + (escapeChar == -1 ? "eof" : String.valueOf((char) escapeChar)));
+		}
+	}
+
+	private IJsonNode parseNumber(final int startChar, final IJsonNode reuse) throws JsonParseException {
+		this.chars[0] = (char) startChar;
+		int length = 1;
+		while (this.position < this.limit || this.fill()) {
+			final int nextChar = this.buffer[this.position];
+			if (nextChar < 0 || !NUMBER_CHARS[nextChar])
+				break;
+			this.position++;
+			this.ensureCharCapacity(length + 1);
+			this.chars[length++] = (char) nextChar;
+		}
+
+		// fast path: up to 18 digits always fit into a long
+		final int firstDigit = startChar == '-' ? 1 : 0;
+		if (length > firstDigit && length - firstDigit <= 18 && this.isIntegral(firstDigit, length)) {
+			long value = 0;
+			for (int index = firstDigit; index < length; index++)
+				value = value * 10 + this.chars[index] - '0';
+			return this.createIntegralNode(firstDigit == 1 ? -value : value, reuse);
+		}
+
+		final String number = new String(this.chars, 0, length);
+		if (!number.matches("^[-]?[0-9]*\\.?[0-9]+([eE][-+]?[0-9]+)?$"))
+			throw this.getParseException(NUMBER, "a numerical value", number);
+		final BigDecimal bigDec = new BigDecimal(number);
+		if (bigDec.scale() == 0) {
+			final BigInteger bigInt = bigDec.unscaledValue();
+			if (bigInt.bitLength() <= 63)
+				return this.createIntegralNode(bigInt.longValue(), reuse);
+			return BigIntegerNode.valueOf(bigInt);
+		}
+		if (reuse != null && reuse.getClass() == DecimalNode.class) {
+			((DecimalNode) reuse).setValue(bigDec);
+			return reuse;
+		}
+		return DecimalNode.valueOf(bigDec);
+	}
+
+	private boolean isIntegral(final int start, final int end) {
+		for (int index = start; index < end; index++)
+			if (this.chars[index] < '0' || this.chars[index] > '9')
+				return false;
+		return true;
+	}
+
+	private IJsonNode createIntegralNode(final long value, final IJsonNode reuse) {
+		if (Integer.MIN_VALUE <= value && value <= Integer.MAX_VALUE) {
+			if (reuse != null && reuse.getClass() == IntNode.class) {
+				((IntNode) reuse).setValue((int) value);
+				return reuse;
+			}
+			return IntNode.valueOf((int) value);
+		}
+		if (reuse != null && reuse.getClass() == LongNode.class) {
+			((LongNode) reuse).setValue(value);
+			return reuse;
+		}
+		return LongNode.valueOf(value);
+	}
+
+	private void expect(final String remainingChars, final String token) throws JsonParseException {
+		for (int index = 0; index < remainingChars.length(); index++) {
+			final int currentChar = this.read();
+			if (currentChar != remainingChars.charAt(index))
+				throw this.getParseException(token, String.valueOf(remainingChars.charAt(index)), currentChar);
+		}
+	}
+
+	private void ensureCharCapacity(final int capacity) {
+		if (capacity > this.chars.length) {
+			final char[] chars = new char[Math.max(capacity, 2 * this.chars.length)];
+			System.arraycopy(this.chars, 0, chars, 0, this.chars.length);
+			this.chars = chars;
+		}
 	}
 
 	private boolean checkForEOF(final int currentChar) {
@@ -595,38 +749,84 @@ public class JsonParser {
 	}
 
 	private void finishCurrentParsingStep() throws JsonParseException {
-		int currentChar;
-		currentChar = this.readIgnoreWhitespace();
+		final int currentChar = this.readIgnoreWhitespace();
 		if (currentChar == -1)
 			this.reachedEnd = true;
-		else if ((char) currentChar != JsonParser.ELEMENT_SEPARATOR)
+		else if (currentChar != ELEMENT_SEPARATOR)
 			if (this.skipWrappingArray)
 				this.reachedEnd = true;
 			else
-				throw getParseException(this.getRoot().getName(), String.valueOf(ELEMENT_SEPARATOR) + " or eof",
-					String.valueOf((char) currentChar));
+				throw this.getParseException(ROOT, String.valueOf(ELEMENT_SEPARATOR) + " or eof", currentChar);
 	}
 
 	private int readIgnoreWhitespace() throws JsonParseException {
 		int nextChar = this.read();
-		while (Character.isWhitespace((char) nextChar) && nextChar != -1)
+		while (nextChar != -1 && nextChar <= ' ' && Character.isWhitespace(nextChar))
 			nextChar = this.read();
 		return nextChar;
 	}
 
 	private int read() throws JsonParseException {
-		int character;
+		if (this.position == this.limit && !this.fill()) {
+			this.eofReads++;
+			return -1;
+		}
+		return this.buffer[this.position++] & 0xFF;
+	}
+
+	/**
+	 * Reads the next block of the input into the buffer.
+	 *
+	 * @return false if the end of the input has been reached
+	 */
+	private boolean fill() throws JsonParseException {
 		try {
-			character = this.reader.read();
+			int read;
+			if (this.stream != null)
+				read = this.stream.read(this.buffer, 0, this.buffer.length);
+			else if (this.reader != null)
+				read = this.encodeChars();
+			else
+				return false;
+			if (read <= 0)
+				return false;
+			this.bufferOffset += this.limit - this.startOffset;
+			this.startOffset = this.position = 0;
+			this.limit = read;
+			return true;
 		} catch (final IOException e) {
 			throw this.getIOException();
 		}
-		this.currentCounter++;
-		return character;
 	}
 
-	private STATE getRoot() {
-		return STATE.ROOT;
+	/**
+	 * Encodes the next chars of the reader into the buffer. Each char is encoded individually, such that surrogates
+	 * are decoded to the same chars again.
+	 */
+	private int encodeChars() throws IOException {
+		final int read = this.reader.read(this.readerChars, 0, this.readerChars.length);
+		final byte[] buffer = this.buffer;
+		int length = 0;
+		for (int index = 0; index < read; index++) {
+			final char ch = this.readerChars[index];
+			if (ch < 0x80)
+				buffer[length++] = (byte) ch;
+			else if (ch < 0x800) {
+				buffer[length++] = (byte) (0xC0 | ch >> 6);
+				buffer[length++] = (byte) (0x80 | ch & 0x3F);
+			} else {
+				buffer[length++] = (byte) (0xE0 | ch >> 12);
+				buffer[length++] = (byte) (0x80 | ch >> 6 & 0x3F);
+				buffer[length++] = (byte) (0x80 | ch & 0x3F);
+			}
+		}
+		return read < 0 ? read : length;
+	}
+
+	private JsonParseException getParseException(final String currentToken, final String expectedValue,
+			final int currentChar) {
+		return this.getParseException(currentToken, expectedValue,
+			currentChar == -1 ? "eof" : String.valueOf((char) currentChar));
 	}
 
 	private JsonParseException getParseException(final String currentToken, final String expectedValue,
@@ -638,8 +838,4 @@ public class JsonParser {
 	private JsonParseException getIOException() {
 		return new JsonParseException(String.format(JsonParser.ERROR_IO, this.getNumberOfParsedChars()));
 	}
-
-	public void setWrappingArraySkipping(final boolean skipWrappingArray) {
-		this.skipWrappingArray = skipWrappingArray;
-	}
 }
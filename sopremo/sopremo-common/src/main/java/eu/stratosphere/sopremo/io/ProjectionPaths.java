@@ -0,0 +1,271 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010-2013 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+package eu.stratosphere.sopremo.io;
+
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Object2ObjectMap;
+import it.unimi.dsi.fastutil.objects.Object2ObjectOpenHashMap;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import eu.stratosphere.sopremo.AbstractSopremoType;
+import eu.stratosphere.sopremo.expressions.AndExpression;
+import eu.stratosphere.sopremo.expressions.ArithmeticExpression;
+import eu.stratosphere.sopremo.expressions.ArrayAccess;
+import eu.stratosphere.sopremo.expressions.ArrayCreation;
+import eu.stratosphere.sopremo.expressions.ComparativeExpression;
+import eu.stratosphere.sopremo.expressions.ConstantExpression;
+import eu.stratosphere.sopremo.expressions.ElementInSetExpression;
+import eu.stratosphere.sopremo.expressions.EvaluationExpression;
+import eu.stratosphere.sopremo.expressions.EvaluationExpression.ValueExpression;
+import eu.stratosphere.sopremo.expressions.FunctionCall;
+import eu.stratosphere.sopremo.expressions.InputSelection;
+import eu.stratosphere.sopremo.expressions.ObjectAccess;
+import eu.stratosphere.sopremo.expressions.ObjectCreation;
+import eu.stratosphere.sopremo.expressions.OrExpression;
+import eu.stratosphere.sopremo.expressions.PathSegmentExpression;
+import eu.stratosphere.sopremo.expressions.TernaryExpression;
+import eu.stratosphere.sopremo.expressions.UnaryExpression;
+
+/**
+ * The tree of object fields and array elements of an input value that are accessed by a projection. Input formats
+ * use the tree to skip the parts of a record that cannot influence the projected value.<br>
+ * A node is complete if the whole value at the corresponding path is needed. Otherwise, only the values at the given
+ * fields and elements are needed; all other fields may be omitted and all other array elements may be replaced with
+ * {@link eu.stratosphere.sopremo.type.MissingNode}s.
+ *
+ * @author Arvid Heise
+ */
+public class ProjectionPaths extends AbstractSopremoType {
+	/**
+	 * Paths that access the complete value.
+	 */
+	public static final ProjectionPaths ALL = new ProjectionPaths(true);
+
+	/**
+	 * Expressions that evaluate all their children on their own input. Subclasses are not included as they may
+	 * evaluate the input differently.
+	 */
+	private static final Set<Class<? extends EvaluationExpression>> TRANSPARENT_EXPRESSIONS =
+		new HashSet<Class<? extends EvaluationExpression>>();
+
+	static {
+		Collections.<Class<? extends EvaluationExpression>> addAll(TRANSPARENT_EXPRESSIONS, ObjectCreation.class,
+			ArrayCreation.class, ConstantExpression.class, FunctionCall.class, ArithmeticExpression.class,
+			ComparativeExpression.class, AndExpression.class, OrExpression.class, UnaryExpression.class,
+			TernaryExpression.class, ElementInSetExpression.class);
+	}
+
+	private boolean complete;
+
+	private final Object2ObjectMap<String, ProjectionPaths> fields =
+		new Object2ObjectOpenHashMap<String, ProjectionPaths>();
+
+	private final Int2ObjectMap<ProjectionPaths> elements = new Int2ObjectOpenHashMap<ProjectionPaths>();
+
+	private ProjectionPaths(boolean complete) {
+		this.complete = complete;
+	}
+
+	/**
+	 * Derives the paths that are accessed by the given projection.
+	 *
+	 * @param projection
+	 *        the projection that is applied to each input value
+	 * @return the accessed paths, which may be {@link #ALL}
+	 */
+	public static ProjectionPaths of(EvaluationExpression projection) {
+		if (projection == null || projection instanceof ValueExpression)
+			return ALL;
+
+		final ProjectionPaths paths = new ProjectionPaths(false);
+		paths.collect(projection);
+		return paths.complete ? ALL : paths;
+	}
+
+	/**
+	 * Returns true if the whole value is needed.
+	 *
+	 * @return true if the whole value is needed
+	 */
+	public boolean isComplete() {
+		return this.complete;
+	}
+
+	/**
+	 * Returns true if specific object fields are needed.
+	 *
+	 * @return true if specific object fields are needed
+	 */
+	public boolean hasFields() {
+		return !this.complete && !this.fields.isEmpty();
+	}
+
+	/**
+	 * Returns true if specific array elements are needed.
+	 *
+	 * @return true if specific array elements are needed
+	 */
+	public boolean hasElements() {
+		return !this.complete && !this.elements.isEmpty();
+	}
+
+	/**
+	 * Returns the paths below the given field or null if the field is not needed.
+	 *
+	 * @param fieldName
+	 *        the name of the field
+	 * @return the paths below the field or null
+	 */
+	public ProjectionPaths getField(String fieldName) {
+		if (this.complete)
+			return ALL;
+		return this.fields.get(fieldName);
+	}
+
+	/**
+	 * Returns the paths below the given array element or null if the element is not needed.
+	 *
+	 * @param index
+	 *        the index of the element
+	 * @return the paths below the element or null
+	 */
+	public ProjectionPaths getElement(int index) {
+		if (this.complete)
+			return ALL;
+		return this.elements.get(index);
+	}
+
+	private void collect(EvaluationExpression expression) {
+		if (this.complete)
+			return;
+
+		if (expression instanceof PathSegmentExpression) {
+			this.collectPath((PathSegmentExpression) expression);
+			return;
+		}
+
+		if (!isTransparent(expression)) {
+			// the expression may use the input in an arbitrary way
+			this.complete = true;
+			return;
+		}
+
+		for (final EvaluationExpression child : expression)
+			this.collect(child);
+	}
+
+	private void collectPath(PathSegmentExpression path) {
+		// unroll the path from the input to the outermost segment
+		final List<PathSegmentExpression> segments = new ArrayList<PathSegmentExpression>();
+		EvaluationExpression current = path;
+		while (!(current instanceof ValueExpression) && current instanceof PathSegmentExpression) {
+			segments.add((PathSegmentExpression) current);
+			current = ((PathSegmentExpression) current).getInputExpression();
+		}
+
+		// path on a calculated value; the segments only navigate within the calculated value
+		if (!(current instanceof ValueExpression)) {
+			this.collect(current);
+			for (final PathSegmentExpression segment : segments)
+				if (!isPureSegment(segment) && accessesInput(segment, segment.getInputExpression()))
+					this.complete = true;
+			return;
+		}
+
+		ProjectionPaths paths = this;
+		for (int index = segments.size() - 1; index >= 0 && !paths.complete; index--) {
+			final PathSegmentExpression segment = segments.get(index);
+			if (segment instanceof ObjectAccess)
+				paths = paths.addField(((ObjectAccess) segment).getField());
+			else if (segment instanceof InputSelection)
+				paths = paths.addElement(((InputSelection) segment).getIndex());
+			else if (segment instanceof ArrayAccess && !((ArrayAccess) segment).isSelectingRange() &&
+				((ArrayAccess) segment).getStartIndex() >= 0)
+				paths = paths.addElement(((ArrayAccess) segment).getStartIndex());
+			else
+				// ranges, projections, and other segments need the complete value at the current path
+				break;
+		}
+		paths.complete = true;
+	}
+
+	private ProjectionPaths addField(String fieldName) {
+		ProjectionPaths paths = this.fields.get(fieldName);
+		if (paths == null)
+			this.fields.put(fieldName, paths = new ProjectionPaths(false));
+		return paths;
+	}
+
+	private ProjectionPaths addElement(int index) {
+		ProjectionPaths paths = this.elements.get(index);
+		if (paths == null)
+			this.elements.put(index, paths = new ProjectionPaths(false));
+		return paths;
+	}
+
+	private static boolean isPureSegment(PathSegmentExpression segment) {
+		return segment instanceof ObjectAccess || segment instanceof InputSelection ||
+			segment instanceof ArrayAccess;
+	}
+
+	private static boolean isTransparent(EvaluationExpression expression) {
+		return TRANSPARENT_EXPRESSIONS.contains(expression.getClass());
+	}
+
+	private static boolean accessesInput(EvaluationExpression expression, EvaluationExpression ignoredChild) {
+		if (expression instanceof ValueExpression || expression instanceof InputSelection)
+			return true;
+		for (final EvaluationExpression child : expression)
+			if (child != ignoredChild && accessesInput(child, null))
+				return true;
+		return false;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see eu.stratosphere.sopremo.ISopremoType#appendAsString(java.lang.Appendable)
+	 */
+	@Override
+	public void appendAsString(Appendable appendable) throws IOException {
+		if (this.complete) {
+			appendable.append("*");
+			return;
+		}
+		appendable.append("{");
+		boolean first = true;
+		for (final Object2ObjectMap.Entry<String, ProjectionPaths> field : this.fields.object2ObjectEntrySet()) {
+			if (!first)
+				appendable.append(", ");
+			first = false;
+			appendable.append(field.getKey()).append(": ");
+			field.getValue().appendAsString(appendable);
+		}
+		for (final Int2ObjectMap.Entry<ProjectionPaths> element : this.elements.int2ObjectEntrySet()) {
+			if (!first)
+				appendable.append(", ");
+			first = false;
+			appendable.append("[").append(String.valueOf(element.getIntKey())).append("]: ");
+			element.getValue().appendAsString(appendable);
+		}
+		appendable.append("}");
+	}
+}
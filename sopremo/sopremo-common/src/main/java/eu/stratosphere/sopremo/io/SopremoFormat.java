@@ -29,6 +29,7 @@ import eu.stratosphere.nephele.fs.FSDataOutputStream;
 import eu.stratosphere.nephele.fs.FileInputSplit;
 import eu.stratosphere.nephele.fs.FileStatus;
 import eu.stratosphere.nephele.fs.FileSystem;
+import eu.stratosphere.nephele.fs.LineReader;
 import eu.stratosphere.nephele.fs.Path;
 import eu.stratosphere.nephele.template.InputSplit;
 import eu.stratosphere.pact.common.io.statistics.BaseStatistics;
@@ -411,6 +412,8 @@ public abstract class SopremoFormat extends ConfigurableSopremoType {
 
 		private EvaluationExpression projection;
 
+		private transient ProjectionPaths projectionPaths = ProjectionPaths.ALL;
+
 		/**
 		 * Returns the encoding.
 		 * 
@@ -466,6 +469,73 @@ public abstract class SopremoFormat extends ConfigurableSopremoType {
 			return BaseStatistics.AVG_RECORD_BYTES_UNKNOWN;
 		}
 
+		/**
+		 * Estimates the average number of bytes per line by sampling lines at equidistant positions of the given
+		 * files. Formats with newline-delimited records may use this method to implement
+		 * {@link #getAverageRecordBytes(FileSystem, ArrayList, long)}.
+		 * 
+		 * @param fs
+		 *        the file system of the files
+		 * @param files
+		 *        the files to sample
+		 * @param fileSize
+		 *        the total size of all files
+		 * @param maxSamples
+		 *        the maximum number of lines to sample
+		 * @return the estimated average line width including the line break
+		 */
+		protected float getAverageLineBytes(FileSystem fs, ArrayList<FileStatus> files, long fileSize, int maxSamples)
+				throws IOException {
+			// make the samples small for very small files
+			int numSamples = Math.min(maxSamples, (int) (fileSize / 1024));
+			if (numSamples < 2)
+				numSamples = 2;
+
+			long offset = 0;
+			long bytes = 0; // one byte for the line-break
+			long stepSize = fileSize / numSamples;
+
+			int fileNum = 0;
+			int samplesTaken = 0;
+
+			// take the samples
+			for (int sampleNum = 0; sampleNum < numSamples && fileNum < files.size(); sampleNum++) {
+				FileStatus currentFile = files.get(fileNum);
+				FSDataInputStream inStream = null;
+
+				try {
+					inStream = fs.open(currentFile.getPath());
+					LineReader lineReader = new LineReader(inStream, offset, currentFile.getLen() - offset, 1024);
+					byte[] line = lineReader.readLine();
+					lineReader.close();
+
+					if (line != null && line.length > 0) {
+						samplesTaken++;
+						bytes += line.length + 1; // one for the linebreak
+					}
+				} finally {
+					// make a best effort to close
+					if (inStream != null)
+						try {
+							inStream.close();
+						} catch (Throwable t) {
+						}
+				}
+
+				offset += stepSize;
+
+				// skip to the next file, if necessary
+				while (fileNum < files.size() && offset >= (currentFile = files.get(fileNum)).getLen()) {
+					offset -= currentFile.getLen();
+					fileNum++;
+				}
+			}
+
+			if (samplesTaken == 0)
+				return BaseStatistics.AVG_RECORD_BYTES_UNKNOWN;
+			return bytes / (float) samplesTaken;
+		}
+
 		protected ArrayList<FileStatus> getFileStati() throws IOException {
 			final Path filePath = this.filePath;
 
@@ -499,6 +569,17 @@ public abstract class SopremoFormat extends ConfigurableSopremoType {
 
 			SopremoEnvironment.getInstance().setConfiguration(parameters);
 			SopremoUtil.configureWithTransferredState(this, SopremoFileInputFormat.class, parameters);
+			this.projectionPaths = ProjectionPaths.of(this.projection);
+		}
+
+		/**
+		 * Returns the paths of the input values that are accessed by the projection. Subclasses may skip all other
+		 * parts of the input.
+		 * 
+		 * @return the accessed paths
+		 */
+		protected ProjectionPaths getProjectionPaths() {
+			return this.projectionPaths;
 		}
 
 		protected String getDefaultEncoding() {
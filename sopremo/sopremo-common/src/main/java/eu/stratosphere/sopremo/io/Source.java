@@ -3,27 +3,41 @@ package eu.stratosphere.sopremo.io;
 import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.List;
 
+import eu.stratosphere.nephele.configuration.Configuration;
+import eu.stratosphere.nephele.template.InputSplit;
 import eu.stratosphere.pact.common.contract.GenericDataSource;
+import eu.stratosphere.pact.common.io.statistics.BaseStatistics;
 import eu.stratosphere.pact.common.plan.PactModule;
 import eu.stratosphere.pact.generic.io.InputFormat;
 import eu.stratosphere.sopremo.EvaluationContext;
+import eu.stratosphere.sopremo.SopremoEnvironment;
 import eu.stratosphere.sopremo.expressions.ArrayCreation;
 import eu.stratosphere.sopremo.expressions.EvaluationExpression;
 import eu.stratosphere.sopremo.operator.ElementaryOperator;
 import eu.stratosphere.sopremo.operator.InputCardinality;
 import eu.stratosphere.sopremo.operator.Property;
 import eu.stratosphere.sopremo.pact.SopremoUtil;
+import eu.stratosphere.sopremo.serialization.SopremoRecord;
 import eu.stratosphere.sopremo.serialization.SopremoRecordLayout;
+import eu.stratosphere.sopremo.type.IArrayNode;
 import eu.stratosphere.sopremo.type.IJsonNode;
 import eu.stratosphere.sopremo.type.NullNode;
 import eu.stratosphere.util.Equaler;
+import eu.stratosphere.util.reflect.ReflectUtil;
 
 /**
  * Represents a data source in a PactPlan.
  */
 @InputCardinality(0)
 public class Source extends ElementaryOperator<Source> {
+	/**
+	 * The maximum number of input splits that are read by {@link #sample(EvaluationContext, int)}.
+	 */
+	public static final int MAXIMUM_SAMPLED_SPLITS = 10;
+
 	private String inputPath;
 
 	private EvaluationExpression adhocExpression;
@@ -234,6 +248,96 @@ public class Source extends ElementaryOperator<Source> {
 		return this.getAdhocExpression().evaluate(NullNode.getInstance());
 	}
 
+	/**
+	 * Returns the statistics of the input file as determined by the input format of this Source, for example, the
+	 * size of the file and the average width of the records.
+	 * 
+	 * @param context
+	 *        the context in which the input format is configured
+	 * @return the statistics or <code>null</code> if this Source is adhoc or the statistics cannot be determined
+	 */
+	public BaseStatistics getStatistics(final EvaluationContext context) {
+		if (this.isAdhoc() || this.inputPath == null)
+			return null;
+
+		// configuring the input format replaces the evaluation context and the layout of the planning thread
+		final SopremoEnvironment savedEnvironment = SopremoEnvironment.getInstance().save();
+		try {
+			return this.createInputFormat(context).getStatistics(null);
+		} catch (final Exception e) {
+			SopremoUtil.LOG.debug(String.format("Cannot determine statistics of %s: %s", this.inputPath, e));
+			return null;
+		} finally {
+			SopremoEnvironment.getInstance().restore(savedEnvironment);
+		}
+	}
+
+	/**
+	 * Reads a small sample of the values of this Source. The values are evenly taken from the first records of up to
+	 * {@link #MAXIMUM_SAMPLED_SPLITS} input splits, so that the sample is not restricted to the beginning of the file.
+	 * 
+	 * @param context
+	 *        the context in which the input format is configured
+	 * @param maxValues
+	 *        the maximum number of values in the sample
+	 * @return the sampled values, which are empty if the input cannot be read
+	 */
+	public List<IJsonNode> sample(final EvaluationContext context, final int maxValues) {
+		final List<IJsonNode> values = new ArrayList<IJsonNode>();
+		if (this.isAdhoc()) {
+			final IJsonNode adhocValues = this.getAdhocValues();
+			if (!(adhocValues instanceof IArrayNode<?>))
+				values.add(adhocValues);
+			else
+				for (final IJsonNode value : (IArrayNode<?>) adhocValues) {
+					if (values.size() == maxValues)
+						break;
+					values.add(value);
+				}
+			return values;
+		}
+		if (this.inputPath == null)
+			return values;
+
+		// configuring the input format replaces the evaluation context and the layout of the planning thread
+		final SopremoEnvironment savedEnvironment = SopremoEnvironment.getInstance().save();
+		try {
+			final InputFormat<SopremoRecord, InputSplit> inputFormat = this.createInputFormat(context);
+			final InputSplit[] splits = inputFormat.createInputSplits(1);
+			final int sampledSplits = Math.min(splits.length, MAXIMUM_SAMPLED_SPLITS);
+			final SopremoRecord record = new SopremoRecord(SopremoRecordLayout.EMPTY);
+			for (int splitIndex = 0; splitIndex < sampledSplits && values.size() < maxValues; splitIndex++) {
+				final int valuesPerSplit = (maxValues - values.size()) / (sampledSplits - splitIndex);
+				inputFormat.open(splits[splitIndex * splits.length / sampledSplits]);
+				try {
+					for (int count = 0; count < valuesPerSplit && !inputFormat.reachedEnd()
+						&& inputFormat.nextRecord(record); count++)
+						// the input format reuses the nodes
+						values.add(record.getNode().clone());
+				} finally {
+					inputFormat.close();
+				}
+			}
+		} catch (final Exception e) {
+			SopremoUtil.LOG.debug(String.format("Cannot sample %s: %s", this.inputPath, e));
+		} finally {
+			SopremoEnvironment.getInstance().restore(savedEnvironment);
+		}
+		return values;
+	}
+
+	@SuppressWarnings("unchecked")
+	private InputFormat<SopremoRecord, InputSplit> createInputFormat(final EvaluationContext context) {
+		final Configuration configuration = new Configuration();
+		this.format.configureForInput(configuration, this.inputPath);
+		SopremoUtil.setEvaluationContext(configuration, context);
+		SopremoUtil.setLayout(configuration, SopremoRecordLayout.EMPTY);
+		final InputFormat<SopremoRecord, InputSplit> inputFormat =
+			(InputFormat<SopremoRecord, InputSplit>) ReflectUtil.newInstance(this.format.getInputFormat());
+		inputFormat.configure(configuration);
+		return inputFormat;
+	}
+
 	@Override
 	public int hashCode() {
 		final int prime = 31;
@@ -30,6 +30,7 @@ import eu.stratosphere.pact.generic.contract.GenericMatchContract;
 import eu.stratosphere.pact.generic.contract.GenericReduceContract;
 import eu.stratosphere.sopremo.EvaluationContext;
 import eu.stratosphere.sopremo.expressions.EvaluationExpression;
+import eu.stratosphere.sopremo.expressions.ExpressionOptimizer;
 import eu.stratosphere.sopremo.expressions.InputSelection;
 import eu.stratosphere.sopremo.expressions.OrderingExpression;
 import eu.stratosphere.sopremo.expressions.UnevaluableExpression;
@@ -306,7 +307,7 @@ public abstract class ElementaryOperator<Self extends ElementaryOperator<Self>>
 	@Override
 	public PactModule asPactModule(final EvaluationContext context, SopremoRecordLayout layout) {
 		final Contract contract = this.getContract(layout);
-		context.setResultProjection(this.resultProjection);
+		context.setResultProjection(ExpressionOptimizer.optimize(this.resultProjection));
 		this.configureContract(contract, contract.getParameters(), context, layout);
 
 		final List<List<Contract>> inputLists = ContractUtil
@@ -365,12 +366,19 @@ public abstract class ElementaryOperator<Self extends ElementaryOperator<Self>>
 					try {
 						thisField = clazz.getDeclaredField(stubField.getName());
 						thisField.setAccessible(true);
-						final Object value = thisField.get(this);
+						Object value = thisField.get(this);
 						if (SopremoUtil.DEBUG && value instanceof EvaluationExpression &&
 							((EvaluationExpression) value).findFirst(UnevaluableExpression.class) != null)
 							throw new IllegalStateException(String.format(
 								"Cannot serialize field %s with unevaluable expressions %s",
 								thisField.getName(), value));
+						if (value instanceof EvaluationExpression) {
+							final EvaluationExpression optimized =
+								ExpressionOptimizer.optimize((EvaluationExpression) value);
+							// the optimized expression may be of a different type than the field of the stub
+							if (stubField.getType().isInstance(optimized))
+								value = optimized;
+						}
 						SopremoUtil.setObject(stubConfiguration, stubField.getName(), value);
 					} catch (final NoSuchFieldException e) {
 						// ignore field of stub if the field does not exist in
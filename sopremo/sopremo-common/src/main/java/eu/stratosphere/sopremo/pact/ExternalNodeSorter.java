@@ -0,0 +1,308 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010-2013 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+package eu.stratosphere.sopremo.pact;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+
+import eu.stratosphere.sopremo.SopremoEnvironment;
+import eu.stratosphere.sopremo.type.IJsonNode;
+
+/**
+ * Sorts an arbitrary number of {@link IJsonNode}s with a bounded amount of memory. The nodes are collected in an
+ * in-memory run buffer; whenever the buffer is full, it is sorted and spilled to a local temporary file. The sorted
+ * runs are finally combined with a k-way merge.<br>
+ * <br>
+ * A sorter can be reused after {@link #clear()}, which also deletes all spilled runs.
+ *
+ * @author Arvid Heise
+ */
+public class ExternalNodeSorter implements Iterable<IJsonNode> {
+	/**
+	 * The default number of nodes that are kept in memory.
+	 */
+	public static final int DEFAULT_RUN_SIZE = 32 * 1024;
+
+	/**
+	 * The default number of runs that are merged at once.
+	 */
+	public static final int DEFAULT_MERGE_FAN_IN = 64;
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private static final Comparator<IJsonNode> NATURAL_ORDER = new Comparator<IJsonNode>() {
+		@Override
+		public int compare(final IJsonNode node1, final IJsonNode node2) {
+			return node1.compareTo(node2);
+		}
+	};
+
+	private final Comparator<? super IJsonNode> comparator;
+
+	private final IJsonNode[] run;
+
+	private final int mergeFanIn;
+
+	private final Kryo kryo = SopremoEnvironment.getInstance().getEvaluationContext().getKryo();
+
+	private final List<File> spilledRuns = new ArrayList<File>();
+
+	private final List<RunReader> openReaders = new ArrayList<RunReader>();
+
+	private int size;
+
+	/**
+	 * Initializes an ExternalNodeSorter that sorts the nodes in their natural order with the default run size.
+	 */
+	public ExternalNodeSorter() {
+		this(null, DEFAULT_RUN_SIZE, DEFAULT_MERGE_FAN_IN);
+	}
+
+	/**
+	 * Initializes an ExternalNodeSorter.
+	 *
+	 * @param comparator
+	 *        the comparator that defines the order or null for the natural order
+	 * @param runSize
+	 *        the maximum number of nodes that are kept in memory
+	 * @param mergeFanIn
+	 *        the maximum number of runs that are merged at once
+	 */
+	public ExternalNodeSorter(final Comparator<? super IJsonNode> comparator, final int runSize, final int mergeFanIn) {
+		if (runSize < 1)
+			throw new IllegalArgumentException("run size must be positive");
+		if (mergeFanIn < 2)
+			throw new IllegalArgumentException("merge fan-in must be at least 2");
+
+		this.comparator = comparator == null ? NATURAL_ORDER : comparator;
+		this.run = new IJsonNode[runSize];
+		this.mergeFanIn = mergeFanIn;
+	}
+
+	/**
+	 * Adds a copy of the given node. The buffered nodes are spilled if the run buffer is full.
+	 *
+	 * @param node
+	 *        the node to add
+	 */
+	public void add(final IJsonNode node) {
+		if (this.size == this.run.length)
+			this.spill();
+		this.run[this.size] = SopremoUtil.copyInto(node, this.run[this.size]);
+		this.size++;
+	}
+
+	/**
+	 * Returns the number of runs that have been spilled to disk so far.
+	 *
+	 * @return the number of spilled runs
+	 */
+	public int getNumberOfSpilledRuns() {
+		return this.spilledRuns.size();
+	}
+
+	/**
+	 * Returns all added nodes in sorted order. The returned nodes are only valid until {@link #clear()} is invoked.
+	 *
+	 * @see java.lang.Iterable#iterator()
+	 */
+	@Override
+	public Iterator<IJsonNode> iterator() {
+		this.closeReaders();
+		Arrays.sort(this.run, 0, this.size, this.comparator);
+		final Iterator<IJsonNode> bufferedNodes = Arrays.asList(this.run).subList(0, this.size).iterator();
+		if (this.spilledRuns.isEmpty())
+			return bufferedNodes;
+
+		// reduce the number of runs until the remaining runs and the run buffer can be merged at once
+		while (this.spilledRuns.size() >= this.mergeFanIn) {
+			final List<File> mergedRuns = new ArrayList<File>(this.spilledRuns.subList(0, this.mergeFanIn));
+			this.spilledRuns.subList(0, this.mergeFanIn).clear();
+			final List<Iterator<IJsonNode>> sources = new ArrayList<Iterator<IJsonNode>>();
+			for (final File mergedRun : mergedRuns)
+				sources.add(this.openRun(mergedRun));
+			// the merged run replaces the oldest runs to keep the merge stable
+			this.spilledRuns.add(0, this.writeRun(new MergingIterator(sources, this.comparator)));
+			this.closeReaders();
+			for (final File mergedRun : mergedRuns)
+				mergedRun.delete();
+		}
+
+		final List<Iterator<IJsonNode>> sources = new ArrayList<Iterator<IJsonNode>>();
+		for (final File spilledRun : this.spilledRuns)
+			sources.add(this.openRun(spilledRun));
+		sources.add(bufferedNodes);
+		return new MergingIterator(sources, this.comparator);
+	}
+
+	/**
+	 * Removes all nodes and deletes the spilled runs.
+	 */
+	public void clear() {
+		this.closeReaders();
+		for (final File spilledRun : this.spilledRuns)
+			spilledRun.delete();
+		this.spilledRuns.clear();
+		this.size = 0;
+	}
+
+	private void spill() {
+		Arrays.sort(this.run, 0, this.size, this.comparator);
+		this.spilledRuns.add(this.writeRun(Arrays.asList(this.run).subList(0, this.size).iterator()));
+		this.size = 0;
+	}
+
+	private File writeRun(final Iterator<IJsonNode> nodes) {
+		try {
+			final File file = File.createTempFile("sopremo-sort", ".run");
+			final Output output = new Output(new FileOutputStream(file), BUFFER_SIZE);
+			try {
+				while (nodes.hasNext()) {
+					output.writeBoolean(true);
+					this.kryo.writeClassAndObject(output, nodes.next());
+				}
+				output.writeBoolean(false);
+			} finally {
+				output.close();
+			}
+			return file;
+		} catch (final IOException e) {
+			throw new IllegalStateException("Cannot spill sorted run", e);
+		}
+	}
+
+	private Iterator<IJsonNode> openRun(final File file) {
+		try {
+			final RunReader reader = new RunReader(new Input(new FileInputStream(file), BUFFER_SIZE));
+			this.openReaders.add(reader);
+			return reader;
+		} catch (final IOException e) {
+			throw new IllegalStateException("Cannot read sorted run", e);
+		}
+	}
+
+	private void closeReaders() {
+		for (final RunReader reader : this.openReaders)
+			reader.close();
+		this.openReaders.clear();
+	}
+
+	private class RunReader implements Iterator<IJsonNode> {
+		private final Input input;
+
+		private boolean hasNext;
+
+		private RunReader(final Input input) {
+			this.input = input;
+			this.hasNext = input.readBoolean();
+		}
+
+		@Override
+		public boolean hasNext() {
+			return this.hasNext;
+		}
+
+		@Override
+		public IJsonNode next() {
+			if (!this.hasNext)
+				throw new NoSuchElementException();
+			// nodes are not reused because the merge keeps the current head of each run
+			final IJsonNode node = (IJsonNode) ExternalNodeSorter.this.kryo.readClassAndObject(this.input);
+			this.hasNext = this.input.readBoolean();
+			if (!this.hasNext)
+				this.close();
+			return node;
+		}
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+
+		private void close() {
+			this.input.close();
+		}
+	}
+
+	private static class MergingIterator implements Iterator<IJsonNode> {
+		private final PriorityQueue<Head> heads;
+
+		private MergingIterator(final List<Iterator<IJsonNode>> sources, final Comparator<? super IJsonNode> comparator) {
+			this.heads = new PriorityQueue<Head>(Math.max(1, sources.size()), new Comparator<Head>() {
+				@Override
+				public int compare(final Head head1, final Head head2) {
+					final int result = comparator.compare(head1.node, head2.node);
+					// stable merge: earlier sources win ties
+					return result != 0 ? result : head1.sourceIndex - head2.sourceIndex;
+				}
+			});
+			for (int index = 0; index < sources.size(); index++) {
+				final Iterator<IJsonNode> source = sources.get(index);
+				if (source.hasNext())
+					this.heads.add(new Head(source, index));
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			return !this.heads.isEmpty();
+		}
+
+		@Override
+		public IJsonNode next() {
+			final Head head = this.heads.poll();
+			if (head == null)
+				throw new NoSuchElementException();
+			final IJsonNode node = head.node;
+			if (head.source.hasNext()) {
+				head.node = head.source.next();
+				this.heads.add(head);
+			}
+			return node;
+		}
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+	}
+
+	private static class Head {
+		private final Iterator<IJsonNode> source;
+
+		private final int sourceIndex;
+
+		private IJsonNode node;
+
+		private Head(final Iterator<IJsonNode> source, final int sourceIndex) {
+			this.source = source;
+			this.sourceIndex = sourceIndex;
+			this.node = source.next();
+		}
+	}
+}
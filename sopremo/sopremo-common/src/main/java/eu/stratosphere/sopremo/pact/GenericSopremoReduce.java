@@ -67,6 +67,26 @@ public abstract class GenericSopremoReduce<Elem extends IJsonNode, Out extends I
 	 */
 	protected abstract void reduce(IStreamNode<Elem> values, JsonCollector<Out> collector);
 
+	/**
+	 * Consumes the remaining values of the given iterator and returns their number. If the iterator has been obtained
+	 * from the values of the current group, the underlying records are skipped without deserializing them. Thus,
+	 * reduce implementations that only need to count the values should use this method instead of iterating over the
+	 * values.
+	 * 
+	 * @param values
+	 *        the iterator over the values of the current group
+	 * @return the number of remaining values
+	 */
+	protected long skipRemainingValues(final Iterator<? extends IJsonNode> values) {
+		if (values == this.iterator)
+			return this.iterator.skipRemaining();
+
+		long count = 0;
+		for (; values.hasNext(); count++)
+			values.next();
+		return count;
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * @see eu.stratosphere.pact.generic.stub.GenericReducer#combine(java.util.Iterator,
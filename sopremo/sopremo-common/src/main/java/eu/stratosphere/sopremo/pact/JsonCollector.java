@@ -74,4 +74,22 @@ public class JsonCollector<T extends IJsonNode> {
 		this.sopremoRecord.setNode(resultValue);
 		this.collector.collect(this.sopremoRecord);
 	}
+
+	/**
+	 * Collects the given input {@link IJsonNode} unchanged. In contrast to {@link #collect(IJsonNode)}, the serialized
+	 * representation of the input record is forwarded to the output if no result projection is set and the layouts
+	 * of both records are compatible; thus, the node is not encoded again.
+	 *
+	 * @param value
+	 *        an input node that has not been modified
+	 */
+	public void forward(final T value) {
+		if (this.resultProjection != EvaluationExpression.VALUE || !this.sopremoRecord.forwardNode(value)) {
+			this.collect(value);
+			return;
+		}
+		if (SopremoUtil.LOG.isTraceEnabled())
+			SopremoUtil.LOG.trace(String.format(" to %s", value));
+		this.collector.collect(this.sopremoRecord);
+	}
 }
@@ -42,6 +42,18 @@ public final class RecordToJsonIterator<Elem extends IJsonNode> implements Itera
 		return (Elem) this.iterator.next().getNode();
 	}
 
+	/**
+	 * Skips all remaining records without converting them to {@link IJsonNode}s.
+	 * 
+	 * @return the number of skipped records
+	 */
+	public long skipRemaining() {
+		long count = 0;
+		for (; this.iterator.hasNext(); count++)
+			this.iterator.next();
+		return count;
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * @see java.util.Iterator#remove()
@@ -0,0 +1,128 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010-2013 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+package eu.stratosphere.sopremo.pact;
+
+import eu.stratosphere.pact.common.stubs.Collector;
+import eu.stratosphere.sopremo.expressions.EvaluationExpression;
+import eu.stratosphere.sopremo.serialization.SopremoRecord;
+import eu.stratosphere.sopremo.serialization.SopremoRecordLayout;
+import eu.stratosphere.sopremo.type.IJsonNode;
+
+/**
+ * A {@link SopremoMap} that buffers its input and processes it in batches, so that expressions can be evaluated with
+ * {@link EvaluationExpression#evaluate(IJsonNode[], int[], int, IJsonNode[])} and
+ * {@link EvaluationExpression#select(IJsonNode[], int[], int)}.<br>
+ * <br>
+ * The input records are buffered in their serialized form and decoded when the batch is processed. The nodes of a
+ * batch are only valid until the next batch is processed; the last batch is processed when the stub is closed.
+ *
+ * @author Arvid Heise
+ */
+public abstract class SopremoBatchMap extends SopremoMap {
+	/**
+	 * The maximum number of nodes in a batch.
+	 */
+	public static final int BATCH_SIZE = 256;
+
+	private final IJsonNode[] values = new IJsonNode[BATCH_SIZE];
+
+	private final SopremoRecord[] records = new SopremoRecord[BATCH_SIZE];
+
+	private JsonCollector<IJsonNode> collector;
+
+	private SopremoRecordLayout layout;
+
+	private int size, capacity;
+
+	/*
+	 * (non-Javadoc)
+	 * @see eu.stratosphere.sopremo.pact.GenericSopremoMap#createCollector(eu.stratosphere.sopremo.serialization.
+	 * SopremoRecordLayout)
+	 */
+	@Override
+	protected JsonCollector<IJsonNode> createCollector(final SopremoRecordLayout layout) {
+		this.layout = layout;
+		// all typed nodes of a layout share the same instance and thus cannot be buffered
+		this.capacity = layout.getTypedNode() == null ? BATCH_SIZE : 1;
+		return this.collector = super.createCollector(layout);
+	}
+
+	/**
+	 * This method must be implemented to process a batch of nodes.
+	 *
+	 * @param values
+	 *        the nodes of the batch
+	 * @param size
+	 *        the number of nodes in the batch
+	 * @param out
+	 *        a collector that collects all output nodes
+	 */
+	protected abstract void map(IJsonNode[] values, int size, JsonCollector<IJsonNode> out);
+
+	/*
+	 * (non-Javadoc)
+	 * @see eu.stratosphere.sopremo.pact.GenericSopremoMap#map(eu.stratosphere.sopremo.type.IJsonNode,
+	 * eu.stratosphere.sopremo.pact.JsonCollector)
+	 */
+	@Override
+	protected final void map(final IJsonNode value, final JsonCollector<IJsonNode> out) {
+		this.map(new IJsonNode[] { value }, 1, out);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see eu.stratosphere.sopremo.pact.GenericSopremoMap#map(eu.stratosphere.sopremo.serialization.SopremoRecord,
+	 * eu.stratosphere.pact.common.stubs.Collector)
+	 */
+	@Override
+	public void map(final SopremoRecord record, final Collector<SopremoRecord> out) {
+		if (this.size == 0)
+			this.collector.configure(out, this.getContext());
+		if (this.records[this.size] == null)
+			this.records[this.size] = new SopremoRecord(this.layout);
+		// the runtime reuses the input record
+		record.copyTo(this.records[this.size]);
+		if (++this.size == this.capacity)
+			this.processBatch();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see eu.stratosphere.pact.generic.stub.AbstractStub#close()
+	 */
+	@Override
+	public void close() throws Exception {
+		if (this.size > 0)
+			this.processBatch();
+		super.close();
+	}
+
+	private void processBatch() {
+		for (int index = 0; index < this.size; index++)
+			this.values[index] = this.records[index].getNode();
+		if (SopremoUtil.LOG.isTraceEnabled())
+			SopremoUtil.LOG.trace(String.format("%s batch of %d", this.getContext().getOperatorDescription(),
+				this.size));
+		try {
+			this.map(this.values, this.size, this.collector);
+		} catch (final RuntimeException e) {
+			SopremoUtil.LOG.error(String.format("Error occurred @ %s with batch of %d: %s",
+				this.getContext().getOperatorDescription(), this.size, e));
+			throw e;
+		} finally {
+			this.size = 0;
+		}
+	}
+}
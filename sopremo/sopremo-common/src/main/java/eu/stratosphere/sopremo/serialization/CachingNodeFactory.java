@@ -16,9 +16,9 @@ package eu.stratosphere.sopremo.serialization;
 
 import eu.stratosphere.sopremo.type.CachingArrayNode;
 import eu.stratosphere.sopremo.type.DefaultNodeFactory;
+import eu.stratosphere.sopremo.type.DictionaryObjectNode;
 import eu.stratosphere.sopremo.type.IArrayNode;
 import eu.stratosphere.sopremo.type.IObjectNode;
-import eu.stratosphere.sopremo.type.ObjectNode;
 
 /**
  * @author arv
@@ -26,7 +26,7 @@ import eu.stratosphere.sopremo.type.ObjectNode;
 public class CachingNodeFactory extends DefaultNodeFactory {
 	private final static CachingNodeFactory Instance = (CachingNodeFactory) new CachingNodeFactory().
 		register(IArrayNode.class, CachingArrayNode.class).
-		register(IObjectNode.class, ObjectNode.class);
+		register(IObjectNode.class, DictionaryObjectNode.class);
 
 	/**
 	 * Returns the instance.
@@ -0,0 +1,398 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010-2013 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+package eu.stratosphere.sopremo.serialization;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map.Entry;
+import java.util.SortedSet;
+
+import com.esotericsoftware.kryo.io.Input;
+
+import eu.stratosphere.sopremo.type.AbstractJsonNode;
+import eu.stratosphere.sopremo.type.DictionaryObjectNode;
+import eu.stratosphere.sopremo.type.FieldDictionary;
+import eu.stratosphere.sopremo.type.IJsonNode;
+import eu.stratosphere.sopremo.type.IObjectNode;
+import eu.stratosphere.sopremo.type.MissingNode;
+
+/**
+ * A view of the top-level object of a serialized {@link SopremoRecord}. The fields are located with the field
+ * directory of the record and decoded on their first access; the decoded values are cached in a
+ * {@link DictionaryObjectNode}. Operations that need all fields, such as iteration or comparison, decode the remaining
+ * fields, and all modifications are applied to the decoded copy.<br>
+ * <br>
+ * A lazy node is only valid until its record is read again. {@link #clone()} returns a standalone
+ * {@link DictionaryObjectNode}.
+ *
+ * @author Arvid Heise
+ */
+public class LazyObjectNode extends AbstractJsonNode implements IObjectNode {
+	private final SopremoRecord record;
+
+	private final Input input = new Input();
+
+	private DictionaryObjectNode values;
+
+	private String[] fieldNames = new String[8];
+
+	/**
+	 * The dictionary ids of the fields or {@link FieldDictionary#UNKNOWN} if the dictionary is full.
+	 */
+	private int[] fieldIds = new int[8];
+
+	/**
+	 * The position of each field of the current object by its dictionary id or -1 if the object lacks the field.
+	 */
+	private int[] positions = new int[0];
+
+	/**
+	 * The dictionary ids of the field names that are known to the layout, which are resolved once per layout.
+	 */
+	private int[] knownFieldIds;
+
+	private String[] knownFieldNames;
+
+	private int[] valueOffsets = new int[8];
+
+	private boolean[] decoded = new boolean[8];
+
+	private int size = -1, numDecoded;
+
+	private boolean materialized, modified;
+
+	/**
+	 * Initializes a LazyObjectNode for the given record.
+	 *
+	 * @param record
+	 *        the record that contains the serialized object
+	 */
+	LazyObjectNode(final SopremoRecord record) {
+		this.record = record;
+	}
+
+	/**
+	 * Returns the record that contains the serialized object.
+	 *
+	 * @return the record
+	 */
+	SopremoRecord getRecord() {
+		return this.record;
+	}
+
+	/**
+	 * Returns true if no field has been decoded or modified, so that the serialized representation of the record
+	 * still represents this node completely.
+	 *
+	 * @return true if the node is untouched
+	 */
+	boolean isPristine() {
+		return this.numDecoded == 0 && !this.modified;
+	}
+
+	/**
+	 * Returns true if the node has been modified or may be modified through an iterator.
+	 *
+	 * @return true if the node differs from its serialized representation
+	 */
+	boolean isModified() {
+		return this.modified;
+	}
+
+	/**
+	 * Discards all decoded values; the fields are located again on the next access.
+	 */
+	void reset() {
+		for (int index = 0; index < this.size; index++)
+			if (this.fieldIds[index] != FieldDictionary.UNKNOWN)
+				this.positions[this.fieldIds[index]] = -1;
+
+		final FieldDictionary dictionary = this.record.getLayout().getFieldDictionary();
+		if (this.values == null || this.values.getDictionary() != dictionary) {
+			this.values = new DictionaryObjectNode(dictionary);
+			this.positions = new int[0];
+			this.knownFieldNames = null;
+		} else
+			this.values.clear();
+		this.size = -1;
+		this.numDecoded = 0;
+		this.materialized = this.modified = false;
+	}
+
+	/**
+	 * Reads the header and the field directory of the serialized object.
+	 */
+	private void index() {
+		if (this.size != -1)
+			return;
+
+		final byte[] bytes = this.record.getBinaryElements();
+		final int length = this.record.getBinarySize();
+		this.size = 0;
+
+		// skip the class of the object
+		this.input.setBuffer(bytes, 0, length);
+		this.record.getKryo().readClass(this.input);
+		final String[] knownFieldNames = this.record.getLayout().getFieldNames();
+		if (this.knownFieldNames != knownFieldNames) {
+			this.knownFieldNames = knownFieldNames;
+			this.knownFieldIds = new int[knownFieldNames.length];
+			for (int index = 0; index < knownFieldNames.length; index++)
+				this.knownFieldIds[index] = this.values.getDictionary().getOrAddId(knownFieldNames[index]);
+		}
+		for (int wordStart = 0; wordStart < knownFieldNames.length; wordStart += Long.SIZE) {
+			long presence = this.input.readLong(true);
+			for (int index = wordStart; presence != 0; index++, presence >>>= 1)
+				if ((presence & 1) != 0)
+					this.addField(knownFieldNames[index], this.knownFieldIds[index]);
+		}
+		final int numKnownFields = this.size;
+		final int numUnknownFields = this.input.readInt(true);
+		for (int index = 0; index < numUnknownFields; index++)
+			this.addField(null, FieldDictionary.UNKNOWN);
+
+		this.input.setBuffer(bytes, length - 4, length);
+		final int directoryStart = this.input.readInt();
+		this.input.setBuffer(bytes, directoryStart, length);
+		for (int index = 0; index < this.size; index++)
+			this.valueOffsets[index] = this.input.readInt(true);
+
+		// unknown fields are prefixed with their names
+		for (int index = numKnownFields; index < this.size; index++) {
+			this.input.setBuffer(bytes, this.valueOffsets[index], length);
+			this.fieldNames[index] = this.input.readString();
+			this.valueOffsets[index] = this.input.position();
+			this.fieldIds[index] = this.values.getDictionary().getOrAddId(this.fieldNames[index]);
+		}
+
+		for (int index = 0; index < this.size; index++) {
+			final int id = this.fieldIds[index];
+			if (id == FieldDictionary.UNKNOWN)
+				continue;
+			if (id >= this.positions.length) {
+				final int oldLength = this.positions.length;
+				this.positions = Arrays.copyOf(this.positions, Math.max(id + 1, this.values.getDictionary().size()));
+				Arrays.fill(this.positions, oldLength, this.positions.length, -1);
+			}
+			this.positions[id] = index;
+		}
+	}
+
+	private void addField(final String fieldName, final int id) {
+		if (this.size == this.fieldNames.length) {
+			final int capacity = this.size * 2;
+			this.fieldNames = Arrays.copyOf(this.fieldNames, capacity);
+			this.fieldIds = Arrays.copyOf(this.fieldIds, capacity);
+			this.valueOffsets = Arrays.copyOf(this.valueOffsets, capacity);
+			this.decoded = Arrays.copyOf(this.decoded, capacity);
+		}
+		this.fieldNames[this.size] = fieldName;
+		this.fieldIds[this.size] = id;
+		this.decoded[this.size] = false;
+		this.size++;
+	}
+
+	/**
+	 * Returns the position of the given field in the field directory or -1 if the object lacks the field.
+	 */
+	private int getPosition(final String fieldName) {
+		final int id = this.values.getDictionary().getId(fieldName);
+		if (id != FieldDictionary.UNKNOWN)
+			return id < this.positions.length ? this.positions[id] : -1;
+
+		// only the fields that do not fit into the dictionary are looked up by name
+		for (int index = 0; index < this.size; index++)
+			if (this.fieldIds[index] == FieldDictionary.UNKNOWN && fieldName.equals(this.fieldNames[index]))
+				return index;
+		return -1;
+	}
+
+	private void decode(final int index) {
+		final String fieldName = this.fieldNames[index];
+		final FieldDictionary nestedDictionary = this.values.getDictionary().getNestedDictionary(this.fieldIds[index]);
+		this.values.put(fieldName, this.record.readValueAtOffset(this.valueOffsets[index],
+			this.values.getUnusedNode(fieldName), nestedDictionary));
+		this.decoded[index] = true;
+		this.numDecoded++;
+	}
+
+	/**
+	 * Decodes all fields that have not been accessed yet.
+	 */
+	DictionaryObjectNode materialize() {
+		if (!this.materialized) {
+			this.index();
+			for (int index = 0; index < this.size; index++)
+				if (!this.decoded[index])
+					this.decode(index);
+			this.materialized = true;
+		}
+		return this.values;
+	}
+
+	private DictionaryObjectNode modify() {
+		this.modified = true;
+		return this.materialize();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see eu.stratosphere.sopremo.type.IObjectNode#get(java.lang.String)
+	 */
+	@SuppressWarnings("unchecked")
+	@Override
+	public IJsonNode get(final String fieldName) {
+		if (this.materialized)
+			return this.values.get(fieldName);
+
+		this.index();
+		final int position = this.getPosition(fieldName);
+		if (position == -1)
+			return MissingNode.getInstance();
+		if (!this.decoded[position])
+			this.decode(position);
+		return this.values.get(fieldName);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see eu.stratosphere.sopremo.type.IObjectNode#size()
+	 */
+	@Override
+	public int size() {
+		if (this.materialized)
+			return this.values.size();
+		this.index();
+		return this.size;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see eu.stratosphere.sopremo.type.IJsonNode#getType()
+	 */
+	@Override
+	public final Class<IObjectNode> getType() {
+		return IObjectNode.class;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see eu.stratosphere.sopremo.type.IObjectNode#put(java.lang.String, eu.stratosphere.sopremo.type.IJsonNode)
+	 */
+	@Override
+	public IObjectNode put(final String fieldName, final IJsonNode value) {
+		this.modify().put(fieldName, value);
+		return this;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see eu.stratosphere.sopremo.type.IObjectNode#remove(java.lang.String)
+	 */
+	@Override
+	public void remove(final String fieldName) {
+		this.modify().remove(fieldName);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see eu.stratosphere.sopremo.type.IObjectNode#clear()
+	 */
+	@Override
+	public void clear() {
+		this.values.clear();
+		this.materialized = this.modified = true;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see eu.stratosphere.sopremo.type.IObjectNode#putAll(eu.stratosphere.sopremo.type.IObjectNode)
+	 */
+	@Override
+	public IObjectNode putAll(final IObjectNode jsonNode) {
+		this.modify().putAll(jsonNode);
+		return this;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see eu.stratosphere.sopremo.type.IJsonNode#copyValueFrom(eu.stratosphere.sopremo.type.IJsonNode)
+	 */
+	@Override
+	public void copyValueFrom(final IJsonNode otherNode) {
+		this.checkForSameType(otherNode);
+		this.values.copyValueFrom(otherNode);
+		this.materialized = this.modified = true;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see eu.stratosphere.sopremo.type.IObjectNode#iterator()
+	 */
+	@Override
+	public Iterator<Entry<String, IJsonNode>> iterator() {
+		// the iterator supports removal
+		return this.modify().iterator();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see eu.stratosphere.sopremo.type.IObjectNode#getFieldNames()
+	 */
+	@Override
+	public SortedSet<String> getFieldNames() {
+		return this.materialize().getFieldNames();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see eu.stratosphere.sopremo.type.AbstractJsonNode#compareToSameType(eu.stratosphere.sopremo.type.IJsonNode)
+	 */
+	@Override
+	public int compareToSameType(final IJsonNode other) {
+		return this.materialize().compareToSameType(other);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see eu.stratosphere.sopremo.type.AbstractJsonNode#clone()
+	 */
+	@Override
+	public DictionaryObjectNode clone() {
+		return this.materialize().clone();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see eu.stratosphere.sopremo.ISopremoType#appendAsString(java.lang.Appendable)
+	 */
+	@Override
+	public void appendAsString(final Appendable appendable) throws IOException {
+		this.materialize().appendAsString(appendable);
+	}
+
+	@Override
+	public int hashCode() {
+		return this.materialize().hashCode();
+	}
+
+	@Override
+	public boolean equals(final Object obj) {
+		if (this == obj)
+			return true;
+		return this.materialize().equals(obj);
+	}
+}
@@ -0,0 +1,198 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010-2013 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+package eu.stratosphere.sopremo.serialization;
+
+import java.math.BigDecimal;
+
+import eu.stratosphere.sopremo.type.BigIntegerNode;
+import eu.stratosphere.sopremo.type.BooleanNode;
+import eu.stratosphere.sopremo.type.DecimalNode;
+import eu.stratosphere.sopremo.type.DoubleNode;
+import eu.stratosphere.sopremo.type.IJsonNode;
+import eu.stratosphere.sopremo.type.INumericNode;
+import eu.stratosphere.sopremo.type.IntNode;
+import eu.stratosphere.sopremo.type.LongNode;
+import eu.stratosphere.sopremo.type.MissingNode;
+import eu.stratosphere.sopremo.type.NullNode;
+import eu.stratosphere.sopremo.type.TextNode;
+
+/**
+ * Encodes key nodes into order-preserving binary prefixes that can be compared with an unsigned byte-wise comparison.
+ * <br>
+ * Each key occupies {@link #KEY_LENGTH} bytes: a type tag, eight payload bytes, and a precision marker. The type tags
+ * follow the cross-type order of {@link IJsonNode#compareTo(IJsonNode)}, i.e., the class names, with all numeric types
+ * sharing the tag of {@link DoubleNode} because they are compared by their double value. The precision marker states whether the payload
+ * captures the key exactly (1) or whether the actual value is smaller (0) or larger (2) than the payload. As soon as a
+ * key is not encoded exactly, all remaining keys are left blank, such that ties in the prefix are always resolved by
+ * a full comparison.
+ *
+ * @author Arvid Heise
+ */
+final class NormalizedKeyEncoder {
+	/**
+	 * The number of bytes used for a single key.
+	 */
+	public static final int KEY_LENGTH = 10;
+
+	private static final int PAYLOAD_LENGTH = KEY_LENGTH - 2;
+
+	private static final byte SMALLER = 0, EXACT = 1, LARGER = 2;
+
+	/**
+	 * The class names of the supported types in ascending order. Unsupported types get the odd tag in between.
+	 */
+	private static final String[] ANCHORS = {
+		BooleanNode.class.getName(),
+		DoubleNode.class.getName(),
+		MissingNode.class.getName(),
+		NullNode.class.getName(),
+		TextNode.class.getName()
+	};
+
+	private static final byte BOOLEAN_TAG = 2, NUMERIC_TAG = 4, MISSING_TAG = 6, NULL_TAG = 8, TEXT_TAG = 10;
+
+	private NormalizedKeyEncoder() {
+	}
+
+	/**
+	 * Writes the normalized key of the given node to the target array.
+	 *
+	 * @param key
+	 *        the key to encode
+	 * @param target
+	 *        the target array with at least {@link #KEY_LENGTH} bytes after the offset
+	 * @param offset
+	 *        the position of the first byte
+	 * @param ascending
+	 *        false if the bytes should be inverted for a descending order
+	 * @return true if the key has been encoded exactly and subsequent keys may be appended
+	 */
+	public static boolean write(final IJsonNode key, final byte[] target, final int offset, final boolean ascending) {
+		for (int index = 1; index < KEY_LENGTH; index++)
+			target[offset + index] = 0;
+
+		final Class<? extends IJsonNode> type = key.getType();
+		final byte precision;
+		if (key instanceof INumericNode) {
+			target[offset] = NUMERIC_TAG;
+			precision = writeNumber((INumericNode) key, target, offset + 1);
+		} else if (type == TextNode.class) {
+			target[offset] = TEXT_TAG;
+			precision = writeText((TextNode) key, target, offset + 1);
+		} else if (type == BooleanNode.class) {
+			target[offset] = BOOLEAN_TAG;
+			target[offset + 1] = (byte) (((BooleanNode) key).getBooleanValue() ? 1 : 0);
+			precision = EXACT;
+		} else if (type == NullNode.class) {
+			target[offset] = NULL_TAG;
+			precision = EXACT;
+		} else if (type == MissingNode.class) {
+			target[offset] = MISSING_TAG;
+			precision = EXACT;
+		} else {
+			target[offset] = getUnsupportedTag(type);
+			// unknown order within the type: leave payload blank and enforce a full comparison
+			return finish(target, offset, ascending, SMALLER, false);
+		}
+		return finish(target, offset, ascending, precision, precision == EXACT);
+	}
+
+	private static boolean finish(final byte[] target, final int offset, final boolean ascending,
+			final byte precision, final boolean exact) {
+		target[offset + KEY_LENGTH - 1] = precision;
+		if (!ascending)
+			for (int index = 0; index < KEY_LENGTH; index++)
+				target[offset + index] = (byte) ~target[offset + index];
+		return exact;
+	}
+
+	private static byte getUnsupportedTag(final Class<? extends IJsonNode> type) {
+		final String name = type.getName();
+		int tag = 1;
+		for (int index = 0; index < ANCHORS.length && name.compareTo(ANCHORS[index]) > 0; index++)
+			tag += 2;
+		return (byte) tag;
+	}
+
+	private static byte writeNumber(final INumericNode number, final byte[] target, final int offset) {
+		final double value = number.getDoubleValue();
+		long bits = Double.doubleToLongBits(value);
+		// flip sign bit for positive values and all bits for negative values to get an unsigned order
+		bits ^= bits < 0 ? -1L : Long.MIN_VALUE;
+		for (int index = 0; index < PAYLOAD_LENGTH; index++)
+			target[offset + index] = (byte) (bits >>> (56 - 8 * index));
+
+		final Class<? extends IJsonNode> type = number.getType();
+		if (type == IntNode.class || type == DoubleNode.class)
+			return EXACT;
+		if (type == LongNode.class) {
+			final long longValue = number.getLongValue();
+			if (value >= 0x1p63)
+				return SMALLER;
+			final long rounded = (long) value;
+			return rounded == longValue ? EXACT : longValue < rounded ? SMALLER : LARGER;
+		}
+		if (type == DecimalNode.class || type == BigIntegerNode.class) {
+			if (Double.isInfinite(value))
+				return value > 0 ? SMALLER : LARGER;
+			final BigDecimal exactValue = number.getDecimalValue();
+			return toPrecision(exactValue.compareTo(new BigDecimal(value)));
+		}
+		// unknown numeric type; also compare the full value
+		return SMALLER;
+	}
+
+	private static byte toPrecision(final int comparison) {
+		return comparison == 0 ? EXACT : comparison < 0 ? SMALLER : LARGER;
+	}
+
+	/**
+	 * Writes the string in modified UTF-8 such that the unsigned byte order equals the char order. Strings that do not
+	 * fit completely into the payload or that contain the null character are marked as larger than the payload.
+	 */
+	private static byte writeText(final TextNode text, final byte[] target, final int offset) {
+		final int length = text.length();
+		int pos = 0;
+		for (int index = 0; index < length; index++) {
+			final char ch = text.charAt(index);
+			if (ch == 0)
+				return LARGER;
+			if (ch < 0x80) {
+				if (pos >= PAYLOAD_LENGTH)
+					return LARGER;
+				target[offset + pos++] = (byte) ch;
+			} else if (ch < 0x800) {
+				if (pos + 2 > PAYLOAD_LENGTH)
+					return fillRemaining(target, offset, pos, (byte) (0xC0 | ch >> 6), (byte) (0x80 | ch & 0x3F));
+				target[offset + pos++] = (byte) (0xC0 | ch >> 6);
+				target[offset + pos++] = (byte) (0x80 | ch & 0x3F);
+			} else {
+				if (pos + 3 > PAYLOAD_LENGTH)
+					return fillRemaining(target, offset, pos, (byte) (0xE0 | ch >> 12),
+						(byte) (0x80 | ch >> 6 & 0x3F), (byte) (0x80 | ch & 0x3F));
+				target[offset + pos++] = (byte) (0xE0 | ch >> 12);
+				target[offset + pos++] = (byte) (0x80 | ch >> 6 & 0x3F);
+				target[offset + pos++] = (byte) (0x80 | ch & 0x3F);
+			}
+		}
+		return EXACT;
+	}
+
+	private static byte fillRemaining(final byte[] target, final int offset, int pos, final byte... encodedChar) {
+		for (int index = 0; pos < PAYLOAD_LENGTH; index++)
+			target[offset + pos++] = encodedChar[index];
+		return LARGER;
+	}
+}
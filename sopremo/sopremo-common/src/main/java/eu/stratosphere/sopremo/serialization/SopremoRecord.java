@@ -15,6 +15,7 @@
 package eu.stratosphere.sopremo.serialization;
 
 import it.unimi.dsi.fastutil.bytes.ByteArrayList;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
 
 import java.io.DataInput;
 import java.io.DataOutput;
@@ -23,7 +24,7 @@ import java.io.OutputStream;
 import java.util.Arrays;
 import java.util.IdentityHashMap;
 import java.util.Map;
-import java.util.SortedSet;
+import java.util.Map.Entry;
 
 import com.esotericsoftware.kryo.DefaultSerializer;
 import com.esotericsoftware.kryo.Kryo;
@@ -41,12 +42,18 @@ import eu.stratosphere.sopremo.cache.NodeCache;
 import eu.stratosphere.sopremo.expressions.EvaluationExpression;
 import eu.stratosphere.sopremo.pact.SopremoUtil;
 import eu.stratosphere.sopremo.type.CachingArrayNode;
+import eu.stratosphere.sopremo.type.DictionaryObjectNode;
+import eu.stratosphere.sopremo.type.DoubleNode;
+import eu.stratosphere.sopremo.type.FieldDictionary;
 import eu.stratosphere.sopremo.type.IArrayNode;
 import eu.stratosphere.sopremo.type.IJsonNode;
 import eu.stratosphere.sopremo.type.IObjectNode;
+import eu.stratosphere.sopremo.type.IntNode;
+import eu.stratosphere.sopremo.type.LongNode;
 import eu.stratosphere.sopremo.type.MissingNode;
-import eu.stratosphere.sopremo.type.ObjectNode;
+import eu.stratosphere.sopremo.type.NullNode;
 import eu.stratosphere.sopremo.type.ReusingSerializer;
+import eu.stratosphere.sopremo.type.TextNode;
 import eu.stratosphere.sopremo.type.typed.TypedObjectNode;
 
 /**
@@ -87,6 +94,27 @@ public final class SopremoRecord extends AbstractSopremoType implements ISopremo
 
 	private transient IJsonNode node;
 
+	/**
+	 * The last node that has been deserialized by this record and that is reused for the next deserialization.
+	 */
+	private transient IJsonNode deserializedNode;
+
+	/**
+	 * The dictionary for the object that is currently deserialized or null if the object is not part of the record.
+	 */
+	private transient FieldDictionary currentDictionary;
+
+	private final transient LazyObjectNode lazyNode = new LazyObjectNode(this);
+
+	/**
+	 * The offsets of the fields of the top-level object, which are written to the field directory.
+	 */
+	private final transient IntArrayList rootEntryOffsets = new IntArrayList();
+
+	private transient boolean collectRootEntries;
+
+	private transient SopremoRecordLayout compatibleLayout;
+
 	private final transient Kryo kryo;
 
 	private final transient int offsets[];
@@ -139,7 +167,18 @@ public final class SopremoRecord extends AbstractSopremoType implements ISopremo
 	public IJsonNode getNode() {
 		if (this.node == null) {
 			this.input.setBuffer(this.binaryRepresentation.elements(), 0, this.binaryRepresentation.size());
-			final IJsonNode readNode = readRecursively(this.node);
+			final IJsonNode readNode;
+			if (this.kryo.readClass(this.input).getType() == IObjectNode.class) {
+				// objects are decoded on demand
+				this.lazyNode.reset();
+				readNode = this.lazyNode;
+			} else {
+				this.input.setBuffer(this.binaryRepresentation.elements(), 0, this.binaryRepresentation.size());
+				this.currentDictionary = this.layout.getFieldDictionary();
+				readNode = readRecursively(this.deserializedNode);
+				this.currentDictionary = null;
+				this.deserializedNode = readNode;
+			}
 			final TypedObjectNode typedNode = this.layout.getTypedNode();
 			if (typedNode != null) {
 				this.node = typedNode;
@@ -192,20 +231,9 @@ public final class SopremoRecord extends AbstractSopremoType implements ISopremo
 	 */
 	@Override
 	public void write(DataOutput out) throws IOException {
-		if (this.node != null) {
-			Arrays.fill(this.offsets, MISSING);
-			this.binaryRepresentation.clear();
-			writeRecursivelyToBuffer(this.node, this.layout.getExpressionIndex());
-			this.output.flush();
-			final EvaluationExpression[] calculatedKeyExpressions = this.layout.getCalculatedKeyExpressions();
-			for (int index = 0; index < calculatedKeyExpressions.length; index++) {
-				this.offsets[index + this.layout.getNumDirectDataKeys()] = this.binaryRepresentation.size();
-				final IJsonNode calculatedValue = calculatedKeyExpressions[index].evaluate(this.node);
-				this.kryo.writeClass(this.output, calculatedValue.getType());
-				this.kryo.writeObject(this.output, calculatedValue);
-				this.output.flush();
-			}
-		} else if (SopremoUtil.DEBUG && this.binaryRepresentation.size() == 0)
+		if (this.node != null)
+			this.encodeNode();
+		else if (SopremoUtil.DEBUG && this.binaryRepresentation.size() == 0)
 			throw new IllegalStateException("Attempt to write zero length binary representation");
 
 		for (int index = 0; index < this.offsets.length; index++) {
@@ -219,23 +247,11 @@ public final class SopremoRecord extends AbstractSopremoType implements ISopremo
 	}
 
 	void write(Output out) {
-		if (this.node != null) {
-			Arrays.fill(this.offsets, MISSING);
-			writeRecursivelyToBuffer(this.node, this.layout.getExpressionIndex());
-			this.output.flush();
-			
-			final EvaluationExpression[] calculatedKeyExpressions = this.layout.getCalculatedKeyExpressions();
-			for (int index = 0; index < calculatedKeyExpressions.length; index++) {
-				this.offsets[index + this.layout.getNumDirectDataKeys()] = this.binaryRepresentation.size();
-				final IJsonNode calculatedValue = calculatedKeyExpressions[index].evaluate(this.node);
-				this.kryo.writeClass(this.output, calculatedValue.getType());
-				this.kryo.writeObject(this.output, calculatedValue);
-				this.output.flush();
-			}
-		} else if (SopremoUtil.DEBUG && this.binaryRepresentation.size() == 0)
+		if (this.node != null)
+			this.encodeNode();
+		else if (SopremoUtil.DEBUG && this.binaryRepresentation.size() == 0)
 			throw new IllegalStateException("Attempt to write zero length binary representation");
 
-
 		for (int index = 0; index < this.offsets.length; index++) {
 			if (SopremoUtil.DEBUG && this.offsets[index] == 0)
 				throw new IllegalStateException();
@@ -246,6 +262,99 @@ public final class SopremoRecord extends AbstractSopremoType implements ISopremo
 		out.write(this.binaryRepresentation.elements(), 0, size);
 	}
 
+	/**
+	 * Encodes the node into the binary representation. The encoded top-level object is followed by a directory of the
+	 * offsets of its fields, which is used by the {@link LazyObjectNode}. If the node is an unmodified lazy node of a
+	 * record with the same layout, the binary representation of that record is copied instead.
+	 */
+	private void encodeNode() {
+		final IJsonNode unwrappedNode = unwrap(this.node);
+		if (unwrappedNode instanceof LazyObjectNode) {
+			final LazyObjectNode lazyNode = (LazyObjectNode) unwrappedNode;
+			final SopremoRecord source = lazyNode.getRecord();
+			if (lazyNode.isPristine() && this.hasSameLayout(source)) {
+				this.copyBinaryRepresentation(source);
+				return;
+			}
+			// decode before the binary representation is overwritten
+			lazyNode.materialize();
+		}
+
+		Arrays.fill(this.offsets, MISSING);
+		this.binaryRepresentation.clear();
+		this.rootEntryOffsets.clear();
+		this.collectRootEntries = true;
+		writeRecursivelyToBuffer(this.node, this.layout.getExpressionIndex());
+		this.collectRootEntries = false;
+		this.output.flush();
+		final EvaluationExpression[] calculatedKeyExpressions = this.layout.getCalculatedKeyExpressions();
+		for (int index = 0; index < calculatedKeyExpressions.length; index++) {
+			this.offsets[index + this.layout.getNumDirectDataKeys()] = this.binaryRepresentation.size();
+			final IJsonNode calculatedValue = calculatedKeyExpressions[index].evaluate(this.node);
+			this.kryo.writeClass(this.output, calculatedValue.getType());
+			this.kryo.writeObject(this.output, calculatedValue);
+			this.output.flush();
+		}
+
+		if (this.node.getType() == IObjectNode.class) {
+			final int directoryStart = this.binaryRepresentation.size();
+			for (int index = 0; index < this.rootEntryOffsets.size(); index++)
+				this.output.writeInt(this.rootEntryOffsets.getInt(index), true);
+			this.output.writeInt(directoryStart);
+			this.output.flush();
+		}
+	}
+
+	private void copyBinaryRepresentation(final SopremoRecord source) {
+		if (source == this)
+			return;
+		this.binaryRepresentation.size(source.binaryRepresentation.size());
+		System.arraycopy(source.binaryRepresentation.elements(), 0, this.binaryRepresentation.elements(), 0,
+			source.binaryRepresentation.size());
+		System.arraycopy(source.offsets, 0, this.offsets, 0, this.offsets.length);
+	}
+
+	/**
+	 * Sets the content of this record to the serialized representation of the record from which the given node has
+	 * been read, without encoding the node again. The node must not have been changed since it has been read; however,
+	 * in contrast to {@link #setNode(IJsonNode)}, it may have been accessed.<br>
+	 * <br>
+	 * The serialized representation can only be forwarded if the node is the top-level object of a record with the
+	 * same layout.
+	 * 
+	 * @param node
+	 *        the unchanged node of an input record
+	 * @return true if the serialized representation has been forwarded; false if the node needs to be set with
+	 *         {@link #setNode(IJsonNode)}
+	 */
+	public boolean forwardNode(final IJsonNode node) {
+		final IJsonNode unwrappedNode = unwrap(node);
+		if (!(unwrappedNode instanceof LazyObjectNode))
+			return false;
+		final LazyObjectNode lazyNode = (LazyObjectNode) unwrappedNode;
+		final SopremoRecord source = lazyNode.getRecord();
+		// the source must still hold the serialized representation of the lazy node
+		if (lazyNode.isModified() || unwrap(source.node) != lazyNode || !this.hasSameLayout(source))
+			return false;
+
+		this.copyBinaryRepresentation(source);
+		this.node = null;
+		return true;
+	}
+
+	private static IJsonNode unwrap(final IJsonNode node) {
+		return node instanceof TypedObjectNode ? ((TypedObjectNode) node).getBackingNode() : node;
+	}
+
+	private boolean hasSameLayout(SopremoRecord source) {
+		if (source.layout == this.layout || source.layout == this.compatibleLayout)
+			return true;
+		if (!source.layout.equals(this.layout))
+			return false;
+		this.compatibleLayout = source.layout;
+		return true;
+	}
+
 	private void writeRecursivelyToBuffer(final IJsonNode node, ExpressionIndex expressionIndex) {
 		NodeSerializer<IJsonNode> serializer = getSerializer(node.getType());
 		SopremoRecord.this.kryo.writeClass(SopremoRecord.this.output, node.getType());
@@ -288,9 +397,13 @@ public final class SopremoRecord extends AbstractSopremoType implements ISopremo
 	}
 
 	private int position() {
-		return this.output.position();
+		return this.binaryRepresentation.size() + this.output.position();
 	}
 
+	/**
+	 * Serializes objects in two parts. The fields that are known to the layout are encoded by a presence bitmap
+	 * followed by their values in the order of the field names. All other fields are written with their names.
+	 */
 	private class ObjectSerializer implements NodeSerializer<IObjectNode>, NodeDeserializer<IObjectNode> {
 		/*
 		 * (non-Javadoc)
@@ -301,19 +414,52 @@ public final class SopremoRecord extends AbstractSopremoType implements ISopremo
 		 */
 		@Override
 		public void write(IObjectNode node, ExpressionIndex expressionIndex) {
-			final SortedSet<String> fieldNames = node.getFieldNames();
-			SopremoRecord.this.output.writeInt(fieldNames.size());
-			for (String fieldName : fieldNames) {
-				SopremoRecord.this.output.writeString(fieldName);
-				final ExpressionIndex subIndex;
-				if (expressionIndex != null) {
-					subIndex = expressionIndex.subIndex(fieldName);
-					if (subIndex != null && subIndex.getExpression() != null)
-						SopremoRecord.this.offsets[subIndex.getKeyIndex()] = position();
-				} else
-					subIndex = null;
-				writeRecursivelyToBuffer(node.get(fieldName), subIndex);
+			final boolean root = SopremoRecord.this.collectRootEntries;
+			SopremoRecord.this.collectRootEntries = false;
+			final String[] knownFieldNames = SopremoRecord.this.layout.getFieldNames();
+			int numKnownFields = 0;
+			for (int wordStart = 0; wordStart < knownFieldNames.length; wordStart += Long.SIZE) {
+				long presence = 0;
+				final int wordEnd = Math.min(wordStart + Long.SIZE, knownFieldNames.length);
+				for (int index = wordStart; index < wordEnd; index++)
+					if (node.get(knownFieldNames[index]) != MissingNode.getInstance()) {
+						presence |= 1L << (index - wordStart);
+						numKnownFields++;
+					}
+				SopremoRecord.this.output.writeLong(presence, true);
 			}
+			if (numKnownFields > 0)
+				for (String fieldName : knownFieldNames) {
+					final IJsonNode value = node.get(fieldName);
+					if (value != MissingNode.getInstance()) {
+						if (root)
+							SopremoRecord.this.rootEntryOffsets.add(position());
+						this.writeValue(fieldName, value, expressionIndex);
+					}
+				}
+
+			SopremoRecord.this.output.writeInt(node.size() - numKnownFields, true);
+			if (node.size() > numKnownFields)
+				for (Entry<String, IJsonNode> field : node) {
+					final String fieldName = field.getKey();
+					if (Arrays.binarySearch(knownFieldNames, fieldName) < 0) {
+						if (root)
+							SopremoRecord.this.rootEntryOffsets.add(position());
+						SopremoRecord.this.output.writeString(fieldName);
+						this.writeValue(fieldName, field.getValue(), expressionIndex);
+					}
+				}
+		}
+
+		private void writeValue(String fieldName, IJsonNode value, ExpressionIndex expressionIndex) {
+			final ExpressionIndex subIndex;
+			if (expressionIndex != null) {
+				subIndex = expressionIndex.subIndex(fieldName);
+				if (subIndex != null && subIndex.getExpression() != null)
+					SopremoRecord.this.offsets[subIndex.getKeyIndex()] = position();
+			} else
+				subIndex = null;
+			writeRecursivelyToBuffer(value, subIndex);
 		}
 
 		/*
@@ -324,19 +470,40 @@ public final class SopremoRecord extends AbstractSopremoType implements ISopremo
 		 */
 		@Override
 		public IObjectNode read(IObjectNode target, Registration registration) {
+			final FieldDictionary dictionary = SopremoRecord.this.currentDictionary;
 			if (target != null)
 				target.clear();
+			else if (dictionary != null)
+				target = new DictionaryObjectNode(dictionary);
 			else
-				target = new ObjectNode();
-
-			int size = SopremoRecord.this.input.readInt();
-			for (int index = 0; index < size; index++) {
-				final String key = SopremoRecord.this.input.readString();
-				// add caching
-				target.put(key, readRecursively((IJsonNode) null));
+				target = new DictionaryObjectNode();
+
+			final String[] knownFieldNames = SopremoRecord.this.layout.getFieldNames();
+			for (int wordStart = 0; wordStart < knownFieldNames.length; wordStart += Long.SIZE) {
+				long presence = SopremoRecord.this.input.readLong(true);
+				for (int index = wordStart; presence != 0; index++, presence >>>= 1)
+					if ((presence & 1) != 0)
+						this.readValue(target, knownFieldNames[index]);
 			}
+
+			int size = SopremoRecord.this.input.readInt(true);
+			for (int index = 0; index < size; index++)
+				this.readValue(target, SopremoRecord.this.input.readString());
+			SopremoRecord.this.currentDictionary = dictionary;
 			return target;
 		}
+
+		private void readValue(IObjectNode target, String fieldName) {
+			if (target instanceof DictionaryObjectNode) {
+				// reuse the values of the previous record, which are retained by the dictionary node
+				final DictionaryObjectNode reusingTarget = (DictionaryObjectNode) target;
+				final FieldDictionary fieldDictionary = reusingTarget.getDictionary();
+				SopremoRecord.this.currentDictionary =
+					fieldDictionary.getNestedDictionary(fieldDictionary.getOrAddId(fieldName));
+				target.put(fieldName, readRecursively(reusingTarget.getUnusedNode(fieldName)));
+			} else
+				target.put(fieldName, readRecursively((IJsonNode) null));
+		}
 	}
 
 	private class CachingArrayDeserializer implements NodeDeserializer<CachingArrayNode<IJsonNode>> {
@@ -353,7 +520,7 @@ public final class SopremoRecord extends AbstractSopremoType implements ISopremo
 			else
 				target = new CachingArrayNode<IJsonNode>();
 
-			int size = SopremoRecord.this.input.readInt();
+			int size = SopremoRecord.this.input.readInt(true);
 			target.clear();
 			for (int index = 0; index < size; index++)
 				target.add(readRecursively(target.getUnusedNode()));
@@ -372,7 +539,7 @@ public final class SopremoRecord extends AbstractSopremoType implements ISopremo
 		@Override
 		public void write(IArrayNode<IJsonNode> node, ExpressionIndex expressionIndex) {
 			final int size = node.size();
-			SopremoRecord.this.output.writeInt(size);
+			SopremoRecord.this.output.writeInt(size, true);
 			for (int index = 0; index < size; index++) {
 				final ExpressionIndex subIndex;
 				if (expressionIndex != null) {
@@ -464,13 +631,15 @@ public final class SopremoRecord extends AbstractSopremoType implements ISopremo
 	 */
 	@Override
 	public SopremoRecord copy(Kryo kryo) {
-		final SopremoRecord sopremoRecord = new SopremoRecord();
+		// the copy needs the same layout to interpret the offsets of the binary representation
+		final SopremoRecord sopremoRecord = new SopremoRecord(this.layout);
 		if (this.node == null)
 			sopremoRecord.node = null;
 		else
-			sopremoRecord.node = SopremoUtil.copyInto(this.node, this.nodeCache);
+			sopremoRecord.node = SopremoUtil.copyInto(this.node, sopremoRecord.nodeCache);
 		sopremoRecord.binaryRepresentation.clear();
 		sopremoRecord.binaryRepresentation.addAll(this.binaryRepresentation);
+		System.arraycopy(this.offsets, 0, sopremoRecord.offsets, 0, this.offsets.length);
 		return sopremoRecord;
 	}
 
@@ -520,6 +689,26 @@ public final class SopremoRecord extends AbstractSopremoType implements ISopremo
 		return this.offsets[expressionIndex];
 	}
 
+	IJsonNode readValueAtOffset(int offset, IJsonNode target, FieldDictionary dictionary) {
+		this.input.setBuffer(this.binaryRepresentation.elements(), offset, this.binaryRepresentation.size());
+		this.currentDictionary = dictionary;
+		final IJsonNode value = readRecursively(target);
+		this.currentDictionary = null;
+		return value;
+	}
+
+	byte[] getBinaryElements() {
+		return this.binaryRepresentation.elements();
+	}
+
+	int getBinarySize() {
+		return this.binaryRepresentation.size();
+	}
+
+	Kryo getKryo() {
+		return this.kryo;
+	}
+
 	public IJsonNode getValueAtOffset(int offset, IJsonNode target) {
 		if (offset == 0)
 			return getNode();
@@ -534,6 +723,49 @@ public final class SopremoRecord extends AbstractSopremoType implements ISopremo
 		return readRecursively(nodeCache);
 	}
 
+	/**
+	 * Compares the key at the given index with the respective key of the other record. If both records are only
+	 * available in their binary representation, primitive keys are compared in place without deserialization. Keys
+	 * of different non-numeric types are compared by their type name like {@link IJsonNode#compareTo(IJsonNode)}.
+	 * Complex keys and numeric keys of different types are deserialized into the given caches.
+	 * 
+	 * @param expressionIndex
+	 *        the index of the key expression
+	 * @param other
+	 *        the other record
+	 * @param nodeCache
+	 *        the cache to use if the key of this record needs to be deserialized
+	 * @param otherNodeCache
+	 *        the cache to use if the key of the other record needs to be deserialized
+	 * @return a negative number, zero, or a positive number if the key of this record is less than, equal to, or
+	 *         greater than the key of the other record
+	 */
+	public int compareKeyTo(int expressionIndex, SopremoRecord other, NodeCache nodeCache, NodeCache otherNodeCache) {
+		final int offset = getKeyOffset(expressionIndex), otherOffset = other.getKeyOffset(expressionIndex);
+		if (this.node != null || other.node != null || offset == MISSING || otherOffset == MISSING)
+			return getKey(expressionIndex, nodeCache).compareTo(other.getKey(expressionIndex, otherNodeCache));
+
+		this.input.setBuffer(this.binaryRepresentation.elements(), offset, this.binaryRepresentation.size());
+		other.input.setBuffer(other.binaryRepresentation.elements(), otherOffset, other.binaryRepresentation.size());
+		final Class<?> type = this.kryo.readClass(this.input).getType();
+		final Class<?> otherType = other.kryo.readClass(other.input).getType();
+		if (type == otherType) {
+			if (type == IntNode.class)
+				return IntNode.IntNodeSerializer.compareSerialized(this.input, other.input);
+			if (type == LongNode.class)
+				return LongNode.LongNodeSerializer.compareSerialized(this.input, other.input);
+			if (type == DoubleNode.class)
+				return DoubleNode.DoubleNodeSerializer.compareSerialized(this.input, other.input);
+			if (type == TextNode.class)
+				return TextNode.TextNodeSerializer.compareSerialized(this.input, other.input);
+			if (type == NullNode.class || type == MissingNode.class)
+				return 0;
+		}
+
+		// all other keys, including keys of different types, are compared by the nodes
+		return getValueAtOffset(offset, nodeCache).compareTo(other.getValueAtOffset(otherOffset, otherNodeCache));
+	}
+
 	@Override
 	public int hashCode() {
 		final int prime = 31;
@@ -40,6 +40,8 @@ public final class SopremoRecordComparator extends TypeComparator<SopremoRecord>
 
 	private SopremoRecordLayout layout;
 
+	private final byte[] normalizedKey;
+
 	public SopremoRecordComparator(SopremoRecordLayout layout, EvaluationExpression[] keyExpressions,
 			boolean[] ascending) {
 		this(layout, layout.getIndices(keyExpressions), ascending);
@@ -65,6 +67,7 @@ public final class SopremoRecordComparator extends TypeComparator<SopremoRecord>
 		this.temp1 = new SopremoRecord(layout);
 		this.temp2 = new SopremoRecord(layout);
 		this.ascending = ascending;
+		this.normalizedKey = new byte[this.keyExpressionIndices.length * NormalizedKeyEncoder.KEY_LENGTH];
 	}
 
 	/**
@@ -148,10 +151,8 @@ public final class SopremoRecordComparator extends TypeComparator<SopremoRecord>
 		this.temp2.read(secondSource);
 
 		for (int index = 0; index < this.keyExpressionIndices.length; index++) {
-			final IJsonNode k1 = this.temp1.getKey(this.keyExpressionIndices[index], this.nodeCache1[index]);
-			final IJsonNode k2 = this.temp2.getKey(this.keyExpressionIndices[index], this.nodeCache2[index]);
-
-			final int comparison = k1.compareTo(k2);
+			final int comparison = this.temp1.compareKeyTo(this.keyExpressionIndices[index], this.temp2,
+				this.nodeCache1[index], this.nodeCache2[index]);
 			if (comparison != 0)
 				return this.ascending[index] ? comparison : -comparison;
 		}
@@ -164,7 +165,7 @@ public final class SopremoRecordComparator extends TypeComparator<SopremoRecord>
 	 */
 	@Override
 	public boolean supportsNormalizedKey() {
-		return false;
+		return true;
 	}
 
 	/*
@@ -182,7 +183,7 @@ public final class SopremoRecordComparator extends TypeComparator<SopremoRecord>
 	 */
 	@Override
 	public int getNormalizeKeyLen() {
-		return 0;
+		return this.normalizedKey.length;
 	}
 
 	/*
@@ -191,14 +192,33 @@ public final class SopremoRecordComparator extends TypeComparator<SopremoRecord>
 	 */
 	@Override
 	public boolean isNormalizedKeyPrefixOnly(int keyBytes) {
-		return false;
+		// texts, decimals, and complex keys cannot be fully represented
+		return true;
 	}
 
-	/* (non-Javadoc)
-	 * @see eu.stratosphere.pact.generic.types.TypeComparator#putNormalizedKey(java.lang.Object, eu.stratosphere.nephele.services.memorymanager.MemorySegment, int, int)
+	/*
+	 * (non-Javadoc)
+	 * @see eu.stratosphere.pact.generic.types.TypeComparator#putNormalizedKey(java.lang.Object,
+	 * eu.stratosphere.nephele.services.memorymanager.MemorySegment, int, int)
 	 */
 	@Override
 	public void putNormalizedKey(SopremoRecord record, MemorySegment target, int offset, int numBytes) {
+		final int length = Math.min(numBytes, this.normalizedKey.length);
+		int keyBytes = 0;
+		for (int index = 0; keyBytes < length; index++) {
+			final IJsonNode key = record.getKey(this.keyExpressionIndices[index], this.nodeCache2[index]);
+			final boolean exact = NormalizedKeyEncoder.write(key, this.normalizedKey, keyBytes, this.ascending[index]);
+			keyBytes += NormalizedKeyEncoder.KEY_LENGTH;
+			if (!exact)
+				break;
+		}
+
+		// pad after the first key that could not be fully represented to enforce a full comparison on ties
+		final int limit = Math.min(keyBytes, length);
+		for (int pos = 0; pos < limit; pos++)
+			target.put(offset + pos, this.normalizedKey[pos]);
+		for (int pos = limit; pos < numBytes; pos++)
+			target.put(offset + pos, (byte) 0);
 	}
 
 	/*
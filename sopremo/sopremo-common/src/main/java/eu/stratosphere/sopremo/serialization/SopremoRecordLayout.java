@@ -24,6 +24,8 @@ import java.lang.reflect.Type;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.SortedSet;
+import java.util.TreeSet;
 
 import com.esotericsoftware.kryo.DefaultSerializer;
 import com.esotericsoftware.kryo.Kryo;
@@ -37,6 +39,8 @@ import com.google.common.reflect.TypeToken;
 import eu.stratosphere.sopremo.AbstractSopremoType;
 import eu.stratosphere.sopremo.expressions.ArrayAccess;
 import eu.stratosphere.sopremo.expressions.EvaluationExpression;
+import eu.stratosphere.sopremo.expressions.ObjectAccess;
+import eu.stratosphere.sopremo.type.FieldDictionary;
 import eu.stratosphere.sopremo.type.IJsonNode;
 import eu.stratosphere.sopremo.type.typed.ITypedObjectNode;
 import eu.stratosphere.sopremo.type.typed.TypedObjectNode;
@@ -114,6 +118,10 @@ public class SopremoRecordLayout extends AbstractSopremoType {
 
 	private final transient ExpressionIndex expressionIndex;
 
+	private final transient FieldDictionary fieldDictionary = new FieldDictionary();
+
+	private final transient String[] fieldNames;
+
 	public IntCollection indicesOf(EvaluationExpression expression) {
 		final IntArrayList indices = new IntArrayList();
 		if (expression == EvaluationExpression.VALUE)
@@ -204,6 +212,25 @@ public class SopremoRecordLayout extends AbstractSopremoType {
 			Arrays.equals(this.calculatedKeyExpressions, other.calculatedKeyExpressions);
 	}
 
+	/**
+	 * Returns the sorted names of all fields that are accessed by the key expressions. Since the names are derived from
+	 * the key expressions, they are the same on all nodes that use this layout and can be encoded by their position.
+	 * 
+	 * @return the known field names
+	 */
+	public String[] getFieldNames() {
+		return this.fieldNames;
+	}
+
+	/**
+	 * Returns the dictionary of the field names of all records with this layout.
+	 * 
+	 * @return the field dictionary
+	 */
+	public FieldDictionary getFieldDictionary() {
+		return this.fieldDictionary;
+	}
+
 	/**
 	 * Returns the expressionIndex.
 	 * 
@@ -269,6 +296,16 @@ public class SopremoRecordLayout extends AbstractSopremoType {
 		this.calculatedKeyExpressions = calculatedKeyExpressions;
 
 		index(directDataExpression, calculatedKeyExpressions);
+		this.fieldNames = collectFieldNames(Iterables.concat(Arrays.asList(directDataExpression),
+			Arrays.asList(calculatedKeyExpressions)));
+	}
+
+	private static String[] collectFieldNames(Iterable<EvaluationExpression> keyExpressions) {
+		final SortedSet<String> fieldNames = new TreeSet<String>();
+		for (EvaluationExpression keyExpression : keyExpressions)
+			for (ObjectAccess objectAccess : keyExpression.findAll(ObjectAccess.class))
+				fieldNames.add(objectAccess.getField());
+		return fieldNames.toArray(new String[fieldNames.size()]);
 	}
 
 	private void index(EvaluationExpression[] directDataExpression, EvaluationExpression[] calculatedKeyExpressions) {
@@ -36,7 +36,20 @@ public abstract class AbstractJsonNode extends AbstractSopremoType implements IJ
 	}
 
 	protected int compareToOtherType(final IJsonNode other) {
-		return this.getType().getName().compareTo(other.getType().getName());
+		return getOrderName(this).compareTo(getOrderName(other));
+	}
+
+	/**
+	 * Returns the name that determines the order of the type of the given node relative to other types. All numeric
+	 * types share one name, because numbers of different types are compared by their value; otherwise, the order would
+	 * not be transitive.
+	 * 
+	 * @param node
+	 *        the node
+	 * @return the name of the type or the name of {@link DoubleNode} for all numbers
+	 */
+	static String getOrderName(final IJsonNode node) {
+		return node instanceof INumericNode ? DoubleNode.class.getName() : node.getType().getName();
 	}
 
 	protected void checkForSameType(final IJsonNode other) {
@@ -0,0 +1,475 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010-2013 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+package eu.stratosphere.sopremo.type;
+
+import java.io.IOException;
+import java.util.AbstractMap;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map.Entry;
+import java.util.NoSuchElementException;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import com.esotericsoftware.kryo.DefaultSerializer;
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.KryoCopyable;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+
+import eu.stratosphere.sopremo.pact.SopremoUtil;
+
+/**
+ * An {@link IObjectNode} that stores its values in a flat array. The field names are mapped to the array positions by
+ * a {@link FieldDictionary}, which is usually shared by all objects of the same schema. The node additionally keeps
+ * the ids of its fields in the order of the field names, so that iteration, hashing, and clearing only visit the
+ * fields that are actually set. Fields whose names do not fit into the full dictionary are kept in a sorted map of
+ * the node.<br>
+ * <br>
+ * {@link #clear()} retains the previous values, so that deserializers can reuse them with
+ * {@link #getUnusedNode(String)} when the node is filled again.
+ *
+ * @author Arvid Heise
+ */
+@DefaultSerializer(DictionaryObjectNode.DictionaryObjectSerializer.class)
+public class DictionaryObjectNode extends AbstractJsonNode implements IObjectNode,
+		KryoCopyable<DictionaryObjectNode> {
+	private static final IJsonNode[] NO_VALUES = new IJsonNode[0];
+
+	private static final int[] NO_IDS = new int[0];
+
+	private final FieldDictionary dictionary;
+
+	/**
+	 * Do not store null nodes
+	 */
+	private IJsonNode[] values = NO_VALUES, unusedValues = NO_VALUES;
+
+	/**
+	 * The ids of the set fields in the order of the field names
+	 */
+	private int[] fieldIds = NO_IDS;
+
+	private int numberOfIds;
+
+	/**
+	 * The fields that are not in the dictionary or null
+	 */
+	private TreeMap<String, IJsonNode> overflowFields;
+
+	/**
+	 * Initializes an empty DictionaryObjectNode with a new {@link FieldDictionary}.
+	 */
+	public DictionaryObjectNode() {
+		this(new FieldDictionary());
+	}
+
+	/**
+	 * Initializes an empty DictionaryObjectNode that uses the given {@link FieldDictionary}.
+	 *
+	 * @param dictionary
+	 *        the dictionary of the field names
+	 */
+	public DictionaryObjectNode(final FieldDictionary dictionary) {
+		if (dictionary == null)
+			throw new NullPointerException("dictionary must not be null");
+
+		this.dictionary = dictionary;
+	}
+
+	/**
+	 * Returns the dictionary of the field names.
+	 *
+	 * @return the dictionary
+	 */
+	public FieldDictionary getDictionary() {
+		return this.dictionary;
+	}
+
+	@Override
+	public int size() {
+		return this.numberOfIds + (this.overflowFields == null ? 0 : this.overflowFields.size());
+	}
+
+	@Override
+	public final Class<IObjectNode> getType() {
+		return IObjectNode.class;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see eu.stratosphere.sopremo.type.IObjectNode#putAll(eu.stratosphere.sopremo.type.IObjectNode)
+	 */
+	@Override
+	public IObjectNode putAll(final IObjectNode jsonNode) {
+		for (final Entry<String, IJsonNode> entry : jsonNode)
+			this.put(entry.getKey(), entry.getValue());
+		return this;
+	}
+
+	@Override
+	public void appendAsString(final Appendable appendable) throws IOException {
+		appendable.append("{");
+		boolean first = true;
+		for (final Entry<String, IJsonNode> field : this) {
+			if (first)
+				first = false;
+			else
+				appendable.append(", ");
+			appendable.append(field.getKey()).append(": ");
+			field.getValue().appendAsString(appendable);
+		}
+		appendable.append("}");
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see eu.stratosphere.sopremo.type.AbstractJsonNode#clone()
+	 */
+	@Override
+	public DictionaryObjectNode clone() {
+		return (DictionaryObjectNode) super.clone();
+	}
+
+	@Override
+	public int compareToSameType(final IJsonNode other) {
+		final IObjectNode node = (IObjectNode) other;
+		final Iterator<Entry<String, IJsonNode>> entries1 = this.iterator(), entries2 = node.iterator();
+
+		while (entries1.hasNext() && entries2.hasNext()) {
+			final Entry<String, IJsonNode> entry1 = entries1.next(), entry2 = entries2.next();
+			final int keyComparison = entry1.getKey().compareTo(entry2.getKey());
+			if (keyComparison != 0)
+				return keyComparison;
+
+			final int valueComparison = entry1.getValue().compareTo(entry2.getValue());
+			if (valueComparison != 0)
+				return valueComparison;
+		}
+
+		if (!entries1.hasNext())
+			return entries2.hasNext() ? -1 : 0;
+		if (!entries2.hasNext())
+			return 1;
+		return 0;
+	}
+
+	@Override
+	public void copyValueFrom(final IJsonNode otherNode) {
+		this.checkForSameType(otherNode);
+		final IObjectNode objectNode = (IObjectNode) otherNode;
+		this.clear();
+
+		for (final Entry<String, IJsonNode> child : objectNode) {
+			final IJsonNode unusedNode = this.getUnusedNode(child.getKey());
+			this.put(child.getKey(), SopremoUtil.copyInto(child.getValue(), unusedNode));
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see com.esotericsoftware.kryo.KryoCopyable#copy(com.esotericsoftware.kryo.Kryo)
+	 */
+	@Override
+	public DictionaryObjectNode copy(final Kryo kryo) {
+		final DictionaryObjectNode node = new DictionaryObjectNode(this.dictionary);
+		node.copyValueFrom(this);
+		return node;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see eu.stratosphere.sopremo.type.IObjectNode#put(java.lang.String, eu.stratosphere.sopremo.type.IJsonNode)
+	 */
+	@Override
+	public DictionaryObjectNode put(final String fieldName, final IJsonNode value) {
+		if (value == null)
+			throw new NullPointerException();
+
+		if (value == MissingNode.getInstance())
+			this.remove(fieldName);
+		else {
+			final int id = this.dictionary.getOrAddId(fieldName);
+			if (id == FieldDictionary.UNKNOWN) {
+				if (this.overflowFields == null)
+					this.overflowFields = new TreeMap<String, IJsonNode>();
+				this.overflowFields.put(fieldName, value);
+				return this;
+			}
+
+			if (id >= this.values.length) {
+				final int capacity = Math.max(id + 1, this.dictionary.size());
+				this.values = Arrays.copyOf(this.values, capacity);
+				this.unusedValues = Arrays.copyOf(this.unusedValues, capacity);
+			}
+			if (this.values[id] == null)
+				this.addId(id, fieldName);
+			this.values[id] = value;
+			this.unusedValues[id] = null;
+		}
+		return this;
+	}
+
+	private void addId(final int id, final String fieldName) {
+		if (this.numberOfIds == this.fieldIds.length)
+			this.fieldIds = Arrays.copyOf(this.fieldIds, Math.max(4, 2 * this.numberOfIds));
+
+		// deserialized fields arrive in order, so that the new id is usually appended
+		int position = this.numberOfIds;
+		while (position > 0 && this.dictionary.getName(this.fieldIds[position - 1]).compareTo(fieldName) > 0)
+			position--;
+		System.arraycopy(this.fieldIds, position, this.fieldIds, position + 1, this.numberOfIds - position);
+		this.fieldIds[position] = id;
+		this.numberOfIds++;
+	}
+
+	private void removeIdAt(final int position) {
+		this.values[this.fieldIds[position]] = null;
+		this.numberOfIds--;
+		System.arraycopy(this.fieldIds, position + 1, this.fieldIds, position, this.numberOfIds - position);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see eu.stratosphere.sopremo.type.IObjectNode#get(java.lang.String)
+	 */
+	@SuppressWarnings("unchecked")
+	@Override
+	public IJsonNode get(final String fieldName) {
+		final int id = this.dictionary.getId(fieldName);
+		final IJsonNode node = id == FieldDictionary.UNKNOWN && this.overflowFields != null ?
+			this.overflowFields.get(fieldName) : this.getValue(id);
+		if (node != null)
+			return node;
+		return MissingNode.getInstance();
+	}
+
+	/**
+	 * Returns the value that has been stored in the given field before the last {@link #clear()} and that has not been
+	 * replaced since then.
+	 *
+	 * @param fieldName
+	 *        the name of the field
+	 * @return the previous value or null
+	 */
+	public IJsonNode getUnusedNode(final String fieldName) {
+		final int id = this.dictionary.getId(fieldName);
+		if (id == FieldDictionary.UNKNOWN || id >= this.unusedValues.length)
+			return null;
+		return this.unusedValues[id];
+	}
+
+	private IJsonNode getValue(final int id) {
+		if (id == FieldDictionary.UNKNOWN || id >= this.values.length)
+			return null;
+		return this.values[id];
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see eu.stratosphere.sopremo.type.IObjectNode#remove(java.lang.String)
+	 */
+	@Override
+	public void remove(final String fieldName) {
+		final int id = this.dictionary.getId(fieldName);
+		if (this.getValue(id) != null) {
+			for (int position = 0; position < this.numberOfIds; position++)
+				if (this.fieldIds[position] == id) {
+					this.removeIdAt(position);
+					break;
+				}
+		} else if (id == FieldDictionary.UNKNOWN && this.overflowFields != null)
+			this.overflowFields.remove(fieldName);
+	}
+
+	@Override
+	public void clear() {
+		for (int position = 0; position < this.numberOfIds; position++) {
+			final int id = this.fieldIds[position];
+			this.unusedValues[id] = this.values[id];
+			this.values[id] = null;
+		}
+		this.numberOfIds = 0;
+		if (this.overflowFields != null)
+			this.overflowFields.clear();
+	}
+
+	@Override
+	public int hashCode() {
+		// same hash code as ObjectNode
+		int childrenHash = 0;
+		for (int position = 0; position < this.numberOfIds; position++) {
+			final int id = this.fieldIds[position];
+			childrenHash += this.dictionary.getName(id).hashCode() ^ this.values[id].hashCode();
+		}
+		if (this.overflowFields != null)
+			for (final Entry<String, IJsonNode> field : this.overflowFields.entrySet())
+				childrenHash += field.getKey().hashCode() ^ field.getValue().hashCode();
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + childrenHash;
+		return result;
+	}
+
+	@Override
+	public boolean equals(final Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null || this.getClass() != obj.getClass() ||
+			this.dictionary != ((DictionaryObjectNode) obj).dictionary)
+			return super.equals(obj);
+
+		final DictionaryObjectNode other = (DictionaryObjectNode) obj;
+		if (this.numberOfIds != other.numberOfIds || this.size() != other.size())
+			return false;
+		for (int position = 0; position < this.numberOfIds; position++) {
+			final int id = this.fieldIds[position];
+			if (!this.values[id].equals(other.getValue(id)))
+				return false;
+		}
+		// the dictionary is shared, so that both nodes store the same field names in the overflow map
+		return this.overflowFields == null || this.overflowFields.isEmpty() ||
+			this.overflowFields.equals(other.overflowFields);
+	}
+
+	@Override
+	public Iterator<Entry<String, IJsonNode>> iterator() {
+		return new FieldIterator();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see eu.stratosphere.sopremo.type.IObjectNode#getFieldNames()
+	 */
+	@Override
+	public SortedSet<String> getFieldNames() {
+		final SortedSet<String> fieldNames = new TreeSet<String>();
+		for (int position = 0; position < this.numberOfIds; position++)
+			fieldNames.add(this.dictionary.getName(this.fieldIds[position]));
+		if (this.overflowFields != null)
+			fieldNames.addAll(this.overflowFields.keySet());
+		return fieldNames;
+	}
+
+	/**
+	 * Merges the fields in the dictionary with the overflow fields in the order of the field names.
+	 */
+	private class FieldIterator implements Iterator<Entry<String, IJsonNode>> {
+		private int position;
+
+		private String nextOverflowName, lastOverflowName;
+
+		private int lastId = FieldDictionary.UNKNOWN;
+
+		public FieldIterator() {
+			final TreeMap<String, IJsonNode> overflowFields = DictionaryObjectNode.this.overflowFields;
+			if (overflowFields != null && !overflowFields.isEmpty())
+				this.nextOverflowName = overflowFields.firstKey();
+		}
+
+		@Override
+		public boolean hasNext() {
+			return this.position < DictionaryObjectNode.this.numberOfIds || this.nextOverflowName != null;
+		}
+
+		@Override
+		public Entry<String, IJsonNode> next() {
+			if (!this.hasNext())
+				throw new NoSuchElementException();
+
+			final DictionaryObjectNode node = DictionaryObjectNode.this;
+			if (this.position < node.numberOfIds) {
+				final int id = node.fieldIds[this.position];
+				final String fieldName = node.dictionary.getName(id);
+				if (this.nextOverflowName == null || fieldName.compareTo(this.nextOverflowName) < 0) {
+					this.position++;
+					this.lastId = id;
+					this.lastOverflowName = null;
+					return new AbstractMap.SimpleImmutableEntry<String, IJsonNode>(fieldName, node.values[id]);
+				}
+			}
+
+			this.lastId = FieldDictionary.UNKNOWN;
+			this.lastOverflowName = this.nextOverflowName;
+			this.nextOverflowName = node.overflowFields.higherKey(this.lastOverflowName);
+			return new AbstractMap.SimpleImmutableEntry<String, IJsonNode>(this.lastOverflowName,
+				node.overflowFields.get(this.lastOverflowName));
+		}
+
+		@Override
+		public void remove() {
+			if (this.lastId != FieldDictionary.UNKNOWN)
+				DictionaryObjectNode.this.removeIdAt(--this.position);
+			else if (this.lastOverflowName != null)
+				DictionaryObjectNode.this.overflowFields.remove(this.lastOverflowName);
+			else
+				throw new IllegalStateException();
+			this.lastId = FieldDictionary.UNKNOWN;
+			this.lastOverflowName = null;
+		}
+	}
+
+	public static final class DictionaryObjectSerializer extends ReusingSerializer<DictionaryObjectNode> {
+		/*
+		 * (non-Javadoc)
+		 * @see com.esotericsoftware.kryo.Serializer#write(com.esotericsoftware.kryo.Kryo,
+		 * com.esotericsoftware.kryo.io.Output, java.lang.Object)
+		 */
+		@Override
+		public void write(final Kryo kryo, final Output output, final DictionaryObjectNode object) {
+			output.writeInt(object.size());
+
+			for (final Entry<String, IJsonNode> entry : object) {
+				output.writeString(entry.getKey());
+				kryo.writeClassAndObject(output, entry.getValue());
+			}
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * @see com.esotericsoftware.kryo.Serializer#read(com.esotericsoftware.kryo.Kryo,
+		 * com.esotericsoftware.kryo.io.Input, java.lang.Class)
+		 */
+		@Override
+		public DictionaryObjectNode read(final Kryo kryo, final Input input, final Class<DictionaryObjectNode> type) {
+			return this.read(kryo, input, new DictionaryObjectNode(), type);
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * @see eu.stratosphere.sopremo.type.ReusingSerializer#read(com.esotericsoftware.kryo.Kryo,
+		 * com.esotericsoftware.kryo.io.Input, java.lang.Object, java.lang.Class)
+		 */
+		@Override
+		public DictionaryObjectNode read(final Kryo kryo, final Input input, final DictionaryObjectNode object,
+				final Class<DictionaryObjectNode> type) {
+			if (object == null)
+				return this.read(kryo, input, type);
+
+			final int len = input.readInt();
+
+			// performance optimization: reuse existing nodes
+			object.clear();
+			for (int i = 0; i < len; i++) {
+				final String key = input.readString();
+				final IJsonNode unusedNode = object.getUnusedNode(key);
+				object.put(key, unusedNode == null ? (IJsonNode) kryo.readClassAndObject(input) :
+					SopremoUtil.deserializeInto(kryo, input, unusedNode));
+			}
+			return object;
+		}
+	}
+}
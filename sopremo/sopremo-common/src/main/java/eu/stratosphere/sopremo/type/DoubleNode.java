@@ -5,6 +5,12 @@ import java.math.BigDecimal;
 import java.math.BigInteger;
 
 import javolution.text.TypeFormat;
+
+import com.esotericsoftware.kryo.DefaultSerializer;
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+
 import eu.stratosphere.sopremo.pact.SopremoUtil;
 
 /**
@@ -13,8 +19,57 @@ import eu.stratosphere.sopremo.pact.SopremoUtil;
  * @author Michael Hopstock
  * @author Tommy Neubert
  */
+@DefaultSerializer(DoubleNode.DoubleNodeSerializer.class)
 public class DoubleNode extends AbstractNumericNode implements INumericNode {
 
+	public static class DoubleNodeSerializer extends ReusingSerializer<DoubleNode> {
+		/*
+		 * (non-Javadoc)
+		 * @see eu.stratosphere.sopremo.type.ReusingSerializer#read(com.esotericsoftware.kryo.Kryo,
+		 * com.esotericsoftware.kryo.io.Input, java.lang.Object, java.lang.Class)
+		 */
+		@Override
+		public DoubleNode read(Kryo kryo, Input input, DoubleNode oldInstance, Class<DoubleNode> type) {
+			if (oldInstance == null)
+				return new DoubleNode(input.readDouble());
+			oldInstance.value = input.readDouble();
+			return oldInstance;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * @see com.esotericsoftware.kryo.Serializer#write(com.esotericsoftware.kryo.Kryo,
+		 * com.esotericsoftware.kryo.io.Output, java.lang.Object)
+		 */
+		@Override
+		public void write(Kryo kryo, Output output, DoubleNode object) {
+			output.writeDouble(object.value);
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * @see com.esotericsoftware.kryo.Serializer#copy(com.esotericsoftware.kryo.Kryo, java.lang.Object)
+		 */
+		@Override
+		public DoubleNode copy(Kryo kryo, DoubleNode original) {
+			return new DoubleNode(original.value);
+		}
+
+		/**
+		 * Compares two serialized DoubleNodes without deserializing them.
+		 * 
+		 * @param input1
+		 *        the input positioned at the first serialized value
+		 * @param input2
+		 *        the input positioned at the second serialized value
+		 * @return a negative number, zero, or a positive number if the first value is less than, equal to, or greater
+		 *         than the second value
+		 */
+		public static int compareSerialized(Input input1, Input input2) {
+			return Double.compare(input1.readDouble(), input2.readDouble());
+		}
+	}
+
 	private double value;
 
 	public final static DoubleNode NaN = DoubleNode.valueOf(Double.NaN);
@@ -0,0 +1,204 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010-2013 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+package eu.stratosphere.sopremo.type;
+
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+
+import java.util.Arrays;
+
+/**
+ * Maps the field names of {@link DictionaryObjectNode}s to small, stable ids. Ids are assigned in the order in which
+ * the field names are first encountered; additionally, the dictionary maintains the ids in the order of their field
+ * names, so that nodes can iterate over their fields without sorting.<br>
+ * <br>
+ * Lookups are lock-free and the dictionary can be shared between threads. Adding a field name copies the internal
+ * tables, which is cheap because the number of distinct field names in a schema is small. To bound the memory and the
+ * copying for data with arbitrary field names, a dictionary accepts at most {@link #getMaxSize()} field names; further
+ * field names remain {@link #UNKNOWN} and are stored by the nodes themselves.
+ *
+ * @author Arvid Heise
+ */
+public class FieldDictionary {
+	/**
+	 * The id that is returned for unknown field names.
+	 */
+	public static final int UNKNOWN = -1;
+
+	/**
+	 * The default maximum number of field names of a dictionary.
+	 */
+	public static final int DEFAULT_MAX_SIZE = 1024;
+
+	private final int maxSize;
+
+	private volatile Tables tables = new Tables(new Object2IntOpenHashMap<String>(), new String[0], new int[0],
+		new FieldDictionary[0]);
+
+	/**
+	 * Initializes a FieldDictionary that accepts up to {@link #DEFAULT_MAX_SIZE} field names.
+	 */
+	public FieldDictionary() {
+		this(DEFAULT_MAX_SIZE);
+	}
+
+	/**
+	 * Initializes a FieldDictionary that accepts up to the given number of field names.
+	 *
+	 * @param maxSize
+	 *        the maximum number of field names
+	 */
+	public FieldDictionary(final int maxSize) {
+		if (maxSize < 0)
+			throw new IllegalArgumentException("maxSize must not be negative");
+
+		this.maxSize = maxSize;
+	}
+
+	/**
+	 * Returns the maximum number of field names.
+	 *
+	 * @return the maximum number of field names
+	 */
+	public int getMaxSize() {
+		return this.maxSize;
+	}
+
+	/**
+	 * Returns the id of the given field name.
+	 *
+	 * @param fieldName
+	 *        the name of the field
+	 * @return the id or {@link #UNKNOWN}
+	 */
+	public int getId(final String fieldName) {
+		return this.tables.ids.getInt(fieldName);
+	}
+
+	/**
+	 * Returns the id of the given field name and assigns a new id if the field name is not known yet and the dictionary
+	 * has not reached its maximum size.
+	 *
+	 * @param fieldName
+	 *        the name of the field
+	 * @return the id or {@link #UNKNOWN} if the dictionary is full
+	 */
+	public int getOrAddId(final String fieldName) {
+		final Tables tables = this.tables;
+		final int id = tables.ids.getInt(fieldName);
+		// a full dictionary never changes again, so that unknown field names do not need the lock
+		if (id != UNKNOWN || tables.names.length >= this.maxSize)
+			return id;
+		return this.addId(fieldName);
+	}
+
+	private synchronized int addId(final String fieldName) {
+		final Tables tables = this.tables;
+		final int knownId = tables.ids.getInt(fieldName);
+		if (knownId != UNKNOWN || tables.names.length >= this.maxSize)
+			return knownId;
+
+		final int id = tables.names.length;
+		final Object2IntOpenHashMap<String> ids = new Object2IntOpenHashMap<String>(tables.ids);
+		ids.put(fieldName, id);
+		final String[] names = Arrays.copyOf(tables.names, id + 1);
+		names[id] = fieldName;
+
+		final int[] sortedIds = new int[id + 1];
+		int insertionPoint = 0;
+		while (insertionPoint < id && names[tables.sortedIds[insertionPoint]].compareTo(fieldName) < 0)
+			insertionPoint++;
+		System.arraycopy(tables.sortedIds, 0, sortedIds, 0, insertionPoint);
+		sortedIds[insertionPoint] = id;
+		System.arraycopy(tables.sortedIds, insertionPoint, sortedIds, insertionPoint + 1, id - insertionPoint);
+
+		this.tables = new Tables(ids, names, sortedIds, Arrays.copyOf(tables.nestedDictionaries, id + 1));
+		return id;
+	}
+
+	/**
+	 * Returns the field name with the given id.
+	 *
+	 * @param id
+	 *        the id of the field
+	 * @return the name of the field
+	 */
+	public String getName(final int id) {
+		return this.tables.names[id];
+	}
+
+	/**
+	 * Returns the ids of all known field names in the order of the field names. The returned array must not be
+	 * modified.
+	 *
+	 * @return the sorted ids
+	 */
+	public int[] getSortedIds() {
+		return this.tables.sortedIds;
+	}
+
+	/**
+	 * Returns the dictionary for the fields of objects that are stored in the field with the given id.
+	 *
+	 * @param id
+	 *        the id of the field
+	 * @return the nested dictionary or null if the id is {@link #UNKNOWN}
+	 */
+	public FieldDictionary getNestedDictionary(final int id) {
+		if (id == UNKNOWN)
+			return null;
+		final FieldDictionary nestedDictionary = this.tables.nestedDictionaries[id];
+		if (nestedDictionary != null)
+			return nestedDictionary;
+		return this.addNestedDictionary(id);
+	}
+
+	private synchronized FieldDictionary addNestedDictionary(final int id) {
+		final FieldDictionary[] nestedDictionaries = this.tables.nestedDictionaries;
+		if (nestedDictionaries[id] == null)
+			nestedDictionaries[id] = new FieldDictionary(this.maxSize);
+		return nestedDictionaries[id];
+	}
+
+	/**
+	 * Returns the number of known field names.
+	 *
+	 * @return the number of field names
+	 */
+	public int size() {
+		return this.tables.names.length;
+	}
+
+	/**
+	 * Immutable snapshot of the lookup tables; only the nested dictionaries are filled lazily.
+	 */
+	private static class Tables {
+		private final Object2IntOpenHashMap<String> ids;
+
+		private final String[] names;
+
+		private final int[] sortedIds;
+
+		private final FieldDictionary[] nestedDictionaries;
+
+		public Tables(final Object2IntOpenHashMap<String> ids, final String[] names, final int[] sortedIds,
+				final FieldDictionary[] nestedDictionaries) {
+			this.ids = ids;
+			this.ids.defaultReturnValue(UNKNOWN);
+			this.names = names;
+			this.sortedIds = sortedIds;
+			this.nestedDictionaries = nestedDictionaries;
+		}
+	}
+}
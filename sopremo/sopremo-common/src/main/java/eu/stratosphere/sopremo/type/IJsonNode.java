@@ -46,7 +46,8 @@ public interface IJsonNode extends ISopremoType, Comparable<IJsonNode> {
 	public IJsonNode clone();
 
 	/**
-	 * Compares this node with another.
+	 * Compares this node with another. Nodes of different types are ordered by the names of their types, while all
+	 * numbers are ordered by their value at the position of {@link DoubleNode}.
 	 * 
 	 * @param other
 	 *        the node this node should be compared with
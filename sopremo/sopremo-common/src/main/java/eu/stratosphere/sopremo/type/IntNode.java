@@ -5,6 +5,12 @@ import java.math.BigDecimal;
 import java.math.BigInteger;
 
 import javolution.text.TypeFormat;
+
+import com.esotericsoftware.kryo.DefaultSerializer;
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+
 import eu.stratosphere.sopremo.pact.SopremoUtil;
 
 /**
@@ -13,8 +19,58 @@ import eu.stratosphere.sopremo.pact.SopremoUtil;
  * @author Michael Hopstock
  * @author Tommy Neubert
  */
+@DefaultSerializer(IntNode.IntNodeSerializer.class)
 public class IntNode extends AbstractNumericNode implements INumericNode {
 
+	public static class IntNodeSerializer extends ReusingSerializer<IntNode> {
+		/*
+		 * (non-Javadoc)
+		 * @see eu.stratosphere.sopremo.type.ReusingSerializer#read(com.esotericsoftware.kryo.Kryo,
+		 * com.esotericsoftware.kryo.io.Input, java.lang.Object, java.lang.Class)
+		 */
+		@Override
+		public IntNode read(Kryo kryo, Input input, IntNode oldInstance, Class<IntNode> type) {
+			if (oldInstance == null)
+				return new IntNode(input.readInt(false));
+			oldInstance.value = input.readInt(false);
+			return oldInstance;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * @see com.esotericsoftware.kryo.Serializer#write(com.esotericsoftware.kryo.Kryo,
+		 * com.esotericsoftware.kryo.io.Output, java.lang.Object)
+		 */
+		@Override
+		public void write(Kryo kryo, Output output, IntNode object) {
+			output.writeInt(object.value, false);
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * @see com.esotericsoftware.kryo.Serializer#copy(com.esotericsoftware.kryo.Kryo, java.lang.Object)
+		 */
+		@Override
+		public IntNode copy(Kryo kryo, IntNode original) {
+			return new IntNode(original.value);
+		}
+
+		/**
+		 * Compares two serialized IntNodes without deserializing them.
+		 * 
+		 * @param input1
+		 *        the input positioned at the first serialized value
+		 * @param input2
+		 *        the input positioned at the second serialized value
+		 * @return a negative number, zero, or a positive number if the first value is less than, equal to, or greater
+		 *         than the second value
+		 */
+		public static int compareSerialized(Input input1, Input input2) {
+			final int value1 = input1.readInt(false), value2 = input2.readInt(false);
+			return value1 < value2 ? -1 : value1 == value2 ? 0 : 1;
+		}
+	}
+
 	private int value;
 
 	public static final IntNode ZERO = new IntNode(0), ONE = new IntNode(1);
@@ -138,7 +194,8 @@ public class IntNode extends AbstractNumericNode implements INumericNode {
 
 	@Override
 	public int compareToSameType(final IJsonNode other) {
-		return this.value - ((IntNode) other).value;
+		final int otherValue = ((IntNode) other).value;
+		return this.value < otherValue ? -1 : this.value == otherValue ? 0 : 1;
 	}
 
 	@Override
@@ -5,6 +5,12 @@ import java.math.BigDecimal;
 import java.math.BigInteger;
 
 import javolution.text.TypeFormat;
+
+import com.esotericsoftware.kryo.DefaultSerializer;
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+
 import eu.stratosphere.sopremo.pact.SopremoUtil;
 
 /**
@@ -13,8 +19,58 @@ import eu.stratosphere.sopremo.pact.SopremoUtil;
  * @author Michael Hopstock
  * @author Tommy Neubert
  */
+@DefaultSerializer(LongNode.LongNodeSerializer.class)
 public class LongNode extends AbstractNumericNode implements INumericNode {
 
+	public static class LongNodeSerializer extends ReusingSerializer<LongNode> {
+		/*
+		 * (non-Javadoc)
+		 * @see eu.stratosphere.sopremo.type.ReusingSerializer#read(com.esotericsoftware.kryo.Kryo,
+		 * com.esotericsoftware.kryo.io.Input, java.lang.Object, java.lang.Class)
+		 */
+		@Override
+		public LongNode read(Kryo kryo, Input input, LongNode oldInstance, Class<LongNode> type) {
+			if (oldInstance == null)
+				return new LongNode(input.readLong(false));
+			oldInstance.value = input.readLong(false);
+			return oldInstance;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * @see com.esotericsoftware.kryo.Serializer#write(com.esotericsoftware.kryo.Kryo,
+		 * com.esotericsoftware.kryo.io.Output, java.lang.Object)
+		 */
+		@Override
+		public void write(Kryo kryo, Output output, LongNode object) {
+			output.writeLong(object.value, false);
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * @see com.esotericsoftware.kryo.Serializer#copy(com.esotericsoftware.kryo.Kryo, java.lang.Object)
+		 */
+		@Override
+		public LongNode copy(Kryo kryo, LongNode original) {
+			return new LongNode(original.value);
+		}
+
+		/**
+		 * Compares two serialized LongNodes without deserializing them.
+		 * 
+		 * @param input1
+		 *        the input positioned at the first serialized value
+		 * @param input2
+		 *        the input positioned at the second serialized value
+		 * @return a negative number, zero, or a positive number if the first value is less than, equal to, or greater
+		 *         than the second value
+		 */
+		public static int compareSerialized(Input input1, Input input2) {
+			final long value1 = input1.readLong(false), value2 = input2.readLong(false);
+			return value1 < value2 ? -1 : value1 == value2 ? 0 : 1;
+		}
+	}
+
 	private long value;
 
 	/**
@@ -128,7 +184,8 @@ public class LongNode extends AbstractNumericNode implements INumericNode {
 
 	@Override
 	public int compareToSameType(final IJsonNode other) {
-		return Long.signum(this.value - ((LongNode) other).value);
+		final long otherValue = ((LongNode) other).value;
+		return this.value < otherValue ? -1 : this.value == otherValue ? 0 : 1;
 	}
 
 	@Override
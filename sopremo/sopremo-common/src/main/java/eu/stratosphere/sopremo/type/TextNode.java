@@ -32,12 +32,23 @@ public class TextNode extends AbstractJsonNode implements IPrimitiveNode,
 		@Override
 		public TextNode read(Kryo kryo, Input input, TextNode oldInstance,
 				Class<TextNode> type) {
-			final String string = input.readString();
-			if (oldInstance == null)
-				return new TextNode(string);
-			oldInstance.value.clear();
-			oldInstance.value.addElements(0, string.toCharArray());
-			return oldInstance;
+			final TextNode target = oldInstance == null ? new TextNode() : oldInstance;
+			final CharArrayList value = target.value;
+			value.clear();
+			final int byteLength = input.readInt(true);
+			for (int pos = 0; pos < byteLength; pos++) {
+				final int b = input.readByte() & 0xFF;
+				if (b < 0x80)
+					value.add((char) b);
+				else if (b < 0xE0) {
+					value.add((char) ((b & 0x1F) << 6 | input.readByte() & 0x3F));
+					pos++;
+				} else {
+					value.add((char) ((b & 0x0F) << 12 | (input.readByte() & 0x3F) << 6 | input.readByte() & 0x3F));
+					pos += 2;
+				}
+			}
+			return target;
 		}
 
 		/*
@@ -48,7 +59,51 @@ public class TextNode extends AbstractJsonNode implements IPrimitiveNode,
 		 */
 		@Override
 		public void write(Kryo kryo, Output output, TextNode object) {
-			output.writeString(object);
+			final char[] chars = object.value.elements();
+			final int length = object.value.size();
+			int byteLength = length;
+			for (int index = 0; index < length; index++)
+				if (chars[index] >= 0x80)
+					byteLength += chars[index] >= 0x800 ? 2 : 1;
+
+			output.writeInt(byteLength, true);
+			for (int index = 0; index < length; index++) {
+				final char ch = chars[index];
+				if (ch < 0x80)
+					output.writeByte(ch);
+				else if (ch < 0x800) {
+					output.writeByte(0xC0 | ch >> 6);
+					output.writeByte(0x80 | ch & 0x3F);
+				} else {
+					output.writeByte(0xE0 | ch >> 12);
+					output.writeByte(0x80 | ch >> 6 & 0x3F);
+					output.writeByte(0x80 | ch & 0x3F);
+				}
+			}
+		}
+
+		/**
+		 * Compares two serialized TextNodes without deserializing them. The chars are encoded individually in UTF-8,
+		 * such that the unsigned byte order corresponds to the order of {@link TextNode#compareTo(IJsonNode)}. Both
+		 * inputs must be backed by a buffer that contains the complete text.
+		 * 
+		 * @param input1
+		 *        the input positioned at the first serialized text
+		 * @param input2
+		 *        the input positioned at the second serialized text
+		 * @return a negative number, zero, or a positive number if the first text is less than, equal to, or greater
+		 *         than the second text
+		 */
+		public static int compareSerialized(Input input1, Input input2) {
+			final int length1 = input1.readInt(true), length2 = input2.readInt(true);
+			final byte[] buffer1 = input1.getBuffer(), buffer2 = input2.getBuffer();
+			final int position1 = input1.position(), position2 = input2.position();
+			for (int index = 0, n = Math.min(length1, length2); index < n; index++) {
+				final int comparison = (buffer1[position1 + index] & 0xFF) - (buffer2[position2 + index] & 0xFF);
+				if (comparison != 0)
+					return comparison;
+			}
+			return length1 - length2;
 		}
 
 		/*
@@ -217,6 +272,11 @@ public class TextNode extends AbstractJsonNode implements IPrimitiveNode,
 			this.value.add(text.charAt(index));
 	}
 
+	public void setValue(char[] text, int start, int end) {
+		this.value.size(0);
+		this.value.addElements(0, text, start, end - start);
+	}
+
 	@Override
 	public int length() {
 		return this.value.size();
@@ -0,0 +1,178 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010-2013 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+package eu.stratosphere.nephele.rpc;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import eu.stratosphere.nephele.rpc.RPCService.Transport;
+
+/**
+ * Tests the {@link TCPNetworkThread} through the calls of an {@link RPCService} that uses the TCP transport.
+ * 
+ * @author Arvid Heise
+ */
+public class TCPNetworkThreadTest {
+	/**
+	 * The protocol of the tests.
+	 */
+	public static interface EchoProtocol extends RPCProtocol {
+		byte[] echo(byte[] message) throws IOException, InterruptedException;
+
+		int block() throws IOException, InterruptedException;
+	}
+
+	/**
+	 * Echoes all messages and blocks the calls of {@link #block()} until it is released.
+	 */
+	public static class EchoServer implements EchoProtocol {
+		private final CountDownLatch release = new CountDownLatch(1);
+
+		private final CountDownLatch blocked = new CountDownLatch(1);
+
+		@Override
+		public byte[] echo(final byte[] message) {
+			return message;
+		}
+
+		@Override
+		public int block() throws InterruptedException {
+			this.blocked.countDown();
+			this.release.await();
+			return 0;
+		}
+	}
+
+	private static final int NUMBER_OF_HANDLERS = 4;
+
+	private RPCService server;
+
+	private RPCService client;
+
+	private EchoServer echoServer = new EchoServer();
+
+	private EchoProtocol proxy;
+
+	@Before
+	public void setup() throws IOException {
+		final ServerSocket socket = new ServerSocket(0);
+		final int port = socket.getLocalPort();
+		socket.close();
+
+		this.server = new RPCService(port, NUMBER_OF_HANDLERS, null, Transport.TCP);
+		this.server.setProtocolCallbackHandler(EchoProtocol.class, this.echoServer);
+		this.client = new RPCService(-1, NUMBER_OF_HANDLERS, null, Transport.TCP);
+		this.proxy = this.client.getProxy(new InetSocketAddress("localhost", port), EchoProtocol.class);
+	}
+
+	@After
+	public void teardown() {
+		this.echoServer.release.countDown();
+		this.client.shutDown();
+		this.server.shutDown();
+	}
+
+	@Test
+	public void shouldTransmitCall() throws Exception {
+		final byte[] message = { 1, 2, 3 };
+		Assert.assertTrue(Arrays.equals(message, this.proxy.echo(message)));
+	}
+
+	@Test
+	public void shouldTransmitMessagesLargerThanBuffers() throws Exception {
+		final byte[] message = new byte[4 * 1024 * 1024];
+		for (int index = 0; index < message.length; index++)
+			message[index] = (byte) index;
+		Assert.assertTrue(Arrays.equals(message, this.proxy.echo(message)));
+	}
+
+	@Test
+	public void shouldMultiplexConcurrentCalls() throws Exception {
+		final AtomicInteger mismatches = new AtomicInteger();
+		final List<Thread> callers = new ArrayList<Thread>();
+		for (int index = 0; index < 2 * NUMBER_OF_HANDLERS; index++) {
+			final byte[] message = new byte[10000 * (index + 1)];
+			Arrays.fill(message, (byte) index);
+			final Thread caller = new Thread() {
+				@Override
+				public void run() {
+					try {
+						for (int call = 0; call < 10; call++)
+							if (!Arrays.equals(message, TCPNetworkThreadTest.this.proxy.echo(message)))
+								mismatches.incrementAndGet();
+					} catch (Exception e) {
+						mismatches.incrementAndGet();
+					}
+				}
+			};
+			caller.start();
+			callers.add(caller);
+		}
+
+		for (final Thread caller : callers)
+			caller.join();
+		Assert.assertEquals(0, mismatches.get());
+	}
+
+	@Test
+	public void shouldFailPendingCallsWhenConnectionIsClosed() throws Exception {
+		final Thread shutdown = new Thread() {
+			@Override
+			public void run() {
+				try {
+					TCPNetworkThreadTest.this.echoServer.blocked.await();
+				} catch (InterruptedException e) {
+					return;
+				}
+				TCPNetworkThreadTest.this.server.shutDown();
+			}
+		};
+		shutdown.start();
+
+		final long start = System.currentTimeMillis();
+		try {
+			this.proxy.block();
+			Assert.fail("The call should fail after the server has closed the connection");
+		} catch (IOException e) {
+			// the caller must not wait for the RPC timeout of 60 seconds
+			Assert.assertTrue(System.currentTimeMillis() - start < 30000);
+		} finally {
+			this.echoServer.release.countDown();
+			shutdown.join();
+		}
+	}
+
+	@Test
+	public void shouldParseTransportIgnoringCase() {
+		Assert.assertSame(Transport.TCP, Transport.fromName("tcp"));
+		Assert.assertSame(Transport.UDP, Transport.fromName("UDP"));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void shouldRejectUnknownTransport() {
+		Transport.fromName("sctp");
+	}
+}
@@ -12,6 +12,8 @@ import org.junit.Test;
 
 import eu.stratosphere.sopremo.type.BooleanNode;
 import eu.stratosphere.sopremo.type.IJsonNode;
+import eu.stratosphere.sopremo.type.IntNode;
+import eu.stratosphere.sopremo.type.MissingNode;
 
 public class AndExpressionTest extends BooleanExpressionTest<AndExpression> {
 
@@ -52,4 +54,13 @@ public class AndExpressionTest extends BooleanExpressionTest<AndExpression> {
 		Assert.assertEquals(BooleanNode.FALSE, result);
 	}
 
+	@Test
+	public void shouldCoerceNonBooleanExpr() {
+		final AndExpression expression =
+			new AndExpression(TRUE, BooleanExpression.ensureBooleanExpression(EvaluationExpression.VALUE));
+
+		Assert.assertEquals(BooleanNode.TRUE, expression.evaluate(IntNode.valueOf(2)));
+		Assert.assertEquals(BooleanNode.FALSE, expression.evaluate(IntNode.valueOf(0)));
+		Assert.assertEquals(BooleanNode.FALSE, expression.evaluate(MissingNode.getInstance()));
+	}
 }
@@ -0,0 +1,126 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010-2013 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+package eu.stratosphere.sopremo.expressions;
+
+import static eu.stratosphere.sopremo.type.JsonUtil.createObjectNode;
+
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import eu.stratosphere.sopremo.expressions.ArithmeticExpression.ArithmeticOperator;
+import eu.stratosphere.sopremo.expressions.ComparativeExpression.BinaryOperator;
+import eu.stratosphere.sopremo.type.BooleanNode;
+import eu.stratosphere.sopremo.type.IJsonNode;
+import eu.stratosphere.sopremo.type.IntNode;
+import eu.stratosphere.sopremo.type.TextNode;
+
+/**
+ * Tests the batch evaluation of {@link EvaluationExpression}s.
+ */
+public class BatchEvaluationTest {
+	private final IJsonNode[] inputs = {
+		createObjectNode("a", 1, "b", 2),
+		createObjectNode("a", 3, "b", 4, "c", "x"),
+		createObjectNode("a", 5, "b", 1),
+		createObjectNode("a", -1),
+		createObjectNode("a", 0, "b", 2, "c", "y"),
+		createObjectNode("a", 7, "c", "x")
+	};
+
+	private final ComparativeExpression less = new ComparativeExpression(new ObjectAccess("b"), BinaryOperator.LESS,
+		new ObjectAccess("a"));
+
+	private final ComparativeExpression equal = new ComparativeExpression(new ObjectAccess("c"),
+		BinaryOperator.EQUAL, new ConstantExpression(TextNode.valueOf("x")));
+
+	@Test
+	public void shouldEvaluatePathsAndArithmetics() {
+		this.assertSameResults(new ObjectAccess("b"));
+		this.assertSameResults(new ConstantExpression(IntNode.valueOf(2)));
+		this.assertSameResults(new ArithmeticExpression(new ObjectAccess("a"), ArithmeticOperator.MULTIPLICATION,
+			new ArithmeticExpression(new ObjectAccess("a"), ArithmeticOperator.ADDITION,
+				new ConstantExpression(IntNode.valueOf(2)))));
+	}
+
+	@Test
+	public void shouldEvaluateConditions() {
+		this.assertSameResults(this.less);
+		this.assertSameResults(new AndExpression(this.less, new UnaryExpression(this.equal, true)));
+		this.assertSameResults(new OrExpression(this.less, this.equal));
+		this.assertSameResults(new OrExpression(new UnaryExpression(new ConstantExpression(BooleanNode.FALSE)),
+			new AndExpression(this.equal, this.less)));
+	}
+
+	@Test
+	public void shouldCoerceNonBooleanOperands() {
+		// a is 0 and c is missing in some inputs, which both coerce to false
+		this.assertSameResults(AndExpression.valueOf(Arrays.asList(new ObjectAccess("a"), this.less)));
+		this.assertSameResults(AndExpression.valueOf(Arrays.asList(this.less, new ObjectAccess("c"))));
+		this.assertSameResults(new OrExpression(this.equal,
+			BooleanExpression.ensureBooleanExpression(new ObjectAccess("b"))));
+	}
+
+	@Test
+	public void shouldEvaluateCompiledConditionsInBatches() {
+		final EvaluationExpression condition = new AndExpression(this.less, new UnaryExpression(this.equal, true));
+		final EvaluationExpression compiled = ExpressionCompiler.compile(condition);
+		Assert.assertTrue(compiled instanceof CompiledExpression);
+
+		final int[] selection = { 0, 1, 2, 3, 4, 5 }, expectedSelection = selection.clone();
+		final int expectedSelected = condition.select(this.inputs, expectedSelection, expectedSelection.length);
+		Assert.assertEquals(expectedSelected, compiled.select(this.inputs, selection, selection.length));
+		Assert.assertArrayEquals(Arrays.copyOf(expectedSelection, expectedSelected),
+			Arrays.copyOf(selection, expectedSelected));
+	}
+
+	@Test
+	public void shouldOnlyEvaluateSelectedNodes() {
+		final int[] selection = { 1, 2, 5 };
+		final IJsonNode[] results = new IJsonNode[this.inputs.length];
+		new ObjectAccess("a").evaluate(this.inputs, selection, selection.length, results);
+		Assert.assertArrayEquals(new IJsonNode[] { null, IntNode.valueOf(3), IntNode.valueOf(5), null, null,
+			IntNode.valueOf(7) }, results);
+
+		final int[] conditionSelection = { 0, 1, 3, 5 };
+		Assert.assertEquals(2, new OrExpression(this.less, this.equal).select(this.inputs, conditionSelection,
+			conditionSelection.length));
+		Assert.assertArrayEquals(new int[] { 1, 5 }, Arrays.copyOf(conditionSelection, 2));
+	}
+
+	private void assertSameResults(final EvaluationExpression expression) {
+		final int[] selection = new int[this.inputs.length];
+		for (int index = 0; index < selection.length; index++)
+			selection[index] = index;
+		final IJsonNode[] results = new IJsonNode[this.inputs.length];
+		expression.evaluate(this.inputs, selection, selection.length, results);
+
+		// the results of the batch must not share reused nodes
+		int selected = 0;
+		for (int index = 0; index < this.inputs.length; index++) {
+			final IJsonNode expected = expression.evaluate(this.inputs[index]);
+			Assert.assertEquals(expected, results[index]);
+			if (expected == BooleanNode.TRUE)
+				selected++;
+		}
+
+		if (expression instanceof BooleanExpression) {
+			Assert.assertEquals(selected, expression.select(this.inputs, selection, selection.length));
+			for (int index = 0; index < selected; index++)
+				Assert.assertSame(BooleanNode.TRUE, results[selection[index]]);
+		}
+	}
+}
@@ -0,0 +1,142 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010-2013 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+package eu.stratosphere.sopremo.expressions;
+
+import static eu.stratosphere.sopremo.type.JsonUtil.createArrayNode;
+import static eu.stratosphere.sopremo.type.JsonUtil.createObjectNode;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import eu.stratosphere.sopremo.expressions.ArithmeticExpression.ArithmeticOperator;
+import eu.stratosphere.sopremo.expressions.ComparativeExpression.BinaryOperator;
+import eu.stratosphere.sopremo.expressions.ObjectCreation.FieldAssignment;
+import eu.stratosphere.sopremo.type.IJsonNode;
+import eu.stratosphere.sopremo.type.IntNode;
+import eu.stratosphere.sopremo.type.TextNode;
+
+/**
+ * Tests the {@link ExpressionCompiler}.
+ */
+public class ExpressionCompilerTest {
+	private final IJsonNode[] inputs = {
+		createArrayNode(createObjectNode("a", 1, "b", 2), createObjectNode("a", 3, "b", 4, "c", "x")),
+		createArrayNode(createObjectNode("a", 5, "b", 1), createObjectNode("a", -1)),
+		createArrayNode(createObjectNode("a", 0, "b", 2), createObjectNode("a", 7))
+	};
+
+	@Test
+	public void shouldNotCompileValuesAndConstants() {
+		Assert.assertSame(EvaluationExpression.VALUE, ExpressionCompiler.compile(EvaluationExpression.VALUE));
+		final ConstantExpression constant = new ConstantExpression(IntNode.valueOf(1));
+		Assert.assertSame(constant, ExpressionCompiler.compile(constant));
+	}
+
+	@Test
+	public void shouldEvaluatePathsAndArithmetics() {
+		this.assertSameResults(new ArithmeticExpression(
+			new ObjectAccess("a").withInputExpression(new InputSelection(0)), ArithmeticOperator.MULTIPLICATION,
+			new ArithmeticExpression(new ObjectAccess("a").withInputExpression(new ArrayAccess(-1)),
+				ArithmeticOperator.ADDITION, new ConstantExpression(IntNode.valueOf(2)))));
+	}
+
+	@Test
+	public void shouldEvaluateConditions() {
+		final ComparativeExpression less = new ComparativeExpression(
+			new ObjectAccess("b").withInputExpression(new InputSelection(0)), BinaryOperator.LESS,
+			new ObjectAccess("a").withInputExpression(new InputSelection(0)));
+		final ComparativeExpression missing = new ComparativeExpression(
+			new ObjectAccess("c").withInputExpression(new InputSelection(1)), BinaryOperator.EQUAL,
+			new ConstantExpression(TextNode.valueOf("x")));
+
+		this.assertSameResults(new AndExpression(less, new UnaryExpression(missing, true)));
+		this.assertSameResults(new OrExpression(less, missing));
+		this.assertSameResults(new TernaryExpression(new UnaryExpression(missing),
+			new ConstantExpression(TextNode.valueOf("if")), new ObjectAccess("b").withInputExpression(
+				new InputSelection(0))));
+	}
+
+	@Test
+	public void shouldSelectWithGeneratedCondition() {
+		final EvaluationExpression condition = new ComparativeExpression(
+			new ObjectAccess("b").withInputExpression(new InputSelection(0)), BinaryOperator.GREATER_EQUAL,
+			new ConstantExpression(IntNode.valueOf(2)));
+		final EvaluationExpression compiled = ExpressionCompiler.compile(condition);
+		Assert.assertSame(compiled.getClass(), getSelectingClass(compiled.getClass()));
+
+		final int[] selection = { 0, 1, 2 };
+		Assert.assertEquals(2, compiled.select(this.inputs, selection, selection.length));
+		Assert.assertEquals(0, selection[0]);
+		Assert.assertEquals(2, selection[1]);
+	}
+
+	@Test
+	public void shouldCreateNodes() {
+		this.assertSameResults(new ObjectCreation(
+			new FieldAssignment("a", new ObjectAccess("a").withInputExpression(new InputSelection(1))),
+			new FieldAssignment("both", new ArrayCreation(new InputSelection(1), new InputSelection(0)))));
+	}
+
+	@Test
+	public void shouldInterpretUnsupportedExpressions() {
+		// a range access is evaluated by the interpreter
+		final EvaluationExpression expression = new ArrayCreation(new ArrayAccess(0, 1),
+			new ObjectAccess("a").withInputExpression(new InputSelection(1)));
+		this.assertSameResults(expression);
+		Assert.assertEquals(ExpressionCompiler.compile(expression).getClass(),
+			ExpressionCompiler.compile(expression.clone()).getClass());
+	}
+
+	@Test
+	public void shouldCacheClassesPerJobClassLoader() {
+		final EvaluationExpression expression = new ObjectAccess("a").withInputExpression(new InputSelection(1));
+		final ClassLoader firstJob = new URLClassLoader(new URL[0]), secondJob = new URLClassLoader(new URL[0]);
+
+		Assert.assertSame(ExpressionCompiler.compile(expression, firstJob).getClass(),
+			ExpressionCompiler.compile(expression.clone(), firstJob).getClass());
+		Assert.assertNotSame(ExpressionCompiler.compile(expression, firstJob).getClass(),
+			ExpressionCompiler.compile(expression, secondJob).getClass());
+	}
+
+	@Test
+	public void shouldEvictLeastRecentlyUsedClasses() {
+		final ClassLoader job = new URLClassLoader(new URL[0]);
+		final EvaluationExpression expression = new ObjectAccess("a");
+		final Class<?> compiledClass = ExpressionCompiler.compile(expression, job).getClass();
+		for (int index = 0; index < ExpressionCompiler.MAX_COMPILED_CLASSES; index++)
+			ExpressionCompiler.compile(new ObjectAccess("field" + index), job);
+
+		Assert.assertNotSame(compiledClass, ExpressionCompiler.compile(expression, job).getClass());
+	}
+
+	private static Class<?> getSelectingClass(final Class<?> type) {
+		try {
+			return type.getMethod("select", IJsonNode[].class, int[].class, int.class).getDeclaringClass();
+		} catch (final NoSuchMethodException e) {
+			throw new AssertionError(e);
+		}
+	}
+
+	private void assertSameResults(final EvaluationExpression expression) {
+		final EvaluationExpression compiled = ExpressionCompiler.compile(expression);
+		Assert.assertTrue(compiled instanceof CompiledExpression);
+		Assert.assertEquals(expression, ((CompiledExpression) compiled).getOriginal());
+		for (final IJsonNode input : this.inputs)
+			Assert.assertEquals(expression.evaluate(input).clone(), compiled.evaluate(input).clone());
+	}
+}
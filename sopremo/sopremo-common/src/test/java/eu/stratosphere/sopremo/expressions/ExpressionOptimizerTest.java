@@ -0,0 +1,122 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010-2013 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+package eu.stratosphere.sopremo.expressions;
+
+import static eu.stratosphere.sopremo.type.JsonUtil.createArrayNode;
+import static eu.stratosphere.sopremo.type.JsonUtil.createObjectNode;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import eu.stratosphere.sopremo.CoreFunctions;
+import eu.stratosphere.sopremo.EvaluationContext;
+import eu.stratosphere.sopremo.expressions.ArithmeticExpression.ArithmeticOperator;
+import eu.stratosphere.sopremo.expressions.ComparativeExpression.BinaryOperator;
+import eu.stratosphere.sopremo.function.Deterministic;
+import eu.stratosphere.sopremo.function.ExpressionFunction;
+import eu.stratosphere.sopremo.function.SopremoFunction;
+import eu.stratosphere.sopremo.type.IJsonNode;
+import eu.stratosphere.sopremo.type.INumericNode;
+import eu.stratosphere.sopremo.type.IntNode;
+import eu.stratosphere.sopremo.type.TextNode;
+
+/**
+ * Tests the {@link ExpressionOptimizer}.
+ */
+public class ExpressionOptimizerTest {
+	@Test
+	public void shouldFoldDeterministicFunctionCalls() {
+		final EvaluationExpression expression = new FunctionCall("format", CoreFunctions.FORMAT,
+			new ConstantExpression("%s-%s"), new ConstantExpression("a"),
+			new ArithmeticExpression(new ConstantExpression(1), ArithmeticOperator.ADDITION, new ConstantExpression(2)));
+
+		Assert.assertEquals(new ConstantExpression(TextNode.valueOf("a-3")), ExpressionOptimizer.optimize(expression));
+	}
+
+	@Test
+	public void shouldOnlyFoldParametersOfOtherFunctions() {
+		final EvaluationExpression expression = new FunctionCall("identity", new ExpressionFunction(1,
+			new InputSelection(0)), new ArithmeticExpression(new ConstantExpression(1), ArithmeticOperator.ADDITION,
+			new ConstantExpression(2)));
+
+		final EvaluationExpression optimized = ExpressionOptimizer.optimize(expression);
+		Assert.assertTrue(optimized instanceof FunctionCall);
+		Assert.assertEquals(new ConstantExpression(IntNode.valueOf(3)),
+			((FunctionCall) optimized).getParameters().get(0));
+	}
+
+	@Test
+	public void shouldRespectDeterminismOfJavaFunctions() {
+		final EvaluationContext context = new EvaluationContext();
+		context.getFunctionRegistry().put(this.getClass());
+
+		Assert.assertTrue(((SopremoFunction) context.getFunctionRegistry().get("twice")).isDeterministic());
+		Assert.assertFalse(((SopremoFunction) context.getFunctionRegistry().get("next")).isDeterministic());
+		Assert.assertEquals(new ConstantExpression(IntNode.valueOf(4)), ExpressionOptimizer.optimize(
+			new FunctionCall("twice", context, new ConstantExpression(2))));
+		Assert.assertTrue(ExpressionOptimizer.optimize(
+			new FunctionCall("next", context, new ConstantExpression(2))) instanceof FunctionCall);
+	}
+
+	@Test
+	public void shouldShareCommonPaths() {
+		final EvaluationExpression expression = new ArithmeticExpression(path(0, "a", "b", "c"),
+			ArithmeticOperator.ADDITION, path(0, "a", "b", "d"));
+
+		final EvaluationExpression optimized = ExpressionOptimizer.optimize(expression);
+		Assert.assertTrue(optimized instanceof TemporaryScope);
+		Assert.assertEquals(1, ((TemporaryScope) optimized).getTemporaries().size());
+		Assert.assertEquals(path(0, "a", "b"), ((TemporaryScope) optimized).getTemporaries().get(0));
+
+		for (int value = 0; value < 3; value++) {
+			final IJsonNode input = createArrayNode(
+				createObjectNode("a", createObjectNode("b", createObjectNode("c", value, "d", 2 * value))));
+			Assert.assertEquals(expression.evaluate(input), optimized.evaluate(input));
+			Assert.assertEquals(expression.evaluate(input), optimized.clone().evaluate(input));
+		}
+	}
+
+	@Test
+	public void shouldNotShareDistinctPaths() {
+		final EvaluationExpression expression = new AndExpression(
+			new ComparativeExpression(path(0, "a", "b"), BinaryOperator.EQUAL, path(1, "a", "b")),
+			new ComparativeExpression(path(1, "c"), BinaryOperator.EQUAL, new ConstantExpression(1)));
+
+		Assert.assertEquals(expression, ExpressionOptimizer.optimize(expression));
+	}
+
+	@Test
+	public void shouldNotChangeValue() {
+		Assert.assertSame(EvaluationExpression.VALUE, ExpressionOptimizer.optimize(EvaluationExpression.VALUE));
+	}
+
+	private static EvaluationExpression path(final int input, final String... fields) {
+		EvaluationExpression path = new InputSelection(input);
+		for (final String field : fields)
+			path = new ObjectAccess(field).withInputExpression(path);
+		return path;
+	}
+
+	@Deterministic
+	public static IJsonNode twice(final INumericNode node) {
+		return IntNode.valueOf(2 * node.getIntValue());
+	}
+
+	private static int counter;
+
+	public static IJsonNode next(final INumericNode node) {
+		return IntNode.valueOf(node.getIntValue() + counter++);
+	}
+}
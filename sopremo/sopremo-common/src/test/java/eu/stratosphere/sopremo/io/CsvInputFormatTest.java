@@ -9,6 +9,7 @@ import java.util.List;
 import org.junit.Assert;
 import org.junit.Test;
 
+import eu.stratosphere.sopremo.expressions.ObjectCreation;
 import eu.stratosphere.sopremo.type.IJsonNode;
 import eu.stratosphere.sopremo.type.JsonUtil;
 import eu.stratosphere.sopremo.type.ObjectNode;
@@ -90,6 +91,28 @@ public class CsvInputFormatTest extends InputFormatTest {
 		Assert.assertEquals(expected, actual);
 	}
 
+	/**
+	 * Tests if only the fields that are accessed by the projection are read.
+	 * 
+	 * @throws IOException
+	 */
+	@Test
+	public void shouldOnlyReadProjectedFields() throws IOException {
+		final File source = new File(this.getResource("CsvInputFormat/restaurant_short.csv"));
+
+		final CsvFormat format = new CsvFormat();
+		format.setFieldDelimiter(",");
+		format.setProjection(new ObjectCreation(new ObjectCreation.FieldAssignment("id", JsonUtil.createPath("id")),
+			new ObjectCreation.FieldAssignment("city", JsonUtil.createPath("city"))));
+		final Collection<IJsonNode> actual = readFromFile(source, format, NULL_LAYOUT);
+
+		final List<ObjectNode> expected = Arrays.asList(
+			JsonUtil.createObjectNode("id", "1", "city", "los angeles"),
+			JsonUtil.createObjectNode("id", "2", "city", "los,angeles"),
+			JsonUtil.createObjectNode("id", "3", "city", "los\nangeles"));
+		Assert.assertEquals(expected, actual);
+	}
+
 	private String getResource(final String name) throws IOException {
 		return JsonInputFormatTest.class.getClassLoader().getResources(name)
 			.nextElement().getFile();
@@ -10,6 +10,9 @@ import org.junit.Assert;
 import org.junit.Test;
 
 import eu.stratosphere.nephele.configuration.Configuration;
+import eu.stratosphere.nephele.fs.FileInputSplit;
+import eu.stratosphere.nephele.fs.Path;
+import eu.stratosphere.pact.common.io.FileInputFormat;
 import eu.stratosphere.pact.generic.io.FormatUtil;
 import eu.stratosphere.sopremo.EvaluationContext;
 import eu.stratosphere.sopremo.io.JsonFormat.JsonInputFormat;
@@ -100,4 +103,48 @@ public class JsonInputFormatTest {
 				((IntNode) ((IObjectNode) arrayNode.get(index - 1)).get("id")).getIntValue());
 		}
 	}
+
+	/**
+	 * @throws IOException
+	 */
+	@Test
+	public void shouldReadEachLineOnceAcrossSplits() throws IOException {
+		final File file = File.createTempFile("jsonInputFormatTest", null);
+		file.delete();
+		final OutputStreamWriter jsonWriter = new OutputStreamWriter(new FileOutputStream(file));
+		final int numValues = 100;
+		for (int index = 1; index <= numValues; index++)
+			jsonWriter.write(String.format("{\"id\": %d}\n%s", index, index % 10 == 0 ? "\n" : ""));
+		jsonWriter.close();
+
+		Configuration config = new Configuration();
+		final EvaluationContext context = new EvaluationContext();
+		SopremoUtil.setEvaluationContext(config, context);
+		SopremoUtil.setLayout(config, SopremoRecordLayout.EMPTY);
+		config.setString(FileInputFormat.FILE_PARAMETER_KEY, file.toURI().toString());
+		SopremoUtil.transferFieldsToConfiguration(new JsonFormat().withLineDelimited(true), SopremoFormat.class,
+			config, JsonInputFormat.class, SopremoFileInputFormat.class);
+		final JsonInputFormat inputFormat = new JsonInputFormat();
+		inputFormat.configure(config);
+
+		// split sizes that cut through records, line breaks, and empty lines
+		for (int splitLength : new int[] { 1, 7, 12, 13, 100, (int) file.length() }) {
+			final boolean[] found = new boolean[numValues + 1];
+			final SopremoRecord record = new SopremoRecord(SopremoRecordLayout.EMPTY);
+			for (long start = 0, splitNumber = 0; start < file.length(); start += splitLength, splitNumber++) {
+				inputFormat.open(new FileInputSplit((int) splitNumber, new Path(file.toURI().toString()), start,
+					Math.min(splitLength, file.length() - start), null));
+				while (!inputFormat.reachedEnd()) {
+					Assert.assertTrue("valid record expected", inputFormat.nextRecord(record));
+					final int id = ((IntNode) ((IObjectNode) record.getNode()).get("id")).getIntValue();
+					Assert.assertFalse("duplicate record " + id + " with split length " + splitLength, found[id]);
+					found[id] = true;
+				}
+				inputFormat.close();
+			}
+
+			for (int index = 1; index <= numValues; index++)
+				Assert.assertTrue("missing record " + index + " with split length " + splitLength, found[index]);
+		}
+	}
 }
@@ -0,0 +1,114 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010-2013 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+package eu.stratosphere.sopremo.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import eu.stratosphere.sopremo.expressions.ArrayCreation;
+import eu.stratosphere.sopremo.type.ArrayNode;
+import eu.stratosphere.sopremo.type.IArrayNode;
+import eu.stratosphere.sopremo.type.IJsonNode;
+import eu.stratosphere.sopremo.type.IObjectNode;
+import eu.stratosphere.sopremo.type.IntNode;
+import eu.stratosphere.sopremo.type.MissingNode;
+import eu.stratosphere.sopremo.type.ObjectNode;
+import eu.stratosphere.sopremo.type.JsonUtil;
+import eu.stratosphere.sopremo.type.TextNode;
+
+/**
+ * Tests the node reuse, the block-wise reading, and the projected parsing of {@link JsonParser}.
+ */
+public class JsonParserReuseTest {
+	@Test
+	public void shouldReuseNodesOfSameStructure() throws IOException {
+		final JsonParser parser =
+			new JsonParser("{\"a\": [1, \"x\", {\"b\": 2}], \"c\": 3}, {\"a\": [4, \"yy\"], \"d\": 5}");
+
+		final IJsonNode first = parser.readValueAsTree(null);
+		final IJsonNode array = ((IObjectNode) first).get("a");
+		final IJsonNode firstElement = ((IArrayNode<?>) array).get(0);
+
+		final IJsonNode second = parser.readValueAsTree(first);
+		Assert.assertSame(first, second);
+		Assert.assertSame(array, ((IObjectNode) second).get("a"));
+		Assert.assertSame(firstElement, ((IArrayNode<?>) array).get(0));
+		final IJsonNode expectedArray =
+			new ArrayNode<IJsonNode>().add(IntNode.valueOf(4)).add(TextNode.valueOf("yy"));
+		Assert.assertEquals(new ObjectNode().put("a", expectedArray).put("d", IntNode.valueOf(5)), second);
+	}
+
+	@Test
+	public void shouldRemoveStaleFieldsOfNestedObjects() throws IOException {
+		final JsonParser parser = new JsonParser(
+			"{\"a\": {\"b\": 1, \"c\": 2}, \"d\": 3, \"e\": {\"f\": 4}}, {\"e\": {\"g\": 5}, \"a\": {\"c\": 6}}");
+
+		final IJsonNode first = parser.readValueAsTree(null);
+		final IJsonNode nested = ((IObjectNode) first).get("a");
+		final IJsonNode second = parser.readValueAsTree(first);
+		Assert.assertSame(first, second);
+		Assert.assertSame(nested, ((IObjectNode) second).get("a"));
+		Assert.assertEquals(JsonUtil.createObjectNode("a", JsonUtil.createObjectNode("c", 6),
+			"e", JsonUtil.createObjectNode("g", 5)), second);
+	}
+
+	@Test
+	public void shouldReadValuesAcrossBlockBoundaries() throws IOException {
+		final StringBuilder builder = new StringBuilder("[");
+		final int numValues = 10000;
+		for (int index = 0; index < numValues; index++) {
+			if (index > 0)
+				builder.append(", ");
+			builder.append(String.format("{\"id\": %d, \"name\": \"n\u00e4me%d\", \"values\": [1.5, -3, true]}",
+				index, index));
+		}
+		builder.append("]");
+
+		final JsonParser parser = new JsonParser(new ByteArrayInputStream(builder.toString().getBytes("utf-8")));
+		parser.setWrappingArraySkipping(true);
+		IJsonNode value = null;
+		for (int index = 0; index < numValues; index++) {
+			Assert.assertFalse(parser.checkEnd());
+			value = parser.readValueAsTree(value);
+			Assert.assertEquals(IntNode.valueOf(index), ((IObjectNode) value).get("id"));
+			Assert.assertEquals(TextNode.valueOf("n\u00e4me" + index), ((IObjectNode) value).get("name"));
+		}
+		Assert.assertTrue(parser.checkEnd());
+	}
+
+	@Test
+	public void shouldOnlyParseProjectedPaths() throws IOException {
+		final String json = "{\"a\": 1, \"b\": {\"x\": [1, \"}]\\\"\", {}], \"y\": \"\u00e4\"}, \"c\": [\"q\", {\"z\": 2}]}, " +
+			"{\"b\": 5, \"a\": [1], \"c\": {\"z\": 1}}";
+		final ProjectionPaths paths =
+			ProjectionPaths.of(new ArrayCreation(JsonUtil.createPath("a"), JsonUtil.createPath("c", "[1]", "z")));
+		final JsonParser parser = new JsonParser(json);
+
+		final IJsonNode first = parser.readValueAsTree(null, paths);
+		final IJsonNode expectedArray =
+			new ArrayNode<IJsonNode>().add(MissingNode.getInstance()).add(new ObjectNode().put("z", IntNode.valueOf(2)));
+		Assert.assertEquals(new ObjectNode().put("a", IntNode.valueOf(1)).put("c", expectedArray), first);
+
+		// values that do not match the structure of the paths are parsed completely
+		final IJsonNode second = parser.readValueAsTree(first, paths);
+		Assert.assertEquals(new ObjectNode().put("a", new ArrayNode<IJsonNode>().add(IntNode.valueOf(1))).
+			put("c", new ObjectNode().put("z", IntNode.valueOf(1))), second);
+		Assert.assertEquals(json.length(), parser.getNumberOfParsedChars());
+		Assert.assertTrue(parser.checkEnd());
+	}
+}
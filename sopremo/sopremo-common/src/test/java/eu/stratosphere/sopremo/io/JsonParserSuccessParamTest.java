@@ -109,7 +109,9 @@ public class JsonParserSuccessParamTest {
 					NullNode.getInstance(),
 					IntNode.valueOf(42), TextNode.valueOf("TEST")), 37 },
 			/* [24] */{ "null, null",
-				create(NullNode.getInstance(), NullNode.getInstance(), MissingNode.getInstance()), 10 }
+				create(NullNode.getInstance(), NullNode.getInstance(), MissingNode.getInstance()), 10 },
+			/* [25] */{ "\"\\u00e4\u00e4\", 42",
+				create(TextNode.valueOf("\u00e4\u00e4"), IntNode.valueOf(42)), 13 }
 		});
 	}
 
@@ -0,0 +1,71 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010-2013 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+package eu.stratosphere.sopremo.io;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import eu.stratosphere.sopremo.expressions.ArithmeticExpression;
+import eu.stratosphere.sopremo.expressions.ArithmeticExpression.ArithmeticOperator;
+import eu.stratosphere.sopremo.expressions.ArrayCreation;
+import eu.stratosphere.sopremo.expressions.EvaluationExpression;
+import eu.stratosphere.sopremo.expressions.ObjectCreation;
+import eu.stratosphere.sopremo.type.JsonUtil;
+
+/**
+ * Tests the derivation of {@link ProjectionPaths}.
+ */
+public class ProjectionPathsTest {
+	@Test
+	public void shouldNeedAllForValue() {
+		Assert.assertSame(ProjectionPaths.ALL, ProjectionPaths.of(EvaluationExpression.VALUE));
+		Assert.assertSame(ProjectionPaths.ALL, ProjectionPaths.of(null));
+	}
+
+	@Test
+	public void shouldCollectNestedFields() {
+		final ProjectionPaths paths = ProjectionPaths.of(new ObjectCreation(
+			new ObjectCreation.FieldAssignment("x", JsonUtil.createPath("a", "b")),
+			new ObjectCreation.FieldAssignment("y", new ArithmeticExpression(JsonUtil.createPath("c"),
+				ArithmeticOperator.ADDITION, JsonUtil.createPath("a", "d")))));
+
+		Assert.assertTrue(paths.hasFields());
+		Assert.assertFalse(paths.isComplete());
+		Assert.assertTrue(paths.getField("a").getField("b").isComplete());
+		Assert.assertTrue(paths.getField("a").getField("d").isComplete());
+		Assert.assertNull(paths.getField("a").getField("e"));
+		Assert.assertTrue(paths.getField("c").isComplete());
+		Assert.assertNull(paths.getField("e"));
+	}
+
+	@Test
+	public void shouldCollectArrayElements() {
+		final ProjectionPaths paths =
+			ProjectionPaths.of(new ArrayCreation(JsonUtil.createPath("0", "a"), JsonUtil.createPath("[2]")));
+
+		Assert.assertTrue(paths.hasElements());
+		Assert.assertTrue(paths.getElement(0).getField("a").isComplete());
+		Assert.assertNull(paths.getElement(1));
+		Assert.assertTrue(paths.getElement(2).isComplete());
+	}
+
+	@Test
+	public void shouldNeedCompleteValueForUnsupportedSegments() {
+		final ProjectionPaths paths = ProjectionPaths.of(JsonUtil.createPath("a", "[*]", "b"));
+
+		Assert.assertTrue(paths.getField("a").isComplete());
+		Assert.assertNull(paths.getField("b"));
+	}
+}
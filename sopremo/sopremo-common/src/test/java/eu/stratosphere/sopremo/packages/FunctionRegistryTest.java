@@ -115,6 +115,17 @@ public class FunctionRegistryTest {
 		Assert.assertSame(ONE_INT_VARARG_NODE, this.evaluate("count", new IntNode(1)));
 	}
 
+	@Test
+	public void shouldResolveJavaFunctionAgainIfParameterTypesChange() {
+		this.registry.put(JavaFunctions.class);
+
+		Assert.assertSame(TWO_INT_NODE, this.evaluate("count", new IntNode(1), new IntNode(2)));
+		Assert.assertSame(TWO_INT_NODE, this.evaluate("count", new IntNode(3), new IntNode(4)));
+		Assert.assertSame(GENERIC_NODE, this.evaluate("count", new ObjectNode()));
+		Assert.assertSame(ARRAY_NODE, this.evaluate("count", new ArrayNode<IJsonNode>()));
+		Assert.assertSame(TWO_INT_NODE, this.evaluate("count", new IntNode(1), new IntNode(2)));
+	}
+
 	public static class JavaFunctions {
 
 		public static IJsonNode count(final IArrayNode<IJsonNode> node) {
@@ -0,0 +1,83 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010-2013 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+package eu.stratosphere.sopremo.pact;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import eu.stratosphere.sopremo.type.IJsonNode;
+import eu.stratosphere.sopremo.type.IntNode;
+import eu.stratosphere.sopremo.type.TextNode;
+
+/**
+ * Tests the {@link ExternalNodeSorter}.
+ */
+public class ExternalNodeSorterTest {
+	@Test
+	public void shouldSortInMemory() {
+		final ExternalNodeSorter sorter = new ExternalNodeSorter();
+		for (final int value : new int[] { 3, 1, 2 })
+			sorter.add(IntNode.valueOf(value));
+
+		Assert.assertEquals(0, sorter.getNumberOfSpilledRuns());
+		Assert.assertEquals(createNodes(1, 2, 3), toList(sorter));
+	}
+
+	@Test
+	public void shouldMergeSpilledRuns() {
+		final List<IJsonNode> expected = new ArrayList<IJsonNode>();
+		for (int index = 0; index < 1000; index++)
+			expected.add(IntNode.valueOf(index % 300));
+		final List<IJsonNode> input = new ArrayList<IJsonNode>(expected);
+		Collections.shuffle(input, new Random(42));
+		Collections.sort(expected);
+
+		// 100 runs require an intermediate merge with a fan-in of 8
+		final ExternalNodeSorter sorter = new ExternalNodeSorter(null, 10, 8);
+		final IntNode reusedNode = new IntNode();
+		for (final IJsonNode node : input) {
+			reusedNode.copyValueFrom(node);
+			sorter.add(reusedNode);
+		}
+
+		Assert.assertEquals(99, sorter.getNumberOfSpilledRuns());
+		Assert.assertEquals(expected, toList(sorter));
+
+		sorter.clear();
+		Assert.assertEquals(0, sorter.getNumberOfSpilledRuns());
+		sorter.add(TextNode.valueOf("b"));
+		sorter.add(TextNode.valueOf("a"));
+		Assert.assertEquals(createNodes("a", "b"), toList(sorter));
+	}
+
+	private static List<IJsonNode> createNodes(final Object... values) {
+		final List<IJsonNode> nodes = new ArrayList<IJsonNode>();
+		for (final Object value : values)
+			nodes.add(value instanceof Integer ? IntNode.valueOf((Integer) value) : TextNode.valueOf((String) value));
+		return nodes;
+	}
+
+	private static List<IJsonNode> toList(final ExternalNodeSorter sorter) {
+		final List<IJsonNode> nodes = new ArrayList<IJsonNode>();
+		for (final IJsonNode node : sorter)
+			nodes.add(node.clone());
+		return nodes;
+	}
+}
@@ -0,0 +1,156 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010-2013 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+package eu.stratosphere.sopremo.serialization;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import eu.stratosphere.sopremo.type.BigIntegerNode;
+import eu.stratosphere.sopremo.type.BooleanNode;
+import eu.stratosphere.sopremo.type.DecimalNode;
+import eu.stratosphere.sopremo.type.DoubleNode;
+import eu.stratosphere.sopremo.type.IJsonNode;
+import eu.stratosphere.sopremo.type.IntNode;
+import eu.stratosphere.sopremo.type.JsonUtil;
+import eu.stratosphere.sopremo.type.LongNode;
+import eu.stratosphere.sopremo.type.MissingNode;
+import eu.stratosphere.sopremo.type.NullNode;
+import eu.stratosphere.sopremo.type.TextNode;
+
+/**
+ * Tests {@link NormalizedKeyEncoder}.
+ */
+public class NormalizedKeyEncoderTest {
+	private final IJsonNode[] orderedNodes = {
+		BooleanNode.FALSE,
+		BooleanNode.TRUE,
+		new DoubleNode(Double.NEGATIVE_INFINITY),
+		new LongNode(Long.MIN_VALUE),
+		new IntNode(Integer.MIN_VALUE),
+		new DoubleNode(-1.5),
+		new IntNode(-1),
+		new DoubleNode(-0.0),
+		new IntNode(0),
+		new DecimalNode(new BigDecimal("0.1")),
+		new IntNode(1),
+		new IntNode(Integer.MAX_VALUE),
+		new LongNode(1L << 53),
+		new LongNode((1L << 53) + 1),
+		new LongNode(Long.MAX_VALUE),
+		new DoubleNode(Double.POSITIVE_INFINITY),
+		MissingNode.getInstance(),
+		NullNode.getInstance(),
+		new TextNode(""),
+		new TextNode("a"),
+		new TextNode("a\0"),
+		new TextNode("ab"),
+		new TextNode("abcdefgh"),
+		new TextNode("abcdefghi"),
+		new TextNode("b"),
+		new TextNode("\u00e4"),
+		new TextNode("\u20ac")
+	};
+
+	@Test
+	public void shouldPreserveAscendingOrder() {
+		for (int index = 1; index < this.orderedNodes.length; index++)
+			Assert.assertTrue(String.format("%s < %s", this.orderedNodes[index - 1], this.orderedNodes[index]),
+				compareEncoded(this.orderedNodes[index - 1], this.orderedNodes[index], true) <= 0);
+	}
+
+	@Test
+	public void shouldPreserveDescendingOrder() {
+		for (int index = 1; index < this.orderedNodes.length; index++)
+			Assert.assertTrue(String.format("%s > %s", this.orderedNodes[index - 1], this.orderedNodes[index]),
+				compareEncoded(this.orderedNodes[index - 1], this.orderedNodes[index], false) >= 0);
+	}
+
+	@Test
+	public void shouldOrderMixedTypesLikeNodes() {
+		final IJsonNode[] nodes = {
+			new BigIntegerNode(BigInteger.valueOf(-5)),
+			new BigIntegerNode(BigInteger.TEN),
+			BooleanNode.TRUE,
+			new DecimalNode(new BigDecimal("-0.5")),
+			new DoubleNode(3.5),
+			JsonUtil.createArrayNode(1, 2),
+			JsonUtil.createObjectNode("a", 1),
+			new IntNode(-2),
+			new LongNode(7),
+			MissingNode.getInstance(),
+			NullNode.getInstance(),
+			new TextNode("a")
+		};
+		for (final IJsonNode node1 : nodes)
+			for (final IJsonNode node2 : nodes) {
+				final int encoded = Integer.signum(compareEncoded(node1, node2, true));
+				// equal prefixes are resolved by a full comparison
+				if (encoded != 0)
+					Assert.assertEquals(String.format("%s <=> %s", node1, node2),
+						Integer.signum(node1.compareTo(node2)), encoded);
+			}
+	}
+
+	@Test
+	public void shouldOrderAllNumbersAtTheSamePosition() {
+		final IJsonNode[] numbers = { new BigIntegerNode(BigInteger.ONE), new DecimalNode(BigDecimal.ONE),
+			new DoubleNode(1), new IntNode(1), new LongNode(1) };
+		for (final IJsonNode number : numbers) {
+			Assert.assertTrue(BooleanNode.TRUE.compareTo(number) < 0);
+			Assert.assertTrue(number.compareTo(JsonUtil.createArrayNode()) < 0);
+			Assert.assertTrue(number.compareTo(MissingNode.getInstance()) < 0);
+		}
+	}
+
+	@Test
+	public void shouldDistinguishExactlyRepresentedKeys() {
+		Assert.assertTrue(compareEncoded(new IntNode(41), new IntNode(42), true) < 0);
+		Assert.assertTrue(compareEncoded(new TextNode("abc"), new TextNode("abd"), true) < 0);
+		Assert.assertTrue(compareEncoded(new LongNode((1L << 53) + 1), new LongNode(1L << 53), true) > 0);
+		Assert.assertTrue(compareEncoded(BooleanNode.TRUE, BooleanNode.FALSE, false) < 0);
+	}
+
+	@Test
+	public void shouldEncodeEqualNumbersEqually() {
+		Assert.assertEquals(0, compareEncoded(new IntNode(42), new LongNode(42), true));
+		Assert.assertEquals(0, compareEncoded(new IntNode(42), new DoubleNode(42), true));
+		Assert.assertEquals(0, compareEncoded(new IntNode(42), new DecimalNode(new BigDecimal("42.00")), true));
+	}
+
+	@Test
+	public void shouldReportLossyEncoding() {
+		final byte[] target = new byte[NormalizedKeyEncoder.KEY_LENGTH];
+		Assert.assertTrue(NormalizedKeyEncoder.write(new TextNode("abcdefgh"), target, 0, true));
+		Assert.assertFalse(NormalizedKeyEncoder.write(new TextNode("abcdefghi"), target, 0, true));
+		Assert.assertTrue(NormalizedKeyEncoder.write(new LongNode(1L << 53), target, 0, true));
+		Assert.assertFalse(NormalizedKeyEncoder.write(new LongNode((1L << 53) + 1), target, 0, true));
+		Assert.assertFalse(NormalizedKeyEncoder.write(new DecimalNode(new BigDecimal("0.1")), target, 0, true));
+	}
+
+	private static int compareEncoded(IJsonNode node1, IJsonNode node2, boolean ascending) {
+		final byte[] key1 = new byte[NormalizedKeyEncoder.KEY_LENGTH], key2 = new byte[NormalizedKeyEncoder.KEY_LENGTH];
+		NormalizedKeyEncoder.write(node1, key1, 0, ascending);
+		NormalizedKeyEncoder.write(node2, key2, 0, ascending);
+		for (int index = 0; index < key1.length; index++) {
+			final int comparison = (key1[index] & 0xFF) - (key2[index] & 0xFF);
+			if (comparison != 0)
+				return comparison;
+		}
+		return 0;
+	}
+}
@@ -16,6 +16,8 @@ package eu.stratosphere.sopremo.serialization;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
 
 import org.junit.Assert;
@@ -27,10 +29,14 @@ import com.esotericsoftware.kryo.io.Input;
 import com.esotericsoftware.kryo.io.Output;
 
 import eu.stratosphere.sopremo.EqualCloneTest;
+import eu.stratosphere.sopremo.cache.NodeCache;
 import eu.stratosphere.sopremo.expressions.ArrayAccess;
 import eu.stratosphere.sopremo.expressions.ObjectAccess;
+import eu.stratosphere.sopremo.expressions.PathSegmentExpression;
+import eu.stratosphere.sopremo.type.IObjectNode;
 import eu.stratosphere.sopremo.type.IntNode;
 import eu.stratosphere.sopremo.type.JsonUtil;
+import eu.stratosphere.sopremo.type.MissingNode;
 
 /**
  * @author arv
@@ -80,6 +86,114 @@ public class SopremoRecordTest extends EqualCloneTest<SopremoRecord> {
 		Assert.assertSame(null, sopremoRecord2.getNodeDirectly());
 	}
 	
+	@Test
+	public void testCopyOfObjectKey() throws IOException {
+		final SopremoRecordLayout layout = SopremoRecordLayout.create(new ObjectAccess("a"));
+		final SopremoRecord sopremoRecord = new SopremoRecord(layout);
+		sopremoRecord.setNode(JsonUtil.createObjectNode("a", 1, "b", 2));
+
+		final SopremoRecord sopremoRecord2 = serializeAndDeserialize(sopremoRecord);
+		final SopremoRecord copy = sopremoRecord2.copy(new Kryo());
+		Assert.assertSame(sopremoRecord2.getLayout(), copy.getLayout());
+		Assert.assertSame(null, copy.getNodeDirectly());
+		Assert.assertEquals(new IntNode(1), copy.getKey(new ObjectAccess("a")));
+		Assert.assertEquals(sopremoRecord.getNode(), copy.getNode());
+	}
+
+	@Test
+	public void testObjectWithKnownAndUnknownFields() throws IOException {
+		// a and n are known to the layout, while x and z are encoded with their names
+		final PathSegmentExpression nestedKey = new ObjectAccess("a").withInputExpression(new ObjectAccess("n"));
+		final SopremoRecordLayout layout = SopremoRecordLayout.create(nestedKey);
+		Assert.assertArrayEquals(new String[] { "a", "n" }, layout.getFieldNames());
+
+		final SopremoRecord sopremoRecord = new SopremoRecord(layout);
+		sopremoRecord.setNode(JsonUtil.createObjectNode("z", "t", "a", 1, "n",
+			JsonUtil.createObjectNode("x", 3, "a", 2)));
+
+		final SopremoRecord sopremoRecord2 = serializeAndDeserialize(sopremoRecord);
+		Assert.assertEquals(new IntNode(2), sopremoRecord2.getKey(nestedKey));
+		Assert.assertEquals(sopremoRecord.getNode(), sopremoRecord2.getNode());
+	}
+
+	@Test
+	public void testLazyObjectAccess() throws IOException {
+		final SopremoRecordLayout layout = SopremoRecordLayout.create(new ObjectAccess("a"));
+		final SopremoRecord sopremoRecord = new SopremoRecord(layout);
+		sopremoRecord.setNode(JsonUtil.createObjectNode("a", 1, "b", JsonUtil.createObjectNode("c", 2), "z", "t"));
+
+		final SopremoRecord sopremoRecord2 = serializeAndDeserialize(sopremoRecord);
+		final LazyObjectNode lazyNode = (LazyObjectNode) sopremoRecord2.getNode();
+		Assert.assertTrue(lazyNode.isPristine());
+		Assert.assertEquals(3, lazyNode.size());
+		Assert.assertEquals(JsonUtil.createValueNode("t"), lazyNode.get("z"));
+		Assert.assertSame(MissingNode.getInstance(), lazyNode.get("y"));
+		Assert.assertFalse(lazyNode.isPristine());
+		Assert.assertEquals(sopremoRecord.getNode(), lazyNode);
+
+		lazyNode.put("y", IntNode.valueOf(3));
+		final SopremoRecord sopremoRecord3 = serializeAndDeserialize(sopremoRecord2);
+		Assert.assertEquals(IntNode.valueOf(3), ((IObjectNode) sopremoRecord3.getNode()).get("y"));
+	}
+
+	@Test
+	public void testLazyObjectAccessOfReusedRecord() throws IOException {
+		final SopremoRecordLayout layout = SopremoRecordLayout.create(new ObjectAccess("a"));
+		final SopremoRecord first = new SopremoRecord(layout), second = new SopremoRecord(layout);
+		first.setNode(JsonUtil.createObjectNode("a", 1, "x", 2));
+		second.setNode(JsonUtil.createObjectNode("a", 3, "y", 4));
+
+		final SopremoRecord reused = new SopremoRecord(layout);
+		reused.read(new DataInputStream(new ByteArrayInputStream(toBytes(first))));
+		Assert.assertEquals(IntNode.valueOf(2), ((IObjectNode) reused.getNode()).get("x"));
+		Assert.assertSame(MissingNode.getInstance(), ((IObjectNode) reused.getNode()).get("y"));
+
+		// the fields of the previous object must not be found in the next object
+		reused.read(new DataInputStream(new ByteArrayInputStream(toBytes(second))));
+		Assert.assertSame(MissingNode.getInstance(), ((IObjectNode) reused.getNode()).get("x"));
+		Assert.assertEquals(IntNode.valueOf(4), ((IObjectNode) reused.getNode()).get("y"));
+		Assert.assertEquals(IntNode.valueOf(3), ((IObjectNode) reused.getNode()).get("a"));
+	}
+
+	@Test
+	public void testPassThroughOfUntouchedObject() throws IOException {
+		final SopremoRecordLayout layout = SopremoRecordLayout.create(new ObjectAccess("a"));
+		final SopremoRecord sopremoRecord = new SopremoRecord(layout);
+		sopremoRecord.setNode(JsonUtil.createObjectNode("a", 1, "b", 2));
+		final SopremoRecord deserialized = serializeAndDeserialize(sopremoRecord);
+
+		final SopremoRecord forwarded = new SopremoRecord(layout);
+		forwarded.setNode(deserialized.getNode());
+		final SopremoRecord sopremoRecord2 = serializeAndDeserialize(forwarded);
+		Assert.assertTrue(((LazyObjectNode) deserialized.getNode()).isPristine());
+		Assert.assertEquals(new IntNode(1), sopremoRecord2.getKey(new ObjectAccess("a")));
+		Assert.assertEquals(sopremoRecord.getNode(), sopremoRecord2.getNode());
+	}
+
+	@Test
+	public void testForwardingOfAccessedObject() throws IOException {
+		final SopremoRecordLayout layout = SopremoRecordLayout.create(new ObjectAccess("a"));
+		final SopremoRecord sopremoRecord = new SopremoRecord(layout);
+		sopremoRecord.setNode(JsonUtil.createObjectNode("a", 1, "b", 2));
+		final SopremoRecord deserialized = serializeAndDeserialize(sopremoRecord);
+		final IObjectNode input = (IObjectNode) deserialized.getNode();
+		Assert.assertEquals(new IntNode(2), input.get("b"));
+
+		final SopremoRecord forwarded = new SopremoRecord(layout);
+		Assert.assertTrue(forwarded.forwardNode(input));
+		Assert.assertSame(null, forwarded.getNodeDirectly());
+		final SopremoRecord sopremoRecord2 = serializeAndDeserialize(forwarded);
+		Assert.assertEquals(new IntNode(1), sopremoRecord2.getKey(new ObjectAccess("a")));
+		Assert.assertEquals(sopremoRecord.getNode(), sopremoRecord2.getNode());
+
+		// modified nodes and nodes without a serialized representation are not forwarded
+		input.put("c", IntNode.valueOf(3));
+		Assert.assertFalse(forwarded.forwardNode(input));
+		Assert.assertFalse(forwarded.forwardNode(JsonUtil.createObjectNode("a", 1)));
+		Assert.assertFalse(new SopremoRecord(SopremoRecordLayout.create(new ObjectAccess("b"))).forwardNode(
+			serializeAndDeserialize(sopremoRecord).getNode()));
+	}
+
 	@Test
 	public void testArrayKey() throws IOException {
 		final SopremoRecordLayout layout = SopremoRecordLayout.create(new ArrayAccess(1));
@@ -91,6 +205,34 @@ public class SopremoRecordTest extends EqualCloneTest<SopremoRecord> {
 		Assert.assertSame(null, sopremoRecord2.getNodeDirectly());
 	}
 
+	@Test
+	public void testBinaryKeyComparison() throws IOException {
+		final SopremoRecordLayout layout = SopremoRecordLayout.create(new ObjectAccess("a"));
+		final Object[] orderedKeys = { true, -3, 2L, 2.5, null, "", "ab", "abc", "b", "\u00e4" };
+		for (int index = 1; index < orderedKeys.length; index++) {
+			final SopremoRecord record1 = new SopremoRecord(layout), record2 = new SopremoRecord(layout);
+			record1.setNode(JsonUtil.createObjectNode("a", orderedKeys[index - 1], "b", 2));
+			record2.setNode(JsonUtil.createObjectNode("a", orderedKeys[index], "b", 1));
+
+			final SopremoRecord deserialized1 = serializeAndDeserialize(record1);
+			final SopremoRecord deserialized2 = serializeAndDeserialize(record2);
+			final int expected = record1.getKey(new ObjectAccess("a")).compareTo(record2.getKey(new ObjectAccess("a")));
+			final int comparison = deserialized1.compareKeyTo(0, deserialized2, new NodeCache(), new NodeCache());
+			Assert.assertEquals(Integer.signum(expected), Integer.signum(comparison));
+			Assert.assertSame(null, deserialized1.getNodeDirectly());
+			Assert.assertEquals(0, deserialized1.compareKeyTo(0, serializeAndDeserialize(record1), new NodeCache(),
+				new NodeCache()));
+		}
+	}
+
+	private static byte[] toBytes(final SopremoRecord sopremoRecord) throws IOException {
+		final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		final DataOutputStream output = new DataOutputStream(baos);
+		sopremoRecord.write(output);
+		output.close();
+		return baos.toByteArray();
+	}
+
 	/**
 	 * @param sopremoRecord
 	 * @return
@@ -0,0 +1,154 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010-2013 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+package eu.stratosphere.sopremo.type;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import eu.stratosphere.pact.testing.AssertUtil;
+
+/**
+ * Tests the {@link DictionaryObjectNode}.
+ */
+public class DictionaryObjectNodeTest {
+	@Test
+	public void shouldSetGetAndRemoveValues() {
+		final DictionaryObjectNode node = new DictionaryObjectNode();
+		node.put("key1", IntNode.valueOf(23)).put("key2", IntNode.valueOf(42));
+		Assert.assertEquals(2, node.size());
+		Assert.assertEquals(IntNode.valueOf(42), node.get("key2"));
+		Assert.assertSame(MissingNode.getInstance(), node.get("unknown"));
+
+		node.remove("key1");
+		Assert.assertEquals(1, node.size());
+		Assert.assertSame(MissingNode.getInstance(), node.get("key1"));
+		node.put("key2", MissingNode.getInstance());
+		Assert.assertEquals(0, node.size());
+	}
+
+	@Test
+	public void shouldIterateInFieldNameOrder() {
+		final DictionaryObjectNode node = new DictionaryObjectNode();
+		final Map<String, IJsonNode> expected = new TreeMap<String, IJsonNode>();
+		for (final String key : new String[] { "d", "b", "e", "a", "c" }) {
+			expected.put(key, TextNode.valueOf(key));
+			node.put(key, TextNode.valueOf(key));
+		}
+		node.remove("c");
+		expected.remove("c");
+
+		final Iterator<Entry<String, IJsonNode>> it = node.iterator();
+		AssertUtil.assertIteratorEquals(expected.entrySet().iterator(), it);
+		Assert.assertEquals(expected.keySet(), node.getFieldNames());
+	}
+
+	@Test
+	public void shouldBeEqualToObjectNode() {
+		final ObjectNode objectNode = new ObjectNode().put("firstName", TextNode.valueOf("Hans")).
+			put("age", IntNode.valueOf(25));
+		final DictionaryObjectNode node = new DictionaryObjectNode();
+		node.put("age", IntNode.valueOf(25)).put("firstName", TextNode.valueOf("Hans"));
+
+		Assert.assertEquals(objectNode, node);
+		Assert.assertEquals(node, objectNode);
+		Assert.assertEquals(objectNode.hashCode(), node.hashCode());
+		Assert.assertEquals(objectNode.toString(), node.toString());
+		Assert.assertEquals(node, node.clone());
+	}
+
+	@Test
+	public void shouldShareDictionary() {
+		final FieldDictionary dictionary = new FieldDictionary();
+		final DictionaryObjectNode node1 = new DictionaryObjectNode(dictionary), node2 =
+			new DictionaryObjectNode(dictionary);
+		node1.put("b", IntNode.valueOf(1));
+		node2.put("a", IntNode.valueOf(2)).put("b", IntNode.valueOf(1));
+
+		Assert.assertEquals(2, dictionary.size());
+		Assert.assertFalse(node1.equals(node2));
+		node2.remove("a");
+		Assert.assertEquals(node1, node2);
+		Assert.assertSame(dictionary, node1.clone().getDictionary());
+		Assert.assertTrue(Arrays.equals(new int[] { 1, 0 }, dictionary.getSortedIds()));
+	}
+
+	@Test
+	public void shouldRetainValuesAfterClear() {
+		final DictionaryObjectNode node = new DictionaryObjectNode();
+		final IntNode value = new IntNode(1);
+		node.put("key", value);
+		node.clear();
+
+		Assert.assertEquals(0, node.size());
+		Assert.assertSame(MissingNode.getInstance(), node.get("key"));
+		Assert.assertSame(value, node.getUnusedNode("key"));
+		Assert.assertNull(node.getUnusedNode("unknown"));
+
+		node.copyValueFrom(new ObjectNode().put("key", IntNode.valueOf(2)));
+		Assert.assertSame(value, node.get("key"));
+		Assert.assertEquals(IntNode.valueOf(2), value);
+	}
+
+	@Test
+	public void shouldStoreFieldsOfFullDictionaryInNode() {
+		final FieldDictionary dictionary = new FieldDictionary(2);
+		final DictionaryObjectNode node = new DictionaryObjectNode(dictionary);
+		final ObjectNode expected = new ObjectNode();
+		for (final String key : new String[] { "d", "b", "e", "a", "c" }) {
+			expected.put(key, TextNode.valueOf(key));
+			node.put(key, TextNode.valueOf(key));
+		}
+
+		Assert.assertEquals(2, dictionary.size());
+		Assert.assertEquals(FieldDictionary.UNKNOWN, dictionary.getOrAddId("a"));
+		Assert.assertEquals(5, node.size());
+		Assert.assertEquals(TextNode.valueOf("a"), node.get("a"));
+		AssertUtil.assertIteratorEquals(expected.iterator(), node.iterator());
+		Assert.assertEquals(expected, node);
+		Assert.assertEquals(expected.hashCode(), node.hashCode());
+		Assert.assertEquals(expected.toString(), node.toString());
+		Assert.assertEquals(node, node.clone());
+
+		node.remove("a");
+		node.remove("d");
+		expected.remove("a");
+		expected.remove("d");
+		Assert.assertEquals(expected.getFieldNames(), node.getFieldNames());
+		Assert.assertEquals(expected, node);
+
+		node.clear();
+		Assert.assertEquals(0, node.size());
+		Assert.assertFalse(node.iterator().hasNext());
+		Assert.assertEquals(new DictionaryObjectNode(dictionary), node);
+	}
+
+	@Test
+	public void shouldRemoveFieldsWhileIterating() {
+		final DictionaryObjectNode node = new DictionaryObjectNode(new FieldDictionary(2));
+		node.put("c", IntNode.valueOf(3)).put("a", IntNode.valueOf(1)).put("b", IntNode.valueOf(2));
+
+		final Iterator<Entry<String, IJsonNode>> it = node.iterator();
+		while (it.hasNext())
+			if (!it.next().getKey().equals("b"))
+				it.remove();
+		Assert.assertEquals(new ObjectNode().put("b", IntNode.valueOf(2)), node);
+	}
+}
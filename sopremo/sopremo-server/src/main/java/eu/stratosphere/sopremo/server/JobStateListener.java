@@ -0,0 +1,38 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010-2013 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+package eu.stratosphere.sopremo.server;
+
+import eu.stratosphere.sopremo.execution.ExecutionResponse.ExecutionState;
+
+/**
+ * Receives the state changes of the jobs of a {@link SopremoServer} as soon as they happen.<br>
+ * <br>
+ * Listeners are invoked by the thread that executes the job and thus should return quickly.
+ * 
+ * @author Arvid Heise
+ */
+public interface JobStateListener {
+	/**
+	 * Called after the state or the detail of the given job changed.
+	 * 
+	 * @param jobInfo
+	 *        the job
+	 * @param state
+	 *        the new state
+	 * @param detail
+	 *        the new detail
+	 */
+	public void stateChanged(SopremoJobInfo jobInfo, ExecutionState state, String detail);
+}
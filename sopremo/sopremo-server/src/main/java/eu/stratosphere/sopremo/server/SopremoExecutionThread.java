@@ -111,6 +111,7 @@ public class SopremoExecutionThread implements Runnable {
 
 		JobGraph jobGraph;
 		try {
+			this.jobInfo.setStatusAndDetail(ExecutionState.ENQUEUED, "Compiling plan");
 			jobGraph = getJobGraph(pactPlan);
 		} catch (Exception e) {
 			LOG.error("Could not generate job graph " + this.jobInfo.getJobId(), e);
@@ -14,8 +14,10 @@
  **********************************************************************************************************************/
 package eu.stratosphere.sopremo.server;
 
-import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import eu.stratosphere.nephele.client.JobClient;
 import eu.stratosphere.nephele.configuration.Configuration;
@@ -24,6 +26,12 @@ import eu.stratosphere.sopremo.execution.ExecutionResponse.ExecutionState;
 import eu.stratosphere.sopremo.execution.SopremoID;
 
 /**
+ * Stores the state of a job that has been submitted to the {@link SopremoServer}.<br>
+ * <br>
+ * The state is updated by the {@link SopremoExecutionThread} and read concurrently by the RPC handlers. Each update is
+ * pushed to the registered {@link JobStateListener}s and wakes up all threads that wait in
+ * {@link #waitForStateChange(ExecutionState, String, long)}.
+ * 
  * @author Arvid Heise
  */
 public class SopremoJobInfo {
@@ -35,7 +43,9 @@ public class SopremoJobInfo {
 
 	private final SopremoID jobId;
 
-	private Map<String, Object> metadata;
+	private final Map<String, Object> metadata = new ConcurrentHashMap<String, Object>();
+
+	private final List<JobStateListener> stateListeners = new CopyOnWriteArrayList<JobStateListener>();
 
 	public static final String PREOPTMIZEDPACTPLANJSON = "pre.optmized.pact.plan.json";
 
@@ -45,7 +55,6 @@ public class SopremoJobInfo {
 		this.initialRequest = initialRequest;
 		this.configuration = configuration;
 		this.jobId = jobId;
-		this.metadata = new HashMap<String, Object>();
 	}
 
 	/**
@@ -66,9 +75,9 @@ public class SopremoJobInfo {
 		return this.configuration;
 	}
 
-	private ExecutionState status = ExecutionState.ENQUEUED;
+	private volatile ExecutionState status = ExecutionState.ENQUEUED;
 
-	private String detail = "";
+	private volatile String detail = "";
 
 	public String getDetail() {
 		return this.detail;
@@ -115,16 +124,73 @@ public class SopremoJobInfo {
 	}
 
 	/**
-	 * @param running
-	 * @param string
+	 * Sets the status and the detail of the job and notifies all {@link JobStateListener}s and waiting threads.
+	 * 
+	 * @param status
+	 *        the new status
+	 * @param detail
+	 *        the new detail
 	 */
 	public void setStatusAndDetail(ExecutionState status, String detail) {
 		if (status == null)
 			throw new NullPointerException("status must not be null");
 		if (detail == null)
 			throw new NullPointerException("detail must not be null");
-		this.status = status;
-		this.detail = detail;
+		synchronized (this) {
+			this.status = status;
+			this.detail = detail;
+			this.notifyAll();
+		}
+		for (JobStateListener listener : this.stateListeners)
+			listener.stateChanged(this, status, detail);
+	}
+
+	/**
+	 * Blocks until the status or the detail of the job differ from the given values or until the timeout expires.
+	 * 
+	 * @param knownStatus
+	 *        the status that is already known to the caller
+	 * @param knownDetail
+	 *        the detail that is already known to the caller
+	 * @param timeout
+	 *        the maximum time to wait in milliseconds
+	 * @return true if the status or the detail changed
+	 * @throws InterruptedException
+	 *         if the calling thread has been interrupted while waiting
+	 */
+	public synchronized boolean waitForStateChange(ExecutionState knownStatus, String knownDetail, long timeout)
+			throws InterruptedException {
+		final long deadline = System.currentTimeMillis() + timeout;
+		while (this.status == knownStatus && this.detail.equals(knownDetail)) {
+			final long remaining = deadline - System.currentTimeMillis();
+			if (remaining <= 0)
+				return false;
+			this.wait(remaining);
+		}
+		return true;
+	}
+
+	/**
+	 * Registers a listener that receives all subsequent state changes of the job.
+	 * 
+	 * @param listener
+	 *        the listener to add
+	 */
+	public void addStateListener(JobStateListener listener) {
+		if (listener == null)
+			throw new NullPointerException("listener must not be null");
+
+		this.stateListeners.add(listener);
+	}
+
+	/**
+	 * Unregisters the given listener.
+	 * 
+	 * @param listener
+	 *        the listener to remove
+	 */
+	public void removeStateListener(JobStateListener listener) {
+		this.stateListeners.remove(listener);
 	}
 
 	public void setMetaData(String key, String value) {
@@ -17,10 +17,12 @@ package eu.stratosphere.sopremo.server;
 import java.io.Closeable;
 import java.io.IOException;
 import java.net.InetSocketAddress;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
 
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.CommandLineParser;
@@ -39,6 +41,7 @@ import eu.stratosphere.nephele.execution.librarycache.LibraryCacheProfileRequest
 import eu.stratosphere.nephele.execution.librarycache.LibraryCacheProfileResponse;
 import eu.stratosphere.nephele.execution.librarycache.LibraryCacheUpdate;
 import eu.stratosphere.nephele.rpc.RPCService;
+import eu.stratosphere.nephele.rpc.RPCService.Transport;
 import eu.stratosphere.nephele.util.StringUtils;
 import eu.stratosphere.sopremo.execution.ExecutionRequest;
 import eu.stratosphere.sopremo.execution.ExecutionResponse;
@@ -61,22 +64,41 @@ public class SopremoServer implements SopremoExecutionProtocol, Closeable {
 
 	private ScheduledExecutorService executorService = createExecutor();
 
-	private Map<SopremoID, SopremoJobInfo> jobInfo = new HashMap<SopremoID, SopremoJobInfo>();
+	private final ConcurrentHashMap<SopremoID, SopremoJobInfo> jobInfo =
+		new ConcurrentHashMap<SopremoID, SopremoJobInfo>();
+
+	private final List<JobStateListener> stateListeners = new CopyOnWriteArrayList<JobStateListener>();
 
 	private boolean stopped = false;
 
 	private LibraryTransferAgent libraryTransferAgent = new LibraryTransferAgent();
 
+	/**
+	 * Limits the number of subscribers that block an RPC handler at the same time.
+	 */
+	private final Semaphore subscriptionPermits;
+
 	private static final Log LOG = LogFactory.getLog(SopremoServer.class);
 
 	private final static int SLEEPINTERVAL = 1000;
 
+	/**
+	 * The maximum time that a subscriber may block an RPC handler, which must stay below the RPC timeout.
+	 */
+	private final static long MAX_SUBSCRIPTION_TIMEOUT = 30000;
+
+	/**
+	 * The number of RPC handlers that are never blocked by subscribers, such that the server stays responsive.
+	 */
+	private final static int RESERVED_HANDLERS = 1;
+
 	public SopremoServer() {
 		this(GlobalConfiguration.getConfiguration());
 	}
 
 	public SopremoServer(Configuration configuration) {
 		this.configuration = configuration;
+		this.subscriptionPermits = new Semaphore(Math.max(0, this.getNumberOfHandlers() - RESERVED_HANDLERS));
 	}
 
 	/*
@@ -101,6 +123,8 @@ public class SopremoServer implements SopremoExecutionProtocol, Closeable {
 		SopremoID jobId = SopremoID.generate();
 		LOG.info("Receive execution request for job " + jobId);
 		final SopremoJobInfo info = new SopremoJobInfo(jobId, request, this.configuration);
+		for (JobStateListener listener : this.stateListeners)
+			info.addStateListener(listener);
 		this.jobInfo.put(jobId, info);
 		if (request.getQuery() == null)
 			info.setStatusAndDetail(ExecutionState.ERROR, "No plan submitted");
@@ -154,6 +178,68 @@ public class SopremoServer implements SopremoExecutionProtocol, Closeable {
 		return new ExecutionResponse(jobId, info.getStatus(), info.getDetail());
 	}
 
+	/*
+	 * (non-Javadoc)
+	 * @see eu.stratosphere.sopremo.execution.SopremoExecutionProtocol#waitForStateChange(eu.stratosphere.sopremo.
+	 * execution.SopremoID, eu.stratosphere.sopremo.execution.ExecutionResponse.ExecutionState, java.lang.String, long)
+	 */
+	@Override
+	public ExecutionResponse waitForStateChange(SopremoID jobId, ExecutionState knownState, String knownDetail,
+			long timeout) throws InterruptedException {
+		final SopremoJobInfo info = this.jobInfo.get(jobId);
+		// if all unreserved handlers are already blocked, the current state is returned immediately and the client
+		// falls back to polling
+		if (info != null && this.subscriptionPermits.tryAcquire())
+			try {
+				info.waitForStateChange(knownState, knownDetail, Math.min(timeout, MAX_SUBSCRIPTION_TIMEOUT));
+			} finally {
+				this.subscriptionPermits.release();
+			}
+		return this.getState(jobId);
+	}
+
+	/**
+	 * Registers a listener that receives the state changes of all jobs that are submitted from now on.
+	 * 
+	 * @param listener
+	 *        the listener to add
+	 */
+	public void addJobStateListener(JobStateListener listener) {
+		if (listener == null)
+			throw new NullPointerException("listener must not be null");
+
+		this.stateListeners.add(listener);
+	}
+
+	/**
+	 * Registers a listener that receives all subsequent state changes of the given job.
+	 * 
+	 * @param jobId
+	 *        the id of the job
+	 * @param listener
+	 *        the listener to add
+	 * @return false if the job is unknown
+	 */
+	public boolean addJobStateListener(SopremoID jobId, JobStateListener listener) {
+		final SopremoJobInfo info = this.jobInfo.get(jobId);
+		if (info == null)
+			return false;
+		info.addStateListener(listener);
+		return true;
+	}
+
+	/**
+	 * Unregisters the given listener from all jobs.
+	 * 
+	 * @param listener
+	 *        the listener to remove
+	 */
+	public void removeJobStateListener(JobStateListener listener) {
+		this.stateListeners.remove(listener);
+		for (SopremoJobInfo info : this.jobInfo.values())
+			info.removeStateListener(listener);
+	}
+
 	/**
 	 * Returns the stopped.
 	 * 
@@ -208,9 +294,22 @@ public class SopremoServer implements SopremoExecutionProtocol, Closeable {
 		return executor;
 	}
 
+	private int getNumberOfHandlers() {
+		return this.configuration.getInteger(SopremoConstants.SOPREMO_SERVER_HANDLER_COUNT_KEY,
+			SopremoConstants.DEFAULT_SOPREMO_SERVER_HANDLER_COUNT);
+	}
+
 	private void startServer() throws IOException {
 		InetSocketAddress rpcServerAddress = getServerAddress();
-		this.rpcService = new RPCService(rpcServerAddress.getPort(), 2, null);
+		final int numHandlers = this.getNumberOfHandlers();
+		final Transport transport;
+		try {
+			transport = Transport.fromName(this.configuration.getString(SopremoConstants.SOPREMO_SERVER_TRANSPORT_KEY,
+				SopremoConstants.DEFAULT_SOPREMO_SERVER_TRANSPORT));
+		} catch (IllegalArgumentException e) {
+			throw new IOException("Invalid value of " + SopremoConstants.SOPREMO_SERVER_TRANSPORT_KEY, e);
+		}
+		this.rpcService = new RPCService(rpcServerAddress.getPort(), numHandlers, null, transport);
 		this.rpcService.setProtocolCallbackHandler(SopremoExecutionProtocol.class, this);
 	}
 
@@ -266,7 +365,8 @@ public class SopremoServer implements SopremoExecutionProtocol, Closeable {
 
 	@Override
 	public Object getMetaData(SopremoID jobId, String key) {
-		return this.jobInfo.get(jobId).getMetaData(key);
+		final SopremoJobInfo info = this.jobInfo.get(jobId);
+		return info == null ? null : info.getMetaData(key);
 	}
 
 }
@@ -0,0 +1,76 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010-2013 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+package eu.stratosphere.sopremo.server;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import eu.stratosphere.nephele.configuration.Configuration;
+import eu.stratosphere.sopremo.execution.ExecutionRequest;
+import eu.stratosphere.sopremo.execution.ExecutionResponse.ExecutionState;
+import eu.stratosphere.sopremo.execution.SopremoID;
+
+/**
+ * @author Arvid Heise
+ */
+public class SopremoJobInfoTest {
+
+	private SopremoJobInfo jobInfo;
+
+	@Before
+	public void setup() {
+		this.jobInfo = new SopremoJobInfo(SopremoID.generate(),
+			new ExecutionRequest(SopremoExecuctionThreadTest.createPlan()), new Configuration());
+	}
+
+	@Test
+	public void testPushToListeners() {
+		final List<ExecutionState> states = new ArrayList<ExecutionState>();
+		final JobStateListener listener = new JobStateListener() {
+			@Override
+			public void stateChanged(SopremoJobInfo jobInfo, ExecutionState state, String detail) {
+				states.add(state);
+			}
+		};
+		this.jobInfo.addStateListener(listener);
+		this.jobInfo.setStatusAndDetail(ExecutionState.RUNNING, "");
+		this.jobInfo.removeStateListener(listener);
+		this.jobInfo.setStatusAndDetail(ExecutionState.FINISHED, "");
+
+		Assert.assertEquals(1, states.size());
+		Assert.assertSame(ExecutionState.RUNNING, states.get(0));
+	}
+
+	@Test
+	public void testWaitForStateChange() throws InterruptedException {
+		Assert.assertFalse(this.jobInfo.waitForStateChange(ExecutionState.ENQUEUED, "", 10));
+		Assert.assertTrue(this.jobInfo.waitForStateChange(ExecutionState.SETUP, "", 10));
+
+		final Thread executor = new Thread() {
+			@Override
+			public void run() {
+				SopremoJobInfoTest.this.jobInfo.setStatusAndDetail(ExecutionState.ENQUEUED, "compiling");
+			}
+		};
+		executor.start();
+		Assert.assertTrue(this.jobInfo.waitForStateChange(ExecutionState.ENQUEUED, "", 60000));
+		Assert.assertEquals("compiling", this.jobInfo.getDetail());
+		executor.join();
+	}
+}
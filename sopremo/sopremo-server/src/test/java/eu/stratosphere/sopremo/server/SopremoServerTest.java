@@ -0,0 +1,114 @@
+/***********************************************************************************************************************
+ *
+ * Copyright (C) 2010-2013 by the Stratosphere project (http://stratosphere.eu)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ **********************************************************************************************************************/
+package eu.stratosphere.sopremo.server;
+
+import java.io.IOException;
+import java.net.DatagramSocket;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import eu.stratosphere.nephele.configuration.Configuration;
+import eu.stratosphere.nephele.rpc.RPCService;
+import eu.stratosphere.sopremo.execution.ExecutionRequest;
+import eu.stratosphere.sopremo.execution.ExecutionResponse;
+import eu.stratosphere.sopremo.execution.ExecutionResponse.ExecutionState;
+import eu.stratosphere.sopremo.execution.SopremoConstants;
+import eu.stratosphere.sopremo.execution.SopremoExecutionProtocol;
+
+/**
+ * @author Arvid Heise
+ */
+public class SopremoServerTest {
+	private static final int NUMBER_OF_HANDLERS = 2;
+
+	private static final long SUBSCRIPTION_TIMEOUT = 5000;
+
+	private SopremoServer server;
+
+	private RPCService rpcService;
+
+	private SopremoExecutionProtocol executor;
+
+	@Before
+	public void setup() throws IOException {
+		final DatagramSocket socket = new DatagramSocket(0);
+		final int port = socket.getLocalPort();
+		socket.close();
+
+		final Configuration configuration = new Configuration();
+		configuration.setInteger(SopremoConstants.SOPREMO_SERVER_HANDLER_COUNT_KEY, NUMBER_OF_HANDLERS);
+		configuration.setString(SopremoConstants.SOPREMO_SERVER_IPC_ADDRESS_KEY, "localhost");
+		configuration.setInteger(SopremoConstants.SOPREMO_SERVER_IPC_PORT_KEY, port);
+		this.server = new SopremoServer(configuration);
+		this.server.start();
+
+		this.rpcService = new RPCService();
+		this.executor = this.rpcService.getProxy(new InetSocketAddress("localhost", port),
+			SopremoExecutionProtocol.class);
+	}
+
+	@After
+	public void teardown() {
+		this.rpcService.shutDown();
+		this.server.close();
+	}
+
+	@Test
+	public void shouldAnswerRequestsWithMoreSubscribersThanHandlers() throws Exception {
+		// a job without a plan immediately fails and never changes its state again
+		final ExecutionResponse submission = this.executor.execute(new ExecutionRequest());
+		Assert.assertSame(ExecutionState.ERROR, submission.getState());
+
+		final AtomicInteger immediateResponses = new AtomicInteger();
+		final List<Thread> subscribers = new ArrayList<Thread>();
+		for (int index = 0; index < 2 * NUMBER_OF_HANDLERS; index++) {
+			final Thread subscriber = new Thread() {
+				@Override
+				public void run() {
+					try {
+						final long start = System.currentTimeMillis();
+						SopremoServerTest.this.executor.waitForStateChange(submission.getJobId(),
+							submission.getState(), submission.getDetails(), SUBSCRIPTION_TIMEOUT);
+						if (System.currentTimeMillis() - start < SUBSCRIPTION_TIMEOUT / 2)
+							immediateResponses.incrementAndGet();
+					} catch (Exception e) {
+						throw new RuntimeException(e);
+					}
+				}
+			};
+			subscriber.start();
+			subscribers.add(subscriber);
+		}
+		Thread.sleep(SUBSCRIPTION_TIMEOUT / 5);
+
+		// the reserved handler still answers while the subscription handler is blocked
+		final long start = System.currentTimeMillis();
+		final ExecutionResponse state = this.executor.getState(submission.getJobId());
+		Assert.assertTrue(System.currentTimeMillis() - start < SUBSCRIPTION_TIMEOUT / 2);
+		Assert.assertSame(ExecutionState.ERROR, state.getState());
+
+		for (final Thread subscriber : subscribers)
+			subscriber.join();
+		// only the unreserved handlers wait for state changes, all other subscribers are answered immediately
+		Assert.assertEquals(2 * NUMBER_OF_HANDLERS - (NUMBER_OF_HANDLERS - 1), immediateResponses.get());
+	}
+}
@@ -1,10 +1,19 @@
 package eu.stratosphere.sopremo.io;
 
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+
+import org.junit.Assert;
 import org.junit.Test;
 
+import eu.stratosphere.nephele.configuration.Configuration;
 import eu.stratosphere.sopremo.EqualCloneTest;
+import eu.stratosphere.sopremo.EvaluationContext;
+import eu.stratosphere.sopremo.SopremoEnvironment;
 import eu.stratosphere.sopremo.expressions.ArrayCreation;
 import eu.stratosphere.sopremo.expressions.ConstantExpression;
+import eu.stratosphere.sopremo.serialization.SopremoRecordLayout;
 import eu.stratosphere.sopremo.testing.SopremoTestPlan;
 import eu.stratosphere.sopremo.type.IntNode;
 import eu.stratosphere.sopremo.type.TextNode;
@@ -44,4 +53,27 @@ public class SourceTest extends EqualCloneTest<Source> {
 			add(TextNode.valueOf("test"));
 		plan.run();
 	}
+
+	@Test
+	public void shouldKeepEnvironmentOfPlanner() throws IOException {
+		final File file = File.createTempFile("sourceTest", ".json");
+		file.deleteOnExit();
+		final FileWriter writer = new FileWriter(file);
+		writer.write("[{\"id\": 1}, {\"id\": 2}, {\"id\": 3}]");
+		writer.close();
+
+		final SopremoEnvironment environment = SopremoEnvironment.getInstance();
+		final EvaluationContext plannerContext = new EvaluationContext();
+		environment.setEvaluationContext(plannerContext);
+		final SopremoRecordLayout plannerLayout = environment.getLayout();
+		final Configuration plannerConfiguration = environment.getConfiguration();
+
+		final Source source = new Source(new JsonFormat(), file.toURI().toString());
+		Assert.assertEquals(3, source.sample(new EvaluationContext(), 10).size());
+		source.getStatistics(new EvaluationContext());
+
+		Assert.assertSame(plannerContext, environment.getEvaluationContext());
+		Assert.assertSame(plannerLayout, environment.getLayout());
+		Assert.assertSame(plannerConfiguration, environment.getConfiguration());
+	}
 }
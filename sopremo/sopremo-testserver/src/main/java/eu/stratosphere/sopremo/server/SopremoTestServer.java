@@ -229,6 +229,17 @@ public class SopremoTestServer implements Closeable, SopremoExecutionProtocol {
 		return this.executor.getState(jobId);
 	}
 
+	/*
+	 * (non-Javadoc)
+	 * @see eu.stratosphere.sopremo.execution.SopremoExecutionProtocol#waitForStateChange(eu.stratosphere.sopremo.
+	 * execution.SopremoID, eu.stratosphere.sopremo.execution.ExecutionResponse.ExecutionState, java.lang.String, long)
+	 */
+	@Override
+	public ExecutionResponse waitForStateChange(SopremoID jobId, ExecutionState knownState, String knownDetail,
+			long timeout) throws IOException, InterruptedException {
+		return this.executor.waitForStateChange(jobId, knownState, knownDetail, timeout);
+	}
+
 	private void fail(Exception e, final String message) throws AssertionFailedError {
 		final AssertionFailedError assertionFailedError = new AssertionFailedError(message);
 		assertionFailedError.initCause(e);
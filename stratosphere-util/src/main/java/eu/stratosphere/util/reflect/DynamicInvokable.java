@@ -25,7 +25,10 @@ public abstract class DynamicInvokable<MemberType extends Member, DeclaringType,
 
 	public static final Log LOG = LogFactory.getLog(DynamicInvokable.class);
 
-	private transient Map<Signature, MemberType> cachedSignatures = new HashMap<Signature, MemberType>();
+	/**
+	 * Caches the best matching declared signature (or null) for each actual signature that has been invoked.
+	 */
+	private transient Map<Signature, Signature> resolvedSignatures = new HashMap<Signature, Signature>();
 
 	private transient Map<Signature, MemberType> originalSignatures = new HashMap<Signature, MemberType>();
 
@@ -48,7 +51,7 @@ public abstract class DynamicInvokable<MemberType extends Member, DeclaringType,
 	public void read(Kryo kryo, Input input) {
 		ReflectUtil.setField(this, DynamicInvokable.class, "name", kryo.readObject(input, String.class));
 		final int size = input.readInt();
-		this.cachedSignatures = new HashMap<Signature, MemberType>();
+		this.resolvedSignatures = new HashMap<Signature, Signature>();
 		this.originalSignatures = new HashMap<Signature, MemberType>();
 		for (int index = 0; index < size; index++)
 			try {
@@ -122,8 +125,7 @@ public abstract class DynamicInvokable<MemberType extends Member, DeclaringType,
 		// Cache flushing might be more intelligent in the future.
 		// However, how often are method signatures actually added after first
 		// invocation?
-		this.cachedSignatures.clear();
-		this.cachedSignatures.putAll(this.originalSignatures);
+		this.resolvedSignatures.clear();
 	}
 
 	protected abstract boolean needsInstance(MemberType member);
@@ -137,8 +139,16 @@ public abstract class DynamicInvokable<MemberType extends Member, DeclaringType,
 	protected abstract Class<?>[] getParameterTypes(final MemberType member);
 
 	private Signature findBestSignature(final Signature signature) {
-		MemberType member = this.getMember(signature);
-		if (member != null)
+		Signature bestSignature = this.resolvedSignatures.get(signature);
+		if (bestSignature == null && !this.resolvedSignatures.containsKey(signature)) {
+			bestSignature = this.resolveSignature(signature);
+			this.resolvedSignatures.put(signature, bestSignature);
+		}
+		return bestSignature;
+	}
+
+	private Signature resolveSignature(final Signature signature) {
+		if (this.getMember(signature) != null)
 			return signature;
 
 		int minDistance = Integer.MAX_VALUE;
@@ -163,8 +173,6 @@ public abstract class DynamicInvokable<MemberType extends Member, DeclaringType,
 		if (ambiguous && LOG.isWarnEnabled())
 			this.warnForAmbiguity(signature, minDistance);
 
-		member = minDistance == Signature.INCOMPATIBLE ? null : this.originalSignatures.get(bestSignatureSoFar);
-		this.cachedSignatures.put(bestSignatureSoFar, member);
 		return bestSignatureSoFar;
 	}
 
@@ -191,6 +199,19 @@ public abstract class DynamicInvokable<MemberType extends Member, DeclaringType,
 		return this.invokeSignature(signature, context, params);
 	}
 
+	/**
+	 * Returns the declared signature that is invoked for the given parameters. The result for the runtime types of the
+	 * parameters is cached, so that callers may use the returned signature and {@link #invokeSignature} as long as
+	 * the parameter types do not change.
+	 * 
+	 * @param params
+	 *        the actual parameters
+	 * @return the best matching signature or null if no signature matches
+	 */
+	public Signature findSignature(final Object... params) {
+		return this.findBestSignature(new Signature(this.getActualParameterTypes(params)));
+	}
+
 	public ReturnType invokeStatic(final Object... params) throws Throwable {
 		return this.invoke(null, params);
 	}